@@ -97,4 +97,31 @@ for jdk_version in "${JDK_VERSIONS[@]}"; do
       -Dttl.agent.extra.d.options='-Drun-ttl-test-under-agent-with-enable-timer-task=true' \
       ${CI_MORE_END_OPTS:-}
   )
+
+  (
+    cd ttl-agent
+    cu::head_line_echo "test with TTL Agent of Javassist/ASM transformer engine and Java: $JAVA_HOME"
+
+    cu::blue_echo 'Run agent check under ttl agent of Javassist transformer engine(default)'
+    mvu::mvn_cmd ${CI_MORE_BEGIN_OPTS:-} \
+      surefire:test -Denforcer.skip \
+      -Penable-ttl-agent-for-test \
+      ${CI_MORE_END_OPTS:-}
+
+    cu::blue_echo 'Run agent check under ttl agent of ASM transformer engine'
+    mvu::mvn_cmd ${CI_MORE_BEGIN_OPTS:-} \
+      surefire:test -Denforcer.skip \
+      -Penable-ttl-agent-for-test \
+      -Dttl.agent.extra.args='ttl.agent.transformer.engine:asm' \
+      ${CI_MORE_END_OPTS:-}
+
+    for engine in javassist asm; do
+      cu::blue_echo "Run agent check under ttl agent of $engine transformer engine, and turn on the disable inheritable for thread pool enhancement and the CompletableFuture enhancement"
+      mvu::mvn_cmd ${CI_MORE_BEGIN_OPTS:-} \
+        surefire:test -Denforcer.skip \
+        -Penable-ttl-agent-for-test \
+        -Dttl.agent.extra.args="ttl.agent.transformer.engine:$engine,ttl.agent.disable.inheritable.for.thread.pool:true,ttl.agent.enable.completable.future:true" \
+        ${CI_MORE_END_OPTS:-}
+    done
+  )
 done
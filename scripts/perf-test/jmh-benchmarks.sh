@@ -0,0 +1,19 @@
+#!/bin/bash
+set -eEuo pipefail
+cd "$(dirname "$(readlink -f "$0")")"
+
+cd ../..
+
+# usage:
+#   jmh-benchmarks.sh [regexp of benchmark] [extra jmh options]
+# the thread counts are set by env var THREAD_COUNTS, default "1 4 16"
+readonly benchmarks=${1:-.*Benchmark}
+shift || true
+readonly threadCounts=${THREAD_COUNTS:-1 4 16}
+
+./mvnw -pl ttl-benchmarks -am package -DskipTests
+
+cd ttl-benchmarks
+for t in $threadCounts; do
+  java -jar target/benchmarks.jar "$benchmarks" -t "$t" -prof gc -rf json -rff "target/jmh-result-t$t.json" "$@"
+done
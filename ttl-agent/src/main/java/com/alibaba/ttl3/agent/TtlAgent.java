@@ -1,18 +1,22 @@
 package com.alibaba.ttl3.agent;
 
+import com.alibaba.ttl3.agent.asm.AsmTtlTransformer;
 import com.alibaba.ttl3.agent.logging.Logger;
 import com.alibaba.ttl3.agent.transformlet.TtlTransformlet;
+import com.alibaba.ttl3.agent.transformlet.helper.ExecutorTransmitProfiles;
+import com.alibaba.ttl3.agent.transformlet.internal.CompletableFutureTtlTransformlet;
 import com.alibaba.ttl3.agent.transformlet.internal.ForkJoinTtlTransformlet;
 import com.alibaba.ttl3.agent.transformlet.internal.JdkExecutorTtlTransformlet;
 import com.alibaba.ttl3.agent.transformlet.internal.PriorityBlockingQueueTtlTransformlet;
 import com.alibaba.ttl3.agent.transformlet.internal.TimerTaskTtlTransformlet;
 import com.alibaba.ttl3.executor.TtlExecutors;
 import edu.umd.cs.findbugs.annotations.NonNull;
-import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import edu.umd.cs.findbugs.annotations.Nullable;
 
 import java.lang.instrument.ClassFileTransformer;
 import java.lang.instrument.Instrumentation;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -95,6 +99,25 @@ import java.util.Map;
  * <li>{@code -javaagent:/path/to/transmittable-thread-local-2.x.y.jar=ttl.agent.enable.timer.task:false}</li>
  * </ol>
  *
+ * <h3>Configuration key: Enable CompletableFuture class decoration</h3>
+ * <p>
+ * Enable CompletableFuture class decoration is configured by key {@code ttl.agent.enable.completable.future}.
+ * <p>
+ * When no configuration for this key, default is {@code false}(aka. <b>disabled</b>):
+ * the async tasks of {@link java.util.concurrent.CompletableFuture} are captured as the other
+ * {@link java.util.concurrent.ForkJoinTask}s or the tasks submitted to the thread pools.<br>
+ * When enabled, the function parameters of the {@code *Async} methods of {@link java.util.concurrent.CompletableFuture}
+ * are also captured when calling the method, so the functions run with the values of the calling thread
+ * even if the async stage is triggered later by the completion in another thread;
+ * the async tasks are still captured, the dependent stages completed by the tasks run with the captured values.
+ * <p>
+ * Configuration example:
+ *
+ * <ol>
+ * <li>{@code -Dttl.agent.enable.completable.future=true}</li>
+ * <li>{@code -javaagent:/path/to/transmittable-thread-local-2.x.y.jar=ttl.agent.enable.completable.future:true}</li>
+ * </ol>
+ *
  * <h3>Configuration key: logging the transform class received by TTL Agent</h3>
  * <p>
  * Enable logging the transform class received by TTL Agent by key {@code ttl.agent.log.class.transform},
@@ -108,6 +131,72 @@ import java.util.Map;
  * <li>{@code -javaagent:/path/to/transmittable-thread-local-2.x.y.jar=ttl.agent.log.class.transform:true}</li>
  * </ol>
  *
+ * <h3>Configuration key: Transform cache directory</h3>
+ * <p>
+ * Enable the on-disk cache of the class transform results by key {@code ttl.agent.transform.cache.dir},
+ * the transform results are reused across JVM starts, skipping the Javassist parsing and compiling of the cached classes.
+ * When no configuration for this key, default is no transform cache. Since version {@code 3.0.0}.
+ * <p>
+ * The cache entries are keyed by the checksum of the class bytes and the fingerprint of
+ * the agent jar, the transformlets and the agent options, so upgrading the application or the agent
+ * invalidates the stale entries automatically. The cache directory can be pre-generated(e.g. when building the container image)
+ * by {@link TtlTransformCacheGenerator}; a read-only cache directory is used without writing.
+ * <p>
+ * The cached bytes are defined as classes without further verification, so the cache directory MUST be private:
+ * owned by the current user(or {@code root}) and not writable by group or others; the absent directory is created
+ * with the owner only permissions. Otherwise(or on the file systems without POSIX file attributes) the cache is not used.
+ * <p>
+ * Configuration example:
+ *
+ * <ol>
+ * <li>{@code -Dttl.agent.transform.cache.dir=/path/to/cache/dir}</li>
+ * <li>{@code -javaagent:/path/to/transmittable-thread-local-2.x.y.jar=ttl.agent.transform.cache.dir:/path/to/cache/dir}</li>
+ * </ol>
+ *
+ * <h3>Configuration key: Transformer engine</h3>
+ * <p>
+ * The bytecode transformer engine of the TTL built-in {@code Transformlet}s is configured by key {@code ttl.agent.transformer.engine}.
+ * Since version {@code 3.0.0}.
+ *
+ * <ul>
+ * <li>{@code ttl.agent.transformer.engine : javassist}<br>
+ * compile the inserted Java source snippets by Javassist at runtime,
+ * the original method is renamed(e.g. {@code original$doExec$method$renamed$by$ttl}) and called from the {@code try-finally} method.
+ * This is <b>default</b>, when no/unrecognized configuration for key {@code ttl.agent.transformer.engine}.</li>
+ * <li>{@code ttl.agent.transformer.engine : asm}<br>
+ * weave the bytecode by ASM, the replay/restore {@code try-finally} is inlined into the original method body,
+ * faster agent start and no extra stack frame on the hot paths(e.g. {@code ForkJoinTask.doExec}).
+ * The extension {@code Transformlet}s are still run by Javassist.</li>
+ * </ul>
+ * <p>
+ * Configuration example:
+ *
+ * <ol>
+ * <li>{@code -Dttl.agent.transformer.engine=asm}</li>
+ * <li>{@code -javaagent:/path/to/transmittable-thread-local-2.x.y.jar=ttl.agent.transformer.engine:asm}</li>
+ * </ol>
+ *
+ * <h3>Configuration key: Transmit profiles of executors</h3>
+ * <p>
+ * Bind the executors enhanced by TTL agent to the {@link com.alibaba.ttl3.transmitter.TransmitProfile TransmitProfile}s
+ * by the executor class name, configured by key {@code ttl.agent.transmit.profiles}.
+ * The value is a list of {@code executorClassName=profileName} separated by {@code char |};
+ * the executor of a subclass of the configured class is bound to the profile too.
+ * When no configuration for this key, default is no binding(aka. all values are transmitted). Since version {@code 3.0.0}.
+ * <p>
+ * The tasks submitted to the bound executors({@link java.util.concurrent.ThreadPoolExecutor},
+ * {@link java.util.concurrent.ScheduledThreadPoolExecutor} and their subclasses) transmit only the values in the profile,
+ * the profile is registered by the application via
+ * {@link com.alibaba.ttl3.transmitter.TransmitProfile#register(String, com.alibaba.ttl3.transmitter.TransmitProfile) TransmitProfile#register};
+ * the tasks submitted before the registration transmit all values.
+ * <p>
+ * Configuration example:
+ *
+ * <ol>
+ * <li>{@code -Dttl.agent.transmit.profiles=com.foo.IoThreadPool=io|com.foo.RpcThreadPool=io}</li>
+ * <li>{@code -javaagent:/path/to/transmittable-thread-local-2.x.y.jar=ttl.agent.transmit.profiles:com.foo.IoThreadPool=io|com.foo.RpcThreadPool=io}</li>
+ * </ol>
+ *
  * <h3>Multi key configuration example</h3>
  * <p>
  * For {@code -D property} config, simply specify multiply {@code -D property}, example:<br>
@@ -178,6 +267,13 @@ public final class TtlAgent implements TtlAgentStatus {
      */
     public static final String TTL_AGENT_ENABLE_TIMER_TASK_KEY = "ttl.agent.enable.timer.task";
 
+    /**
+     * the TTL agent configuration key: Enable CompletableFuture class decoration
+     *
+     * @see TtlAgent
+     */
+    public static final String TTL_AGENT_ENABLE_COMPLETABLE_FUTURE_KEY = "ttl.agent.enable.completable.future";
+
     /**
      * the TTL agent configuration key: logging the transform class received by TTL Agent
      *
@@ -185,6 +281,37 @@ public final class TtlAgent implements TtlAgentStatus {
      */
     public static final String TTL_AGENT_LOG_CLASS_TRANSFORM_KEY = "ttl.agent.log.class.transform";
 
+    /**
+     * the TTL agent configuration key: Transform cache directory
+     *
+     * @see TtlAgent
+     */
+    public static final String TTL_AGENT_TRANSFORM_CACHE_DIR_KEY = "ttl.agent.transform.cache.dir";
+
+    /**
+     * the TTL agent configuration key: Transformer engine
+     *
+     * @see TtlAgent
+     */
+    public static final String TTL_AGENT_TRANSFORMER_ENGINE_KEY = "ttl.agent.transformer.engine";
+
+    /**
+     * the TTL agent configuration key: Transmit profiles of executors
+     *
+     * @see TtlAgent
+     */
+    public static final String TTL_AGENT_TRANSMIT_PROFILES_KEY = "ttl.agent.transmit.profiles";
+
+    /**
+     * the value of {@link #TTL_AGENT_TRANSFORMER_ENGINE_KEY}: the Javassist transformer engine, the default
+     */
+    public static final String TRANSFORMER_ENGINE_JAVASSIST = "javassist";
+
+    /**
+     * the value of {@link #TTL_AGENT_TRANSFORMER_ENGINE_KEY}: the ASM transformer engine
+     */
+    public static final String TRANSFORMER_ENGINE_ASM = "asm";
+
 
     // ======== TTL Agent internal States ========
 
@@ -208,16 +335,23 @@ public final class TtlAgent implements TtlAgentStatus {
 
             logger.info(logTtlAgentConfig());
 
-            final List<TtlTransformlet> transformletList = new ArrayList<>();
+            ExecutorTransmitProfiles.configure(getTransmitProfiles());
 
-            transformletList.add(new JdkExecutorTtlTransformlet());
-            transformletList.add(new PriorityBlockingQueueTtlTransformlet());
+            final List<TtlTransformlet> transformletList;
+            if (TRANSFORMER_ENGINE_ASM.equals(getTransformerEngine())) {
+                final ClassFileTransformer asmTransformer = new AsmTtlTransformer(
+                        isDisableInheritableForThreadPool(), isEnableTimerTask(), isEnableCompletableFuture(), isLogClassTransform());
+                inst.addTransformer(asmTransformer, true);
+                logger.info("[TtlAgent.premain] add Transformer " + asmTransformer.getClass().getName() + " success");
 
-            transformletList.add(new ForkJoinTtlTransformlet());
+                // the built-in transformlets are run by ASM, the Javassist transformer runs the extension transformlets only
+                transformletList = new ArrayList<>();
+            } else {
+                transformletList = createTransformlets();
+            }
+            final TtlTransformCache transformCache = openTransformCache(transformletList);
 
-            if (isEnableTimerTask()) transformletList.add(new TimerTaskTtlTransformlet());
-
-            final ClassFileTransformer transformer = new TtlTransformer(transformletList, isLogClassTransform());
+            final ClassFileTransformer transformer = new TtlTransformer(transformletList, isLogClassTransform(), transformCache);
             inst.addTransformer(transformer, true);
             logger.info("[TtlAgent.premain] add Transformer " + transformer.getClass().getName() + " success");
 
@@ -231,12 +365,48 @@ public final class TtlAgent implements TtlAgentStatus {
         }
     }
 
+    /**
+     * create the builtin transformlets by the agent configuration.
+     */
+    @NonNull
+    static List<TtlTransformlet> createTransformlets() {
+        final List<TtlTransformlet> transformletList = new ArrayList<>();
+
+        transformletList.add(new JdkExecutorTtlTransformlet());
+        transformletList.add(new PriorityBlockingQueueTtlTransformlet());
+
+        transformletList.add(new ForkJoinTtlTransformlet());
+        if (isEnableCompletableFuture()) transformletList.add(new CompletableFutureTtlTransformlet());
+
+        if (isEnableTimerTask()) transformletList.add(new TimerTaskTtlTransformlet());
+
+        return transformletList;
+    }
+
+    /**
+     * @return {@code null} if the transform cache is not configured or not usable
+     */
+    @Nullable
+    static TtlTransformCache openTransformCache(@NonNull List<? extends TtlTransformlet> transformletList) {
+        final String cacheDir = getTransformCacheDir();
+        if (cacheDir.isEmpty()) return null;
+
+        final String fingerprint = TtlTransformCache.fingerprintOf(transformletList, isDisableInheritableForThreadPool());
+        if (fingerprint == null) return null;
+
+        return TtlTransformCache.open(cacheDir, fingerprint);
+    }
+
     private static String logTtlAgentConfig() {
         return "TTL Agent configurations:"
                 + "\n    " + TTL_AGENT_LOGGER_KEY + "=" + getLoggerType()
                 + "\n    " + TTL_AGENT_LOG_CLASS_TRANSFORM_KEY + "=" + isLogClassTransform()
                 + "\n    " + TTL_AGENT_DISABLE_INHERITABLE_FOR_THREAD_POOL_KEY + "=" + isDisableInheritableForThreadPool()
-                + "\n    " + TTL_AGENT_ENABLE_TIMER_TASK_KEY + "=" + isEnableTimerTask();
+                + "\n    " + TTL_AGENT_ENABLE_TIMER_TASK_KEY + "=" + isEnableTimerTask()
+                + "\n    " + TTL_AGENT_ENABLE_COMPLETABLE_FUTURE_KEY + "=" + isEnableCompletableFuture()
+                + "\n    " + TTL_AGENT_TRANSFORM_CACHE_DIR_KEY + "=" + getTransformCacheDir()
+                + "\n    " + TTL_AGENT_TRANSFORMER_ENGINE_KEY + "=" + getTransformerEngine()
+                + "\n    " + TTL_AGENT_TRANSMIT_PROFILES_KEY + "=" + getTransmitProfiles();
     }
 
     /**
@@ -279,6 +449,20 @@ public final class TtlAgent implements TtlAgentStatus {
         return isBooleanOptionSet(TTL_AGENT_ENABLE_TIMER_TASK_KEY, true);
     }
 
+    /**
+     * Whether completable future is enhanced by ttl agent, check {@link #isTtlAgentLoaded()} first.
+     * <p>
+     * Same as {@code isBooleanOptionSet(TTL_AGENT_ENABLE_COMPLETABLE_FUTURE_KEY)}.
+     *
+     * @see java.util.concurrent.CompletableFuture
+     * @see TtlAgent
+     * @see #isBooleanOptionSet(String)
+     * @see #TTL_AGENT_ENABLE_COMPLETABLE_FUTURE_KEY
+     */
+    public static boolean isEnableCompletableFuture() {
+        return isBooleanOptionSet(TTL_AGENT_ENABLE_COMPLETABLE_FUTURE_KEY);
+    }
+
     /**
      * Whether logging the transform class received by {@link TtlAgent}.
      * <p>
@@ -292,6 +476,59 @@ public final class TtlAgent implements TtlAgentStatus {
         return isBooleanOptionSet(TTL_AGENT_LOG_CLASS_TRANSFORM_KEY);
     }
 
+    /**
+     * Get the transform cache directory, empty string if the transform cache is not enabled.
+     * <p>
+     * Same as {@code getStringOptionValue(TTL_AGENT_TRANSFORM_CACHE_DIR_KEY, "")}.
+     *
+     * @see TtlTransformCacheGenerator
+     * @see TtlAgent
+     * @see #getStringOptionValue(String, String)
+     * @see #TTL_AGENT_TRANSFORM_CACHE_DIR_KEY
+     */
+    @NonNull
+    public static String getTransformCacheDir() {
+        return getStringOptionValue(TTL_AGENT_TRANSFORM_CACHE_DIR_KEY, "");
+    }
+
+    /**
+     * Get the transformer engine of the TTL built-in {@code Transformlet}s,
+     * {@link #TRANSFORMER_ENGINE_JAVASSIST} or {@link #TRANSFORMER_ENGINE_ASM}.
+     * <p>
+     * The unrecognized configuration is treated as {@link #TRANSFORMER_ENGINE_JAVASSIST}.
+     *
+     * @see TtlAgent
+     * @see #getStringOptionValue(String, String)
+     * @see #TTL_AGENT_TRANSFORMER_ENGINE_KEY
+     */
+    @NonNull
+    public static String getTransformerEngine() {
+        final String engine = getStringOptionValue(TTL_AGENT_TRANSFORMER_ENGINE_KEY, TRANSFORMER_ENGINE_JAVASSIST);
+        if (TRANSFORMER_ENGINE_ASM.equalsIgnoreCase(engine)) return TRANSFORMER_ENGINE_ASM;
+        return TRANSFORMER_ENGINE_JAVASSIST;
+    }
+
+    /**
+     * Get the transmit profile names of the executor class names, empty if not configured.
+     * <p>
+     * the malformed items(not {@code executorClassName=profileName}) are ignored.
+     *
+     * @see ExecutorTransmitProfiles
+     * @see TtlAgent
+     * @see #getOptionStringListValues(String)
+     * @see #TTL_AGENT_TRANSMIT_PROFILES_KEY
+     */
+    @NonNull
+    public static Map<String, String> getTransmitProfiles() {
+        final Map<String, String> ret = new LinkedHashMap<>();
+        for (String item : getOptionStringListValues(TTL_AGENT_TRANSMIT_PROFILES_KEY)) {
+            final String[] kv = item.split("\\s*=\\s*");
+            if (kv.length != 2 || kv[0].isEmpty() || kv[1].isEmpty()) continue;
+            ret.put(kv[0], kv[1]);
+        }
+        return ret;
+    }
+
     /**
      * Get the TTL Agent Log type.
      * <p>
@@ -366,8 +603,9 @@ public final class TtlAgent implements TtlAgentStatus {
     }
 
 
-    @SuppressFBWarnings("CT_CONSTRUCTOR_THROW")
+    /**
+     * Only used by {@link TtlAgentStatus#getInstance()} to create the agent status instance reflectively.
+     */
     private TtlAgent() {
-        throw new InstantiationError("Must not instantiate this class");
     }
 }
@@ -4,6 +4,7 @@ import com.alibaba.ttl3.agent.logging.Logger;
 import com.alibaba.ttl3.agent.transformlet.ClassInfo;
 import com.alibaba.ttl3.agent.transformlet.TtlTransformlet;
 import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
 import javassist.CannotCompileException;
 import javassist.NotFoundException;
 
@@ -30,7 +31,10 @@ final class TtlExtensionTransformletManager {
     }
 
     public String extensionTransformletDoTransform(@NonNull final ClassInfo classInfo) throws NotFoundException, CannotCompileException, IOException {
-        final Map<String, TtlTransformlet> transformlets = classLoader2ExtensionTransformletsIncludeParentCL.get(classInfo.getClassLoader());
+        final Map<String, TtlTransformlet> transformlets;
+        synchronized (this) {
+            transformlets = classLoader2ExtensionTransformletsIncludeParentCL.get(classInfo.getClassLoader());
+        }
         if (transformlets == null) return null;
 
         for (Map.Entry<String, TtlTransformlet> entry : transformlets.entrySet()) {
@@ -57,7 +61,18 @@ final class TtlExtensionTransformletManager {
     private final WeakHashMap<ClassLoader, Map<String, TtlTransformlet>> classLoader2ExtensionTransformletsIncludeParentCL =
             new WeakHashMap<>(512);
 
-    public void collectExtensionTransformlet(@NonNull final ClassInfo classInfo) throws IOException {
+    /**
+     * the sorted class names of the extension transformlets of the class loader(including from parent class loader).
+     */
+    @NonNull
+    public synchronized String getExtensionTransformletNames(@Nullable final ClassLoader classLoader) {
+        final Map<String, TtlTransformlet> transformlets = classLoader2ExtensionTransformletsIncludeParentCL.get(classLoader);
+        if (transformlets == null) return "";
+
+        return String.join(",", new TreeSet<>(transformlets.keySet()));
+    }
+
+    public synchronized void collectExtensionTransformlet(@NonNull final ClassInfo classInfo) throws IOException {
         final ClassLoader classLoader = classInfo.getClassLoader();
         // classloader may null be if the bootstrap loader,
         // which classloader must contains NO Ttl Agent Extension Transformlet, so just safe skip
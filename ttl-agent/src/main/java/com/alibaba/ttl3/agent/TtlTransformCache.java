@@ -0,0 +1,304 @@
+package com.alibaba.ttl3.agent;
+
+import com.alibaba.ttl3.agent.logging.Logger;
+import com.alibaba.ttl3.agent.transformlet.TtlTransformlet;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+
+import java.io.*;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.*;
+import java.nio.file.attribute.*;
+import java.security.CodeSource;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+/**
+ * The on-disk cache of the class transform results of {@link TtlTransformer}, reused across JVM starts.
+ * <p>
+ * The cache entry is keyed by the class name, the checksum and length of the original class bytes,
+ * and the fingerprint of the transform configuration(agent version, transformlets, options);
+ * a cache entry records the transformed bytes, or "no transform" for the classes checked by Javassist but not transformed.
+ * <p>
+ * The cache entry is verified by the full key and the checksum of the cached bytes when read,
+ * bypassed(transform as no cache) on any mismatch or read error.
+ * <p>
+ * The cached bytes are defined as classes(including the bootstrap classes of JDK) without further verification,
+ * so the cache directory and entries MUST be private: owned by the current user(or {@code root},
+ * e.g. the pre-generated cache directory of the container image), not writable by group or others,
+ * and not a symbolic link. Otherwise the cache is not used, checked by the POSIX file attributes;
+ * on the file systems without POSIX file attributes(e.g. Windows) the cache is not used either.
+ *
+ * @see TtlAgent#TTL_AGENT_TRANSFORM_CACHE_DIR_KEY
+ * @see TtlTransformCacheGenerator
+ */
+final class TtlTransformCache {
+    private static final Logger logger = Logger.getLogger(TtlTransformCache.class);
+
+    private static final int MAGIC = 0x54544C43; // "TTLC"
+    private static final int FORMAT_VERSION = 1;
+    private static final String FILE_SUFFIX = ".ttlc";
+    /**
+     * skip the long class names, avoid exceeding the file name length limit.
+     */
+    private static final int MAX_CLASS_NAME_LENGTH = 160;
+    private static final Set<PosixFilePermission> GROUP_OTHERS_WRITE =
+            EnumSet.of(PosixFilePermission.GROUP_WRITE, PosixFilePermission.OTHERS_WRITE);
+
+    /**
+     * the {@code byte[]} marks the cached "no transform" result, compared by identity.
+     */
+    static final byte[] NO_TRANSFORM = new byte[0];
+
+    private final Path dir;
+    private final String fingerprint;
+    /**
+     * the trusted owners of the cache directory and entries: the current user and {@code root}.
+     */
+    private final Set<UserPrincipal> trustedOwners;
+    /**
+     * the class names having cache entries, checked before computing the checksum of the class bytes.
+     */
+    private final Set<String> cachedClassNames = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    /**
+     * stop writing after the first write failure, e.g. the read-only pre-generated cache directory.
+     */
+    private volatile boolean writable = true;
+
+    private TtlTransformCache(Path dir, String fingerprint, Set<UserPrincipal> trustedOwners) {
+        this.dir = dir;
+        this.fingerprint = fingerprint;
+        this.trustedOwners = trustedOwners;
+    }
+
+    /**
+     * @param dir         the cache directory, created with the owner only permissions if absent
+     * @param fingerprint the fingerprint of the transform configuration
+     * @return {@code null} if fail to use the directory, or the directory is not private
+     */
+    @Nullable
+    static TtlTransformCache open(@NonNull String dir, @NonNull String fingerprint) {
+        try {
+            final Path path = Paths.get(dir).toAbsolutePath();
+            if (!path.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+                logger.warn("[TtlTransformCache] the file system of transform cache dir " + path
+                        + " does not support POSIX file attributes, can not check the privacy, transform without cache");
+                return null;
+            }
+            if (Files.notExists(path, LinkOption.NOFOLLOW_LINKS)) {
+                Files.createDirectories(path, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+            }
+
+            final Set<UserPrincipal> trustedOwners = trustedOwnersOf(path.getFileSystem());
+            final String untrusted = checkPrivate(path, trustedOwners, true);
+            if (untrusted != null) {
+                logger.warn("[TtlTransformCache] transform cache dir " + path + " is not private(" + untrusted
+                        + "), transform without cache; use a directory owned by the current user and not writable by group or others");
+                return null;
+            }
+
+            final TtlTransformCache cache = new TtlTransformCache(path, fingerprint, trustedOwners);
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(path, "*" + FILE_SUFFIX)) {
+                for (Path file : files) {
+                    final String fileName = file.getFileName().toString();
+                    final int idx = fileName.indexOf('@');
+                    if (idx > 0) cache.cachedClassNames.add(fileName.substring(0, idx));
+                }
+            }
+            logger.info("[TtlTransformCache] open transform cache dir " + path + ", cached classes: " + cache.cachedClassNames.size());
+            return cache;
+        } catch (IOException | RuntimeException e) {
+            logger.warn("[TtlTransformCache] fail to open transform cache dir " + dir + ", transform without cache, cause: " + e, e);
+            return null;
+        }
+    }
+
+    /**
+     * the fingerprint of the transform configuration: the agent version and jar checksum, the transformlets and the options.
+     *
+     * @return {@code null} if the agent is not loaded from a jar file(e.g. the class directory when developing),
+     * the agent classes may change without a version change, not safe to cache
+     */
+    @Nullable
+    static String fingerprintOf(@NonNull List<? extends TtlTransformlet> transformletList, boolean disableInheritableForThreadPool) {
+        final Path agentJar;
+        try {
+            agentJar = agentJarPath();
+        } catch (URISyntaxException | RuntimeException e) {
+            logger.warn("[TtlTransformCache] fail to locate the agent jar, transform without cache, cause: " + e, e);
+            return null;
+        }
+        if (agentJar == null || !Files.isRegularFile(agentJar)) {
+            logger.warn("[TtlTransformCache] the agent is not loaded from a jar file(" + agentJar + "), transform without cache");
+            return null;
+        }
+
+        final StringBuilder sb = new StringBuilder();
+        try {
+            sb.append(TtlTransformCache.class.getPackage().getImplementationVersion())
+                    .append('|').append(Long.toHexString(crc32(Files.readAllBytes(agentJar))));
+        } catch (IOException e) {
+            logger.warn("[TtlTransformCache] fail to read the agent jar " + agentJar + ", transform without cache, cause: " + e, e);
+            return null;
+        }
+        for (TtlTransformlet transformlet : transformletList) {
+            sb.append('|').append(transformlet.getClass().getName());
+        }
+        sb.append('|').append(disableInheritableForThreadPool);
+        return sb.toString();
+    }
+
+    /**
+     * @param context the transform configuration varying at runtime, e.g. the extension transformlets of the class loader
+     * @return the cached transformed bytes, {@link #NO_TRANSFORM} if cached as no transform,
+     * or {@code null} if not cached or the cache entry is invalid
+     */
+    @Nullable
+    byte[] get(@NonNull String className, @NonNull byte[] classFileBuffer, @NonNull String context) {
+        if (!cachedClassNames.contains(className)) return null;
+
+        final String key = keyOf(className, classFileBuffer, context);
+        final Path file = dir.resolve(fileNameOf(className, key));
+        if (!Files.exists(file, LinkOption.NOFOLLOW_LINKS)) return null;
+
+        try {
+            final String untrusted = checkPrivate(file, trustedOwners, false);
+            if (untrusted != null) {
+                logger.warn("[TtlTransformCache] not private cache entry " + file + "(" + untrusted + "), bypass");
+                return null;
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.warn("[TtlTransformCache] fail to read attributes of cache entry " + file + ", bypass, cause: " + e, e);
+            return null;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION || !key.equals(in.readUTF())) {
+                logger.warn("[TtlTransformCache] mismatched cache entry " + file + ", bypass");
+                return null;
+            }
+
+            final int length = in.readInt();
+            final long checksum = in.readLong();
+            if (length < 0) return NO_TRANSFORM;
+
+            final byte[] bytes = new byte[length];
+            in.readFully(bytes);
+            if (checksum != crc32(bytes) || in.read() != -1) {
+                logger.warn("[TtlTransformCache] checksum mismatched cache entry " + file + ", bypass");
+                return null;
+            }
+            return bytes;
+        } catch (IOException | RuntimeException e) {
+            logger.warn("[TtlTransformCache] fail to read cache entry " + file + ", bypass, cause: " + e, e);
+            return null;
+        }
+    }
+
+    /**
+     * @param context     the transform configuration varying at runtime, same as {@link #get(String, byte[], String)}
+     * @param transformed the transformed bytes, or {@link #NO_TRANSFORM}
+     */
+    void put(@NonNull String className, @NonNull byte[] classFileBuffer, @NonNull String context, @NonNull byte[] transformed) {
+        if (!writable || className.length() > MAX_CLASS_NAME_LENGTH) return;
+
+        final String key = keyOf(className, classFileBuffer, context);
+        final Path file = dir.resolve(fileNameOf(className, key));
+        try {
+            // write to a temp file then move, the readers never see a partial entry
+            final Path tmp = Files.createTempFile(dir, className, ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeUTF(key);
+                if (transformed == NO_TRANSFORM) {
+                    out.writeInt(-1);
+                    out.writeLong(0);
+                } else {
+                    out.writeInt(transformed.length);
+                    out.writeLong(crc32(transformed));
+                    out.write(transformed);
+                }
+            }
+            try {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                Files.deleteIfExists(tmp);
+                throw e;
+            }
+            cachedClassNames.add(className);
+        } catch (IOException | RuntimeException e) {
+            writable = false;
+            logger.warn("[TtlTransformCache] fail to write cache entry " + file + ", stop writing the cache, cause: " + e, e);
+        }
+    }
+
+    /**
+     * the agent classes are loaded by the bootstrap class loader(manifest {@code Boot-Class-Path}) without the code source,
+     * so locate the agent jar by the class file resource.
+     */
+    @Nullable
+    private static Path agentJarPath() throws URISyntaxException {
+        final CodeSource codeSource = TtlTransformCache.class.getProtectionDomain().getCodeSource();
+        if (codeSource != null && codeSource.getLocation() != null) return Paths.get(codeSource.getLocation().toURI());
+
+        final URL classFile = TtlTransformCache.class.getResource(TtlTransformCache.class.getSimpleName() + ".class");
+        if (classFile == null || !"jar".equals(classFile.getProtocol())) return null;
+        final String path = classFile.getPath();
+        final int idx = path.indexOf("!/");
+        if (idx < 0) return null;
+        return Paths.get(new URI(path.substring(0, idx)));
+    }
+
+    /**
+     * @return the reason if the file is not private, or {@code null} if private
+     */
+    @Nullable
+    static String checkPrivate(@NonNull Path file, @NonNull Set<UserPrincipal> trustedOwners, boolean directory) throws IOException {
+        final PosixFileAttributes attributes = Files.readAttributes(file, PosixFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        if (attributes.isSymbolicLink()) return "symbolic link";
+        if (directory ? !attributes.isDirectory() : !attributes.isRegularFile()) {
+            return directory ? "not a directory" : "not a regular file";
+        }
+        if (!trustedOwners.contains(attributes.owner())) return "owner " + attributes.owner().getName();
+        if (!Collections.disjoint(attributes.permissions(), GROUP_OTHERS_WRITE)) {
+            return "permissions " + PosixFilePermissions.toString(attributes.permissions());
+        }
+        return null;
+    }
+
+    @NonNull
+    private static Set<UserPrincipal> trustedOwnersOf(@NonNull FileSystem fileSystem) throws IOException {
+        final UserPrincipalLookupService lookupService = fileSystem.getUserPrincipalLookupService();
+        final Set<UserPrincipal> owners = new HashSet<>();
+        owners.add(lookupService.lookupPrincipalByName(System.getProperty("user.name")));
+        try {
+            owners.add(lookupService.lookupPrincipalByName("root"));
+        } catch (UserPrincipalNotFoundException e) {
+            // no root user, trust the current user only
+        }
+        return owners;
+    }
+
+    private String keyOf(String className, byte[] classFileBuffer, String context) {
+        return className + "|" + Long.toHexString(crc32(classFileBuffer)) + "|" + classFileBuffer.length
+                + "|" + fingerprint + "|" + context;
+    }
+
+    private static String fileNameOf(String className, String key) {
+        return className + "@" + Integer.toHexString(key.hashCode()) + FILE_SUFFIX;
+    }
+
+    static long crc32(byte[] bytes) {
+        final CRC32 crc32 = new CRC32();
+        crc32.update(bytes, 0, bytes.length);
+        return crc32.getValue();
+    }
+}
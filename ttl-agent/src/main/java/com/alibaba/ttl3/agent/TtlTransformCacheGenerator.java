@@ -0,0 +1,198 @@
+package com.alibaba.ttl3.agent;
+
+import com.alibaba.ttl3.agent.logging.Logger;
+import com.alibaba.ttl3.agent.transformlet.TtlTransformlet;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * Generate the transform cache ahead of time, e.g. when building the container image,
+ * so the application starts with a warm transform cache.
+ * <p>
+ * Usage(the TTL agent options are configured by {@code -D property}, same as the application):
+ *
+ * <pre>{@code java -cp /path/to/ttl-agent.jar [-Dttl.agent.xxx=...] com.alibaba.ttl3.agent.TtlTransformCacheGenerator \
+ *     /path/to/cache/dir /path/to/app.jar /path/to/lib/dependency.jar /path/to/classes/dir ...}</pre>
+ * <p>
+ * The JDK classes transformed by TTL agent and all classes of the given jars/directories are transformed
+ * in parallel, the transform results are written to the cache directory.
+ * Then run the application with the agent option {@code ttl.agent.transform.cache.dir} of the same cache directory.
+ *
+ * @see TtlAgent#TTL_AGENT_TRANSFORM_CACHE_DIR_KEY
+ * @see TtlTransformCache
+ */
+public final class TtlTransformCacheGenerator {
+    private static final String[] JDK_CLASS_FILES = {
+            "java/util/concurrent/ThreadPoolExecutor",
+            "java/util/concurrent/ScheduledThreadPoolExecutor",
+            "java/util/concurrent/ForkJoinTask",
+            "java/util/concurrent/ForkJoinPool",
+            "java/util/concurrent/CompletableFuture",
+            "java/util/concurrent/PriorityBlockingQueue",
+            "java/util/PriorityQueue",
+            "java/util/TimerTask",
+    };
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: java -cp ttl-agent.jar " + TtlTransformCacheGenerator.class.getName()
+                    + " <cache dir> [<jar or class dir>...]");
+            System.exit(1);
+        }
+
+        Logger.setLoggerImplType(TtlAgent.getLoggerType());
+
+        final List<TtlTransformlet> transformletList = TtlAgent.createTransformlets();
+        final String fingerprint = TtlTransformCache.fingerprintOf(transformletList, TtlAgent.isDisableInheritableForThreadPool());
+        if (fingerprint == null) {
+            System.err.println("Fail to generate transform cache: run with the TTL agent jar in the classpath");
+            System.exit(1);
+        }
+        final TtlTransformCache cache = TtlTransformCache.open(args[0], fingerprint);
+        if (cache == null) {
+            System.err.println("Fail to generate transform cache: fail to open the cache dir " + args[0]);
+            System.exit(1);
+        }
+        final TtlTransformer transformer = new TtlTransformer(transformletList, false, cache);
+
+        final List<Path> paths = new ArrayList<>();
+        final URL[] urls = new URL[args.length - 1];
+        for (int i = 1; i < args.length; i++) {
+            final Path path = Paths.get(args[i]);
+            paths.add(path);
+            urls[i - 1] = path.toUri().toURL();
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        try (URLClassLoader loader = new URLClassLoader(urls, TtlTransformCacheGenerator.class.getClassLoader())) {
+            final List<Future<Boolean>> futures = new ArrayList<>();
+
+            for (String classFile : JDK_CLASS_FILES) {
+                final byte[] bytes = readSystemClassFile(classFile);
+                if (bytes != null) futures.add(executor.submit(new TransformTask(transformer, null, classFile, bytes)));
+            }
+            for (Path path : paths) {
+                for (ClassFileEntry entry : listClassFiles(path)) {
+                    futures.add(executor.submit(new TransformTask(transformer, loader, entry.classFile, entry.bytes)));
+                }
+            }
+
+            int transformed = 0;
+            int failed = 0;
+            for (Future<Boolean> future : futures) {
+                try {
+                    if (future.get()) transformed++;
+                } catch (ExecutionException e) {
+                    failed++;
+                }
+            }
+            System.out.println("Generated transform cache in " + args[0] + ": " + futures.size() + " classes, "
+                    + transformed + " transformed, " + failed + " failed");
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static final class TransformTask implements Callable<Boolean> {
+        private final TtlTransformer transformer;
+        @Nullable
+        private final ClassLoader loader;
+        private final String classFile;
+        private final byte[] bytes;
+
+        TransformTask(TtlTransformer transformer, @Nullable ClassLoader loader, String classFile, byte[] bytes) {
+            this.transformer = transformer;
+            this.loader = loader;
+            this.classFile = classFile;
+            this.bytes = bytes;
+        }
+
+        @Override
+        public Boolean call() {
+            return transformer.transform(loader, classFile, null, null, bytes) != null;
+        }
+    }
+
+    private static final class ClassFileEntry {
+        final String classFile;
+        final byte[] bytes;
+
+        ClassFileEntry(String classFile, byte[] bytes) {
+            this.classFile = classFile;
+            this.bytes = bytes;
+        }
+    }
+
+    @NonNull
+    private static List<ClassFileEntry> listClassFiles(@NonNull Path path) throws IOException {
+        final List<ClassFileEntry> entries = new ArrayList<>();
+
+        if (Files.isDirectory(path)) {
+            Files.walkFileTree(path, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    final String name = path.relativize(file).toString().replace(file.getFileSystem().getSeparator(), "/");
+                    if (isTransformableClassFile(name)) entries.add(new ClassFileEntry(toClassFile(name), Files.readAllBytes(file)));
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+            return entries;
+        }
+
+        try (JarFile jarFile = new JarFile(path.toFile())) {
+            final Enumeration<JarEntry> jarEntries = jarFile.entries();
+            while (jarEntries.hasMoreElements()) {
+                final JarEntry jarEntry = jarEntries.nextElement();
+                if (jarEntry.isDirectory() || !isTransformableClassFile(jarEntry.getName())) continue;
+
+                try (InputStream in = jarFile.getInputStream(jarEntry)) {
+                    entries.add(new ClassFileEntry(toClassFile(jarEntry.getName()), readAll(in)));
+                }
+            }
+        }
+        return entries;
+    }
+
+    private static boolean isTransformableClassFile(String name) {
+        return name.endsWith(".class") && !name.startsWith("META-INF/") && !name.endsWith("module-info.class");
+    }
+
+    private static String toClassFile(String name) {
+        return name.substring(0, name.length() - ".class".length());
+    }
+
+    @Nullable
+    private static byte[] readSystemClassFile(String classFile) throws IOException {
+        try (InputStream in = ClassLoader.getSystemResourceAsStream(classFile + ".class")) {
+            return in == null ? null : readAll(in);
+        }
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[8192];
+        int n;
+        while ((n = in.read(buffer)) != -1) out.write(buffer, 0, n);
+        return out.toByteArray();
+    }
+
+    @SuppressFBWarnings("CT_CONSTRUCTOR_THROW")
+    private TtlTransformCacheGenerator() {
+        throw new InstantiationError("Must not instantiate this class");
+    }
+}
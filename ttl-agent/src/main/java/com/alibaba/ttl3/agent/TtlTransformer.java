@@ -3,6 +3,7 @@ package com.alibaba.ttl3.agent;
 import com.alibaba.ttl3.agent.logging.Logger;
 import com.alibaba.ttl3.agent.transformlet.ClassInfo;
 import com.alibaba.ttl3.agent.transformlet.TtlTransformlet;
+import com.alibaba.ttl3.agent.transformlet.helper.AutoWrapperRegistry;
 import edu.umd.cs.findbugs.annotations.NonNull;
 import edu.umd.cs.findbugs.annotations.Nullable;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
@@ -37,11 +38,18 @@ public class TtlTransformer implements ClassFileTransformer {
     private final TtlExtensionTransformletManager extensionTransformletManager;
     private final List<TtlTransformlet> transformletList = new ArrayList<>();
     private final boolean logClassTransform;
+    @Nullable
+    private final TtlTransformCache transformCache;
 
     TtlTransformer(List<? extends TtlTransformlet> transformletList, boolean logClassTransform) {
+        this(transformletList, logClassTransform, null);
+    }
+
+    TtlTransformer(List<? extends TtlTransformlet> transformletList, boolean logClassTransform, @Nullable TtlTransformCache transformCache) {
         extensionTransformletManager = new TtlExtensionTransformletManager();
 
         this.logClassTransform = logClassTransform;
+        this.transformCache = transformCache;
         for (TtlTransformlet ttlTransformlet : transformletList) {
             this.transformletList.add(ttlTransformlet);
             logger.info("[TtlTransformer] add Transformlet " + ttlTransformlet.getClass().getName());
@@ -71,29 +79,54 @@ public class TtlTransformer implements ClassFileTransformer {
 
             extensionTransformletManager.collectExtensionTransformlet(classInfo);
 
-            for (TtlTransformlet transformlet : transformletList) {
-                transformlet.doTransform(classInfo);
-                if (classInfo.isModified()) {
-                    logger.info("[TtlTransformer] " + transformlet.getClass().getName() + " transformed " + classInfo.getClassName()
-                            + " from classloader " + classInfo.getClassLoader()
-                            + " at location " + classInfo.getLocationUrl());
-                    return classInfo.getCtClass().toBytecode();
-                }
+            if (transformCache == null) return doTransform(classInfo);
+
+            final String cacheContext = cacheContextOf(loader);
+            final byte[] cached = transformCache.get(classInfo.getClassName(), classFileBuffer, cacheContext);
+            if (cached != null) return cached == TtlTransformCache.NO_TRANSFORM ? NO_TRANSFORM : cached;
+
+            final byte[] transformed = doTransform(classInfo);
+            // cache the results needed Javassist parsing, the classes rejected by the cheap checks are not worth caching
+            if (transformed != null || classInfo.isCtClassCreated()) {
+                transformCache.put(classInfo.getClassName(), classFileBuffer, cacheContext,
+                        transformed == null ? TtlTransformCache.NO_TRANSFORM : transformed);
             }
+            return transformed;
+        } catch (Throwable t) {
+            String msg = "[TtlTransformer] fail to transform class " + classFile + ", cause: " + t.toString();
+            logger.error(msg, t);
+            throw new IllegalStateException(msg, t);
+        }
+    }
 
-            final String transformlet = extensionTransformletManager.extensionTransformletDoTransform(classInfo);
+    @Nullable
+    private byte[] doTransform(@NonNull final ClassInfo classInfo) throws Exception {
+        for (TtlTransformlet transformlet : transformletList) {
+            transformlet.doTransform(classInfo);
             if (classInfo.isModified()) {
-                logger.info("[TtlTransformer] " + transformlet + " transformed " + classInfo.getClassName()
+                logger.info("[TtlTransformer] " + transformlet.getClass().getName() + " transformed " + classInfo.getClassName()
                         + " from classloader " + classInfo.getClassLoader()
                         + " at location " + classInfo.getLocationUrl());
                 return classInfo.getCtClass().toBytecode();
             }
-        } catch (Throwable t) {
-            String msg = "[TtlTransformer] fail to transform class " + classFile + ", cause: " + t.toString();
-            logger.error(msg, t);
-            throw new IllegalStateException(msg, t);
+        }
+
+        final String transformlet = extensionTransformletManager.extensionTransformletDoTransform(classInfo);
+        if (classInfo.isModified()) {
+            logger.info("[TtlTransformer] " + transformlet + " transformed " + classInfo.getClassName()
+                    + " from classloader " + classInfo.getClassLoader()
+                    + " at location " + classInfo.getLocationUrl());
+            return classInfo.getCtClass().toBytecode();
         }
 
         return NO_TRANSFORM;
     }
+
+    /**
+     * the transform configuration varying at runtime, part of the transform cache key.
+     */
+    private String cacheContextOf(@Nullable final ClassLoader loader) {
+        return extensionTransformletManager.getExtensionTransformletNames(loader)
+                + "|" + AutoWrapperRegistry.getRegisteredTypeNames();
+    }
 }
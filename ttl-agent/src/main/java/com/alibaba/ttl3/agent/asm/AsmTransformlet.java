@@ -0,0 +1,22 @@
+package com.alibaba.ttl3.agent.asm;
+
+import com.alibaba.ttl3.agent.transformlet.ClassInfo;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+
+/**
+ * The {@code Transformlet} of the ASM transformer engine.
+ *
+ * @see AsmTtlTransformer
+ * @see com.alibaba.ttl3.agent.transformlet.TtlTransformlet
+ */
+interface AsmTransformlet {
+    /**
+     * <B><I>Caution:</I></B><br>
+     * Do <b>NOT</b> call {@link ClassInfo#getCtClass()}, the ASM engine does not parse the class by Javassist.
+     *
+     * @return the transformed class file bytes, or {@code null} if the class is not transformed
+     */
+    @Nullable
+    byte[] doTransform(@NonNull ClassInfo classInfo);
+}
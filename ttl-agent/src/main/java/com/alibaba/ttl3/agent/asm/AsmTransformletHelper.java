@@ -0,0 +1,215 @@
+package com.alibaba.ttl3.agent.asm;
+
+import com.alibaba.ttl3.agent.logging.Logger;
+import com.alibaba.ttl3.agent.transformlet.ClassInfo;
+import com.alibaba.ttl3.agent.transformlet.helper.AutoWrapperRegistry;
+import com.alibaba.ttl3.agent.transformlet.helper.TtlTransformletHelper;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import org.objectweb.asm.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Helper methods for {@link AsmTransformlet} implementation.
+ *
+ * @see com.alibaba.ttl3.agent.transformlet.helper.TtlTransformletHelper
+ */
+final class AsmTransformletHelper {
+    private static final Logger logger = Logger.getLogger(AsmTransformletHelper.class);
+
+    static final int ASM_API = Opcodes.ASM9;
+
+    static final String OBJECT_INTERNAL_NAME = "java/lang/Object";
+    static final String OBJECT_DESC = "Ljava/lang/Object;";
+
+    /**
+     * same field name as the Javassist transformlets.
+     */
+    static final String CAPTURED_FIELD_NAME = "captured$field$added$by$ttl";
+
+    static final String TTL_TRANSFORMLET_HELPER_INTERNAL_NAME = Type.getInternalName(TtlTransformletHelper.class);
+    private static final String AUTO_WRAPPER_REGISTRY_INTERNAL_NAME = Type.getInternalName(AutoWrapperRegistry.class);
+
+    /**
+     * the max depth of the class hierarchy walked by {@link #isSubclassOf(ClassInfo, String)}, avoid the endless loop of broken class files.
+     */
+    private static final int MAX_CLASS_HIERARCHY_DEPTH = 64;
+
+    // ======== Class Helper ========
+
+    @NonNull
+    static String toInternalName(@NonNull String className) {
+        return className.replace('.', '/');
+    }
+
+    /**
+     * Whether the class is a subclass of the given class, walk the super classes by reading the class files from the class loader,
+     * without loading the classes.
+     *
+     * @param superClassName the class name of the super class, e.g. {@code java.util.TimerTask}
+     */
+    static boolean isSubclassOf(@NonNull ClassInfo classInfo, @NonNull String superClassName) {
+        final String superClass = classInfo.getSuperClassName();
+        if (superClass == null) return false;
+
+        final String target = toInternalName(superClassName);
+        String current = toInternalName(superClass);
+        for (int depth = 0; depth < MAX_CLASS_HIERARCHY_DEPTH; depth++) {
+            if (target.equals(current)) return true;
+            if (OBJECT_INTERNAL_NAME.equals(current)) return false;
+
+            current = readSuperName(classInfo.getClassLoader(), current);
+            if (current == null) return false;
+        }
+        return false;
+    }
+
+    @Nullable
+    private static String readSuperName(@Nullable ClassLoader loader, @NonNull String internalName) {
+        final String resource = internalName + ".class";
+        try (InputStream in = loader == null ? ClassLoader.getSystemResourceAsStream(resource) : loader.getResourceAsStream(resource)) {
+            if (in == null) return null;
+            return new ClassReader(in).getSuperName();
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Fail to read class file " + resource + " from class loader " + loader + ", cause: " + e.toString());
+            return null;
+        }
+    }
+
+    /**
+     * The class writer keeping the existing stack map frames, the frames of the inserted code are emitted by the transformlets.
+     * <p>
+     * NOTE: do <b>NOT</b> use {@link ClassWriter#COMPUTE_FRAMES},
+     * which loads classes by {@link ClassWriter#getCommonSuperClass(String, String)} when transforming.
+     */
+    @NonNull
+    static ClassWriter newClassWriter(@NonNull ClassReader classReader) {
+        return new ClassWriter(classReader, ClassWriter.COMPUTE_MAXS);
+    }
+
+    static boolean isPublicNonStatic(int access) {
+        return (access & Opcodes.ACC_PUBLIC) != 0 && (access & Opcodes.ACC_STATIC) == 0;
+    }
+
+    /**
+     * add the field {@link #CAPTURED_FIELD_NAME}, same as the Javassist transformlets.
+     */
+    static void addCapturedField(@NonNull ClassVisitor cv) {
+        final FieldVisitor fv = cv.visitField(Opcodes.ACC_PRIVATE | Opcodes.ACC_FINAL, CAPTURED_FIELD_NAME, OBJECT_DESC, null, null);
+        if (fv != null) fv.visitEnd();
+    }
+
+    // ======== Method Helper ========
+
+    /**
+     * the local variable slots of the method parameters, the slot {@code 0} is {@code this} for instance methods.
+     */
+    @NonNull
+    static int[] parameterSlots(@NonNull Type[] parameterTypes, boolean isStatic) {
+        final int[] slots = new int[parameterTypes.length];
+        int slot = isStatic ? 0 : 1;
+        for (int i = 0; i < parameterTypes.length; i++) {
+            slots[i] = slot;
+            slot += parameterTypes[i].getSize();
+        }
+        return slots;
+    }
+
+    /**
+     * emit the code {@code $slot = (Type) owner.method($slot);}, the static method is of the descriptor {@code (Type)Type} or
+     * {@code (Object)Object}.
+     */
+    static void emitRewriteParameter(@NonNull MethodVisitor mv, int slot, @NonNull Type parameterType,
+                                     @NonNull String owner, @NonNull String methodName, @NonNull String methodDesc) {
+        mv.visitVarInsn(Opcodes.ALOAD, slot);
+        mv.visitMethodInsn(Opcodes.INVOKESTATIC, owner, methodName, methodDesc, false);
+        if (!Type.getReturnType(methodDesc).equals(parameterType)) {
+            mv.visitTypeInsn(Opcodes.CHECKCAST, parameterType.getInternalName());
+        }
+        mv.visitVarInsn(Opcodes.ASTORE, slot);
+    }
+
+    /**
+     * emit the code {@code $slot = (Type) AutoWrapperRegistry.doAutoWrap(index, $slot);}
+     *
+     * @return {@code false} if the parameter type is not registered in {@link AutoWrapperRegistry}, no code emitted
+     * @see TtlTransformletHelper#autoWrapCodeOfParameter(String, int)
+     */
+    static boolean emitAutoWrapParameter(@NonNull MethodVisitor mv, int slot, @NonNull Type parameterType) {
+        if (parameterType.getSort() != Type.OBJECT) return false;
+
+        final int wrapperIndex = AutoWrapperRegistry.indexOf(parameterType.getClassName());
+        if (wrapperIndex < 0) return false;
+
+        emitPushInt(mv, wrapperIndex);
+        mv.visitVarInsn(Opcodes.ALOAD, slot);
+        mv.visitMethodInsn(Opcodes.INVOKESTATIC, AUTO_WRAPPER_REGISTRY_INTERNAL_NAME, "doAutoWrap",
+                "(ILjava/lang/Object;)Ljava/lang/Object;", false);
+        mv.visitTypeInsn(Opcodes.CHECKCAST, parameterType.getInternalName());
+        mv.visitVarInsn(Opcodes.ASTORE, slot);
+        return true;
+    }
+
+    /**
+     * emit the code {@code $slot = (Type) AutoWrapperRegistry.doAutoWrap(index, $slot, this);} of an executor method,
+     * the executor({@code this}) is passed to find the bound {@link com.alibaba.ttl3.transmitter.TransmitProfile}.
+     *
+     * @return {@code false} if the parameter type is not registered in {@link AutoWrapperRegistry}, no code emitted
+     * @see TtlTransformletHelper#autoWrapCodeOfExecutorParameter(String, int)
+     */
+    static boolean emitAutoWrapExecutorParameter(@NonNull MethodVisitor mv, int slot, @NonNull Type parameterType) {
+        if (parameterType.getSort() != Type.OBJECT) return false;
+
+        final int wrapperIndex = AutoWrapperRegistry.indexOf(parameterType.getClassName());
+        if (wrapperIndex < 0) return false;
+
+        emitPushInt(mv, wrapperIndex);
+        mv.visitVarInsn(Opcodes.ALOAD, slot);
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitMethodInsn(Opcodes.INVOKESTATIC, AUTO_WRAPPER_REGISTRY_INTERNAL_NAME, "doAutoWrap",
+                "(ILjava/lang/Object;Ljava/lang/Object;)Ljava/lang/Object;", false);
+        mv.visitTypeInsn(Opcodes.CHECKCAST, parameterType.getInternalName());
+        mv.visitVarInsn(Opcodes.ASTORE, slot);
+        return true;
+    }
+
+    private static void emitPushInt(@NonNull MethodVisitor mv, int value) {
+        if (value <= 5) mv.visitInsn(Opcodes.ICONST_0 + value);
+        else if (value <= Byte.MAX_VALUE) mv.visitIntInsn(Opcodes.BIPUSH, value);
+        else if (value <= Short.MAX_VALUE) mv.visitIntInsn(Opcodes.SIPUSH, value);
+        else mv.visitLdcInsn(value);
+    }
+
+    /**
+     * the type of the stack map frame entry, see {@link MethodVisitor#visitFrame(int, int, Object[], int, Object[])}.
+     */
+    @NonNull
+    static Object frameTypeOf(@NonNull Type type) {
+        switch (type.getSort()) {
+            case Type.BOOLEAN:
+            case Type.CHAR:
+            case Type.BYTE:
+            case Type.SHORT:
+            case Type.INT:
+                return Opcodes.INTEGER;
+            case Type.FLOAT:
+                return Opcodes.FLOAT;
+            case Type.LONG:
+                return Opcodes.LONG;
+            case Type.DOUBLE:
+                return Opcodes.DOUBLE;
+            case Type.ARRAY:
+                return type.getDescriptor();
+            default:
+                return type.getInternalName();
+        }
+    }
+
+    @SuppressFBWarnings("CT_CONSTRUCTOR_THROW")
+    private AsmTransformletHelper() {
+        throw new InstantiationError("Must not instantiate this class");
+    }
+}
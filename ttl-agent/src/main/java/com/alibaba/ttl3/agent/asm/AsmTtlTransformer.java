@@ -0,0 +1,91 @@
+package com.alibaba.ttl3.agent.asm;
+
+import com.alibaba.ttl3.agent.TtlTransformer;
+import com.alibaba.ttl3.agent.logging.Logger;
+import com.alibaba.ttl3.agent.transformlet.ClassInfo;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+import java.lang.instrument.ClassFileTransformer;
+import java.security.ProtectionDomain;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.alibaba.ttl3.agent.transformlet.helper.TtlTransformletHelper.isClassUnderPackage;
+
+/**
+ * TTL {@link ClassFileTransformer} of the ASM transformer engine, transforms the classes of the TTL built-in {@code Transformlet}s.
+ * <p>
+ * The extension {@code Transformlet}s are run by the Javassist based {@link TtlTransformer}
+ * added after this transformer.
+ *
+ * @see TtlTransformer
+ * @see com.alibaba.ttl3.agent.TtlAgent#TTL_AGENT_TRANSFORMER_ENGINE_KEY
+ */
+public final class AsmTtlTransformer implements ClassFileTransformer {
+    private static final Logger logger = Logger.getLogger(AsmTtlTransformer.class);
+
+    /**
+     * see {@link TtlTransformer}
+     */
+    @SuppressFBWarnings({"EI_EXPOSE_REP"})
+    private static final byte[] NO_TRANSFORM = null;
+
+    private final List<AsmTransformlet> transformletList = new ArrayList<>();
+    private final boolean logClassTransform;
+
+    public AsmTtlTransformer(boolean disableInheritableForThreadPool, boolean enableTimerTask, boolean enableCompletableFuture,
+                             boolean logClassTransform) {
+        this.logClassTransform = logClassTransform;
+
+        transformletList.add(new ExecutorAsmTransformlet(disableInheritableForThreadPool));
+        transformletList.add(new PriorityBlockingQueueAsmTransformlet());
+
+        transformletList.add(new ForkJoinAsmTransformlet(disableInheritableForThreadPool));
+        if (enableCompletableFuture) transformletList.add(new CompletableFutureAsmTransformlet());
+
+        if (enableTimerTask) transformletList.add(new TimerTaskAsmTransformlet());
+
+        for (AsmTransformlet transformlet : transformletList) {
+            logger.info("[AsmTtlTransformer] add Transformlet " + transformlet.getClass().getName());
+        }
+    }
+
+    /**
+     * info about class loader: may be <code>null</code> if the bootstrap loader.
+     * <p>
+     * more info see {@link ClassFileTransformer#transform(ClassLoader, String, Class, ProtectionDomain, byte[])}
+     */
+    @Override
+    public byte[] transform(@Nullable final ClassLoader loader, @Nullable final String classFile, final Class<?> classBeingRedefined,
+                            final ProtectionDomain protectionDomain, @NonNull final byte[] classFileBuffer) {
+        try {
+            // Lambda has no class file, no need to transform, just return.
+            if (classFile == null) return NO_TRANSFORM;
+
+            final ClassInfo classInfo = new ClassInfo(classFile, classFileBuffer, loader);
+            if (isClassUnderPackage(classInfo.getClassName(), "com.alibaba.ttl")) return NO_TRANSFORM;
+            if (isClassUnderPackage(classInfo.getClassName(), "java.lang")) return NO_TRANSFORM;
+
+            if (logClassTransform)
+                logger.info("[AsmTtlTransformer] transforming " + classInfo.getClassName()
+                        + " from classloader " + classInfo.getClassLoader());
+
+            for (AsmTransformlet transformlet : transformletList) {
+                final byte[] bytes = transformlet.doTransform(classInfo);
+                if (bytes != null) {
+                    logger.info("[AsmTtlTransformer] " + transformlet.getClass().getName() + " transformed " + classInfo.getClassName()
+                            + " from classloader " + classInfo.getClassLoader());
+                    return bytes;
+                }
+            }
+        } catch (Throwable t) {
+            String msg = "[AsmTtlTransformer] fail to transform class " + classFile + ", cause: " + t.toString();
+            logger.error(msg, t);
+            throw new IllegalStateException(msg, t);
+        }
+
+        return NO_TRANSFORM;
+    }
+}
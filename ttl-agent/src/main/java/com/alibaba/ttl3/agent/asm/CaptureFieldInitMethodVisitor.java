@@ -0,0 +1,53 @@
+package com.alibaba.ttl3.agent.asm;
+
+import com.alibaba.ttl3.agent.transformlet.helper.TtlTransformletHelper;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.commons.AdviceAdapter;
+import org.objectweb.asm.commons.Method;
+
+import static com.alibaba.ttl3.agent.asm.AsmTransformletHelper.*;
+
+/**
+ * Initialize the field {@link AsmTransformletHelper#CAPTURED_FIELD_NAME} after the {@code super(...)} call of the constructor:
+ *
+ * <pre>{@code this.captured$field$added$by$ttl = TtlTransformletHelper.doCaptureIfNotTtlEnhanced(this);}</pre>
+ * <p>
+ * The constructors calling {@code this(...)} are skipped, same as the field initializer of Javassist.
+ *
+ * @see TtlTransformletHelper#doCaptureIfNotTtlEnhanced(Object)
+ */
+final class CaptureFieldInitMethodVisitor extends AdviceAdapter {
+    private static final Type OBJECT_TYPE = Type.getObjectType(OBJECT_INTERNAL_NAME);
+    private static final Method DO_CAPTURE_IF_NOT_TTL_ENHANCED =
+            new Method("doCaptureIfNotTtlEnhanced", OBJECT_TYPE, new Type[]{OBJECT_TYPE});
+
+    private final String owner;
+    private String lastConstructorOwner;
+
+    /**
+     * @param owner the internal name of the class declaring the constructor and the field {@link AsmTransformletHelper#CAPTURED_FIELD_NAME}
+     */
+    CaptureFieldInitMethodVisitor(@NonNull MethodVisitor mv, int access, @NonNull String descriptor, @NonNull String owner) {
+        super(ASM_API, mv, access, "<init>", descriptor);
+        this.owner = owner;
+    }
+
+    @Override
+    public void visitMethodInsn(int opcode, String owner, String name, String descriptor, boolean isInterface) {
+        // record before delegating, onMethodEnter is called by AdviceAdapter right after the super(...)/this(...) call
+        if (opcode == INVOKESPECIAL && "<init>".equals(name)) lastConstructorOwner = owner;
+        super.visitMethodInsn(opcode, owner, name, descriptor, isInterface);
+    }
+
+    @Override
+    protected void onMethodEnter() {
+        if (owner.equals(lastConstructorOwner)) return;
+
+        loadThis();
+        loadThis();
+        invokeStatic(Type.getObjectType(TTL_TRANSFORMLET_HELPER_INTERNAL_NAME), DO_CAPTURE_IF_NOT_TTL_ENHANCED);
+        putField(Type.getObjectType(owner), CAPTURED_FIELD_NAME, OBJECT_TYPE);
+    }
+}
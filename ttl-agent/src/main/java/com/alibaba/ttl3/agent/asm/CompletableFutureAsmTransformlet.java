@@ -0,0 +1,64 @@
+package com.alibaba.ttl3.agent.asm;
+
+import com.alibaba.ttl3.agent.logging.Logger;
+import com.alibaba.ttl3.agent.transformlet.ClassInfo;
+import com.alibaba.ttl3.agent.transformlet.internal.CompletableFutureTtlTransformlet;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import org.objectweb.asm.*;
+
+import static com.alibaba.ttl3.agent.asm.AsmTransformletHelper.*;
+
+/**
+ * {@link AsmTransformlet} for {@link java.util.concurrent.CompletableFuture},
+ * same behaviours as {@link CompletableFutureTtlTransformlet}.
+ *
+ * @see CompletableFutureTtlTransformlet
+ * @see java.util.concurrent.CompletableFuture
+ */
+final class CompletableFutureAsmTransformlet implements AsmTransformlet {
+    private static final Logger logger = Logger.getLogger(CompletableFutureAsmTransformlet.class);
+
+    private static final String COMPLETABLE_FUTURE_CLASS_NAME = "java.util.concurrent.CompletableFuture";
+
+    @Nullable
+    @Override
+    public byte[] doTransform(@NonNull ClassInfo classInfo) {
+        if (!COMPLETABLE_FUTURE_CLASS_NAME.equals(classInfo.getClassName())) return null;
+
+        final ClassReader classReader = new ClassReader(classInfo.getClassFileBuffer());
+        return new CompletableFutureClassVisitor(newClassWriter(classReader)).transform(classReader, 0);
+    }
+
+    /**
+     * auto wrap the parameters of the public {@code *Async} methods.
+     */
+    private static final class CompletableFutureClassVisitor extends TtlClassVisitor {
+        CompletableFutureClassVisitor(@NonNull ClassWriter classWriter) {
+            super(classWriter);
+        }
+
+        @Override
+        public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+            final MethodVisitor mv = super.visitMethod(access, name, descriptor, signature, exceptions);
+            if (mv == null) return null;
+
+            if ((access & Opcodes.ACC_PUBLIC) == 0 || !name.endsWith("Async")) return mv;
+
+            final Type[] parameterTypes = Type.getArgumentTypes(descriptor);
+            final int[] slots = parameterSlots(parameterTypes, (access & Opcodes.ACC_STATIC) != 0);
+            return new MethodVisitor(ASM_API, mv) {
+                @Override
+                public void visitCode() {
+                    super.visitCode();
+                    for (int i = 0; i < parameterTypes.length; i++) {
+                        if (emitAutoWrapParameter(mv, slots[i], parameterTypes[i])) {
+                            logger.info("auto wrap parameter " + i + " of method " + name + descriptor + " of class " + className);
+                            setModified();
+                        }
+                    }
+                }
+            };
+        }
+    }
+}
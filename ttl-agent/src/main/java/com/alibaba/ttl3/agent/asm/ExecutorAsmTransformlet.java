@@ -0,0 +1,163 @@
+package com.alibaba.ttl3.agent.asm;
+
+import com.alibaba.ttl3.agent.logging.Logger;
+import com.alibaba.ttl3.agent.transformlet.ClassInfo;
+import com.alibaba.ttl3.agent.transformlet.helper.AbstractExecutorTtlTransformlet;
+import com.alibaba.ttl3.agent.transformlet.helper.AutoWrapperRegistry;
+import com.alibaba.ttl3.agent.transformlet.internal.JdkExecutorTtlTransformlet;
+import com.alibaba.ttl3.executor.TtlExecutors;
+import com.alibaba.ttl3.spi.TtlAttachmentsDelegate;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import org.objectweb.asm.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static com.alibaba.ttl3.agent.asm.AsmTransformletHelper.*;
+import static com.alibaba.ttl3.agent.transformlet.helper.TtlTransformletHelper.isClassAtPackageJavaUtil;
+
+/**
+ * {@link AsmTransformlet} for {@link java.util.concurrent.ThreadPoolExecutor}
+ * and {@link java.util.concurrent.ScheduledThreadPoolExecutor}, same behaviours as {@link JdkExecutorTtlTransformlet}.
+ *
+ * @see JdkExecutorTtlTransformlet
+ * @see AbstractExecutorTtlTransformlet
+ * @see java.util.concurrent.ThreadPoolExecutor
+ * @see java.util.concurrent.ScheduledThreadPoolExecutor
+ */
+final class ExecutorAsmTransformlet implements AsmTransformlet {
+    private static final Logger logger = Logger.getLogger(ExecutorAsmTransformlet.class);
+
+    private static final String THREAD_POOL_EXECUTOR_CLASS_NAME = "java.util.concurrent.ThreadPoolExecutor";
+    private static final Set<String> EXECUTOR_CLASS_NAMES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            THREAD_POOL_EXECUTOR_CLASS_NAME,
+            "java.util.concurrent.ScheduledThreadPoolExecutor"
+    )));
+
+    private static final Type THREAD_FACTORY_TYPE = Type.getObjectType("java/util/concurrent/ThreadFactory");
+    private static final String BEFORE_EXECUTE_DESC = "(Ljava/lang/Thread;Ljava/lang/Runnable;)V";
+    private static final String AFTER_EXECUTE_DESC = "(Ljava/lang/Runnable;Ljava/lang/Throwable;)V";
+
+    private final boolean disableInheritableForThreadPool;
+
+    ExecutorAsmTransformlet(boolean disableInheritableForThreadPool) {
+        this.disableInheritableForThreadPool = disableInheritableForThreadPool;
+    }
+
+    @Nullable
+    @Override
+    public byte[] doTransform(@NonNull ClassInfo classInfo) {
+        // work-around ClassCircularityError, same as AbstractExecutorTtlTransformlet
+        if (isClassAtPackageJavaUtil(classInfo.getClassName())) return null;
+
+        if (EXECUTOR_CLASS_NAMES.contains(classInfo.getClassName())) {
+            final ClassReader classReader = new ClassReader(classInfo.getClassFileBuffer());
+            return new ExecutorClassVisitor(newClassWriter(classReader)).transform(classReader, 0);
+        }
+
+        // cheap checks: only the subclass overriding beforeExecute/afterExecute is transformed
+        if (classInfo.isInterface() || "java.lang.Object".equals(classInfo.getSuperClassName())) return null;
+        if (!classInfo.mayDeclareMethod("beforeExecute") && !classInfo.mayDeclareMethod("afterExecute")) return null;
+        if (!isSubclassOf(classInfo, THREAD_POOL_EXECUTOR_CLASS_NAME)) return null;
+
+        final ClassReader classReader = new ClassReader(classInfo.getClassFileBuffer());
+        return new ExecutorSubclassClassVisitor(newClassWriter(classReader)).transform(classReader, 0);
+    }
+
+    /**
+     * auto wrap the parameters of the types registered in {@link AutoWrapperRegistry} of the public methods
+     * with the executor({@code this}) to find the bound {@code TransmitProfile},
+     * and disable inheritable for the {@link java.util.concurrent.ThreadFactory} parameters of the constructors.
+     *
+     * @see TtlExecutors#getDisableInheritableThreadFactory(java.util.concurrent.ThreadFactory)
+     */
+    private final class ExecutorClassVisitor extends TtlClassVisitor {
+        ExecutorClassVisitor(@NonNull ClassWriter classWriter) {
+            super(classWriter);
+        }
+
+        @Override
+        public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+            super.visit(version, access, name, signature, superName, interfaces);
+            setModified();
+        }
+
+        @Override
+        public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+            final MethodVisitor mv = super.visitMethod(access, name, descriptor, signature, exceptions);
+            if (mv == null) return null;
+
+            final Type[] parameterTypes = Type.getArgumentTypes(descriptor);
+            final int[] slots = parameterSlots(parameterTypes, (access & Opcodes.ACC_STATIC) != 0);
+
+            if ("<init>".equals(name)) {
+                if (!disableInheritableForThreadPool) return mv;
+
+                return new MethodVisitor(ASM_API, mv) {
+                    @Override
+                    public void visitCode() {
+                        super.visitCode();
+                        for (int i = 0; i < parameterTypes.length; i++) {
+                            if (!THREAD_FACTORY_TYPE.equals(parameterTypes[i])) continue;
+
+                            emitRewriteParameter(mv, slots[i], parameterTypes[i], Type.getInternalName(TtlExecutors.class),
+                                    "getDisableInheritableThreadFactory", Type.getMethodDescriptor(THREAD_FACTORY_TYPE, THREAD_FACTORY_TYPE));
+                            logger.info("disable inheritable for parameter " + i + " of constructor " + descriptor + " of class " + className);
+                        }
+                    }
+                };
+            }
+
+            if ("<clinit>".equals(name) || !isPublicNonStatic(access)) return mv;
+
+            return new MethodVisitor(ASM_API, mv) {
+                @Override
+                public void visitCode() {
+                    super.visitCode();
+                    for (int i = 0; i < parameterTypes.length; i++) {
+                        if (emitAutoWrapExecutorParameter(mv, slots[i], parameterTypes[i])) {
+                            logger.info("auto wrap parameter " + i + " of method " + name + descriptor + " of class " + className);
+                        }
+                    }
+                }
+            };
+        }
+    }
+
+    /**
+     * unwrap the auto wrapped task parameter of the overridden beforeExecute/afterExecute methods.
+     *
+     * @see TtlAttachmentsDelegate#unwrapIfIsAutoWrapper(Object)
+     */
+    private static final class ExecutorSubclassClassVisitor extends TtlClassVisitor {
+        ExecutorSubclassClassVisitor(@NonNull ClassWriter classWriter) {
+            super(classWriter);
+        }
+
+        @Override
+        public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+            final MethodVisitor mv = super.visitMethod(access, name, descriptor, signature, exceptions);
+            if (mv == null || (access & Opcodes.ACC_STATIC) != 0) return mv;
+
+            final int slot;
+            if ("beforeExecute".equals(name) && BEFORE_EXECUTE_DESC.equals(descriptor)) slot = 2;
+            else if ("afterExecute".equals(name) && AFTER_EXECUTE_DESC.equals(descriptor)) slot = 1;
+            else return mv;
+
+            return new MethodVisitor(ASM_API, mv) {
+                @Override
+                public void visitCode() {
+                    super.visitCode();
+                    emitRewriteParameter(mv, slot, Type.getObjectType("java/lang/Runnable"),
+                            Type.getInternalName(TtlAttachmentsDelegate.class), "unwrapIfIsAutoWrapper",
+                            "(Ljava/lang/Object;)Ljava/lang/Object;");
+                    logger.info("unwrap auto wrapper parameter of method " + name + " of class " + className);
+                    setModified();
+                }
+            };
+        }
+    }
+}
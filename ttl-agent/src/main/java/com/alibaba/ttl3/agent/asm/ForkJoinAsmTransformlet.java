@@ -0,0 +1,111 @@
+package com.alibaba.ttl3.agent.asm;
+
+import com.alibaba.ttl3.agent.logging.Logger;
+import com.alibaba.ttl3.agent.transformlet.ClassInfo;
+import com.alibaba.ttl3.agent.transformlet.internal.ForkJoinTtlTransformlet;
+import com.alibaba.ttl3.executor.TtlExecutors;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import org.objectweb.asm.*;
+
+import static com.alibaba.ttl3.agent.asm.AsmTransformletHelper.*;
+
+/**
+ * {@link AsmTransformlet} for {@link java.util.concurrent.ForkJoinTask}, same behaviours as {@link ForkJoinTtlTransformlet}.
+ * <p>
+ * The replay/restore {@code try-finally} is inlined into the hot method {@code ForkJoinTask.doExec},
+ * no renamed method {@code original$doExec$method$renamed$by$ttl} is added.
+ *
+ * @see ForkJoinTtlTransformlet
+ * @see java.util.concurrent.ForkJoinPool
+ * @see java.util.concurrent.ForkJoinTask
+ */
+final class ForkJoinAsmTransformlet implements AsmTransformlet {
+    private static final Logger logger = Logger.getLogger(ForkJoinAsmTransformlet.class);
+
+    private static final String FORK_JOIN_TASK_CLASS_NAME = "java.util.concurrent.ForkJoinTask";
+    private static final String FORK_JOIN_POOL_CLASS_NAME = "java.util.concurrent.ForkJoinPool";
+    private static final Type FORK_JOIN_WORKER_THREAD_FACTORY_TYPE =
+            Type.getObjectType("java/util/concurrent/ForkJoinPool$ForkJoinWorkerThreadFactory");
+
+    private final boolean disableInheritableForThreadPool;
+
+    ForkJoinAsmTransformlet(boolean disableInheritableForThreadPool) {
+        this.disableInheritableForThreadPool = disableInheritableForThreadPool;
+    }
+
+    @Nullable
+    @Override
+    public byte[] doTransform(@NonNull ClassInfo classInfo) {
+        if (FORK_JOIN_TASK_CLASS_NAME.equals(classInfo.getClassName())) {
+            final ClassReader classReader = new ClassReader(classInfo.getClassFileBuffer());
+            return new ForkJoinTaskClassVisitor(newClassWriter(classReader)).transform(classReader, ClassReader.EXPAND_FRAMES);
+        } else if (disableInheritableForThreadPool && FORK_JOIN_POOL_CLASS_NAME.equals(classInfo.getClassName())) {
+            final ClassReader classReader = new ClassReader(classInfo.getClassFileBuffer());
+            return new ForkJoinPoolClassVisitor(newClassWriter(classReader)).transform(classReader, 0);
+        }
+        return null;
+    }
+
+    private static final class ForkJoinTaskClassVisitor extends TtlClassVisitor {
+        ForkJoinTaskClassVisitor(@NonNull ClassWriter classWriter) {
+            super(classWriter);
+        }
+
+        @Override
+        public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+            final MethodVisitor mv = super.visitMethod(access, name, descriptor, signature, exceptions);
+            if (mv == null) return null;
+
+            if ("<init>".equals(name)) {
+                return new CaptureFieldInitMethodVisitor(mv, access, descriptor, className);
+            }
+            if ("doExec".equals(name) && "()I".equals(descriptor)) {
+                logger.info("inline replay/restore try-finally into method doExec of class " + className);
+                return new ReplayTryFinallyMethodVisitor(mv, access, name, descriptor, className, hasFrames());
+            }
+            return mv;
+        }
+
+        @Override
+        public void visitEnd() {
+            addCapturedField(cv);
+            logger.info("add new field " + CAPTURED_FIELD_NAME + " to class " + className);
+            setModified();
+            super.visitEnd();
+        }
+    }
+
+    /**
+     * @see TtlExecutors#getDisableInheritableForkJoinWorkerThreadFactory(java.util.concurrent.ForkJoinPool.ForkJoinWorkerThreadFactory)
+     */
+    private static final class ForkJoinPoolClassVisitor extends TtlClassVisitor {
+        ForkJoinPoolClassVisitor(@NonNull ClassWriter classWriter) {
+            super(classWriter);
+        }
+
+        @Override
+        public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+            final MethodVisitor mv = super.visitMethod(access, name, descriptor, signature, exceptions);
+            if (mv == null || !"<init>".equals(name)) return mv;
+
+            final Type[] parameterTypes = Type.getArgumentTypes(descriptor);
+            final int[] slots = parameterSlots(parameterTypes, false);
+            return new MethodVisitor(ASM_API, mv) {
+                @Override
+                public void visitCode() {
+                    super.visitCode();
+                    for (int i = 0; i < parameterTypes.length; i++) {
+                        if (!FORK_JOIN_WORKER_THREAD_FACTORY_TYPE.equals(parameterTypes[i])) continue;
+
+                        emitRewriteParameter(mv, slots[i], parameterTypes[i], Type.getInternalName(TtlExecutors.class),
+                                "getDisableInheritableForkJoinWorkerThreadFactory",
+                                Type.getMethodDescriptor(FORK_JOIN_WORKER_THREAD_FACTORY_TYPE, FORK_JOIN_WORKER_THREAD_FACTORY_TYPE));
+                        logger.info("disable inheritable for parameter " + i + " of constructor " + descriptor + " of class " + className);
+                        setModified();
+                    }
+                }
+            };
+        }
+    }
+}
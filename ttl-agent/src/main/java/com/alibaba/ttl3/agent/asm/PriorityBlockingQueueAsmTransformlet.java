@@ -0,0 +1,79 @@
+package com.alibaba.ttl3.agent.asm;
+
+import com.alibaba.ttl3.agent.logging.Logger;
+import com.alibaba.ttl3.agent.transformlet.ClassInfo;
+import com.alibaba.ttl3.agent.transformlet.internal.PriorityBlockingQueueTtlTransformlet;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import org.objectweb.asm.*;
+
+import static com.alibaba.ttl3.agent.asm.AsmTransformletHelper.ASM_API;
+import static com.alibaba.ttl3.agent.asm.AsmTransformletHelper.newClassWriter;
+
+/**
+ * {@link AsmTransformlet} for {@link java.util.concurrent.PriorityBlockingQueue PriorityBlockingQueue},
+ * same behaviours as {@link PriorityBlockingQueueTtlTransformlet}: wrap the comparator field at the end of the constructors.
+ * <p>
+ * NOTE: the {@link java.util.PriorityQueue} fallback of {@link PriorityBlockingQueueTtlTransformlet} is for Java 6
+ * whose {@code PriorityBlockingQueue} has no field {@code comparator}, not needed by TTL 3(Java 8+).
+ *
+ * @see PriorityBlockingQueueTtlTransformlet
+ * @see PriorityBlockingQueueTtlTransformlet#overwriteComparatorField$by$ttl(java.util.Comparator)
+ */
+final class PriorityBlockingQueueAsmTransformlet implements AsmTransformlet {
+    private static final Logger logger = Logger.getLogger(PriorityBlockingQueueAsmTransformlet.class);
+
+    private static final String PRIORITY_BLOCKING_QUEUE_CLASS_NAME = "java.util.concurrent.PriorityBlockingQueue";
+    private static final String COMPARATOR_FIELD_NAME = "comparator";
+    private static final String COMPARATOR_DESC = "Ljava/util/Comparator;";
+
+    @Nullable
+    @Override
+    public byte[] doTransform(@NonNull ClassInfo classInfo) {
+        if (!PRIORITY_BLOCKING_QUEUE_CLASS_NAME.equals(classInfo.getClassName())) return null;
+
+        final ClassReader classReader = new ClassReader(classInfo.getClassFileBuffer());
+        return new PriorityBlockingQueueClassVisitor(newClassWriter(classReader)).transform(classReader, 0);
+    }
+
+    private static final class PriorityBlockingQueueClassVisitor extends TtlClassVisitor {
+        /**
+         * the fields are visited before the methods.
+         */
+        private boolean haveComparatorField = false;
+
+        PriorityBlockingQueueClassVisitor(@NonNull ClassWriter classWriter) {
+            super(classWriter);
+        }
+
+        @Override
+        public FieldVisitor visitField(int access, String name, String descriptor, String signature, Object value) {
+            if (COMPARATOR_FIELD_NAME.equals(name) && COMPARATOR_DESC.equals(descriptor)) haveComparatorField = true;
+            return super.visitField(access, name, descriptor, signature, value);
+        }
+
+        @Override
+        public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+            final MethodVisitor mv = super.visitMethod(access, name, descriptor, signature, exceptions);
+            if (mv == null || !haveComparatorField || !"<init>".equals(name)) return mv;
+
+            logger.info("wrap field " + COMPARATOR_FIELD_NAME + " after constructor " + descriptor + " of class " + className);
+            setModified();
+            return new MethodVisitor(ASM_API, mv) {
+                @Override
+                public void visitInsn(int opcode) {
+                    if (opcode == Opcodes.RETURN) {
+                        // this.comparator = PriorityBlockingQueueTtlTransformlet.overwriteComparatorField$by$ttl(this.comparator);
+                        super.visitVarInsn(Opcodes.ALOAD, 0);
+                        super.visitVarInsn(Opcodes.ALOAD, 0);
+                        super.visitFieldInsn(Opcodes.GETFIELD, className, COMPARATOR_FIELD_NAME, COMPARATOR_DESC);
+                        super.visitMethodInsn(Opcodes.INVOKESTATIC, Type.getInternalName(PriorityBlockingQueueTtlTransformlet.class),
+                                "overwriteComparatorField$by$ttl", "(Ljava/util/Comparator;)Ljava/util/Comparator;", false);
+                        super.visitFieldInsn(Opcodes.PUTFIELD, className, COMPARATOR_FIELD_NAME, COMPARATOR_DESC);
+                    }
+                    super.visitInsn(opcode);
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.alibaba.ttl3.agent.asm;
+
+import com.alibaba.ttl3.agent.transformlet.helper.TtlTransformletHelper;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.commons.AdviceAdapter;
+import org.objectweb.asm.commons.Method;
+
+import static com.alibaba.ttl3.agent.asm.AsmTransformletHelper.*;
+
+/**
+ * Inline the replay/restore {@code try-finally} into the original method body:
+ *
+ * <pre>{@code
+ * Object backup = TtlTransformletHelper.replayIfCaptured(this.captured$field$added$by$ttl);
+ * try {
+ *     // the original method body
+ * } finally {
+ *     TtlTransformletHelper.restoreIfReplayed(backup);
+ * }}</pre>
+ * <p>
+ * Unlike {@link TtlTransformletHelper#addTryFinallyToMethod}, no renamed original method is added,
+ * so the stack depth of the transformed method is not changed.
+ * <p>
+ * NOTE: the class must be read with the expanded frames({@link ClassReader#EXPAND_FRAMES}).
+ *
+ * @see TtlTransformletHelper#replayIfCaptured(Object)
+ * @see TtlTransformletHelper#restoreIfReplayed(Object)
+ */
+final class ReplayTryFinallyMethodVisitor extends AdviceAdapter {
+    private static final Type OBJECT_TYPE = Type.getObjectType(OBJECT_INTERNAL_NAME);
+    private static final Type HELPER_TYPE = Type.getObjectType(TTL_TRANSFORMLET_HELPER_INTERNAL_NAME);
+    private static final Method REPLAY_IF_CAPTURED = new Method("replayIfCaptured", OBJECT_TYPE, new Type[]{OBJECT_TYPE});
+    private static final Method RESTORE_IF_REPLAYED = new Method("restoreIfReplayed", Type.VOID_TYPE, new Type[]{OBJECT_TYPE});
+
+    private final String owner;
+    private final Type[] parameterTypes;
+    /**
+     * the class files before java 6 have no stack map frames.
+     */
+    private final boolean emitFrames;
+
+    private final Label tryStart = new Label();
+    private final Label handler = new Label();
+    private int backup;
+
+    /**
+     * @param owner      the internal name of the class declaring the method and the field {@link AsmTransformletHelper#CAPTURED_FIELD_NAME}
+     * @param emitFrames whether emit the stack map frame of the inserted exception handler
+     */
+    ReplayTryFinallyMethodVisitor(@NonNull MethodVisitor mv, int access, @NonNull String name, @NonNull String descriptor,
+                                  @NonNull String owner, boolean emitFrames) {
+        super(ASM_API, mv, access, name, descriptor);
+        this.owner = owner;
+        this.parameterTypes = Type.getArgumentTypes(descriptor);
+        this.emitFrames = emitFrames;
+    }
+
+    @Override
+    protected void onMethodEnter() {
+        loadThis();
+        getField(Type.getObjectType(owner), CAPTURED_FIELD_NAME, OBJECT_TYPE);
+        invokeStatic(HELPER_TYPE, REPLAY_IF_CAPTURED);
+        backup = newLocal(OBJECT_TYPE);
+        storeLocal(backup);
+        mark(tryStart);
+    }
+
+    @Override
+    protected void onMethodExit(int opcode) {
+        // the exception thrown by the original method body is handled by the inserted exception handler
+        if (opcode == ATHROW) return;
+
+        loadLocal(backup);
+        invokeStatic(HELPER_TYPE, RESTORE_IF_REPLAYED);
+    }
+
+    @Override
+    public void visitMaxs(int maxStack, int maxLocals) {
+        // the catch-all exception handler, added last so as the outermost handler
+        mark(handler);
+        if (emitFrames) {
+            final Object[] locals = new Object[parameterTypes.length + 1];
+            locals[0] = owner;
+            for (int i = 0; i < parameterTypes.length; i++) {
+                locals[i + 1] = frameTypeOf(parameterTypes[i]);
+            }
+            // the new local variable `backup` is appended to the frame by LocalVariablesSorter
+            visitFrame(F_NEW, locals.length, locals, 1, new Object[]{"java/lang/Throwable"});
+        }
+        loadLocal(backup);
+        invokeStatic(HELPER_TYPE, RESTORE_IF_REPLAYED);
+        throwException();
+        visitTryCatchBlock(tryStart, handler, handler, null);
+
+        super.visitMaxs(maxStack, maxLocals);
+    }
+}
@@ -0,0 +1,93 @@
+package com.alibaba.ttl3.agent.asm;
+
+import com.alibaba.ttl3.agent.logging.Logger;
+import com.alibaba.ttl3.agent.transformlet.ClassInfo;
+import com.alibaba.ttl3.agent.transformlet.internal.TimerTaskTtlTransformlet;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import org.objectweb.asm.*;
+
+import static com.alibaba.ttl3.agent.asm.AsmTransformletHelper.*;
+import static com.alibaba.ttl3.agent.transformlet.helper.TtlTransformletHelper.isClassAtPackageJavaUtil;
+
+/**
+ * {@link AsmTransformlet} for {@link java.util.TimerTask}, same behaviours as {@link TimerTaskTtlTransformlet}.
+ *
+ * @see TimerTaskTtlTransformlet
+ * @see java.util.TimerTask
+ * @see java.util.Timer
+ */
+final class TimerTaskAsmTransformlet implements AsmTransformlet {
+    private static final Logger logger = Logger.getLogger(TimerTaskAsmTransformlet.class);
+
+    private static final String TIMER_TASK_CLASS_NAME = "java.util.TimerTask";
+    private static final String RUN_METHOD_NAME = "run";
+    private static final String RUN_METHOD_DESC = "()V";
+
+    @Nullable
+    @Override
+    public byte[] doTransform(@NonNull ClassInfo classInfo) {
+        // work-around ClassCircularityError, TimerTask class itself is skipped too
+        if (isClassAtPackageJavaUtil(classInfo.getClassName())) return null;
+
+        // cheap checks: the subclass of TimerTask declaring method `run`
+        if (classInfo.isInterface() || "java.lang.Object".equals(classInfo.getSuperClassName())) return null;
+        if (!classInfo.mayDeclareMethod(RUN_METHOD_NAME)) return null;
+
+        final ClassReader classReader = new ClassReader(classInfo.getClassFileBuffer());
+        if (!declaresRunMethod(classReader)) return null;
+        if (!isSubclassOf(classInfo, TIMER_TASK_CLASS_NAME)) return null;
+
+        logger.info("Transforming class " + classInfo.getClassName());
+        return new TimerTaskClassVisitor(newClassWriter(classReader)).transform(classReader, ClassReader.EXPAND_FRAMES);
+    }
+
+    /**
+     * whether the class declares the concrete method {@code void run()}, scan the method declarations only.
+     */
+    private static boolean declaresRunMethod(@NonNull ClassReader classReader) {
+        final boolean[] found = {false};
+        classReader.accept(new ClassVisitor(ASM_API) {
+            @Override
+            public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+                if (isRunMethod(access, name, descriptor)) found[0] = true;
+                return null;
+            }
+        }, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+        return found[0];
+    }
+
+    private static boolean isRunMethod(int access, String name, String descriptor) {
+        return RUN_METHOD_NAME.equals(name) && RUN_METHOD_DESC.equals(descriptor)
+                && (access & (Opcodes.ACC_STATIC | Opcodes.ACC_ABSTRACT | Opcodes.ACC_NATIVE)) == 0;
+    }
+
+    private static final class TimerTaskClassVisitor extends TtlClassVisitor {
+        TimerTaskClassVisitor(@NonNull ClassWriter classWriter) {
+            super(classWriter);
+        }
+
+        @Override
+        public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+            final MethodVisitor mv = super.visitMethod(access, name, descriptor, signature, exceptions);
+            if (mv == null) return null;
+
+            if ("<init>".equals(name)) {
+                return new CaptureFieldInitMethodVisitor(mv, access, descriptor, className);
+            }
+            if (isRunMethod(access, name, descriptor)) {
+                logger.info("inline replay/restore try-finally into method run of class " + className);
+                return new ReplayTryFinallyMethodVisitor(mv, access, name, descriptor, className, hasFrames());
+            }
+            return mv;
+        }
+
+        @Override
+        public void visitEnd() {
+            addCapturedField(cv);
+            logger.info("add new field " + CAPTURED_FIELD_NAME + " to class " + className);
+            setModified();
+            super.visitEnd();
+        }
+    }
+}
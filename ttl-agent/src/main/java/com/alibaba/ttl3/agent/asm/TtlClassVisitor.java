@@ -0,0 +1,66 @@
+package com.alibaba.ttl3.agent.asm;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+
+import static com.alibaba.ttl3.agent.asm.AsmTransformletHelper.ASM_API;
+
+/**
+ * The base {@link ClassVisitor} of {@link AsmTransformlet}s, records whether the class is modified.
+ */
+abstract class TtlClassVisitor extends ClassVisitor {
+    /**
+     * the internal name of the visited class.
+     */
+    protected String className;
+    private int classVersion;
+    private boolean modified = false;
+
+    private final ClassWriter classWriter;
+
+    TtlClassVisitor(@NonNull ClassWriter classWriter) {
+        super(ASM_API, classWriter);
+        this.classWriter = classWriter;
+    }
+
+    @Override
+    public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+        this.className = name;
+        this.classVersion = version;
+        super.visit(version, access, name, signature, superName, interfaces);
+    }
+
+    /**
+     * whether the class file has stack map frames, the class files before java 6 have not.
+     */
+    protected final boolean hasFrames() {
+        return (classVersion & 0xFFFF) >= Opcodes.V1_6;
+    }
+
+    protected final void setModified() {
+        this.modified = true;
+    }
+
+    final boolean isModified() {
+        return modified;
+    }
+
+    /**
+     * Transform the class by this class visitor.
+     *
+     * @param classReader    the reader of the class file, the class writer of this class visitor is created from
+     *                       by {@link AsmTransformletHelper#newClassWriter(ClassReader)}
+     * @param parsingOptions the parsing options of {@link ClassReader#accept(ClassVisitor, int)},
+     *                       {@link ClassReader#EXPAND_FRAMES} is required by the {@link org.objectweb.asm.commons.LocalVariablesSorter}s
+     * @return the transformed class file bytes, or {@code null} if the class is not modified
+     */
+    @Nullable
+    final byte[] transform(@NonNull ClassReader classReader, int parsingOptions) {
+        classReader.accept(this, parsingOptions);
+        return modified ? classWriter.toByteArray() : null;
+    }
+}
@@ -0,0 +1,13 @@
+/**
+ * The ASM transformer engine of TTL Agent, an alternative to the Javassist based {@link com.alibaba.ttl3.agent.TtlTransformer}.
+ * <p>
+ * Same behaviours as the TTL built-in {@code Transformlet}s in the package {@link com.alibaba.ttl3.agent.transformlet.internal},
+ * but weave the bytecode directly instead of compiling the Java source snippets at runtime,
+ * and inline the replay/restore {@code try-finally} into the original method body instead of renaming the original method.
+ * <p>
+ * Enabled by the agent option {@code ttl.agent.transformer.engine:asm}; the extension {@code Transformlet}s are still run by Javassist.
+ *
+ * @see com.alibaba.ttl3.agent.TtlAgent#TTL_AGENT_TRANSFORMER_ENGINE_KEY
+ * @see com.alibaba.ttl3.agent.asm.AsmTtlTransformer
+ */
+package com.alibaba.ttl3.agent.asm;
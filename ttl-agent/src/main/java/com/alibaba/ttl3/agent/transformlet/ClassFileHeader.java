@@ -0,0 +1,141 @@
+package com.alibaba.ttl3.agent.transformlet;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The cheap scan of the raw class file bytes: the constant pool, access flags and super class,
+ * without parsing fields, methods and attributes; used to reject the irrelevant classes before Javassist parsing.
+ *
+ * @see ClassInfo
+ * @see <a href="https://docs.oracle.com/javase/specs/jvms/se21/html/jvms-4.html">The class File Format</a>
+ */
+final class ClassFileHeader {
+    private static final int ACC_INTERFACE = 0x0200;
+
+    private final byte[] bytes;
+    /**
+     * the offsets of the constant pool entries(the tag byte), {@code 0} for the unusable slots.
+     */
+    private final int[] cpOffsets;
+    private final int accessFlags;
+    private final int superClassIndex;
+
+    private ClassFileHeader(byte[] bytes, int[] cpOffsets, int accessFlags, int superClassIndex) {
+        this.bytes = bytes;
+        this.cpOffsets = cpOffsets;
+        this.accessFlags = accessFlags;
+        this.superClassIndex = superClassIndex;
+    }
+
+    /**
+     * @return {@code null} if the bytes is not a well-formed class file
+     */
+    @Nullable
+    static ClassFileHeader scan(@NonNull byte[] bytes) {
+        try {
+            if (u4(bytes, 0) != 0xCAFEBABE) return null;
+
+            final int cpCount = u2(bytes, 8);
+            final int[] cpOffsets = new int[cpCount];
+            int offset = 10;
+            for (int i = 1; i < cpCount; i++) {
+                cpOffsets[i] = offset;
+                final int tag = bytes[offset] & 0xFF;
+                switch (tag) {
+                    case 1: // Utf8
+                        offset += 3 + u2(bytes, offset + 1);
+                        break;
+                    case 7: // Class
+                    case 8: // String
+                    case 16: // MethodType
+                    case 19: // Module
+                    case 20: // Package
+                        offset += 3;
+                        break;
+                    case 15: // MethodHandle
+                        offset += 4;
+                        break;
+                    case 3: // Integer
+                    case 4: // Float
+                    case 9: // Fieldref
+                    case 10: // Methodref
+                    case 11: // InterfaceMethodref
+                    case 12: // NameAndType
+                    case 17: // Dynamic
+                    case 18: // InvokeDynamic
+                        offset += 5;
+                        break;
+                    case 5: // Long
+                    case 6: // Double
+                        offset += 9;
+                        i++; // take two slots
+                        break;
+                    default:
+                        return null;
+                }
+            }
+
+            final int accessFlags = u2(bytes, offset);
+            final int superClassIndex = u2(bytes, offset + 4);
+            return new ClassFileHeader(bytes, cpOffsets, accessFlags, superClassIndex);
+        } catch (ArrayIndexOutOfBoundsException e) {
+            return null;
+        }
+    }
+
+    boolean isInterface() {
+        return (accessFlags & ACC_INTERFACE) != 0;
+    }
+
+    /**
+     * @return the internal name of the super class, e.g. {@code java/lang/Object};
+     * {@code null} if no super class({@code java.lang.Object} and {@code module-info})
+     */
+    @Nullable
+    String getSuperClassInternalName() {
+        if (superClassIndex == 0) return null;
+
+        final int nameIndex = u2(bytes, cpOffsets[superClassIndex] + 1);
+        return utf8At(nameIndex);
+    }
+
+    /**
+     * whether the constant pool contains the {@code CONSTANT_Utf8} entry, e.g. a member name or a descriptor.
+     */
+    boolean containsUtf8(@NonNull String value) {
+        final byte[] target = value.getBytes(StandardCharsets.UTF_8);
+        for (int offset : cpOffsets) {
+            if (offset == 0 || bytes[offset] != 1) continue;
+            if (u2(bytes, offset + 1) != target.length) continue;
+
+            if (regionEquals(offset + 3, target)) return true;
+        }
+        return false;
+    }
+
+    private boolean regionEquals(int start, byte[] target) {
+        for (int i = 0; i < target.length; i++) {
+            if (bytes[start + i] != target[i]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * NOTE: decode as standard UTF-8, same as the modified UTF-8 for the names without {@code \0} and supplementary characters.
+     */
+    private String utf8At(int index) {
+        final int offset = cpOffsets[index];
+        return new String(bytes, offset + 3, u2(bytes, offset + 1), StandardCharsets.UTF_8);
+    }
+
+    private static int u2(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xFF) << 8 | bytes[offset + 1] & 0xFF;
+    }
+
+    private static int u4(byte[] bytes, int offset) {
+        return u2(bytes, offset) << 16 | u2(bytes, offset + 2);
+    }
+}
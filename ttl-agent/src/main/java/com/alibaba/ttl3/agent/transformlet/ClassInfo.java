@@ -5,7 +5,6 @@ import edu.umd.cs.findbugs.annotations.Nullable;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import javassist.ClassPool;
 import javassist.CtClass;
-import javassist.LoaderClassPath;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
@@ -45,6 +44,18 @@ public class ClassInfo {
         return className;
     }
 
+    /**
+     * The original class file bytes, <b>NOT</b> modify it.
+     */
+    @NonNull
+    @SuppressFBWarnings({"EI_EXPOSE_REP"})
+    // [ERROR] Medium: com.alibaba.ttl3.agent.transformlet.ClassInfo.getClassFileBuffer()
+    // may expose internal representation
+    // by returning ClassInfo.classFileBuffer [com.alibaba.ttl3.agent.transformlet.ClassInfo]
+    public byte[] getClassFileBuffer() {
+        return classFileBuffer;
+    }
+
     private CtClass ctClass;
 
     public URL getLocationUrl() throws IOException {
@@ -59,13 +70,7 @@ public class ClassInfo {
     public CtClass getCtClass() throws IOException {
         if (ctClass != null) return ctClass;
 
-        final ClassPool classPool = new ClassPool(true);
-        if (loader == null) {
-            classPool.appendClassPath(new LoaderClassPath(ClassLoader.getSystemClassLoader()));
-        } else {
-            classPool.appendClassPath(new LoaderClassPath(loader));
-        }
-
+        final ClassPool classPool = ClassPoolCache.getClassPool(loader);
         final CtClass clazz = classPool.makeClass(new ByteArrayInputStream(classFileBuffer), false);
         clazz.defrost();
 
@@ -73,6 +78,64 @@ public class ClassInfo {
         return clazz;
     }
 
+    /**
+     * Whether the class is parsed by Javassist, aka. {@link #getCtClass()} is called.
+     */
+    public boolean isCtClassCreated() {
+        return ctClass != null;
+    }
+
+    // ======== cheap checks before Javassist parsing ========
+
+    private ClassFileHeader classFileHeader;
+    private boolean classFileHeaderScanned = false;
+
+    @Nullable
+    private ClassFileHeader getClassFileHeader() {
+        if (!classFileHeaderScanned) {
+            classFileHeader = ClassFileHeader.scan(classFileBuffer);
+            classFileHeaderScanned = true;
+        }
+        return classFileHeader;
+    }
+
+    /**
+     * Whether the class is an interface(including annotation), checked by the raw class file bytes
+     * without Javassist parsing({@link #getCtClass()}).
+     */
+    public boolean isInterface() {
+        final ClassFileHeader header = getClassFileHeader();
+        return header != null && header.isInterface();
+    }
+
+    /**
+     * The name of the direct super class, read from the raw class file bytes
+     * without Javassist parsing({@link #getCtClass()}).
+     *
+     * @return the super class name, e.g. {@code java.lang.Object};
+     * {@code null} if no super class or the class file is not recognized.
+     */
+    @Nullable
+    public String getSuperClassName() {
+        final ClassFileHeader header = getClassFileHeader();
+        if (header == null) return null;
+
+        final String internalName = header.getSuperClassInternalName();
+        return internalName == null ? null : toClassName(internalName);
+    }
+
+    /**
+     * Whether the class may declare the method of the name, checked by the constant pool of the raw class file bytes
+     * without Javassist parsing({@link #getCtClass()}).
+     * <p>
+     * The name of the declared method must be in the constant pool, so {@code false} means the class does <b>NOT</b> declare
+     * the method; {@code true} means the class may declare the method, check by {@link #getCtClass()} for sure.
+     */
+    public boolean mayDeclareMethod(@NonNull String methodName) {
+        final ClassFileHeader header = getClassFileHeader();
+        return header == null || header.containsUtf8(methodName);
+    }
+
     private boolean modified = false;
 
     public boolean isModified() {
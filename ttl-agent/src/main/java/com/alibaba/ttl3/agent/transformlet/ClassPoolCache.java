@@ -0,0 +1,49 @@
+package com.alibaba.ttl3.agent.transformlet;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import javassist.ClassPool;
+import javassist.LoaderClassPath;
+
+import java.util.WeakHashMap;
+
+/**
+ * The {@link ClassPool} shared by the classes of the same {@link ClassLoader},
+ * the parsed classes(e.g. the super classes for {@code subclassOf} checking) are reused across the class transforms.
+ * <p>
+ * The class loaders are held weakly, {@link LoaderClassPath} holds the class loader weakly too.
+ *
+ * @see ClassInfo#getCtClass()
+ */
+final class ClassPoolCache {
+    private static final WeakHashMap<ClassLoader, ClassPool> classLoader2ClassPool = new WeakHashMap<>();
+
+    private static ClassPool bootstrapClassPool;
+
+    /**
+     * @param loader the class loader, {@code null} if the bootstrap loader
+     */
+    @NonNull
+    static synchronized ClassPool getClassPool(@Nullable ClassLoader loader) {
+        if (loader == null) {
+            if (bootstrapClassPool == null) bootstrapClassPool = newClassPool(ClassLoader.getSystemClassLoader());
+            return bootstrapClassPool;
+        }
+
+        ClassPool classPool = classLoader2ClassPool.get(loader);
+        if (classPool == null) {
+            classPool = newClassPool(loader);
+            classLoader2ClassPool.put(loader, classPool);
+        }
+        return classPool;
+    }
+
+    private static ClassPool newClassPool(@NonNull ClassLoader loader) {
+        final ClassPool classPool = new ClassPool(true);
+        classPool.appendClassPath(new LoaderClassPath(loader));
+        return classPool;
+    }
+
+    private ClassPoolCache() {
+    }
+}
@@ -6,17 +6,14 @@ import com.alibaba.ttl3.agent.transformlet.TtlTransformlet;
 import com.alibaba.ttl3.agent.transformlet.internal.PriorityBlockingQueueTtlTransformlet;
 import com.alibaba.ttl3.spi.TtlAttachmentsDelegate;
 import edu.umd.cs.findbugs.annotations.NonNull;
-import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import javassist.*;
 
 import java.io.IOException;
 import java.lang.reflect.Modifier;
 import java.util.Collections;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.Callable;
 
+import static com.alibaba.ttl3.agent.transformlet.helper.TtlTransformletHelper.autoWrapCodeOfExecutorParameter;
 import static com.alibaba.ttl3.agent.transformlet.helper.TtlTransformletHelper.isClassAtPackageJavaUtil;
 import static com.alibaba.ttl3.agent.transformlet.helper.TtlTransformletHelper.signatureOfMethod;
 
@@ -42,22 +39,19 @@ public abstract class AbstractExecutorTtlTransformlet implements TtlTransformlet
     protected static final String THREAD_FACTORY_CLASS_NAME = "java.util.concurrent.ThreadFactory";
     protected static final String THREAD_POOL_EXECUTOR_CLASS_NAME = "java.util.concurrent.ThreadPoolExecutor";
 
+    private static final String OBJECT_CLASS_NAME = "java.lang.Object";
+
     protected final Logger logger = Logger.getLogger(getClass());
 
     protected final Set<String> executorClassNames;
     protected final boolean disableInheritableForThreadPool;
 
-    private final Map<String, String> paramTypeNameToDecorateMethodClass = new HashMap<>();
-
     /**
      * @param executorClassNames the executor class names to be transformed
      */
     public AbstractExecutorTtlTransformlet(Set<String> executorClassNames, boolean disableInheritableForThreadPool) {
         this.executorClassNames = Collections.unmodifiableSet(executorClassNames);
         this.disableInheritableForThreadPool = disableInheritableForThreadPool;
-
-        paramTypeNameToDecorateMethodClass.put(RUNNABLE_CLASS_NAME, TTL_RUNNABLE_CLASS_NAME);
-        paramTypeNameToDecorateMethodClass.put(CALLABLE_CLASS_NAME, TTL_CALLABLE_CLASS_NAME);
     }
 
     @Override
@@ -67,8 +61,8 @@ public abstract class AbstractExecutorTtlTransformlet implements TtlTransformlet
         //      https://github.com/alibaba/transmittable-thread-local/issues/234
         if (isClassAtPackageJavaUtil(classInfo.getClassName())) return;
 
-        final CtClass clazz = classInfo.getCtClass();
         if (executorClassNames.contains(classInfo.getClassName())) {
+            final CtClass clazz = classInfo.getCtClass();
             for (CtMethod method : clazz.getDeclaredMethods()) {
                 updateSubmitMethodsOfExecutorClass_decorateToTtlWrapperAndSetAutoWrapperAttachment(method);
             }
@@ -77,6 +71,11 @@ public abstract class AbstractExecutorTtlTransformlet implements TtlTransformlet
 
             classInfo.setModified();
         } else {
+            // cheap checks before Javassist parsing: only the subclass overriding beforeExecute/afterExecute is transformed
+            if (classInfo.isInterface() || OBJECT_CLASS_NAME.equals(classInfo.getSuperClassName())) return;
+            if (!classInfo.mayDeclareMethod("beforeExecute") && !classInfo.mayDeclareMethod("afterExecute")) return;
+
+            final CtClass clazz = classInfo.getCtClass();
             if (clazz.isPrimitive() || clazz.isArray() || clazz.isInterface() || clazz.isAnnotation()) {
                 return;
             }
@@ -90,10 +89,12 @@ public abstract class AbstractExecutorTtlTransformlet implements TtlTransformlet
     }
 
     /**
-     * @see TtlTransformletHelper#doAutoWrap(Runnable)
-     * @see TtlTransformletHelper#doAutoWrap(Callable)
+     * auto wrap the parameters of the types registered in {@link AutoWrapperRegistry},
+     * e.g. {@link Runnable}, {@link java.util.concurrent.Callable}, {@link java.util.function.Supplier}.
+     * the executor is passed to the auto wrapping to find the bound {@link com.alibaba.ttl3.transmitter.TransmitProfile}.
+     *
+     * @see TtlTransformletHelper#autoWrapCodeOfExecutorParameter(String, int)
      */
-    @SuppressFBWarnings("VA_FORMAT_STRING_USES_NEWLINE") // [ERROR] Format string should use %n rather than \n
     private void updateSubmitMethodsOfExecutorClass_decorateToTtlWrapperAndSetAutoWrapperAttachment(@NonNull final CtMethod method) throws NotFoundException, CannotCompileException {
         final int modifiers = method.getModifiers();
         if (!Modifier.isPublic(modifiers) || Modifier.isStatic(modifiers)) return;
@@ -101,15 +102,9 @@ public abstract class AbstractExecutorTtlTransformlet implements TtlTransformlet
         CtClass[] parameterTypes = method.getParameterTypes();
         StringBuilder insertCode = new StringBuilder();
         for (int i = 0; i < parameterTypes.length; i++) {
-            final String paramTypeName = parameterTypes[i].getName();
-            if (paramTypeNameToDecorateMethodClass.containsKey(paramTypeName)) {
-                String code = String.format(
-                        // auto decorate to TTL wrapper
-                        "$%d = helper.transformlet.com.alibaba.ttl3.agent.TtlTransformletHelper.doAutoWrap($%<d);",
-                        i + 1);
-                logger.info("insert code before method " + signatureOfMethod(method) + " of class " + method.getDeclaringClass().getName() + ":\n" + code);
-                insertCode.append(code);
-            }
+            // auto decorate to TTL wrapper
+            final String code = autoWrapCodeOfExecutorParameter(parameterTypes[i].getName(), i);
+            if (code != null) insertCode.append(code);
         }
         if (insertCode.length() > 0) {
             logger.info("insert code before method " + signatureOfMethod(method) + " of class " +
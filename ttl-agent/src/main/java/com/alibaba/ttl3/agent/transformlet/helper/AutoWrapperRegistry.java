@@ -0,0 +1,251 @@
+package com.alibaba.ttl3.agent.transformlet.helper;
+
+import com.alibaba.ttl3.TtlCallable;
+import com.alibaba.ttl3.TtlRunnable;
+import com.alibaba.ttl3.TtlWrappers;
+import com.alibaba.ttl3.spi.TtlEnhanced;
+import com.alibaba.ttl3.transmitter.TransmitProfile;
+import com.alibaba.ttl3.transmitter.Transmitter;
+import com.alibaba.ttl3.agent.transformlet.TtlTransformlet;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.*;
+
+import static com.alibaba.ttl3.spi.TtlAttachmentsDelegate.setAutoWrapperAttachment;
+
+/**
+ * The registry of the wrapping strategies({@link AutoWrapper}) of task types,
+ * used by {@link TtlTransformlet}s to auto wrap the task parameters of the transformed methods.
+ * <p>
+ * The builtin registered task types:
+ * <ul>
+ * <li>{@link Runnable}, {@link Callable}: wrapped by {@link TtlRunnable}/{@link TtlCallable}</li>
+ * <li>{@link Supplier}, {@link Consumer}, {@link BiConsumer}, {@link Function}, {@link BiFunction}:
+ *     wrapped by {@link TtlWrappers}</li>
+ * </ul>
+ * <p>
+ * Register the custom task type(e.g. in the constructor of the extension {@link TtlTransformlet})
+ * before the executor classes using the task type are transformed:
+ *
+ * <pre>{@code
+ * AutoWrapperRegistry.register("com.foo.Task", new AutoWrapper<Task>() {
+ *     public Task wrap(Task task) { return TtlTask.get(task); }
+ * });}</pre>
+ * <p>
+ * The {@link Runnable}/{@link Callable} tasks submitted to the executor bound to a {@link TransmitProfile}
+ * capture the values in the profile only, see {@link ExecutorTransmitProfiles}.
+ * <p>
+ * The wrapping strategy is resolved by the declared parameter type when transforming,
+ * the woven code of a call site calls the resolved strategy by the index directly,
+ * no {@code instanceof} checks of the task at runtime.
+ *
+ * @see TtlTransformletHelper#autoWrapCodeOfParameter(String, int)
+ * @see AbstractExecutorTtlTransformlet
+ */
+public final class AutoWrapperRegistry {
+    /**
+     * The wrapping strategy of a task type.
+     *
+     * @param <T> the task type
+     */
+    @FunctionalInterface
+    public interface AutoWrapper<T> {
+        /**
+         * wrap the task, return the input task if no need to wrap(e.g. already wrapped).
+         * <p>
+         * the wrapping should be idempotent.
+         */
+        @NonNull
+        T wrap(@NonNull T task);
+    }
+
+    private static final Map<String, Integer> typeNameToIndex = new ConcurrentHashMap<>();
+    /**
+     * copy-on-write; the index of a registered task type never changes.
+     */
+    private static volatile AutoWrapper<?>[] wrappers = new AutoWrapper<?>[0];
+    /**
+     * the registered type names by the index.
+     */
+    private static volatile List<String> typeNames = Collections.emptyList();
+
+    static {
+        // NOTE: do not use lambda in the agent, the lambda bootstrap loads classes when transforming.
+        register(Runnable.class.getName(), BuiltinAutoWrapper.RUNNABLE);
+        register(Callable.class.getName(), BuiltinAutoWrapper.CALLABLE);
+
+        register(Supplier.class.getName(), BuiltinAutoWrapper.SUPPLIER);
+        register(Consumer.class.getName(), BuiltinAutoWrapper.CONSUMER);
+        register(BiConsumer.class.getName(), BuiltinAutoWrapper.BI_CONSUMER);
+        register(Function.class.getName(), BuiltinAutoWrapper.FUNCTION);
+        register(BiFunction.class.getName(), BuiltinAutoWrapper.BI_FUNCTION);
+    }
+
+    /**
+     * register the wrapping strategy of the task type, replace the registered one of the same type.
+     * <p>
+     * the replacement takes effect for the transformed call sites too.
+     *
+     * @param typeName the class name of the task type, e.g. {@code java.util.function.Supplier}
+     * @param wrapper  the wrapping strategy
+     */
+    public static synchronized <T> void register(@NonNull String typeName, @NonNull AutoWrapper<T> wrapper) {
+        final Integer index = typeNameToIndex.get(typeName);
+        if (index != null) {
+            final AutoWrapper<?>[] copy = wrappers.clone();
+            copy[index] = wrapper;
+            wrappers = copy;
+            return;
+        }
+
+        final AutoWrapper<?>[] copy = Arrays.copyOf(wrappers, wrappers.length + 1);
+        copy[copy.length - 1] = wrapper;
+        wrappers = copy;
+        typeNameToIndex.put(typeName, copy.length - 1);
+
+        final List<String> names = new ArrayList<>(typeNames);
+        names.add(typeName);
+        typeNames = Collections.unmodifiableList(names);
+    }
+
+    /**
+     * the registered type names in the order of the index.
+     * <p>
+     * the woven code depends on the index, so the transformed bytes is reusable only for the same registered type names.
+     */
+    @NonNull
+    public static List<String> getRegisteredTypeNames() {
+        return typeNames;
+    }
+
+    /**
+     * whether the task type is registered.
+     */
+    public static boolean isRegistered(@NonNull String typeName) {
+        return typeNameToIndex.containsKey(typeName);
+    }
+
+    /**
+     * the index of the registered task type, used by the woven code; {@code -1} if not registered.
+     *
+     * @see #doAutoWrap(int, Object)
+     */
+    public static int indexOf(@NonNull String typeName) {
+        final Integer index = typeNameToIndex.get(typeName);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * wrap the task by the wrapper of the index, and set the auto wrapper attachment if wrapped.
+     * <p>
+     * called by the woven code, the index is resolved by {@link #indexOf(String)} when transforming.
+     *
+     * @see com.alibaba.ttl3.spi.TtlAttachmentsDelegate#setAutoWrapperAttachment(Object)
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public static Object doAutoWrap(int index, @Nullable Object task) {
+        if (task == null) return null;
+
+        final Object ret = ((AutoWrapper<Object>) wrappers[index]).wrap(task);
+
+        // have been auto wrapped?
+        if (ret != task) setAutoWrapperAttachment(ret);
+
+        return ret;
+    }
+
+    /**
+     * same as {@link #doAutoWrap(int, Object)}, but the {@link Runnable}/{@link Callable} task submitted to
+     * the executor bound to a {@link TransmitProfile} captures the values in the profile only.
+     * <p>
+     * called by the woven code of the executor classes.
+     *
+     * @param executor the executor the task submitted to
+     * @see ExecutorTransmitProfiles
+     */
+    @Nullable
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static Object doAutoWrap(int index, @Nullable Object task, @NonNull Object executor) {
+        final TransmitProfile profile = ExecutorTransmitProfiles.getProfile(executor);
+        if (profile == null || task == null) return doAutoWrap(index, task);
+
+        final AutoWrapper<?> wrapper = wrappers[index];
+        final Object ret;
+        if (wrapper == BuiltinAutoWrapper.RUNNABLE) {
+            if (task instanceof TtlEnhanced) return task;
+            ret = TtlRunnable.get((Runnable) task, Transmitter.capture(profile), false, true);
+        } else if (wrapper == BuiltinAutoWrapper.CALLABLE) {
+            if (task instanceof TtlEnhanced) return task;
+            ret = TtlCallable.get((Callable) task, Transmitter.capture(profile), false, true);
+        } else {
+            return doAutoWrap(index, task);
+        }
+
+        setAutoWrapperAttachment(ret);
+        return ret;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private enum BuiltinAutoWrapper implements AutoWrapper<Object> {
+        RUNNABLE {
+            @Override
+            public Object wrap(Object task) {
+                // the TTL enhanced tasks(not only TtlRunnable) transmit by themselves
+                if (task instanceof TtlEnhanced) return task;
+                return TtlRunnable.get((Runnable) task, false, true);
+            }
+        },
+        CALLABLE {
+            @Override
+            public Object wrap(Object task) {
+                if (task instanceof TtlEnhanced) return task;
+                return TtlCallable.get((Callable) task, false, true);
+            }
+        },
+        SUPPLIER {
+            @Override
+            public Object wrap(Object task) {
+                return TtlWrappers.wrapSupplier((Supplier) task);
+            }
+        },
+        CONSUMER {
+            @Override
+            public Object wrap(Object task) {
+                return TtlWrappers.wrapConsumer((Consumer) task);
+            }
+        },
+        BI_CONSUMER {
+            @Override
+            public Object wrap(Object task) {
+                return TtlWrappers.wrapBiConsumer((BiConsumer) task);
+            }
+        },
+        FUNCTION {
+            @Override
+            public Object wrap(Object task) {
+                return TtlWrappers.wrapFunction((Function) task);
+            }
+        },
+        BI_FUNCTION {
+            @Override
+            public Object wrap(Object task) {
+                return TtlWrappers.wrapBiFunction((BiFunction) task);
+            }
+        }
+    }
+
+    @SuppressFBWarnings("CT_CONSTRUCTOR_THROW")
+    private AutoWrapperRegistry() {
+        throw new InstantiationError("Must not instantiate this class");
+    }
+}
@@ -0,0 +1,96 @@
+package com.alibaba.ttl3.agent.transformlet.helper;
+
+import com.alibaba.ttl3.transmitter.TransmitProfile;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The {@link TransmitProfile}s of the executors enhanced by TTL agent, bound by the executor class name.
+ * <p>
+ * The executor class names are mapped to the profile names by the agent option {@code ttl.agent.transmit.profiles},
+ * the profiles are registered by the application via {@link TransmitProfile#register(String, TransmitProfile)}.
+ * The executor of a subclass of the configured class is bound to the profile too.
+ * <p>
+ * The binding of an executor class is resolved once, and the profile is cached by the binding
+ * after the first task submitted since the profile is registered;
+ * so the woven code checks the profile by a {@link ClassValue} lookup without hashing the names.
+ *
+ * @see AutoWrapperRegistry#doAutoWrap(int, Object, Object)
+ * @see com.alibaba.ttl3.agent.TtlAgent
+ */
+public final class ExecutorTransmitProfiles {
+    private static volatile Map<String, String> classNameToProfileName = Collections.emptyMap();
+
+    private static final Binding NO_BINDING = new Binding(null);
+
+    private static final ClassValue<Binding> bindings = new ClassValue<Binding>() {
+        @Override
+        protected Binding computeValue(Class<?> type) {
+            final Map<String, String> names = classNameToProfileName;
+            for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+                final String profileName = names.get(c.getName());
+                if (profileName != null) return new Binding(profileName);
+            }
+            return NO_BINDING;
+        }
+    };
+
+    /**
+     * configure the profile names of the executor class names, called by the TTL agent before any transform.
+     *
+     * @param classNameToProfileName the executor class name to the profile name
+     */
+    public static void configure(@NonNull Map<String, String> classNameToProfileName) {
+        ExecutorTransmitProfiles.classNameToProfileName = Collections.unmodifiableMap(new HashMap<>(classNameToProfileName));
+    }
+
+    /**
+     * whether any executor class is bound to a profile.
+     */
+    public static boolean isConfigured() {
+        return !classNameToProfileName.isEmpty();
+    }
+
+    /**
+     * the profile of the executor, or {@code null} if the executor class is not bound
+     * or the bound profile is not registered yet.
+     */
+    @Nullable
+    public static TransmitProfile getProfile(@NonNull Object executor) {
+        if (classNameToProfileName.isEmpty()) return null;
+        return bindings.get(executor.getClass()).resolve();
+    }
+
+    private static final class Binding {
+        @Nullable
+        final String profileName;
+        @Nullable
+        volatile TransmitProfile profile;
+
+        Binding(@Nullable String profileName) {
+            this.profileName = profileName;
+        }
+
+        @Nullable
+        TransmitProfile resolve() {
+            if (profileName == null) return null;
+
+            TransmitProfile p = profile;
+            if (p == null) {
+                p = TransmitProfile.getRegistered(profileName);
+                profile = p;
+            }
+            return p;
+        }
+    }
+
+    @SuppressFBWarnings("CT_CONSTRUCTOR_THROW")
+    private ExecutorTransmitProfiles() {
+        throw new InstantiationError("Must not instantiate this class");
+    }
+}
@@ -1,5 +1,7 @@
 package com.alibaba.ttl3.agent.transformlet.helper;
 
+import com.alibaba.crr.composite.Backup;
+import com.alibaba.crr.composite.Capture;
 import com.alibaba.ttl3.TtlCallable;
 import com.alibaba.ttl3.TtlRunnable;
 import com.alibaba.ttl3.agent.logging.Logger;
@@ -18,6 +20,8 @@ import java.util.concurrent.Callable;
 
 import static com.alibaba.ttl3.spi.TtlAttachmentsDelegate.setAutoWrapperAttachment;
 import static com.alibaba.ttl3.transmitter.Transmitter.capture;
+import static com.alibaba.ttl3.transmitter.Transmitter.replay;
+import static com.alibaba.ttl3.transmitter.Transmitter.restore;
 
 /**
  * Helper methods for {@link TtlTransformlet} implementation.
@@ -157,11 +161,70 @@ public final class TtlTransformletHelper {
         else return capture();
     }
 
+    /**
+     * replay the captured by {@link #doCaptureIfNotTtlEnhanced(Object)}, do nothing if not captured(TTL enhanced).
+     * <p>
+     * used by the code inlined into the transformed method, paired with {@link #restoreIfReplayed(Object)}.
+     *
+     * @return the backup, or {@code null} if not captured
+     */
+    @Nullable
+    public static Object replayIfCaptured(@Nullable Object captured) {
+        if (captured == null) return null;
+        else return replay((Capture) captured);
+    }
+
+    /**
+     * restore the backup returned by {@link #replayIfCaptured(Object)}, do nothing if {@code null}.
+     */
+    public static void restoreIfReplayed(@Nullable Object backup) {
+        if (backup != null) restore((Backup) backup);
+    }
 
-    // FIXME hard-coded for type Runnable, not generic!
+    /**
+     * Generate the code to auto wrap the method parameter, by the wrapping strategy registered in {@link AutoWrapperRegistry}.
+     * e.g. {@code $1 = (java.util.function.Supplier) ...AutoWrapperRegistry.doAutoWrap(2, $1);}
+     *
+     * @param paramTypeName the declared type name of the parameter
+     * @param paramIndex    the index of the parameter, start from 0
+     * @return the code, or {@code null} if the parameter type is not registered
+     * @see AutoWrapperRegistry
+     */
+    @Nullable
+    public static String autoWrapCodeOfParameter(@NonNull String paramTypeName, int paramIndex) {
+        final int wrapperIndex = AutoWrapperRegistry.indexOf(paramTypeName);
+        if (wrapperIndex < 0) return null;
+
+        return String.format("$%d = (%s) com.alibaba.ttl3.agent.transformlet.helper.AutoWrapperRegistry.doAutoWrap(%d, $%<d);",
+                paramIndex + 1, paramTypeName, wrapperIndex);
+    }
+
+    /**
+     * Generate the code to auto wrap the method parameter of an executor method,
+     * the executor({@code this}) is passed to find the bound {@link com.alibaba.ttl3.transmitter.TransmitProfile}.
+     * e.g. {@code $1 = (java.lang.Runnable) ...AutoWrapperRegistry.doAutoWrap(0, $1, this);}
+     *
+     * @param paramTypeName the declared type name of the parameter
+     * @param paramIndex    the index of the parameter, start from 0
+     * @return the code, or {@code null} if the parameter type is not registered
+     * @see AutoWrapperRegistry#doAutoWrap(int, Object, Object)
+     * @see ExecutorTransmitProfiles
+     */
+    @Nullable
+    public static String autoWrapCodeOfExecutorParameter(@NonNull String paramTypeName, int paramIndex) {
+        final int wrapperIndex = AutoWrapperRegistry.indexOf(paramTypeName);
+        if (wrapperIndex < 0) return null;
+
+        return String.format("$%d = (%s) com.alibaba.ttl3.agent.transformlet.helper.AutoWrapperRegistry.doAutoWrap(%d, $%<d, this);",
+                paramIndex + 1, paramTypeName, wrapperIndex);
+    }
+
+    /**
+     * @see AutoWrapperRegistry#doAutoWrap(int, Object)
+     */
     @Nullable
     public static Runnable doAutoWrap(@Nullable final Runnable runnable) {
-        if (runnable == null) return null;
+        if (runnable == null || runnable instanceof TtlEnhanced) return runnable;
 
         final TtlRunnable ret = TtlRunnable.get(runnable, false, true);
 
@@ -171,10 +234,12 @@ public final class TtlTransformletHelper {
         return ret;
     }
 
-    // FIXME hard-coded for type Callable, not generic!
+    /**
+     * @see AutoWrapperRegistry#doAutoWrap(int, Object)
+     */
     @Nullable
     public static <T> Callable<T> doAutoWrap(@Nullable final Callable<T> callable) {
-        if (callable == null) return null;
+        if (callable == null || callable instanceof TtlEnhanced) return callable;
 
         final TtlCallable<T> ret = TtlCallable.get(callable, false, true);
 
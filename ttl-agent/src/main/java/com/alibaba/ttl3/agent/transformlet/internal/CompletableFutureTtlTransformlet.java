@@ -0,0 +1,62 @@
+package com.alibaba.ttl3.agent.transformlet.internal;
+
+import com.alibaba.ttl3.agent.logging.Logger;
+import com.alibaba.ttl3.agent.transformlet.ClassInfo;
+import com.alibaba.ttl3.agent.transformlet.TtlTransformlet;
+import com.alibaba.ttl3.agent.transformlet.helper.AutoWrapperRegistry;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import javassist.*;
+
+import java.io.IOException;
+
+import static com.alibaba.ttl3.agent.transformlet.helper.TtlTransformletHelper.autoWrapCodeOfParameter;
+import static com.alibaba.ttl3.agent.transformlet.helper.TtlTransformletHelper.signatureOfMethod;
+
+/**
+ * {@link TtlTransformlet} for {@link java.util.concurrent.CompletableFuture}.
+ * <p>
+ * The function parameters of the public {@code *Async} methods(e.g. {@code supplyAsync}, {@code thenApplyAsync})
+ * are auto wrapped by {@link AutoWrapperRegistry}, so the functions run with the values captured when calling the method,
+ * even if the async stage is triggered later by the completion in another thread.
+ * <p>
+ * The async tasks of {@link java.util.concurrent.CompletableFuture}({@code AsyncSupply}, {@code UniApply}...)
+ * are still captured in the constructor of {@link java.util.concurrent.ForkJoinTask} or wrapped by the executors,
+ * the whole task is replayed: the dependent stages completed by the task(e.g. {@code supplyAsync(s).thenApply(f)})
+ * run outside the wrapped function.
+ *
+ * @see ForkJoinTtlTransformlet
+ * @see JdkExecutorTtlTransformlet
+ * @see java.util.concurrent.CompletableFuture
+ */
+public final class CompletableFutureTtlTransformlet implements TtlTransformlet {
+    private static final Logger logger = Logger.getLogger(CompletableFutureTtlTransformlet.class);
+
+    private static final String COMPLETABLE_FUTURE_CLASS_NAME = "java.util.concurrent.CompletableFuture";
+
+    @Override
+    public void doTransform(@NonNull final ClassInfo classInfo) throws IOException, NotFoundException, CannotCompileException {
+        if (!COMPLETABLE_FUTURE_CLASS_NAME.equals(classInfo.getClassName())) return;
+
+        for (CtMethod method : classInfo.getCtClass().getDeclaredMethods()) {
+            if (updateAsyncMethod(method)) classInfo.setModified();
+        }
+    }
+
+    private boolean updateAsyncMethod(@NonNull final CtMethod method) throws NotFoundException, CannotCompileException {
+        if (!Modifier.isPublic(method.getModifiers()) || !method.getName().endsWith("Async")) return false;
+
+        final CtClass[] parameterTypes = method.getParameterTypes();
+        final StringBuilder insertCode = new StringBuilder();
+        for (int i = 0; i < parameterTypes.length; i++) {
+            final String code = autoWrapCodeOfParameter(parameterTypes[i].getName(), i);
+            if (code != null) insertCode.append(code);
+        }
+        if (insertCode.length() > 0) {
+            logger.info("insert code before method " + signatureOfMethod(method) + " of class " +
+                    method.getDeclaringClass().getName() + ":\n" + insertCode);
+            method.insertBefore(insertCode.toString());
+            return true;
+        }
+        return false;
+    }
+}
@@ -78,7 +78,7 @@ public final class ForkJoinTtlTransformlet implements TtlTransformlet {
             for (int i = 0; i < parameterTypes.length; i++) {
                 final String paramTypeName = parameterTypes[i].getName();
                 if (FORK_JOIN_WORKER_THREAD_FACTORY_CLASS_NAME.equals(paramTypeName)) {
-                    String code = String.format("$%d = com.alibaba.ttl3.executor.TtlForkJoinPoolHelper.getDisableInheritableForkJoinWorkerThreadFactory($%<d);", i + 1);
+                    String code = String.format("$%d = com.alibaba.ttl3.executor.TtlExecutors.getDisableInheritableForkJoinWorkerThreadFactory($%<d);", i + 1);
                     insertCode.append(code);
                 }
             }
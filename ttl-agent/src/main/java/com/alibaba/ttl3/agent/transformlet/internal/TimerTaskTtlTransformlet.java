@@ -34,6 +34,10 @@ public final class TimerTaskTtlTransformlet implements TtlTransformlet {
         //
         // if (TIMER_TASK_CLASS_NAME.equals(classInfo.getClassName())) return; // No need transform TimerTask class
 
+        // cheap checks before Javassist parsing: the subclass of TimerTask declaring method `run`
+        if (classInfo.isInterface() || "java.lang.Object".equals(classInfo.getSuperClassName())) return;
+        if (!classInfo.mayDeclareMethod(RUN_METHOD_NAME)) return;
+
         final CtClass clazz = classInfo.getCtClass();
 
         if (clazz.isPrimitive() || clazz.isArray() || clazz.isInterface() || clazz.isAnnotation()) {
@@ -0,0 +1,48 @@
+package com.alibaba
+
+import com.alibaba.ttl3.agent.TtlAgentStatus
+import io.kotest.assertions.withClue
+import io.kotest.matchers.booleans.shouldBeFalse
+import io.kotest.matchers.booleans.shouldBeTrue
+import io.kotest.matchers.shouldBe
+import java.time.Duration
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Future
+import java.util.concurrent.TimeUnit
+
+
+////////////////////////////////////////////////////////////////////////////////
+// shutdown/await util methods for test
+////////////////////////////////////////////////////////////////////////////////
+
+private val timeout = Duration.ofSeconds(3)
+
+fun ExecutorService.shutdownForTest() {
+    shutdown()
+    withClue("Fail to shutdown thread pool") {
+        awaitTermination(timeout.toMillis(), TimeUnit.MILLISECONDS).shouldBeTrue()
+    }
+}
+
+fun <T> Future<T>.getForTest(): T = this.get(timeout.toMillis(), TimeUnit.MILLISECONDS)
+
+
+////////////////////////////////////////////////////////////////////////////////
+// TTL Agent
+////////////////////////////////////////////////////////////////////////////////
+
+fun hasTtlAgentRun(): Boolean = TtlAgentStatus.getInstance().isTtlAgentLoaded.also {
+    val key = "run-ttl-test-under-agent"
+    if (it) {
+        System.getProperties().containsKey(key).shouldBeTrue()
+        System.getProperty(key) shouldBe "true"
+    } else {
+        System.getProperties().containsKey(key).shouldBeFalse()
+    }
+}
+
+/**
+ * when run unit test under TTL agent, the agent classes are loaded from the agent jar by the bootstrap class loader,
+ * and javassist/asm are repackaged and excluded; skip the unit test cases of the agent classes.
+ */
+fun noTtlAgentRun(): Boolean = !hasTtlAgentRun()
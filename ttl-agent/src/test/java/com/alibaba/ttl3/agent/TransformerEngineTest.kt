@@ -0,0 +1,245 @@
+package com.alibaba.ttl3.agent
+
+import com.alibaba.noTtlAgentRun
+import com.alibaba.shutdownForTest
+import com.alibaba.ttl3.TransmittableThreadLocal
+import com.alibaba.ttl3.TtlRunnable
+import com.alibaba.ttl3.agent.asm.AsmTtlTransformer
+import com.alibaba.ttl3.agent.logging.Logger
+import com.alibaba.ttl3.agent.transformlet.internal.*
+import com.alibaba.ttl3.spi.TtlAttachmentsDelegate
+import io.kotest.assertions.withClue
+import io.kotest.core.spec.style.AnnotationSpec
+import io.kotest.core.test.config.TestCaseConfig
+import io.kotest.matchers.collections.shouldHaveSize
+import io.kotest.matchers.nulls.shouldNotBeNull
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.shouldNotBe
+import io.kotest.matchers.types.shouldBeSameInstanceAs
+import org.objectweb.asm.ClassReader
+import org.objectweb.asm.tree.*
+import java.lang.instrument.ClassFileTransformer
+import java.util.*
+import java.util.concurrent.*
+import java.util.function.Supplier
+
+/**
+ * The Javassist transformer engine(default) and the ASM transformer engine
+ * weave the same classes, and the woven classes behave the same.
+ */
+class TransformerEngineTest : AnnotationSpec() {
+    @Suppress("OVERRIDE_DEPRECATION")
+    override fun defaultTestCaseConfig(): TestCaseConfig = TestCaseConfig(enabled = noTtlAgentRun())
+
+    @BeforeAll
+    fun beforeAll() {
+        Logger.setLoggerImplTypeIfNotSetYet("stderr")
+    }
+
+    @Test
+    fun test_same_woven_jdk_classes() {
+        checkSameWovenJdkClasses(false)
+    }
+
+    @Test
+    fun test_same_woven_jdk_classes_disable_inheritable_for_thread_pool() {
+        checkSameWovenJdkClasses(true)
+    }
+
+    @Test
+    fun test_same_behavior_of_woven_timer_task() {
+        val ttl = TransmittableThreadLocal<String>()
+
+        listOf(javassistTransformer(false), asmTransformer(false)).forEach { transformer ->
+            val taskClass = wovenClassOf(transformer, RecordTtlValueTimerTask::class.java)
+
+            ttl.set("parent")
+            val task = taskClass.getConstructor(TransmittableThreadLocal::class.java).newInstance(ttl) as TimerTask
+            ttl.set("modified after the task created")
+            task.run()
+
+            withClue(transformer) {
+                // the value captured when the task created is replayed in the run
+                (task as Supplier<*>).get() shouldBe "parent"
+                // and restored after the run
+                ttl.get() shouldBe "modified after the task created"
+            }
+            ttl.remove()
+        }
+    }
+
+    @Test
+    fun test_same_behavior_of_woven_executor_hooks() {
+        listOf(javassistTransformer(false), asmTransformer(false)).forEach { transformer ->
+            val executor = wovenClassOf(transformer, RecordTaskThreadPoolExecutor::class.java)
+                .getConstructor().newInstance() as ExecutorService
+
+            val task = Runnable {}
+            val autoWrapper = TtlRunnable.get(task)!!
+            TtlAttachmentsDelegate.setAutoWrapperAttachment(autoWrapper)
+            executor.execute(autoWrapper)
+            executor.shutdownForTest()
+
+            withClue(transformer) {
+                // beforeExecute/afterExecute see the task, not the auto wrapper of the agent
+                val tasks = (executor as Supplier<*>).get() as List<*>
+                tasks shouldHaveSize 2
+                tasks.forEach { it shouldBeSameInstanceAs task }
+            }
+        }
+    }
+
+    private fun checkSameWovenJdkClasses(disableInheritableForThreadPool: Boolean) {
+        val javassist = javassistTransformer(disableInheritableForThreadPool)
+        val asm = asmTransformer(disableInheritableForThreadPool)
+
+        var wovenCount = 0
+        listOf(
+            "java/util/concurrent/ThreadPoolExecutor", "java/util/concurrent/ScheduledThreadPoolExecutor",
+            "java/util/concurrent/ForkJoinTask", "java/util/concurrent/ForkJoinPool",
+            "java/util/concurrent/CompletableFuture",
+            "java/util/concurrent/PriorityBlockingQueue", "java/util/PriorityQueue",
+            "java/util/TimerTask", "java/util/concurrent/LinkedBlockingQueue"
+        ).forEach { classFile ->
+            val original = ClassLoader.getSystemResourceAsStream("$classFile.class")!!.use { it.readBytes() }
+            val wovenByJavassist = javassist.transform(null, classFile, null, null, original)
+            val wovenByAsm = asm.transform(null, classFile, null, null, original)
+
+            withClue(classFile) {
+                (wovenByJavassist != null) shouldBe (wovenByAsm != null)
+                if (wovenByJavassist != null && wovenByAsm != null) {
+                    val diff = wovenDiffOf(original, wovenByJavassist)
+                    diff shouldBe wovenDiffOf(original, wovenByAsm)
+                    diff.modifiedMethods.size shouldNotBe 0
+                    wovenCount++
+                }
+            }
+        }
+        wovenCount shouldNotBe 0
+    }
+
+    /**
+     * the woven class is defined by a child class loader, the other classes are loaded by the test class loader.
+     */
+    private fun wovenClassOf(transformer: ClassFileTransformer, clazz: Class<*>): Class<*> {
+        val classFile = clazz.name.replace('.', '/')
+        val loader = clazz.classLoader
+        val original = loader.getResourceAsStream("$classFile.class")!!.use { it.readBytes() }
+        val woven = transformer.transform(loader, classFile, null, null, original).shouldNotBeNull()
+
+        return object : ClassLoader(loader) {
+            override fun loadClass(name: String, resolve: Boolean): Class<*> {
+                if (name != clazz.name) return super.loadClass(name, resolve)
+                synchronized(getClassLoadingLock(name)) {
+                    return findLoadedClass(name) ?: defineClass(name, woven, 0, woven.size)
+                }
+            }
+        }.loadClass(clazz.name)
+    }
+
+    private fun javassistTransformer(disableInheritableForThreadPool: Boolean): ClassFileTransformer {
+        // the javassist transformlets read the agent option when created
+        val key = TtlAgent.TTL_AGENT_DISABLE_INHERITABLE_FOR_THREAD_POOL_KEY
+        System.setProperty(key, disableInheritableForThreadPool.toString())
+        try {
+            return TtlTransformer(
+                listOf(
+                    JdkExecutorTtlTransformlet(), PriorityBlockingQueueTtlTransformlet(),
+                    ForkJoinTtlTransformlet(), CompletableFutureTtlTransformlet(), TimerTaskTtlTransformlet()
+                ),
+                false
+            )
+        } finally {
+            System.clearProperty(key)
+        }
+    }
+
+    private fun asmTransformer(disableInheritableForThreadPool: Boolean): ClassFileTransformer =
+        AsmTtlTransformer(disableInheritableForThreadPool, true, true, false)
+}
+
+// the woven diff by the ASM tree api, out of the test class:
+// the asm classes are excluded from the test class path when run unit test under TTL agent
+
+/**
+ * The fields added, the methods added, and the methods whose code modified by the weaving;
+ * the code of the methods is not compared, the two engines weave the code differently.
+ */
+private data class WovenDiff(
+    val addedFields: Set<String>,
+    val addedMethods: Set<String>,
+    val modifiedMethods: Set<String>
+)
+
+private fun wovenDiffOf(original: ByteArray, woven: ByteArray): WovenDiff {
+    val originalNode = classNodeOf(original)
+    val wovenNode = classNodeOf(woven)
+
+    val originalFields = originalNode.fields.map { "${it.name} ${it.desc}" }.toSet()
+    val originalMethods = originalNode.methods.associate { "${it.name}${it.desc}" to instructionsOf(it) }
+
+    val addedMethods = TreeSet<String>()
+    val modifiedMethods = TreeSet<String>()
+    wovenNode.methods.forEach {
+        val method = "${it.name}${it.desc}"
+        val originalInstructions = originalMethods[method]
+        when {
+            // the original method renamed and wrapped by the Javassist engine
+            it.name.startsWith("original$") && it.name.endsWith("\$method\$renamed\$by\$ttl") -> {}
+            originalInstructions == null -> addedMethods.add(method)
+            originalInstructions != instructionsOf(it) -> modifiedMethods.add(method)
+        }
+    }
+
+    return WovenDiff(
+        wovenNode.fields.map { "${it.name} ${it.desc}" }.filterNot { it in originalFields }.toSortedSet(),
+        addedMethods,
+        modifiedMethods
+    )
+}
+
+private fun classNodeOf(classFileBuffer: ByteArray): ClassNode =
+    ClassNode().also { ClassReader(classFileBuffer).accept(it, ClassReader.SKIP_DEBUG or ClassReader.SKIP_FRAMES) }
+
+private fun instructionsOf(method: MethodNode): List<String> = method.instructions.toArray()
+    .filter { it.opcode >= 0 }
+    .map {
+        when (it) {
+            is MethodInsnNode -> "${it.opcode} ${it.owner}.${it.name}${it.desc}"
+            is FieldInsnNode -> "${it.opcode} ${it.owner}.${it.name}"
+            is TypeInsnNode -> "${it.opcode} ${it.desc}"
+            is LdcInsnNode -> "${it.opcode} ${it.cst}"
+            is VarInsnNode -> "${it.opcode} ${it.`var`}"
+            is IntInsnNode -> "${it.opcode} ${it.operand}"
+            is IincInsnNode -> "${it.opcode} ${it.`var`} ${it.incr}"
+            is InvokeDynamicInsnNode -> "${it.opcode} ${it.name}${it.desc}"
+            else -> "${it.opcode}"
+        }
+    }
+
+internal class RecordTtlValueTimerTask(private val ttl: TransmittableThreadLocal<String>) : TimerTask(),
+    Supplier<String?> {
+    @Volatile
+    private var value: String? = null
+
+    override fun run() {
+        value = ttl.get()
+    }
+
+    override fun get(): String? = value
+}
+
+internal class RecordTaskThreadPoolExecutor : ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, LinkedBlockingQueue()),
+    Supplier<List<Runnable?>> {
+    private val tasks = CopyOnWriteArrayList<Runnable?>()
+
+    override fun beforeExecute(t: Thread?, r: Runnable?) {
+        tasks.add(r)
+    }
+
+    override fun afterExecute(r: Runnable?, t: Throwable?) {
+        tasks.add(r)
+    }
+
+    override fun get(): List<Runnable?> = tasks
+}
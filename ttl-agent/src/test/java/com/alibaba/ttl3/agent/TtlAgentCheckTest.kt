@@ -0,0 +1,124 @@
+package com.alibaba.ttl3.agent
+
+import com.alibaba.getForTest
+import com.alibaba.hasTtlAgentRun
+import com.alibaba.shutdownForTest
+import com.alibaba.ttl3.TransmittableThreadLocal
+import com.alibaba.ttl3.executor.TtlExecutors
+import io.kotest.core.spec.style.AnnotationSpec
+import io.kotest.core.test.config.TestCaseConfig
+import io.kotest.matchers.shouldBe
+import java.util.*
+import java.util.concurrent.*
+
+/**
+ * Check the transmission of the classes woven by the TTL agent, run under the TTL agent
+ * with the transformer engine and the agent options of `scripts/integration-test.sh`.
+ */
+class TtlAgentCheckTest : AnnotationSpec() {
+    @Suppress("OVERRIDE_DEPRECATION")
+    override fun defaultTestCaseConfig(): TestCaseConfig = TestCaseConfig(enabled = hasTtlAgentRun())
+
+    private val ttl = TransmittableThreadLocal<String>()
+
+    @AfterEach
+    fun tearDown() {
+        ttl.remove()
+    }
+
+    @Test
+    fun test_thread_pool_executor() {
+        val executor = ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, LinkedBlockingQueue())
+        TtlExecutors.isDisableInheritableThreadFactory(executor.threadFactory) shouldBe
+            TtlAgent.isDisableInheritableForThreadPool()
+
+        checkTransmission { executor.submit(Callable { ttl.get() }).getForTest() }
+        executor.shutdownForTest()
+    }
+
+    @Test
+    fun test_fork_join_pool() {
+        val pool = ForkJoinPool(1)
+        TtlExecutors.isDisableInheritableForkJoinWorkerThreadFactory(pool.factory) shouldBe
+            TtlAgent.isDisableInheritableForThreadPool()
+
+        checkTransmission { pool.submit(Callable { ttl.get() }).getForTest() }
+        pool.shutdownForTest()
+    }
+
+    @Test
+    fun test_timer_task() {
+        if (!TtlAgent.isEnableTimerTask()) return
+
+        val timer = Timer(true)
+        checkTransmission {
+            val future = CompletableFuture<String?>()
+            timer.schedule(object : TimerTask() {
+                override fun run() {
+                    future.complete(ttl.get())
+                }
+            }, 1)
+            future.getForTest()
+        }
+        timer.cancel()
+    }
+
+    @Test
+    fun test_completable_future() {
+        if (!TtlAgent.isEnableCompletableFuture()) return
+
+        val executor = Executors.newSingleThreadExecutor()
+        checkTransmission { CompletableFuture.supplyAsync({ ttl.get() }, executor).getForTest() }
+        checkTransmission {
+            CompletableFuture.completedFuture("").thenApplyAsync({ ttl.get() }, executor).getForTest()
+        }
+        executor.shutdownForTest()
+    }
+
+    /**
+     * the non-async dependent stages are completed by the async task in the pool thread,
+     * outside the function of the async stage.
+     */
+    @Test
+    fun test_completable_future_dependent_stages() {
+        val executor = Executors.newSingleThreadExecutor()
+        listOf(executor, ForkJoinPool.commonPool()).forEach { pool ->
+            checkTransmission {
+                val latch = CountDownLatch(1)
+                val future = CompletableFuture.supplyAsync({ latch.await() }, pool).thenApply { ttl.get() }
+                latch.countDown()
+                future.getForTest()
+            }
+            checkTransmission {
+                val latch = CountDownLatch(1)
+                val value = CompletableFuture<String?>()
+                val future = CompletableFuture.runAsync({ latch.await() }, pool)
+                    .whenComplete { _, _ -> value.complete(ttl.get()) }
+                latch.countDown()
+                future.getForTest()
+                value.getForTest()
+            }
+            checkTransmission {
+                val latch = CountDownLatch(1)
+                val future = CompletableFuture.supplyAsync<String?>({
+                    latch.await()
+                    throw IllegalStateException()
+                }, pool).exceptionally { ttl.get() }
+                latch.countDown()
+                future.getForTest()
+            }
+        }
+        executor.shutdownForTest()
+    }
+
+    /**
+     * the value is captured when the task submitted, not inherited when the worker thread created.
+     */
+    private fun checkTransmission(submitAndGet: () -> String?) {
+        ttl.set("first")
+        submitAndGet() shouldBe "first"
+
+        ttl.set("second")
+        submitAndGet() shouldBe "second"
+    }
+}
@@ -0,0 +1,144 @@
+package com.alibaba.ttl3.agent
+
+import com.alibaba.noTtlAgentRun
+import com.alibaba.ttl3.agent.logging.Logger
+import io.kotest.core.spec.style.AnnotationSpec
+import io.kotest.core.test.config.TestCaseConfig
+import io.kotest.matchers.nulls.shouldBeNull
+import io.kotest.matchers.nulls.shouldNotBeNull
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.types.shouldBeSameInstanceAs
+import java.nio.file.FileSystems
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.attribute.PosixFilePermissions
+
+/**
+ * [TtlTransformCache] reads the cached transform results only from the private cache entries
+ * matching the full key and the checksum, bypasses the others.
+ */
+class TtlTransformCacheTest : AnnotationSpec() {
+    /**
+     * the privacy of the cache directory is checked by the POSIX file attributes,
+     * the cache is not used without POSIX file attributes(e.g. Windows).
+     */
+    @Suppress("OVERRIDE_DEPRECATION")
+    override fun defaultTestCaseConfig(): TestCaseConfig = TestCaseConfig(
+        enabled = noTtlAgentRun() && FileSystems.getDefault().supportedFileAttributeViews().contains("posix")
+    )
+
+    private val className = "com.foo.Bar"
+    private val classFileBuffer = byteArrayOf(1, 2, 3)
+    private val transformed = byteArrayOf(4, 5, 6, 7)
+
+    private lateinit var tmpDir: Path
+    private lateinit var cacheDir: Path
+
+    @BeforeAll
+    fun beforeAll() {
+        Logger.setLoggerImplTypeIfNotSetYet("stderr")
+    }
+
+    @BeforeEach
+    fun setUp() {
+        tmpDir = Files.createTempDirectory("ttl-transform-cache-test")
+        cacheDir = tmpDir.resolve("cache")
+    }
+
+    @AfterEach
+    fun tearDown() {
+        tmpDir.toFile().deleteRecursively()
+    }
+
+    @Test
+    fun test_miss_and_hit() {
+        val cache = openCache()
+
+        cache.get(className, classFileBuffer, "").shouldBeNull()
+
+        cache.put(className, classFileBuffer, "", transformed)
+        cache.put("com.foo.NotTransformed", classFileBuffer, "", TtlTransformCache.NO_TRANSFORM)
+
+        cache.get(className, classFileBuffer, "") shouldBe transformed
+        cache.get("com.foo.NotTransformed", classFileBuffer, "") shouldBeSameInstanceAs TtlTransformCache.NO_TRANSFORM
+
+        // the key mismatched: class bytes, transform context, or the fingerprint of the transform configuration
+        cache.get(className, byteArrayOf(1, 2, 4), "").shouldBeNull()
+        cache.get(className, classFileBuffer, "other context").shouldBeNull()
+        TtlTransformCache.open(cacheDir.toString(), "other fingerprint")!!.get(className, classFileBuffer, "").shouldBeNull()
+
+        // reopen the cache directory, e.g. the next JVM start
+        openCache().get(className, classFileBuffer, "") shouldBe transformed
+    }
+
+    @Test
+    fun test_corrupt_entry() {
+        val cache = openCache()
+        cache.put(className, classFileBuffer, "", transformed)
+        val entry = entryFile()
+
+        // flip the last byte of the cached bytes, the checksum mismatched
+        val bytes = Files.readAllBytes(entry)
+        bytes[bytes.size - 1] = (bytes[bytes.size - 1] + 1).toByte()
+        Files.write(entry, bytes)
+        cache.get(className, classFileBuffer, "").shouldBeNull()
+
+        // truncated
+        Files.write(entry, bytes.copyOf(bytes.size / 2))
+        cache.get(className, classFileBuffer, "").shouldBeNull()
+
+        // not a cache entry
+        Files.write(entry, byteArrayOf(0xCA.toByte(), 0xFE.toByte(), 0xBA.toByte(), 0xBE.toByte()))
+        cache.get(className, classFileBuffer, "").shouldBeNull()
+
+        // written again after the corrupt entry is bypassed
+        cache.put(className, classFileBuffer, "", transformed)
+        cache.get(className, classFileBuffer, "") shouldBe transformed
+    }
+
+    @Test
+    fun test_create_private_dir() {
+        openCache()
+
+        PosixFilePermissions.toString(Files.getPosixFilePermissions(cacheDir)) shouldBe "rwx------"
+    }
+
+    @Test
+    fun test_not_private_dir() {
+        Files.createDirectory(cacheDir)
+        Files.setPosixFilePermissions(cacheDir, PosixFilePermissions.fromString("rwxrwxrwx"))
+        TtlTransformCache.open(cacheDir.toString(), FINGERPRINT).shouldBeNull()
+
+        Files.setPosixFilePermissions(cacheDir, PosixFilePermissions.fromString("rwxrwxr-x"))
+        TtlTransformCache.open(cacheDir.toString(), FINGERPRINT).shouldBeNull()
+
+        Files.setPosixFilePermissions(cacheDir, PosixFilePermissions.fromString("rwxr-xr-x"))
+        TtlTransformCache.open(cacheDir.toString(), FINGERPRINT).shouldNotBeNull()
+
+        val link = Files.createSymbolicLink(tmpDir.resolve("link"), cacheDir)
+        TtlTransformCache.open(link.toString(), FINGERPRINT).shouldBeNull()
+    }
+
+    @Test
+    fun test_not_private_entry() {
+        val cache = openCache()
+        cache.put(className, classFileBuffer, "", transformed)
+        val entry = entryFile()
+
+        Files.setPosixFilePermissions(entry, PosixFilePermissions.fromString("rw-rw-rw-"))
+        cache.get(className, classFileBuffer, "").shouldBeNull()
+
+        Files.setPosixFilePermissions(entry, PosixFilePermissions.fromString("rw-------"))
+        cache.get(className, classFileBuffer, "") shouldBe transformed
+    }
+
+    private fun openCache(): TtlTransformCache = TtlTransformCache.open(cacheDir.toString(), FINGERPRINT)!!
+
+    private fun entryFile(): Path = Files.list(cacheDir).use { files ->
+        files.filter { it.fileName.toString().startsWith("$className@") }.findFirst().get()
+    }
+
+    companion object {
+        private const val FINGERPRINT = "test fingerprint"
+    }
+}
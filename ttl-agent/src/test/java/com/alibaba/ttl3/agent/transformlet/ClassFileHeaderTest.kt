@@ -0,0 +1,100 @@
+package com.alibaba.ttl3.agent.transformlet
+
+import com.alibaba.noTtlAgentRun
+import com.alibaba.ttl3.TransmittableThreadLocal
+import io.kotest.assertions.withClue
+import io.kotest.core.spec.style.AnnotationSpec
+import io.kotest.core.test.config.TestCaseConfig
+import io.kotest.matchers.collections.shouldBeEmpty
+import io.kotest.matchers.ints.shouldBeGreaterThan
+import io.kotest.matchers.shouldBe
+import javassist.ClassPool
+import org.objectweb.asm.ClassReader
+import org.objectweb.asm.ClassVisitor
+import org.objectweb.asm.MethodVisitor
+import org.objectweb.asm.Opcodes
+import java.net.URI
+import java.nio.file.FileSystems
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.Paths
+import java.util.jar.JarFile
+
+/**
+ * The cheap checks of [ClassInfo] by the raw class file bytes([ClassFileHeader]) have no false negatives,
+ * checked against the class files parsed by ASM [ClassReader]:
+ * a transformlet rejecting a class by the cheap checks never misses a class it would transform.
+ */
+class ClassFileHeaderTest : AnnotationSpec() {
+    @Suppress("OVERRIDE_DEPRECATION")
+    override fun defaultTestCaseConfig(): TestCaseConfig = TestCaseConfig(enabled = noTtlAgentRun())
+
+    @Test
+    fun test_class_files_of_dependencies() {
+        val locations = listOf(
+            ClassReader::class.java, ClassPool::class.java, Unit::class.java,
+            TransmittableThreadLocal::class.java, ClassInfo::class.java, ClassFileHeaderTest::class.java
+        ).mapNotNull { it.protectionDomain.codeSource?.location }.map { Paths.get(it.toURI()) }.distinct()
+
+        var count = 0
+        locations.forEach { location ->
+            forEachClassFile(location) {
+                checkCheapChecks(it)
+                count++
+            }
+        }
+        count shouldBeGreaterThan 1000
+    }
+
+    @Test
+    fun test_class_files_of_jdk() {
+        listOf(
+            "java/lang/String", "java/lang/Long", "java/lang/Math",
+            "java/util/TimerTask", "java/util/PriorityQueue",
+            "java/util/concurrent/ThreadPoolExecutor", "java/util/concurrent/ScheduledThreadPoolExecutor",
+            "java/util/concurrent/ForkJoinTask", "java/util/concurrent/ForkJoinPool",
+            "java/util/concurrent/CompletableFuture", "java/util/concurrent/PriorityBlockingQueue"
+        ).forEach { classFile ->
+            checkCheapChecks(ClassLoader.getSystemResourceAsStream("$classFile.class")!!.use { it.readBytes() })
+        }
+
+        // the module-info and the classes of all jdk modules, since java 9
+        val jrt = runCatching { FileSystems.getFileSystem(URI.create("jrt:/")) }.getOrNull() ?: return
+        forEachClassFile(jrt.getPath("/modules")) { checkCheapChecks(it) }
+    }
+
+    private fun checkCheapChecks(classFileBuffer: ByteArray) {
+        val classReader = ClassReader(classFileBuffer)
+        val methodNames = mutableListOf<String>()
+        classReader.accept(object : ClassVisitor(Opcodes.ASM9) {
+            override fun visitMethod(
+                access: Int, name: String, descriptor: String?, signature: String?, exceptions: Array<String>?
+            ): MethodVisitor? {
+                methodNames.add(name)
+                return null
+            }
+        }, ClassReader.SKIP_CODE or ClassReader.SKIP_DEBUG or ClassReader.SKIP_FRAMES)
+
+        val classInfo = ClassInfo(classReader.className, classFileBuffer, null)
+        withClue(classReader.className) {
+            classInfo.isInterface shouldBe ((classReader.access and Opcodes.ACC_INTERFACE) != 0)
+            classInfo.superClassName shouldBe classReader.superName?.replace('/', '.')
+            methodNames.filterNot { classInfo.mayDeclareMethod(it) }.shouldBeEmpty()
+        }
+    }
+
+    private fun forEachClassFile(location: Path, action: (ByteArray) -> Unit) {
+        if (Files.isDirectory(location)) {
+            Files.walk(location).use { paths ->
+                paths.filter { it.toString().endsWith(".class") }.forEach { action(Files.readAllBytes(it)) }
+            }
+            return
+        }
+
+        JarFile(location.toFile()).use { jarFile ->
+            jarFile.entries().asSequence().filter { it.name.endsWith(".class") }.forEach { entry ->
+                action(jarFile.getInputStream(entry).use { it.readBytes() })
+            }
+        }
+    }
+}
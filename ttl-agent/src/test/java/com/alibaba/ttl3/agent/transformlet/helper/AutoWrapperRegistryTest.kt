@@ -0,0 +1,174 @@
+package com.alibaba.ttl3.agent.transformlet.helper
+
+import com.alibaba.noTtlAgentRun
+import com.alibaba.ttl3.TransmittableThreadLocal
+import com.alibaba.ttl3.TtlCallable
+import com.alibaba.ttl3.TtlRunnable
+import com.alibaba.ttl3.TtlWrappers
+import com.alibaba.ttl3.agent.logging.Logger
+import com.alibaba.ttl3.spi.TtlAttachmentsDelegate
+import com.alibaba.ttl3.spi.TtlEnhanced
+import io.kotest.assertions.withClue
+import io.kotest.core.spec.style.AnnotationSpec
+import io.kotest.core.test.config.TestCaseConfig
+import io.kotest.matchers.booleans.shouldBeFalse
+import io.kotest.matchers.booleans.shouldBeTrue
+import io.kotest.matchers.nulls.shouldBeNull
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.shouldNotBe
+import io.kotest.matchers.types.shouldBeInstanceOf
+import io.kotest.matchers.types.shouldBeSameInstanceAs
+import io.kotest.matchers.types.shouldNotBeSameInstanceAs
+import java.util.concurrent.Callable
+import java.util.function.*
+
+/**
+ * The wrapping strategies of the builtin and the custom task types,
+ * called by the index resolved when transforming, as the woven code does.
+ */
+class AutoWrapperRegistryTest : AnnotationSpec() {
+    @Suppress("OVERRIDE_DEPRECATION")
+    override fun defaultTestCaseConfig(): TestCaseConfig = TestCaseConfig(enabled = noTtlAgentRun())
+
+    @BeforeAll
+    fun beforeAll() {
+        Logger.setLoggerImplTypeIfNotSetYet("stderr")
+    }
+
+    @Test
+    fun test_builtin_types() {
+        val tasks: Map<Class<*>, Any> = linkedMapOf(
+            Runnable::class.java to Runnable {},
+            Callable::class.java to Callable { "" },
+            Supplier::class.java to Supplier { "" },
+            Consumer::class.java to Consumer<String> {},
+            BiConsumer::class.java to BiConsumer<String, String> { _, _ -> },
+            Function::class.java to Function<String, String> { it },
+            BiFunction::class.java to BiFunction<String, String, String> { t, _ -> t }
+        )
+        AutoWrapperRegistry.getRegisteredTypeNames().subList(0, tasks.size) shouldBe tasks.keys.map { it.name }
+
+        tasks.forEach { (type, task) ->
+            withClue(type) {
+                AutoWrapperRegistry.isRegistered(type.name).shouldBeTrue()
+                val index = AutoWrapperRegistry.indexOf(type.name)
+
+                val wrapped = AutoWrapperRegistry.doAutoWrap(index, task)!!
+                type.isInstance(wrapped).shouldBeTrue()
+                (wrapped is TtlEnhanced).shouldBeTrue()
+                TtlWrappers.unwrap(wrapped) shouldBeSameInstanceAs task
+                // only the wrappers with attachments(TtlRunnable/TtlCallable) are marked as auto wrapper
+                val attachable = type == Runnable::class.java || type == Callable::class.java
+                TtlAttachmentsDelegate.isAutoWrapper(wrapped) shouldBe attachable
+                if (attachable) TtlAttachmentsDelegate.unwrapIfIsAutoWrapper(wrapped) shouldBeSameInstanceAs task
+
+                // the wrapping is idempotent
+                AutoWrapperRegistry.doAutoWrap(index, wrapped) shouldBeSameInstanceAs wrapped
+                AutoWrapperRegistry.doAutoWrap(index, null).shouldBeNull()
+            }
+        }
+
+        autoWrap(Runnable::class.java, Runnable {}).shouldBeInstanceOf<TtlRunnable>()
+        autoWrap(Callable::class.java, Callable { "" }).shouldBeInstanceOf<TtlCallable<*>>()
+    }
+
+    @Test
+    fun test_wrapped_task_transmit() {
+        val ttl = TransmittableThreadLocal<String>()
+        ttl.set("parent")
+
+        @Suppress("UNCHECKED_CAST")
+        val supplier = autoWrap(Supplier::class.java, Supplier { ttl.get() }) as Supplier<String>
+        ttl.set("modified after wrapped")
+
+        supplier.get() shouldBe "parent"
+        ttl.get() shouldBe "modified after wrapped"
+        ttl.remove()
+    }
+
+    /**
+     * the TTL enhanced tasks transmit by themselves, are not wrapped and not marked as auto wrapper.
+     */
+    @Test
+    fun test_ttl_enhanced_not_wrapped() {
+        val enhancedRunnable = EnhancedRunnable()
+        autoWrap(Runnable::class.java, enhancedRunnable) shouldBeSameInstanceAs enhancedRunnable
+
+        val ttlRunnable = TtlRunnable.get {}!!
+        autoWrap(Runnable::class.java, ttlRunnable) shouldBeSameInstanceAs ttlRunnable
+        TtlAttachmentsDelegate.isAutoWrapper(ttlRunnable).shouldBeFalse()
+
+        val ttlCallable = TtlCallable.get(Callable { "" })!!
+        autoWrap(Callable::class.java, ttlCallable) shouldBeSameInstanceAs ttlCallable
+        TtlAttachmentsDelegate.isAutoWrapper(ttlCallable).shouldBeFalse()
+
+        val ttlSupplier = TtlWrappers.wrapSupplier { "" }!!
+        autoWrap(Supplier::class.java, ttlSupplier) shouldBeSameInstanceAs ttlSupplier
+    }
+
+    /**
+     * the executor not bound to a transmit profile, same as the wrapping without executor.
+     */
+    @Test
+    fun test_executor_without_profile() {
+        val index = AutoWrapperRegistry.indexOf(Runnable::class.java.name)
+        val task = Runnable {}
+
+        val wrapped = AutoWrapperRegistry.doAutoWrap(index, task, Any()).shouldBeInstanceOf<TtlRunnable>()
+        wrapped.unwrap() shouldBeSameInstanceAs task
+        TtlAttachmentsDelegate.isAutoWrapper(wrapped).shouldBeTrue()
+
+        AutoWrapperRegistry.doAutoWrap(index, wrapped, Any()) shouldBeSameInstanceAs wrapped
+        AutoWrapperRegistry.doAutoWrap(index, null, Any()).shouldBeNull()
+    }
+
+    @Test
+    fun test_register_and_replace_custom_type() {
+        val typeName = CustomTask::class.java.name
+        AutoWrapperRegistry.indexOf("com.foo.NotRegisteredTask") shouldBe -1
+        AutoWrapperRegistry.isRegistered("com.foo.NotRegisteredTask").shouldBeFalse()
+
+        AutoWrapperRegistry.register(typeName, AutoWrapperRegistry.AutoWrapper<CustomTask> { task ->
+            if (task is WrappedTask) task else WrappedTask(task, "first")
+        })
+        AutoWrapperRegistry.isRegistered(typeName).shouldBeTrue()
+        val index = AutoWrapperRegistry.indexOf(typeName)
+        index shouldNotBe -1
+        AutoWrapperRegistry.getRegisteredTypeNames()[index] shouldBe typeName
+        val typeNames = AutoWrapperRegistry.getRegisteredTypeNames()
+
+        val task = CustomTask { "task" }
+        val first = AutoWrapperRegistry.doAutoWrap(index, task).shouldBeInstanceOf<WrappedTask>()
+        first.name shouldBe "first"
+        first.task shouldBeSameInstanceAs task
+        TtlAttachmentsDelegate.isAutoWrapper(first).shouldBeFalse()
+        AutoWrapperRegistry.doAutoWrap(index, first) shouldBeSameInstanceAs first
+
+        // replace the registered wrapper, the index and the registered type names not changed
+        AutoWrapperRegistry.register(typeName, AutoWrapperRegistry.AutoWrapper<CustomTask> { task ->
+            if (task is WrappedTask) task else WrappedTask(task, "second")
+        })
+        AutoWrapperRegistry.indexOf(typeName) shouldBe index
+        AutoWrapperRegistry.getRegisteredTypeNames() shouldBe typeNames
+
+        val second = AutoWrapperRegistry.doAutoWrap(index, task).shouldBeInstanceOf<WrappedTask>()
+        second.name shouldBe "second"
+        second shouldNotBeSameInstanceAs first
+
+        // the builtin types dispatched by their own index, not affected by the custom type
+        autoWrap(Runnable::class.java, Runnable {}).shouldBeInstanceOf<TtlRunnable>()
+    }
+
+    private fun autoWrap(type: Class<*>, task: Any?): Any? =
+        AutoWrapperRegistry.doAutoWrap(AutoWrapperRegistry.indexOf(type.name), task)
+}
+
+internal fun interface CustomTask {
+    fun call(): String
+}
+
+private class WrappedTask(val task: CustomTask, val name: String) : CustomTask by task
+
+private class EnhancedRunnable : Runnable, TtlEnhanced {
+    override fun run() {}
+}
@@ -0,0 +1,156 @@
+package com.alibaba.ttl3.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cold class loading time of a synthetic classpath with/without the TTL agent(the Javassist/ASM transformer engines),
+ * the class transform overhead of the TTL agent at application startup.
+ * <p>
+ * The synthetic classes are plain classes, subclasses, interfaces, and abstract subclasses declaring {@code void run()}
+ * (the candidates of {@code TimerTaskTtlTransformlet}, need Javassist parsing to check the class hierarchy).
+ * <p>
+ * The TTL agent jar is copied to {@code ttl-benchmarks/target/ttl-agent.jar} when package,
+ * run this benchmark in the directory {@code ttl-benchmarks}:
+ * <pre>{@code cd ttl-benchmarks && java -jar target/benchmarks.jar AgentClassLoadingBenchmark}</pre>
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@State(Scope.Benchmark)
+public class AgentClassLoadingBenchmark {
+    private static final String PACKAGE = "synthetic";
+    private static final String BASE_CLASS_NAME = PACKAGE + ".Base";
+
+    @Param({"50000"})
+    public int classCount;
+
+    private Map<String, byte[]> classFiles;
+
+    @Setup
+    public void setup() throws IOException {
+        classFiles = new HashMap<>(classCount * 2);
+        classFiles.put(BASE_CLASS_NAME, classFile(BASE_CLASS_NAME, "java.lang.Object", ACC_PUBLIC | ACC_ABSTRACT, false));
+        for (int i = 0; i < classCount; i++) {
+            final String className = PACKAGE + ".C" + i;
+            final byte[] classFile;
+            switch (i % 4) {
+                case 0:
+                    classFile = classFile(className, "java.lang.Object", ACC_PUBLIC, false);
+                    break;
+                case 1:
+                    classFile = classFile(className, BASE_CLASS_NAME, ACC_PUBLIC, false);
+                    break;
+                case 2:
+                    classFile = classFile(className, BASE_CLASS_NAME, ACC_PUBLIC | ACC_ABSTRACT, true);
+                    break;
+                default:
+                    classFile = classFile(className, "java.lang.Object", ACC_PUBLIC | ACC_INTERFACE | ACC_ABSTRACT, false);
+                    break;
+            }
+            classFiles.put(className, classFile);
+        }
+    }
+
+    @Benchmark
+    @Fork(5)
+    public int load_without_agent() throws ClassNotFoundException {
+        return loadAll();
+    }
+
+    @Benchmark
+    @Fork(value = 5, jvmArgsAppend = "-javaagent:target/ttl-agent.jar")
+    public int load_with_agent() throws ClassNotFoundException {
+        return loadAll();
+    }
+
+    @Benchmark
+    @Fork(value = 5, jvmArgsAppend = "-javaagent:target/ttl-agent.jar=ttl.agent.transformer.engine:asm")
+    public int load_with_asm_agent() throws ClassNotFoundException {
+        return loadAll();
+    }
+
+    private int loadAll() throws ClassNotFoundException {
+        final SyntheticClassLoader loader = new SyntheticClassLoader(classFiles);
+        int count = 0;
+        for (int i = 0; i < classCount; i++) {
+            Class.forName(PACKAGE + ".C" + i, false, loader);
+            count++;
+        }
+        return count;
+    }
+
+    private static final class SyntheticClassLoader extends ClassLoader {
+        private final Map<String, byte[]> classFiles;
+
+        SyntheticClassLoader(Map<String, byte[]> classFiles) {
+            super(SyntheticClassLoader.class.getClassLoader());
+            this.classFiles = classFiles;
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            final byte[] classFile = classFiles.get(name);
+            if (classFile == null) throw new ClassNotFoundException(name);
+            return defineClass(name, classFile, 0, classFile.length);
+        }
+    }
+
+    // ======== minimal class file writer ========
+
+    private static final int ACC_PUBLIC = 0x0001;
+    private static final int ACC_SUPER = 0x0020;
+    private static final int ACC_INTERFACE = 0x0200;
+    private static final int ACC_ABSTRACT = 0x0400;
+
+    /**
+     * a class file of java 8 without fields and code, optionally declaring the abstract method {@code void run()}.
+     */
+    private static byte[] classFile(String className, String superClassName, int access, boolean declareRun) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        final DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0xCAFEBABE);
+        out.writeShort(0); // minor version
+        out.writeShort(52); // major version, java 8
+
+        out.writeShort(7); // constant pool count
+        out.writeByte(1); // #1 Utf8
+        out.writeUTF(className.replace('.', '/'));
+        out.writeByte(7); // #2 Class
+        out.writeShort(1);
+        out.writeByte(1); // #3 Utf8
+        out.writeUTF(superClassName.replace('.', '/'));
+        out.writeByte(7); // #4 Class
+        out.writeShort(3);
+        out.writeByte(1); // #5 Utf8
+        out.writeUTF("run");
+        out.writeByte(1); // #6 Utf8
+        out.writeUTF("()V");
+
+        out.writeShort((access & ACC_INTERFACE) == 0 ? access | ACC_SUPER : access);
+        out.writeShort(2); // this class
+        out.writeShort(4); // super class
+        out.writeShort(0); // interfaces count
+        out.writeShort(0); // fields count
+        if (declareRun) {
+            out.writeShort(1); // methods count
+            out.writeShort(ACC_PUBLIC | ACC_ABSTRACT);
+            out.writeShort(5); // name
+            out.writeShort(6); // descriptor
+            out.writeShort(0); // attributes count
+        } else {
+            out.writeShort(0); // methods count
+        }
+        out.writeShort(0); // attributes count
+
+        out.flush();
+        return bytes.toByteArray();
+    }
+}
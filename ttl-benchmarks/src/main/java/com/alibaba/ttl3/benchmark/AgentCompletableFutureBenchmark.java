@@ -0,0 +1,80 @@
+package com.alibaba.ttl3.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.*;
+
+/**
+ * The throughput of a {@link CompletableFuture} chain of async stages enhanced by the TTL agent:
+ * {@code supplyAsync} then {@code stageCount} {@code thenApplyAsync} stages, and wait the completion.
+ * <ul>
+ * <li>{@code chain_without_agent}: the baseline, no TTL agent</li>
+ * <li>{@code chain_completable_future_transformlet}: the agent option {@code ttl.agent.enable.completable.future:true},
+ *     the functions are also captured when calling the {@code *Async} methods, the cost over the default agent</li>
+ * <li>{@code chain_fork_join_task_field}: the default agent,
+ *     the async tasks are captured by the field of {@link ForkJoinTask} or wrapped by the thread pool</li>
+ * </ul>
+ * <p>
+ * The TTL agent jar is copied to {@code ttl-benchmarks/target/ttl-agent.jar} when package,
+ * run this benchmark in the directory {@code ttl-benchmarks}:
+ * <pre>{@code cd ttl-benchmarks && java -jar target/benchmarks.jar AgentCompletableFutureBenchmark -prof gc}</pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Benchmark)
+public class AgentCompletableFutureBenchmark {
+    @Param({"10"})
+    public int stageCount;
+
+    /**
+     * {@code common}: the default async executor(the common {@link ForkJoinPool});
+     * {@code pool}: a {@link ThreadPoolExecutor}.
+     */
+    @Param({"common", "pool"})
+    public String executorType;
+
+    private Executor executor;
+    private ThreadPoolExecutor pool;
+
+    @Setup
+    public void setup() {
+        pool = new ThreadPoolExecutor(4, 4, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+        executor = "pool".equals(executorType) ? pool : ForkJoinPool.commonPool();
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        pool.shutdown();
+        if (!pool.awaitTermination(10, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("executor is not terminated in 10 seconds");
+        }
+    }
+
+    @Benchmark
+    @Fork(1)
+    public Object chain_without_agent(TransmitValues values) {
+        return chain();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "-javaagent:target/ttl-agent.jar=ttl.agent.enable.completable.future:true")
+    public Object chain_completable_future_transformlet(TransmitValues values) {
+        return chain();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "-javaagent:target/ttl-agent.jar")
+    public Object chain_fork_join_task_field(TransmitValues values) {
+        return chain();
+    }
+
+    private Object chain() {
+        CompletableFuture<Integer> future = CompletableFuture.supplyAsync(() -> 0, executor);
+        for (int i = 0; i < stageCount; i++) {
+            future = future.thenApplyAsync(n -> n + 1, executor);
+        }
+        return future.join();
+    }
+}
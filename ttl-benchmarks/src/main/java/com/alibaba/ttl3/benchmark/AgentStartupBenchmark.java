@@ -0,0 +1,91 @@
+package com.alibaba.ttl3.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.*;
+
+/**
+ * The start time of a JVM with/without the TTL agent of the transformer engines(Javassist/ASM):
+ * launch a JVM running a small workload loading the classes transformed by the TTL agent
+ * ({@link ThreadPoolExecutor}, {@link ScheduledThreadPoolExecutor}, {@link ForkJoinPool}, {@link Timer}), and wait its exit.
+ * <p>
+ * The engine {@code javassist-cache} is the Javassist engine with the transform cache
+ * ({@code ttl.agent.transform.cache.dir}) in the directory {@code target/ttl-transform-cache},
+ * the cache is written by the first(warmup) run, then the measured runs start with the warm cache.
+ * <p>
+ * The TTL agent jar is copied to {@code ttl-benchmarks/target/ttl-agent.jar} when package,
+ * run this benchmark in the directory {@code ttl-benchmarks}:
+ * <pre>{@code cd ttl-benchmarks && java -jar target/benchmarks.jar AgentStartupBenchmark}</pre>
+ *
+ * @see AgentTransformerEngineBenchmark
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AgentStartupBenchmark {
+    @Param({"none", "javassist", "javassist-cache", "asm"})
+    public String engine;
+
+    private List<String> command;
+
+    @Setup
+    public void setup() {
+        command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        if ("javassist-cache".equals(engine)) {
+            command.add("-javaagent:target/ttl-agent.jar=ttl.agent.transform.cache.dir:target/ttl-transform-cache");
+        } else if (!"none".equals(engine)) {
+            command.add("-javaagent:target/ttl-agent.jar=ttl.agent.transformer.engine:" + engine);
+        }
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(Workload.class.getName());
+    }
+
+    @Benchmark
+    public int startup() throws Exception {
+        final Process process = new ProcessBuilder(command).inheritIO().start();
+        final int exitCode = process.waitFor();
+        if (exitCode != 0) throw new IllegalStateException("the workload JVM exits with code " + exitCode);
+        return exitCode;
+    }
+
+    /**
+     * the workload of the launched JVM.
+     */
+    public static final class Workload {
+        public static void main(String[] args) throws Exception {
+            final ExecutorService executor = Executors.newFixedThreadPool(1);
+            executor.submit(() -> {
+            }).get();
+            executor.shutdown();
+
+            final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
+            scheduler.schedule(() -> {
+            }, 1, TimeUnit.MILLISECONDS).get();
+            scheduler.shutdown();
+
+            ForkJoinPool.commonPool().submit(() -> {
+            }).get();
+
+            final CountDownLatch latch = new CountDownLatch(1);
+            final Timer timer = new Timer(true);
+            timer.schedule(new TimerTask() {
+                @Override
+                public void run() {
+                    latch.countDown();
+                }
+            }, 1);
+            latch.await();
+            timer.cancel();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.alibaba.ttl3.benchmark;
+
+import com.alibaba.ttl3.agent.TtlAgentStatus;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.*;
+
+/**
+ * The execute throughput of {@link ThreadPoolExecutor} enhanced by the TTL agent,
+ * execute a task and wait its completion(the round trip of a task hand-off to the pool thread).
+ * <p>
+ * The TTL agent jar is copied to {@code ttl-benchmarks/target/ttl-agent.jar} when package,
+ * run this benchmark in the directory {@code ttl-benchmarks}:
+ * <pre>{@code cd ttl-benchmarks && java -jar target/benchmarks.jar AgentThreadPoolExecutorBenchmark -prof gc}</pre>
+ * Compare with the baseline {@link TtlExecutorServiceBenchmark#submit_raw}(the pool without TTL agent).
+ *
+ * @see TtlExecutorServiceBenchmark
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-javaagent:target/ttl-agent.jar")
+@State(Scope.Benchmark)
+public class AgentThreadPoolExecutorBenchmark {
+    @Param({"4"})
+    public int poolSize;
+
+    private ThreadPoolExecutor executor;
+
+    @Setup
+    public void setup() {
+        if (!TtlAgentStatus.getInstance().isTtlAgentLoaded()) {
+            throw new IllegalStateException("TTL agent is not loaded, run this benchmark in the directory ttl-benchmarks");
+        }
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("executor is not terminated in 10 seconds");
+        }
+    }
+
+    @Benchmark
+    public Object execute(TransmitValues values) throws Exception {
+        final FutureTask<Object> task = new FutureTask<>(() -> {
+        }, null);
+        executor.execute(task);
+        return task.get();
+    }
+}
@@ -0,0 +1,54 @@
+package com.alibaba.ttl3.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The throughput of the woven {@code ForkJoinTask.doExec} of the TTL agent transformer engines(Javassist/ASM):
+ * invoke a trivial {@link RecursiveTask} in the benchmark thread, the replay/restore of {@code doExec} runs in the caller thread,
+ * no thread hand-off in the measurement.
+ * <p>
+ * The Javassist engine calls the renamed original method {@code original$doExec$method$renamed$by$ttl} from the {@code try-finally};
+ * the ASM engine inlines the {@code try-finally} into the original method body.
+ * <p>
+ * The TTL agent jar is copied to {@code ttl-benchmarks/target/ttl-agent.jar} when package,
+ * run this benchmark in the directory {@code ttl-benchmarks}:
+ * <pre>{@code cd ttl-benchmarks && java -jar target/benchmarks.jar AgentTransformerEngineBenchmark -prof gc}</pre>
+ *
+ * @see AgentStartupBenchmark
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Benchmark)
+public class AgentTransformerEngineBenchmark {
+    @Benchmark
+    @Fork(1)
+    public Object doExec_without_agent(TransmitValues values) {
+        return new Task().invoke();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "-javaagent:target/ttl-agent.jar=ttl.agent.transformer.engine:javassist")
+    public Object doExec_javassist(TransmitValues values) {
+        return new Task().invoke();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "-javaagent:target/ttl-agent.jar=ttl.agent.transformer.engine:asm")
+    public Object doExec_asm(TransmitValues values) {
+        return new Task().invoke();
+    }
+
+    private static final class Task extends RecursiveTask<Object> {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected Object compute() {
+            return this;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.alibaba.ttl3.benchmark;
+
+import com.alibaba.ttl3.kotlin.TtlContextElement;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The coroutine switch cost of {@link TtlContextElement}, compared with {@code ThreadLocal.asContextElement}
+ * of kotlinx coroutines which transmits a single {@link ThreadLocal} value:
+ * <ul>
+ * <li>{@code none}: the baseline, no context element</li>
+ * <li>{@code thread_local}: {@code asContextElement} of a single {@link ThreadLocal}</li>
+ * <li>{@code ttl}: {@link TtlContextElement}, transmits the {@link TransmitValues}</li>
+ * </ul>
+ * {@code withContext_switches} switches a coroutine to another dispatcher and back {@code switchCount} times;
+ * {@code launch_children} launches {@code switchCount} children, the context element is copied(captured) for each child.
+ * <p>
+ * Run this benchmark:
+ * <pre>{@code cd ttl-benchmarks && java -jar target/benchmarks.jar CoroutineSwitchBenchmark -prof gc}</pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CoroutineSwitchBenchmark {
+    @Param({"100"})
+    public int switchCount;
+
+    @Param({"none", "thread_local", "ttl"})
+    public String mode;
+
+    private final ThreadLocal<String> threadLocal = new ThreadLocal<>();
+
+    private CoroutineSwitches switches;
+
+    @Setup
+    public void setup(TransmitValues values) {
+        switches = new CoroutineSwitches(mode, threadLocal,
+                "ttl".equals(mode) ? values.ttls[0]::get : threadLocal::get);
+    }
+
+    @TearDown
+    public void tearDown() {
+        switches.close();
+    }
+
+    @Benchmark
+    public int withContext_switches() {
+        return switches.withContextSwitches(switchCount);
+    }
+
+    @Benchmark
+    public int launch_children() {
+        return switches.launchChildren(switchCount);
+    }
+}
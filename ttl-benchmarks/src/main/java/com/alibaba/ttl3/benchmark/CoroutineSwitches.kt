@@ -0,0 +1,63 @@
+package com.alibaba.ttl3.benchmark
+
+import com.alibaba.ttl3.kotlin.ttlContext
+import kotlinx.coroutines.*
+import java.io.Closeable
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.function.Supplier
+import kotlin.coroutines.CoroutineContext
+
+/**
+ * The coroutine switches of [CoroutineSwitchBenchmark], the coroutines run on two single thread dispatchers.
+ *
+ * @param mode the context element of the coroutines, `none`/`thread_local`/`ttl`
+ * @param threadLocal the thread local of the mode `thread_local`
+ * @param read read the transmitted value in the coroutines
+ */
+class CoroutineSwitches(
+    mode: String,
+    threadLocal: ThreadLocal<String>,
+    private val read: Supplier<String?>
+) : Closeable {
+    private val executors: List<ExecutorService> = List(2) { Executors.newSingleThreadExecutor() }
+    private val home: CoroutineDispatcher = executors[0].asCoroutineDispatcher()
+    private val other: CoroutineDispatcher = executors[1].asCoroutineDispatcher()
+
+    private val context: CoroutineContext = when (mode) {
+        "none" -> home
+        "thread_local" -> home + threadLocal.asContextElement("thread-local-value")
+        "ttl" -> home + ttlContext()
+        else -> throw IllegalArgumentException("unknown mode: $mode")
+    }
+
+    /**
+     * switch to the other dispatcher and back by `withContext` for `switchCount` times,
+     * the context element is updated/restored for each resumption.
+     */
+    fun withContextSwitches(switchCount: Int): Int = runBlocking(context) {
+        var count = 0
+        repeat(switchCount) {
+            withContext(other) {
+                if (read.get() != null) count++
+            }
+        }
+        count
+    }
+
+    /**
+     * launch `childCount` child coroutines on the other dispatcher and join them,
+     * the context element is copied for each child.
+     */
+    fun launchChildren(childCount: Int): Int = runBlocking(context) {
+        var count = 0
+        List(childCount) {
+            async(other) { read.get() }
+        }.forEach { if (it.await() != null) count++ }
+        count
+    }
+
+    override fun close() {
+        executors.forEach { it.shutdown() }
+    }
+}
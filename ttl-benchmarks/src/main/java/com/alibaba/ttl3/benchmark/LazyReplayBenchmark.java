@@ -0,0 +1,76 @@
+package com.alibaba.ttl3.benchmark;
+
+import com.alibaba.crr.composite.Backup;
+import com.alibaba.crr.composite.Capture;
+import com.alibaba.ttl3.TransmittableThreadLocal;
+import com.alibaba.ttl3.transmitter.Transmitter;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The replay/restore of a tiny task reading one {@link TransmittableThreadLocal} value,
+ * with and without the "lazy replay" mode({@link TransmittableThreadLocal#setLazyReplayEnabled(boolean)}).
+ * <p>
+ * The captured values are from an other thread(the steady state of running a task in a pool thread),
+ * the cost of eager replay grows with the {@code ttlCount} of {@link TransmitValues}.
+ *
+ * @see TransmitterCrrBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LazyReplayBenchmark {
+    @Param({"false", "true"})
+    public boolean lazyReplay;
+
+    private Capture capturedInOtherThread;
+    private TransmittableThreadLocal<String> ttl;
+    private boolean lazyReplayBefore;
+
+    /**
+     * inject {@link TransmitValues} only to the setup method, see {@link TransmitterCrrBenchmark#setup(TransmitValues)}.
+     */
+    @Setup
+    public void setup(TransmitValues values) throws InterruptedException {
+        lazyReplayBefore = TransmittableThreadLocal.isLazyReplayEnabled();
+        TransmittableThreadLocal.setLazyReplayEnabled(lazyReplay);
+        ttl = values.ttls[0];
+
+        // the values are inherited by the child thread
+        final Thread thread = new Thread(() -> capturedInOtherThread = Transmitter.capture());
+        thread.start();
+        thread.join();
+    }
+
+    @TearDown
+    public void tearDown() {
+        TransmittableThreadLocal.setLazyReplayEnabled(lazyReplayBefore);
+    }
+
+    @Benchmark
+    public String replay_get_restore() {
+        final Backup backup = Transmitter.replay(capturedInOtherThread);
+        try {
+            return ttl.get();
+        } finally {
+            Transmitter.restore(backup);
+        }
+    }
+
+    /**
+     * the task modifies a value, the lazy replay is materialized.
+     */
+    @Benchmark
+    public void replay_set_restore() {
+        final Backup backup = Transmitter.replay(capturedInOtherThread);
+        try {
+            ttl.set("modified");
+        } finally {
+            Transmitter.restore(backup);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.alibaba.ttl3.benchmark;
+
+import com.alibaba.crr.composite.Capture;
+import com.alibaba.ttl3.TransmittableThreadLocal;
+import com.alibaba.ttl3.transmitter.Transmitter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The fan-out capture: one request thread captures for {@code fanOut} subtasks with an unchanged context,
+ * with and without the persistent context mode of {@link TransmittableThreadLocal}.
+ * <p>
+ * {@code capture_afterSet} modifies a value before each fan-out, so the snapshot is rebuilt once per fan-out.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PersistentContextBenchmark {
+    @Param({"false", "true"})
+    public boolean persistentContext;
+
+    @Param({"32"})
+    public int fanOut;
+
+    private boolean persistentContextBefore;
+
+    @Setup
+    public void setup() {
+        persistentContextBefore = TransmittableThreadLocal.isPersistentContextEnabled();
+        TransmittableThreadLocal.setPersistentContextEnabled(persistentContext);
+    }
+
+    @TearDown
+    public void tearDown() {
+        TransmittableThreadLocal.setPersistentContextEnabled(persistentContextBefore);
+    }
+
+    @Benchmark
+    public void capture_fanOut(TransmitValues values, Blackhole bh) {
+        for (int i = 0; i < fanOut; i++) {
+            bh.consume(Transmitter.capture());
+        }
+    }
+
+    @Benchmark
+    public void capture_afterSet_fanOut(TransmitValues values, Blackhole bh) {
+        values.ttls[0].set("modified");
+        for (int i = 0; i < fanOut; i++) {
+            final Capture captured = Transmitter.capture();
+            bh.consume(captured);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.alibaba.ttl3.benchmark;
+
+import com.alibaba.ttl.integration.reactor.TtlReactorHooks;
+import com.alibaba.ttl.integration.rxjava.TtlRxJavaPlugins;
+import com.alibaba.ttl3.TtlWrappers;
+import io.reactivex.Flowable;
+import org.openjdk.jmh.annotations.*;
+import reactor.core.publisher.Flux;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * The time of a 1M-element reactive stream with a {@code subscribeOn} and a {@code publishOn}/{@code observeOn} hop,
+ * by the transmission mode:
+ * <ul>
+ * <li>{@code none}: the baseline, no transmission</li>
+ * <li>{@code hooks}: the schedule hooks of {@link TtlReactorHooks}/{@link TtlRxJavaPlugins},
+ *     capture/replay per scheduled task(the thread boundary crossing)</li>
+ * <li>{@code per_signal}: the operator function wrapped by {@link TtlWrappers}, replay per signal</li>
+ * </ul>
+ * <p>
+ * Run this benchmark:
+ * <pre>{@code cd ttl-benchmarks && java -jar target/benchmarks.jar ReactiveIntegrationBenchmark -prof gc}</pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReactiveIntegrationBenchmark {
+    @Param({"1000000"})
+    public int elementCount;
+
+    @Param({"none", "hooks", "per_signal"})
+    public String mode;
+
+    private Function<Integer, Integer> reactorMapper;
+    private io.reactivex.functions.Function<Integer, Integer> rxJavaMapper;
+
+    @Setup
+    public void setup() {
+        final Function<Integer, Integer> increment = i -> i + 1;
+        if ("hooks".equals(mode)) {
+            TtlReactorHooks.install();
+            TtlRxJavaPlugins.install();
+        }
+        reactorMapper = "per_signal".equals(mode) ? TtlWrappers.wrapFunction(increment) : increment;
+        rxJavaMapper = reactorMapper::apply;
+    }
+
+    @TearDown
+    public void tearDown() {
+        TtlReactorHooks.uninstall();
+        TtlRxJavaPlugins.uninstall();
+    }
+
+    @Benchmark
+    public Object reactor_flux(TransmitValues values) {
+        return Flux.range(0, elementCount)
+                .subscribeOn(reactor.core.scheduler.Schedulers.single())
+                .publishOn(reactor.core.scheduler.Schedulers.parallel())
+                .map(reactorMapper)
+                .blockLast();
+    }
+
+    @Benchmark
+    public Object rxjava_flowable(TransmitValues values) {
+        return Flowable.range(0, elementCount)
+                .subscribeOn(io.reactivex.schedulers.Schedulers.single())
+                .observeOn(io.reactivex.schedulers.Schedulers.computation())
+                .map(rxJavaMapper)
+                .blockingLast();
+    }
+}
@@ -0,0 +1,37 @@
+package com.alibaba.ttl3.benchmark;
+
+import com.alibaba.ttl3.transmitter.ThreadLocalTransmitRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.function.UnaryOperator;
+
+/**
+ * The plain {@link ThreadLocal}s registered to {@link ThreadLocalTransmitRegistry},
+ * shared by all benchmark threads since the registry is global.
+ *
+ * @see TransmitValues
+ */
+@State(Scope.Benchmark)
+public class RegisteredThreadLocals {
+    @Param({"0", "8"})
+    public int threadLocalCount;
+
+    ThreadLocal<String>[] threadLocals;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        threadLocals = new ThreadLocal[threadLocalCount];
+        for (int i = 0; i < threadLocalCount; i++) {
+            threadLocals[i] = new ThreadLocal<>();
+            ThreadLocalTransmitRegistry.registerThreadLocal(threadLocals[i], UnaryOperator.identity());
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        for (ThreadLocal<String> threadLocal : threadLocals) {
+            ThreadLocalTransmitRegistry.unregisterThreadLocal(threadLocal);
+        }
+    }
+}
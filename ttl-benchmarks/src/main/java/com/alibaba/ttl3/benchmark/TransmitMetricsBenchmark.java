@@ -0,0 +1,59 @@
+package com.alibaba.ttl3.benchmark;
+
+import com.alibaba.crr.composite.Backup;
+import com.alibaba.crr.composite.Capture;
+import com.alibaba.ttl3.transmitter.TransmitMetrics;
+import com.alibaba.ttl3.transmitter.TransmitStatistics;
+import com.alibaba.ttl3.transmitter.Transmitter;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The overhead of the transmit instrumentation({@link TransmitMetrics}) on the {@code CRR} operations:
+ * <ul>
+ * <li>{@code disabled}: no recorder, the default; compare with {@link TransmitterCrrBenchmark} for the disabled-path overhead.</li>
+ * <li>{@code noop}: a recorder does nothing, the cost of the timing.</li>
+ * <li>{@code statistics}: the builtin {@link TransmitStatistics}.</li>
+ * </ul>
+ * <pre>{@code java -jar ttl-benchmarks/target/benchmarks.jar "TransmitMetricsBenchmark|TransmitterCrrBenchmark.(capture|replay_restore)$"}</pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TransmitMetricsBenchmark {
+    @Param({"disabled", "noop", "statistics"})
+    public String recorder;
+
+    private Capture capturedInOtherThread;
+
+    @Setup
+    public void setup(TransmitValues values) throws InterruptedException {
+        if ("noop".equals(recorder)) TransmitMetrics.setRecorder((target, operation, nanos) -> {});
+        else if ("statistics".equals(recorder)) TransmitMetrics.setRecorder(new TransmitStatistics());
+        else TransmitMetrics.setRecorder(null);
+
+        final Thread thread = new Thread(() -> capturedInOtherThread = Transmitter.capture());
+        thread.start();
+        thread.join();
+    }
+
+    @TearDown
+    public void tearDown() {
+        TransmitMetrics.setRecorder(null);
+    }
+
+    @Benchmark
+    public Capture capture() {
+        return Transmitter.capture();
+    }
+
+    @Benchmark
+    public void replay_restore() {
+        final Backup backup = Transmitter.replay(capturedInOtherThread);
+        Transmitter.restore(backup);
+    }
+}
@@ -0,0 +1,64 @@
+package com.alibaba.ttl3.benchmark;
+
+import com.alibaba.crr.composite.Capture;
+import com.alibaba.ttl3.TransmitPolicy;
+import com.alibaba.ttl3.TransmittableThreadLocal;
+import com.alibaba.ttl3.transmitter.Transmitter;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The capture of the {@link TransmittableThreadLocal}s with the {@link TransmitPolicy}:
+ * {@code localCount} TTLs that should not travel(e.g. the per-request caches) besides the {@link TransmitValues},
+ * declared with the {@code policy}.
+ * <p>
+ * Run with the gc profiler to compare the capture size({@code gc.alloc.rate.norm}, bytes per operation).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TransmitPolicyBenchmark {
+    @Param({"TRANSMITTEE_VALUE", "SKIP_INITIAL", "NEVER"})
+    public TransmitPolicy policy;
+
+    @Param({"32"})
+    public int localCount;
+
+    private TransmittableThreadLocal<Map<String, String>>[] locals;
+
+    /**
+     * inject {@link TransmitValues} only to the setup method, see {@link TransmitterCrrBenchmark#setup(TransmitValues)}.
+     */
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup(TransmitValues values) {
+        locals = new TransmittableThreadLocal[localCount];
+        for (int i = 0; i < localCount; i++) {
+            locals[i] = TransmittableThreadLocal.withInitial(HashMap::new, policy);
+            // the initial value, used in the thread
+            locals[i].get().put("key", "value-" + i);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        for (TransmittableThreadLocal<Map<String, String>> local : locals) {
+            local.remove();
+        }
+    }
+
+    /**
+     * the capture after a modification, the snapshot of the values is rebuilt.
+     */
+    @Benchmark
+    public Capture capture_afterSet() {
+        locals[0].set(locals[0].get());
+        return Transmitter.capture();
+    }
+}
@@ -0,0 +1,51 @@
+package com.alibaba.ttl3.benchmark;
+
+import com.alibaba.crr.composite.Backup;
+import com.alibaba.crr.composite.Capture;
+import com.alibaba.ttl3.transmitter.TransmitProfile;
+import com.alibaba.ttl3.transmitter.Transmitter;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@code CRR}(capture/replay/restore) operations of a {@link TransmitProfile} of the first TTL
+ * of the {@link TransmitValues}(e.g. the trace context of the IO thread pools),
+ * compare with the operations of all values({@link TransmitterCrrBenchmark}).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TransmitProfileBenchmark {
+    private TransmitProfile profile;
+    private Capture capturedInOtherThread;
+
+    /**
+     * inject {@link TransmitValues} only to the setup method, see {@link TransmitterCrrBenchmark#setup(TransmitValues)}.
+     */
+    @Setup
+    public void setup(TransmitValues values) throws InterruptedException {
+        profile = TransmitProfile.of(values.ttls[0]);
+
+        final Thread thread = new Thread(() -> capturedInOtherThread = Transmitter.capture(profile));
+        thread.start();
+        thread.join();
+    }
+
+    @Benchmark
+    public Capture capture() {
+        return Transmitter.capture(profile);
+    }
+
+    /**
+     * the steady state of running a task of the profile: replay the captured of task, and restore.
+     */
+    @Benchmark
+    public void replay_restore() {
+        final Backup backup = Transmitter.replay(capturedInOtherThread);
+        Transmitter.restore(backup);
+    }
+}
@@ -0,0 +1,44 @@
+package com.alibaba.ttl3.benchmark;
+
+import com.alibaba.ttl3.TransmittableThreadLocal;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * The values to transmit in the benchmark thread:
+ * the values of {@code ttlCount} {@link TransmittableThreadLocal}s and the {@link RegisteredThreadLocals}.
+ * <p>
+ * The thread count is set by the jmh option {@code -t}.
+ */
+@State(Scope.Thread)
+public class TransmitValues {
+    @Param({"1", "8", "64"})
+    public int ttlCount;
+
+    TransmittableThreadLocal<String>[] ttls;
+    private ThreadLocal<String>[] threadLocals;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup(RegisteredThreadLocals registered) {
+        ttls = new TransmittableThreadLocal[ttlCount];
+        for (int i = 0; i < ttlCount; i++) {
+            ttls[i] = new TransmittableThreadLocal<>();
+            ttls[i].set("ttl-" + i);
+        }
+
+        threadLocals = registered.threadLocals;
+        for (int i = 0; i < threadLocals.length; i++) {
+            threadLocals[i].set("tl-" + i);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        for (TransmittableThreadLocal<String> ttl : ttls) {
+            ttl.remove();
+        }
+        for (ThreadLocal<String> threadLocal : threadLocals) {
+            threadLocal.remove();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.alibaba.ttl3.benchmark;
+
+import com.alibaba.crr.composite.Backup;
+import com.alibaba.crr.composite.Capture;
+import com.alibaba.ttl3.transmitter.Transmitter;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@code CRR}(capture/replay/restore) operations of {@link Transmitter}.
+ * <p>
+ * Run with the gc profiler to check the allocation rate({@code gc.alloc.rate.norm}, bytes per operation):
+ * <pre>{@code java -jar ttl-benchmarks/target/benchmarks.jar TransmitterCrrBenchmark -prof gc}</pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TransmitterCrrBenchmark {
+    private Capture captured;
+    private Capture capturedInOtherThread;
+
+    /**
+     * <B><I>NOTE:</I></B><br>
+     * inject {@link TransmitValues} only to the setup method, the values are set in the benchmark thread;
+     * the injected instances of setup and benchmark methods may be different, and set the values twice.
+     */
+    @Setup
+    public void setup(TransmitValues values) throws InterruptedException {
+        captured = Transmitter.capture();
+
+        // the values are inherited by the child thread
+        final Thread thread = new Thread(() -> capturedInOtherThread = Transmitter.capture());
+        thread.start();
+        thread.join();
+    }
+
+    @Benchmark
+    public Capture capture() {
+        return Transmitter.capture();
+    }
+
+    /**
+     * the steady state of running a task: replay the captured of task, and restore.
+     */
+    @Benchmark
+    public void replay_restore() {
+        final Backup backup = Transmitter.replay(capturedInOtherThread);
+        Transmitter.restore(backup);
+    }
+
+    /**
+     * run the task in the capture thread(e.g. the caller-runs rejection), the replay is skipped.
+     */
+    @Benchmark
+    public void replay_restore_inCaptureThread() {
+        final Backup backup = Transmitter.replay(captured);
+        Transmitter.restore(backup);
+    }
+
+    @Benchmark
+    public void clear_restore() {
+        final Backup backup = Transmitter.clear();
+        Transmitter.restore(backup);
+    }
+
+    /**
+     * the whole hand-off of a task, run in the capture thread.
+     */
+    @Benchmark
+    public void capture_replay_restore() {
+        final Backup backup = Transmitter.replay(Transmitter.capture());
+        Transmitter.restore(backup);
+    }
+}
@@ -0,0 +1,58 @@
+package com.alibaba.ttl3.benchmark;
+
+import com.alibaba.ttl3.executor.TtlExecutors;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The submit throughput of the executor service wrapped by {@link TtlExecutors#getTtlExecutorService(ExecutorService)},
+ * submit a task and wait its completion(the round trip of a task hand-off to the pool thread).
+ * <p>
+ * The submitter thread count is set by the jmh option {@code -t}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TtlExecutorServiceBenchmark {
+    @Param({"4"})
+    public int poolSize;
+
+    private ExecutorService executorService;
+    private ExecutorService ttlExecutorService;
+
+    private final Runnable task = () -> {
+    };
+
+    @Setup
+    public void setup() {
+        executorService = Executors.newFixedThreadPool(poolSize);
+        ttlExecutorService = TtlExecutors.getTtlExecutorService(executorService);
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        executorService.shutdown();
+        if (!executorService.awaitTermination(10, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("executor is not terminated in 10 seconds");
+        }
+    }
+
+    @Benchmark
+    public Object submit(TransmitValues values) throws Exception {
+        return ttlExecutorService.submit(task).get();
+    }
+
+    /**
+     * baseline: submit to the executor service without TTL wrapping.
+     */
+    @Benchmark
+    public Object submit_raw(TransmitValues values) throws Exception {
+        return executorService.submit(task).get();
+    }
+}
@@ -0,0 +1,141 @@
+package com.alibaba.ttl3.benchmark;
+
+import com.alibaba.ttl3.TransmittableThreadLocal;
+import com.alibaba.ttl3.transmitter.Transmitter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare the indexed slot array holder of {@link TransmittableThreadLocal}
+ * with the legacy {@link WeakHashMap} holder(re-implemented here as the baseline),
+ * on the holder registration({@code get}/{@code set}) and the capture iteration.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TtlHolderBenchmark {
+    @Param({"1", "8", "64", "512"})
+    public int ttlCount;
+
+    private TransmittableThreadLocal<String>[] ttls;
+    private LegacyTtl[] legacyTtls;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        ttls = new TransmittableThreadLocal[ttlCount];
+        legacyTtls = new LegacyTtl[ttlCount];
+        for (int i = 0; i < ttlCount; i++) {
+            ttls[i] = new TransmittableThreadLocal<>();
+            ttls[i].set("v" + i);
+
+            legacyTtls[i] = new LegacyTtl();
+            legacyTtls[i].set("v" + i);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        for (int i = 0; i < ttlCount; i++) {
+            ttls[i].remove();
+            legacyTtls[i].remove();
+        }
+    }
+
+    @Benchmark
+    public void get(Blackhole bh) {
+        for (TransmittableThreadLocal<String> ttl : ttls) {
+            bh.consume(ttl.get());
+        }
+    }
+
+    @Benchmark
+    public void get_legacyHolder(Blackhole bh) {
+        for (LegacyTtl ttl : legacyTtls) {
+            bh.consume(ttl.get());
+        }
+    }
+
+    @Benchmark
+    public void set() {
+        for (TransmittableThreadLocal<String> ttl : ttls) {
+            ttl.set("v");
+        }
+    }
+
+    @Benchmark
+    public void set_legacyHolder() {
+        for (LegacyTtl ttl : legacyTtls) {
+            ttl.set("v");
+        }
+    }
+
+    @Benchmark
+    public Object capture() {
+        return Transmitter.capture();
+    }
+
+    @Benchmark
+    public Object capture_legacyHolder() {
+        return LegacyTtl.capture();
+    }
+
+    /**
+     * The legacy {@link WeakHashMap} holder of {@link TransmittableThreadLocal}.
+     */
+    static final class LegacyTtl extends InheritableThreadLocal<Object> {
+        private static final InheritableThreadLocal<WeakHashMap<LegacyTtl, ?>> holder =
+                new InheritableThreadLocal<WeakHashMap<LegacyTtl, ?>>() {
+                    @Override
+                    protected WeakHashMap<LegacyTtl, ?> initialValue() {
+                        return new WeakHashMap<>();
+                    }
+
+                    @Override
+                    protected WeakHashMap<LegacyTtl, ?> childValue(WeakHashMap<LegacyTtl, ?> parentValue) {
+                        return new WeakHashMap<>(parentValue);
+                    }
+                };
+
+        @Override
+        public Object get() {
+            final Object value = super.get();
+            if (value != null) addThisToHolder();
+            return value;
+        }
+
+        @Override
+        public void set(Object value) {
+            super.set(value);
+            addThisToHolder();
+        }
+
+        @Override
+        public void remove() {
+            holder.get().remove(this);
+            super.remove();
+        }
+
+        private void addThisToHolder() {
+            if (!holder.get().containsKey(this)) {
+                holder.get().put(this, null);
+            }
+        }
+
+        static Map<LegacyTtl, Object> capture() {
+            final HashMap<LegacyTtl, Object> ttl2Value = new HashMap<>();
+            for (LegacyTtl threadLocal : holder.get().keySet()) {
+                ttl2Value.put(threadLocal, threadLocal.get());
+            }
+            return ttl2Value;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.alibaba.ttl3.benchmark;
+
+import com.alibaba.ttl3.TtlRunnable;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wrap a task by {@link TtlRunnable#get(Runnable)}(capture) and run it(replay/restore) in the same thread.
+ *
+ * @see TransmitterCrrBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TtlRunnableBenchmark {
+    private Runnable task;
+
+    @Setup
+    public void setup(Blackhole bh) {
+        task = () -> bh.consume(this);
+    }
+
+    @Benchmark
+    public Runnable get(TransmitValues values) {
+        return TtlRunnable.get(task);
+    }
+
+    @Benchmark
+    public void get_run(TransmitValues values) {
+        TtlRunnable.get(task).run();
+    }
+
+    /**
+     * baseline: run the task without TTL wrapping.
+     */
+    @Benchmark
+    public void run_raw(TransmitValues values) {
+        task.run();
+    }
+}
@@ -0,0 +1,134 @@
+package com.alibaba.ttl3.benchmark;
+
+import com.alibaba.ttl3.TransmittableThreadLocal;
+import com.alibaba.ttl3.executor.TtlExecutors;
+import com.alibaba.ttl3.executor.TtlForkJoinPool;
+import com.alibaba.ttl3.executor.TtlThreadPoolExecutor;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The task throughput of {@link TtlThreadPoolExecutor}/{@link TtlForkJoinPool},
+ * compared with the pool wrapped by {@link TtlExecutors#getTtlExecutorService(ExecutorService)}
+ * and the pool without TTL:
+ * <ul>
+ * <li>{@code execute_batch}: execute {@code batchSize} tasks then wait all done(the throughput of the pool, per task)</li>
+ * <li>{@code submit_batch}: submit {@code batchSize} tasks then wait all futures(one more {@link Future} node per task)</li>
+ * </ul>
+ * The {@code executor} param:
+ * <ul>
+ * <li>{@code raw}/{@code wrapped}/{@code ttl}/{@code ttl_keep_installed}: {@link ThreadPoolExecutor},
+ *     {@code ttl_keep_installed} is {@link TtlThreadPoolExecutor#setKeepContextInstalled(boolean)}
+ *     with the persistent context mode enabled</li>
+ * <li>{@code fork_join_raw}/{@code fork_join_wrapped}/{@code fork_join_ttl}: {@link ForkJoinPool}</li>
+ * </ul>
+ * Run with {@code -prof gc} to compare the allocation per task.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TtlThreadPoolExecutorBenchmark {
+    private static final int BATCH_SIZE = 1000;
+
+    @Param({"raw", "wrapped", "ttl", "ttl_keep_installed", "fork_join_raw", "fork_join_wrapped", "fork_join_ttl"})
+    public String executor;
+
+    @Param({"4"})
+    public int poolSize;
+
+    private ExecutorService pool;
+    private ExecutorService executorService;
+    private boolean persistentContextBefore;
+
+    @Setup
+    public void setup() {
+        persistentContextBefore = TransmittableThreadLocal.isPersistentContextEnabled();
+        TransmittableThreadLocal.setPersistentContextEnabled(executor.equals("ttl_keep_installed"));
+
+        final ThreadFactory threadFactory = TtlExecutors.getDefaultDisableInheritableThreadFactory();
+        switch (executor) {
+            case "raw":
+            case "wrapped":
+                pool = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), threadFactory);
+                break;
+            case "ttl":
+            case "ttl_keep_installed":
+                final TtlThreadPoolExecutor ttlPool = new TtlThreadPoolExecutor(
+                        poolSize, poolSize, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), threadFactory);
+                ttlPool.setKeepContextInstalled(executor.equals("ttl_keep_installed"));
+                pool = ttlPool;
+                break;
+            case "fork_join_raw":
+            case "fork_join_wrapped":
+                pool = new ForkJoinPool(poolSize, TtlExecutors.getDefaultDisableInheritableForkJoinWorkerThreadFactory(), null, false);
+                break;
+            case "fork_join_ttl":
+                pool = new TtlForkJoinPool(poolSize, TtlExecutors.getDefaultDisableInheritableForkJoinWorkerThreadFactory(), null, false);
+                break;
+            default:
+                throw new IllegalArgumentException("unknown executor: " + executor);
+        }
+        executorService = executor.endsWith("wrapped") ? TtlExecutors.getTtlExecutorService(pool) : pool;
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        pool.shutdown();
+        if (!pool.awaitTermination(10, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("executor is not terminated in 10 seconds");
+        }
+        TransmittableThreadLocal.setPersistentContextEnabled(persistentContextBefore);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void execute_batch(TransmitValues values) throws Exception {
+        final CountDownTask task = new CountDownTask(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            executorService.execute(task);
+        }
+        task.await();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public Object submit_batch(TransmitValues values) throws Exception {
+        final Future<?>[] futures = new Future<?>[BATCH_SIZE];
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            futures[i] = executorService.submit(TASK);
+        }
+        Object result = null;
+        for (Future<?> future : futures) {
+            result = future.get();
+        }
+        return result;
+    }
+
+    private static final Runnable TASK = () -> {
+    };
+
+    private static final class CountDownTask implements Runnable {
+        private final AtomicInteger remaining;
+        private final CountDownLatch done = new CountDownLatch(1);
+
+        CountDownTask(int count) {
+            remaining = new AtomicInteger(count);
+        }
+
+        @Override
+        public void run() {
+            if (remaining.decrementAndGet() == 0) done.countDown();
+        }
+
+        void await() throws InterruptedException {
+            if (!done.await(10, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("tasks are not done in 10 seconds");
+            }
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.alibaba.ttl3.benchmark;
+
+import com.alibaba.ttl3.TtlWrappers;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Wrap a {@link Function} by {@link TtlWrappers#wrapFunction(Function)} and apply it in the same thread.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TtlWrappersBenchmark {
+    private final Function<String, Integer> function = String::length;
+
+    private final String input = "input";
+
+    @Benchmark
+    public Function<String, Integer> wrapFunction(TransmitValues values) {
+        return TtlWrappers.wrapFunction(function);
+    }
+
+    @Benchmark
+    public Integer wrapFunction_apply(TransmitValues values) {
+        return TtlWrappers.wrapFunction(function).apply(input);
+    }
+
+    /**
+     * baseline: apply the function without TTL wrapping.
+     */
+    @Benchmark
+    public Integer apply_raw(TransmitValues values) {
+        return function.apply(input);
+    }
+}
@@ -0,0 +1,92 @@
+package com.alibaba.ttl3.benchmark;
+
+import com.alibaba.ttl3.TransmittableThreadLocal;
+import com.alibaba.ttl3.executor.TtlExecutors;
+import com.alibaba.ttl3.internal.util.VirtualThreads;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Spawn {@code taskCount}(1M) virtual threads, each task reads {@code ttlCount}(10) {@link TransmittableThreadLocal}s:
+ * <ul>
+ * <li>{@code inheritable}: {@code Executors.newVirtualThreadPerTaskExecutor()}, the values are inherited by the virtual threads.</li>
+ * <li>{@code ttl}: {@link TtlExecutors#newTtlVirtualThreadPerTaskExecutor()}, the values are replayed to the ThreadLocalMap.</li>
+ * <li>{@code ttl_virtualThreadMode}: same as {@code ttl} with the "virtual thread" mode,
+ *     the values are replayed as the overlay.</li>
+ * </ul>
+ * Need Java 21+, run with the jmh option {@code -jvm}:
+ * <pre>{@code java -jar ttl-benchmarks/target/benchmarks.jar VirtualThreadBenchmark -jvm /path/to/jdk21/bin/java -prof gc}</pre>
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class VirtualThreadBenchmark {
+    @Param({"1000000"})
+    public int taskCount;
+
+    @Param({"10"})
+    public int ttlCount;
+
+    @Param({"inheritable", "ttl", "ttl_virtualThreadMode"})
+    public String mode;
+
+    private TransmittableThreadLocal<String>[] ttls;
+    private final LongAdder failures = new LongAdder();
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        if (!VirtualThreads.isSupported()) {
+            throw new IllegalStateException("virtual threads need Java 21+, run with the jmh option -jvm /path/to/jdk21/bin/java");
+        }
+        TransmittableThreadLocal.setVirtualThreadModeEnabled("ttl_virtualThreadMode".equals(mode));
+
+        ttls = new TransmittableThreadLocal[ttlCount];
+        for (int i = 0; i < ttlCount; i++) {
+            ttls[i] = new TransmittableThreadLocal<>();
+            ttls[i].set("ttl-" + i);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        for (TransmittableThreadLocal<String> ttl : ttls) {
+            ttl.remove();
+        }
+        TransmittableThreadLocal.setVirtualThreadModeEnabled(false);
+
+        if (failures.sum() > 0) throw new IllegalStateException(failures.sum() + " tasks did not see the values");
+    }
+
+    @Benchmark
+    public void spawnVirtualThreads() throws InterruptedException {
+        final ExecutorService executor = "inheritable".equals(mode)
+                ? VirtualThreads.newThreadPerTaskExecutor(VirtualThreads.newVirtualThreadFactory(true))
+                : TtlExecutors.newTtlVirtualThreadPerTaskExecutor();
+
+        final Runnable task = this::readValues;
+        for (int i = 0; i < taskCount; i++) {
+            executor.execute(task);
+        }
+
+        executor.shutdown();
+        if (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+            throw new IllegalStateException("fail to run the tasks in 1 minute");
+        }
+    }
+
+    private void readValues() {
+        for (TransmittableThreadLocal<String> ttl : ttls) {
+            if (ttl.get() == null) {
+                failures.increment();
+                return;
+            }
+        }
+    }
+}
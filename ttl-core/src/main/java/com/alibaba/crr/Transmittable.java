@@ -34,6 +34,42 @@ public interface Transmittable<C, B> {
     @NonNull
     B replay(@NonNull C captured);
 
+    /**
+     * Replay for a structured scope: the backup is restored by the same thread before the scope exits,
+     * and the replayed values are not expected to outlive the scope.
+     * <p>
+     * The implementation may bind the capture data as a whole(e.g. a single carrier field)
+     * instead of setting each value, so the backup/restore walk is saved.
+     * <p>
+     * The default implementation is same as {@link #replay(Object)}.
+     *
+     * @param captured the capture data of transmittance, the return value of method {@link #capture()}
+     * @return the backup data of transmittance, restored by {@link #restore(Object)}
+     * @see #replay(Object)
+     */
+    @NonNull
+    default B replayScoped(@NonNull C captured) {
+        return replay(captured);
+    }
+
+    /**
+     * Replay the capture data the current thread already holds,
+     * aka. {@link #isCaptureReusable(Object)} returns {@code true} for the capture data.
+     * <p>
+     * The values need not be set again, but the returned backup MUST restore the values
+     * before this replay even if the values are modified after this replay.
+     * <p>
+     * The default implementation is same as {@link #replay(Object)}.
+     *
+     * @param captured the capture data of transmittance, the return value of method {@link #capture()}
+     * @return the backup data of transmittance, restored by {@link #restore(Object)}
+     * @see #isCaptureReusable(Object)
+     */
+    @NonNull
+    default B replayReused(@NonNull C captured) {
+        return replay(captured);
+    }
+
     /**
      * Clear.
      * <p>
@@ -61,4 +97,22 @@ public interface Transmittable<C, B> {
      * @see #clear()
      */
     void restore(@NonNull B backup);
+
+    /**
+     * Whether the capture data is still the same as the current state of the current thread,
+     * so the capture data can be reused instead of {@link #capture()} again.
+     * <p>
+     * The capture data is the return value of method {@link #capture()} in the current thread.
+     * Return {@code true} only when nothing is modified since the capture,
+     * e.g. check a modification stamp of the current thread, or check the values by identity.
+     * <p>
+     * The default implementation returns {@code false}, aka. capture every time.
+     *
+     * @param captured the capture data of transmittance, the return value of method {@link #capture()}
+     * @return {@code true} if the capture data can be reused
+     * @see #capture()
+     */
+    default boolean isCaptureReusable(@NonNull C captured) {
+        return false;
+    }
 }
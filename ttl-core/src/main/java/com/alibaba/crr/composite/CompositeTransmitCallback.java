@@ -3,9 +3,7 @@ package com.alibaba.crr.composite;
 import com.alibaba.crr.TransmitCallback;
 import edu.umd.cs.findbugs.annotations.NonNull;
 
-import java.util.HashSet;
-import java.util.Set;
-import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.Arrays;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -20,10 +18,18 @@ import static com.alibaba.ttl3.internal.util.Utils.propagateIfFatal;
 public final class CompositeTransmitCallback {
     private static final Logger logger = Logger.getLogger(CompositeTransmitCallback.class.getName());
 
-    private final Set<TransmitCallback> registeredTransmitCallbackSet = new CopyOnWriteArraySet<>();
+    private static final TransmitCallback[] EMPTY_CALLBACKS = new TransmitCallback[0];
+
+    /**
+     * copy-on-write, the published array is never modified,
+     * so the array can be used as the callbacks snapshot of a replay without copying.
+     */
+    private volatile TransmitCallback[] registeredTransmitCallbacks = EMPTY_CALLBACKS;
+
+    private final Object registeredTransmitCallbacksUpdateLock = new Object();
 
     Object beforeReplay() {
-        Set<TransmitCallback> callbacks = new HashSet<>(registeredTransmitCallbackSet);
+        final TransmitCallback[] callbacks = registeredTransmitCallbacks;
         for (TransmitCallback cb : callbacks) {
             try {
                 cb.beforeReplay();
@@ -39,8 +45,7 @@ public final class CompositeTransmitCallback {
     }
 
     Object afterReplay(Object data) {
-        @SuppressWarnings("unchecked")
-        Set<TransmitCallback> callbacks = (Set<TransmitCallback>) data;
+        final TransmitCallback[] callbacks = (TransmitCallback[]) data;
         for (TransmitCallback cb : callbacks) {
             try {
                 cb.afterReplay();
@@ -56,8 +61,7 @@ public final class CompositeTransmitCallback {
     }
 
     Object beforeRestore(Object data) {
-        @SuppressWarnings("unchecked")
-        Set<TransmitCallback> callbacks = (Set<TransmitCallback>) data;
+        final TransmitCallback[] callbacks = (TransmitCallback[]) data;
         for (TransmitCallback cb : callbacks) {
             try {
                 cb.beforeRestore();
@@ -73,8 +77,7 @@ public final class CompositeTransmitCallback {
     }
 
     void afterRestore(Object data) {
-        @SuppressWarnings("unchecked")
-        Set<TransmitCallback> callbacks = (Set<TransmitCallback>) data;
+        final TransmitCallback[] callbacks = (TransmitCallback[]) data;
         for (TransmitCallback cb : callbacks) {
             try {
                 cb.afterRestore();
@@ -96,7 +99,15 @@ public final class CompositeTransmitCallback {
      * @see #unregisterCallback(TransmitCallback)
      */
     public boolean registerCallback(@NonNull TransmitCallback callback) {
-        return registeredTransmitCallbackSet.add(callback);
+        synchronized (registeredTransmitCallbacksUpdateLock) {
+            final TransmitCallback[] callbacks = registeredTransmitCallbacks;
+            if (indexOf(callbacks, callback) >= 0) return false;
+
+            final TransmitCallback[] newCallbacks = Arrays.copyOf(callbacks, callbacks.length + 1);
+            newCallbacks[callbacks.length] = callback;
+            registeredTransmitCallbacks = newCallbacks;
+            return true;
+        }
     }
 
     /**
@@ -106,6 +117,23 @@ public final class CompositeTransmitCallback {
      * @see #registerCallback(TransmitCallback)
      */
     public boolean unregisterCallback(@NonNull TransmitCallback callback) {
-        return registeredTransmitCallbackSet.remove(callback);
+        synchronized (registeredTransmitCallbacksUpdateLock) {
+            final TransmitCallback[] callbacks = registeredTransmitCallbacks;
+            final int index = indexOf(callbacks, callback);
+            if (index < 0) return false;
+
+            final TransmitCallback[] newCallbacks = new TransmitCallback[callbacks.length - 1];
+            System.arraycopy(callbacks, 0, newCallbacks, 0, index);
+            System.arraycopy(callbacks, index + 1, newCallbacks, index, newCallbacks.length - index);
+            registeredTransmitCallbacks = newCallbacks;
+            return true;
+        }
+    }
+
+    private static int indexOf(TransmitCallback[] callbacks, TransmitCallback callback) {
+        for (int i = 0; i < callbacks.length; i++) {
+            if (callbacks[i].equals(callback)) return i;
+        }
+        return -1;
     }
 }
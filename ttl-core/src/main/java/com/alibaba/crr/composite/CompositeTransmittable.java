@@ -1,16 +1,17 @@
 package com.alibaba.crr.composite;
 
 import com.alibaba.crr.Transmittable;
+import com.alibaba.ttl3.transmitter.TransmitMetrics;
+import com.alibaba.ttl3.transmitter.TransmitMetricsRecorder;
+import com.alibaba.ttl3.transmitter.TransmitMetricsRecorder.Operation;
 import edu.umd.cs.findbugs.annotations.NonNull;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Set;
-import java.util.concurrent.CopyOnWriteArraySet;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import static com.alibaba.ttl3.internal.util.Utils.newHashMap;
 import static com.alibaba.ttl3.internal.util.Utils.propagateIfFatal;
 
 /**
@@ -29,7 +30,35 @@ import static com.alibaba.ttl3.internal.util.Utils.propagateIfFatal;
 public final class CompositeTransmittable implements Transmittable<Capture, Backup> {
     private static final Logger logger = Logger.getLogger(CompositeTransmittable.class.getName());
 
-    private final Set<Transmittable<Object, Object>> registeredTransmittableSet = new CopyOnWriteArraySet<>();
+    /**
+     * mark the failed capture/replay of a transmittable, skipped by the following replay/restore.
+     */
+    private static final Object ABSENT = new Object();
+
+    private static final WeakReference<Snapshot> NO_CAPTURE = new WeakReference<>(null);
+
+    @SuppressWarnings("rawtypes")
+    private static final Transmittable[] EMPTY_TRANSMITTABLES = new Transmittable[0];
+
+    /**
+     * The registered transmittables, the array index is the registration slot of transmittable.
+     * <p>
+     * copy-on-write, the published array is never modified,
+     * so the capture/backup can reference the array as its parallel key array.
+     */
+    @SuppressWarnings("unchecked")
+    private volatile Transmittable<Object, Object>[] registeredTransmittables = EMPTY_TRANSMITTABLES;
+
+    private final Object registeredTransmittablesUpdateLock = new Object();
+
+    private final ThreadLocal<ThreadState> threadState = new ThreadLocal<ThreadState>() {
+        @Override
+        protected ThreadState initialValue() {
+            return new ThreadState();
+        }
+    };
+
+    private final LongAdder skippedReplayCount = new LongAdder();
 
     private final CompositeTransmitCallback callback;
 
@@ -39,56 +68,181 @@ public final class CompositeTransmittable implements Transmittable<Capture, Back
 
     /**
      * Capture all {@link Transmittable}.
+     * <p>
+     * If the registered transmittables are not changed and all transmittables report
+     * their last captured values reusable({@link Transmittable#isCaptureReusable(Object)}),
+     * the last capture of the current thread is returned instead of capturing again.
      *
      * @return the captured values
      */
     @NonNull
     public Capture capture() {
-        final HashMap<Transmittable<Object, Object>, Object> transmit2Value = newHashMap(registeredTransmittableSet.size());
-        for (Transmittable<Object, Object> transmittable : registeredTransmittableSet) {
+        final Transmittable<Object, Object>[] transmittables = registeredTransmittables;
+        final ThreadState state = threadState.get();
+        final Snapshot lastCapture = state.lastCapture.get();
+        if (lastCapture != null && lastCapture.transmittables == transmittables && isReusable(lastCapture)) {
+            return lastCapture;
+        }
+
+        final Object[] values = captureValues(transmittables);
+        boolean reusable = true;
+        for (Object value : values) {
+            if (value == ABSENT) reusable = false;
+        }
+
+        final Snapshot snapshot = new Snapshot(transmittables, values);
+        // a failed capture is never reused, retry the capture next time
+        state.lastCapture = reusable ? snapshot.self : NO_CAPTURE;
+        return snapshot;
+    }
+
+    /**
+     * Capture the given {@link Transmittable}s only, instead of all registered transmittables,
+     * e.g. the transmittables of a subset of the thread-local values.
+     * <p>
+     * The returned capture is replayed/restored by {@link #replay(Capture)}/{@link #restore(Backup)} as usual,
+     * only the given transmittables are replayed and restored. The capture is not reused by {@link #capture()}.
+     *
+     * @param transmittables the transmittables to capture, the array is referenced by the capture, do NOT modify it
+     * @return the captured values
+     */
+    @NonNull
+    @SuppressWarnings("unchecked")
+    public Capture capture(@NonNull Transmittable<?, ?>[] transmittables) {
+        final Transmittable<Object, Object>[] ts = (Transmittable<Object, Object>[]) transmittables;
+        return new Snapshot(ts, captureValues(ts));
+    }
+
+    /**
+     * the captured values parallel to the transmittables, {@link #ABSENT} marks the failed capture.
+     */
+    private static Object[] captureValues(Transmittable<Object, Object>[] transmittables) {
+        final TransmitMetricsRecorder recorder = TransmitMetrics.getRecorder();
+        final Object[] values = new Object[transmittables.length];
+        for (int i = 0; i < transmittables.length; i++) {
+            final Transmittable<Object, Object> transmittable = transmittables[i];
+            final long start = recorder == null ? 0 : System.nanoTime();
             try {
-                transmit2Value.put(transmittable, transmittable.capture());
+                values[i] = transmittable.capture();
             } catch (Throwable t) {
+                values[i] = ABSENT;
                 propagateIfFatal(t);
                 if (logger.isLoggable(Level.WARNING)) {
                     logger.log(Level.WARNING, "exception when capture for transmittable " + transmittable +
                             "(class " + transmittable.getClass().getName() + "), just ignored; cause: " + t, t);
                 }
             }
+            if (recorder != null) TransmitMetrics.record(recorder, transmittable, Operation.CAPTURE, start);
+        }
+        return values;
+    }
+
+    private static boolean isReusable(Snapshot snapshot) {
+        final Transmittable<Object, Object>[] transmittables = snapshot.transmittables;
+        for (int i = 0; i < transmittables.length; i++) {
+            final Transmittable<Object, Object> transmittable = transmittables[i];
+            try {
+                if (!transmittable.isCaptureReusable(snapshot.values[i])) return false;
+            } catch (Throwable t) {
+                propagateIfFatal(t);
+                if (logger.isLoggable(Level.WARNING)) {
+                    logger.log(Level.WARNING, "exception when isCaptureReusable for transmittable " + transmittable +
+                            "(class " + transmittable.getClass().getName() + "), just ignored; cause: " + t, t);
+                }
+                return false;
+            }
         }
-        return new Snapshot(transmit2Value, null);
+        return true;
     }
 
     /**
      * Replay the captured values from {@link #capture()},
      * and return the backup values before replay.
+     * <p>
+     * The returned backup is reused after restored, so restore it exactly once, see {@link #restore(Backup)}.
+     * <p>
+     * If the current thread already holds the captured values
+     * (the captured is the last capture of the current thread, and still reusable),
+     * the replay of values is skipped: the transmittables replay by {@link Transmittable#replayReused(Object)},
+     * which only backup the values before replay.
+     * <p>
+     * After the replay, the captured is the last capture of the current thread until restore
+     * if the transmittables report the replayed values reusable;
+     * so the capture in the replayed scope is {@code O(1)} if no value is modified after replay.
      *
      * @param captured captured values {@link #capture()}
      * @return the backup values before replay
      * @see #capture()
+     * @see #getSkippedReplayCount()
      */
     @NonNull
     public Backup replay(@NonNull Capture captured) {
+        return replay(captured, false);
+    }
+
+    /**
+     * Replay the captured values from {@link #capture()} for a structured scope,
+     * and return the backup values before replay.
+     * <p>
+     * Same as {@link #replay(Capture)}, but the transmittables replay by {@link Transmittable#replayScoped(Object)},
+     * so the backup MUST be restored by the current thread before the scope exits.
+     *
+     * @param captured captured values {@link #capture()}
+     * @return the backup values before replay
+     * @see #replay(Capture)
+     * @see Transmittable#replayScoped(Object)
+     */
+    @NonNull
+    public Backup replayScoped(@NonNull Capture captured) {
+        return replay(captured, true);
+    }
+
+    @NonNull
+    @SuppressWarnings("unchecked")
+    private Backup replay(Capture captured, boolean scoped) {
         final Object data = callback.beforeReplay();
 
         final Snapshot capturedSnapshot = (Snapshot) captured;
-        final HashMap<Transmittable<Object, Object>, Object> transmit2Value = newHashMap(capturedSnapshot.transmit2Value.size());
-        for (Map.Entry<Transmittable<Object, Object>, Object> entry : capturedSnapshot.transmit2Value.entrySet()) {
-            Transmittable<Object, Object> transmittable = entry.getKey();
+        final Transmittable<Object, Object>[] transmittables = capturedSnapshot.transmittables;
+        final ThreadState state = threadState.get();
+        final boolean reused = capturedSnapshot == state.lastCapture.get() && isReusable(capturedSnapshot);
+        if (reused) skippedReplayCount.increment();
+
+        final TransmitMetricsRecorder recorder = TransmitMetrics.getRecorder();
+        final Frame frame = state.borrow(transmittables);
+        final Object[] backups = frame.backups;
+        boolean replayed = true;
+        for (int i = 0; i < transmittables.length; i++) {
+            final Object transmitCaptured = capturedSnapshot.values[i];
+            if (transmitCaptured == ABSENT) {
+                backups[i] = ABSENT;
+                replayed = false;
+                continue;
+            }
+
+            final Transmittable<Object, Object> transmittable = transmittables[i];
+            final long start = recorder == null ? 0 : System.nanoTime();
             try {
-                Object transmitCaptured = entry.getValue();
-                transmit2Value.put(transmittable, transmittable.replay(transmitCaptured));
+                if (reused) backups[i] = transmittable.replayReused(transmitCaptured);
+                else if (scoped) backups[i] = transmittable.replayScoped(transmitCaptured);
+                else backups[i] = transmittable.replay(transmitCaptured);
             } catch (Throwable t) {
+                backups[i] = ABSENT;
+                replayed = false;
                 propagateIfFatal(t);
                 if (logger.isLoggable(Level.WARNING)) {
                     logger.log(Level.WARNING, "exception when replay for transmittable " + transmittable +
                             "(class " + transmittable.getClass().getName() + "), just ignored; cause: " + t, t);
                 }
             }
+            if (recorder != null) TransmitMetrics.record(recorder, transmittable, Operation.REPLAY, start);
         }
+        // the current thread holds the captured values now, if the transmittables report the captured values reusable,
+        // the captures in the replayed scope return the captured instead of capturing again
+        if (replayed && isReusable(capturedSnapshot)) state.lastCapture = capturedSnapshot.self;
 
-        final Object afterData = callback.afterReplay(data);
-        return new Snapshot(transmit2Value, afterData);
+        frame.data = callback.afterReplay(data);
+        return frame;
     }
 
     /**
@@ -110,38 +264,63 @@ public final class CompositeTransmittable implements Transmittable<Capture, Back
     public Backup clear() {
         final Object data = callback.beforeReplay();
 
-        final HashMap<Transmittable<Object, Object>, Object> transmit2Value = newHashMap(registeredTransmittableSet.size());
-        for (Transmittable<Object, Object> transmittable : registeredTransmittableSet) {
+        final TransmitMetricsRecorder recorder = TransmitMetrics.getRecorder();
+        final Transmittable<Object, Object>[] transmittables = registeredTransmittables;
+        final Frame frame = threadState.get().borrow(transmittables);
+        final Object[] backups = frame.backups;
+        for (int i = 0; i < transmittables.length; i++) {
+            final Transmittable<Object, Object> transmittable = transmittables[i];
+            final long start = recorder == null ? 0 : System.nanoTime();
             try {
-                transmit2Value.put(transmittable, transmittable.clear());
+                backups[i] = transmittable.clear();
             } catch (Throwable t) {
+                backups[i] = ABSENT;
                 propagateIfFatal(t);
                 if (logger.isLoggable(Level.WARNING)) {
                     logger.log(Level.WARNING, "exception when clear for transmittable " + transmittable +
                             "(class " + transmittable.getClass().getName() + "), just ignored; cause: " + t, t);
                 }
             }
+            if (recorder != null) TransmitMetrics.record(recorder, transmittable, Operation.REPLAY, start);
         }
 
-        final Object afterData = callback.afterReplay(data);
-        return new Snapshot(transmit2Value, afterData);
+        frame.data = callback.afterReplay(data);
+        return frame;
     }
 
     /**
      * Restore the backup values from {@link #replay(Capture)}/{@link #clear()}.
+     * <p>
+     * <B><I>NOTE:</I></B><br>
+     * The backup is reused by the following replay of the thread after restored, so restore a backup exactly once;
+     * restoring a restored backup throws {@link IllegalStateException} if the backup is not reused yet,
+     * otherwise the behavior is undefined. (The backup of versions before the per-thread reuse could be restored many times.)
+     * <p>
+     * The backup may be restored in a thread other than the replay thread, the values of the restoring thread
+     * are restored to the backup values; the backup is not reused afterwards.
      *
      * @param backup the backup values from {@link #replay(Capture)}/{@link #clear()}
+     * @throws IllegalStateException if the backup is already restored
      * @see #replay(Capture)
      * @see #clear()
      */
     public void restore(@NonNull Backup backup) {
-        final Snapshot snapshot = (Snapshot) backup;
-        final Object data = callback.beforeRestore(snapshot.data);
+        final Frame frame = (Frame) backup;
+        if (!frame.inUse) throw new IllegalStateException("backup is already restored");
+        final ThreadState state = threadState.get();
+
+        final Object data = callback.beforeRestore(frame.data);
 
-        for (Map.Entry<Transmittable<Object, Object>, Object> entry : snapshot.transmit2Value.entrySet()) {
-            Transmittable<Object, Object> transmittable = entry.getKey();
+        final TransmitMetricsRecorder recorder = TransmitMetrics.getRecorder();
+        final Transmittable<Object, Object>[] transmittables = frame.transmittables;
+        final Object[] backups = frame.backups;
+        for (int i = 0; i < transmittables.length; i++) {
+            final Object transmitBackup = backups[i];
+            if (transmitBackup == ABSENT) continue;
+
+            final Transmittable<Object, Object> transmittable = transmittables[i];
+            final long start = recorder == null ? 0 : System.nanoTime();
             try {
-                Object transmitBackup = entry.getValue();
                 transmittable.restore(transmitBackup);
             } catch (Throwable t) {
                 propagateIfFatal(t);
@@ -150,18 +329,118 @@ public final class CompositeTransmittable implements Transmittable<Capture, Back
                             "(class " + transmittable.getClass().getName() + "), just ignored; cause: " + t, t);
                 }
             }
+            if (recorder != null) TransmitMetrics.record(recorder, transmittable, Operation.RESTORE, start);
         }
 
         callback.afterRestore(data);
+
+        if (frame.owner == state) state.release(frame);
+        else state.releaseForeign(frame);
     }
 
-    private static class Snapshot implements Capture, Backup {
-        final HashMap<Transmittable<Object, Object>, Object> transmit2Value;
-        final Object data;
+    /**
+     * The count of the replays whose values replay is skipped, since the current thread already holds the captured values.
+     *
+     * @see #replay(Capture)
+     */
+    public long getSkippedReplayCount() {
+        return skippedReplayCount.sum();
+    }
 
-        Snapshot(HashMap<Transmittable<Object, Object>, Object> transmit2Value, Object data) {
-            this.transmit2Value = transmit2Value;
-            this.data = data;
+    /**
+     * The capture, the values are parallel to the registration slots of transmittables.
+     */
+    private static final class Snapshot implements Capture {
+        final Transmittable<Object, Object>[] transmittables;
+        final Object[] values;
+        /**
+         * the weak reference to this capture, shared by the threads keeping this capture as the last capture.
+         */
+        final WeakReference<Snapshot> self = new WeakReference<>(this);
+
+        Snapshot(Transmittable<Object, Object>[] transmittables, Object[] values) {
+            this.transmittables = transmittables;
+            this.values = values;
+        }
+    }
+
+    /**
+     * The backup, the backups are parallel to the registration slots of transmittables.
+     * <p>
+     * reused per thread via {@link ThreadState}.
+     */
+    private static final class Frame implements Backup {
+        Transmittable<Object, Object>[] transmittables;
+        Object[] backups = new Object[0];
+        Object data;
+        /**
+         * the last capture of the thread before replay, reinstalled when restore.
+         */
+        WeakReference<Snapshot> lastCaptureBefore;
+
+        /**
+         * the state of the thread borrowed this frame, aka. the replay thread.
+         */
+        ThreadState owner;
+        boolean inUse;
+        Frame next;
+
+        void reset() {
+            Arrays.fill(backups, 0, transmittables.length, null);
+            transmittables = null;
+            data = null;
+            lastCaptureBefore = NO_CAPTURE;
+            inUse = false;
+        }
+    }
+
+    /**
+     * The per-thread state:
+     * <ul>
+     * <li>the free list of {@link Frame}, the size is bounded by the max nesting depth of replay.</li>
+     * <li>the last capture, reused by the following capture if nothing is modified.</li>
+     * </ul>
+     */
+    private static final class ThreadState {
+        private Frame free;
+
+        /**
+         * held weakly, the capture references the values of thread;
+         * a capture in use(e.g. referenced by a task) is reachable, and so is still the last capture.
+         */
+        WeakReference<Snapshot> lastCapture = NO_CAPTURE;
+
+        Frame borrow(Transmittable<Object, Object>[] transmittables) {
+            Frame frame = free;
+            if (frame == null) frame = new Frame();
+            else free = frame.next;
+
+            frame.next = null;
+            frame.owner = this;
+            frame.inUse = true;
+            frame.transmittables = transmittables;
+            frame.lastCaptureBefore = lastCapture;
+            if (frame.backups.length < transmittables.length) frame.backups = new Object[transmittables.length];
+            return frame;
+        }
+
+        void release(Frame frame) {
+            lastCapture = frame.lastCaptureBefore;
+            frame.reset();
+            frame.next = free;
+            free = frame;
+        }
+
+        /**
+         * release the frame borrowed by other thread, the backup is restored in a thread other than the replay thread.
+         * <p>
+         * the frame is dropped instead of joining the free list of this thread(the owner thread does not know the restore);
+         * the last capture of this thread is invalid, since the values are restored to the backup values of other thread.
+         */
+        void releaseForeign(Frame frame) {
+            lastCapture = NO_CAPTURE;
+            frame.reset();
+            frame.owner = null;
         }
     }
 
@@ -176,7 +455,15 @@ public final class CompositeTransmittable implements Transmittable<Capture, Back
      */
     @SuppressWarnings("unchecked")
     public <C, B> boolean registerTransmittable(@NonNull Transmittable<C, B> transmittable) {
-        return registeredTransmittableSet.add((Transmittable<Object, Object>) transmittable);
+        synchronized (registeredTransmittablesUpdateLock) {
+            final Transmittable<Object, Object>[] transmittables = registeredTransmittables;
+            if (indexOf(transmittables, transmittable) >= 0) return false;
+
+            final Transmittable<Object, Object>[] newTransmittables = Arrays.copyOf(transmittables, transmittables.length + 1);
+            newTransmittables[transmittables.length] = (Transmittable<Object, Object>) transmittable;
+            registeredTransmittables = newTransmittables;
+            return true;
+        }
     }
 
     /**
@@ -187,8 +474,23 @@ public final class CompositeTransmittable implements Transmittable<Capture, Back
      * @return true if the input transmittable is registered
      * @see #registerTransmittable(Transmittable)
      */
-    @SuppressWarnings("unchecked")
     public <C, B> boolean unregisterTransmittable(@NonNull Transmittable<C, B> transmittable) {
-        return registeredTransmittableSet.remove((Transmittable<Object, Object>) transmittable);
+        synchronized (registeredTransmittablesUpdateLock) {
+            final Transmittable<Object, Object>[] transmittables = registeredTransmittables;
+            final int index = indexOf(transmittables, transmittable);
+            if (index < 0) return false;
+
+            final Transmittable<Object, Object>[] newTransmittables = Arrays.copyOf(transmittables, transmittables.length - 1);
+            System.arraycopy(transmittables, index + 1, newTransmittables, index, newTransmittables.length - index);
+            registeredTransmittables = newTransmittables;
+            return true;
+        }
+    }
+
+    private static int indexOf(Transmittable<Object, Object>[] transmittables, Transmittable<?, ?> transmittable) {
+        for (int i = 0; i < transmittables.length; i++) {
+            if (transmittables[i].equals(transmittable)) return i;
+        }
+        return -1;
     }
 }
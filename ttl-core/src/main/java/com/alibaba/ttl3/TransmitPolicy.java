@@ -0,0 +1,48 @@
+package com.alibaba.ttl3;
+
+import com.alibaba.ttl3.transmitter.Transmitter;
+
+/**
+ * The transmission policy of a {@link TransmittableThreadLocal}, declared at construction,
+ * controls how the value is captured({@link Transmitter#capture()}).
+ * <p>
+ * The policy does NOT affect the inheritance to the child thread({@link TransmittableThreadLocal#childValue(Object)}).
+ *
+ * @see TransmittableThreadLocal#TransmittableThreadLocal(TransmitPolicy)
+ * @see TransmittableThreadLocal#withInitial(java.util.function.Supplier, TransmitPolicy)
+ * @see TransmittableThreadLocal#getTransmitPolicy()
+ */
+public enum TransmitPolicy {
+    /**
+     * Capture the value via {@link TransmittableThreadLocal#transmitteeValue(Object)}, the default policy.
+     */
+    TRANSMITTEE_VALUE,
+
+    /**
+     * Capture the reference of the value, {@link TransmittableThreadLocal#transmitteeValue(Object)} is NOT called.
+     * <p>
+     * The value is kept in the snapshot of "persistent context" mode
+     * even if {@link TransmittableThreadLocal#transmitteeValue(Object)} is overridden,
+     * see {@link TransmittableThreadLocal#setPersistentContextEnabled(boolean)}.
+     */
+    REFERENCE,
+
+    /**
+     * Do NOT capture the value while it is the initial value({@link TransmittableThreadLocal#initialValue()})
+     * got by {@link TransmittableThreadLocal#get()} in the thread, the task gets its own initial value;
+     * the value set by {@link TransmittableThreadLocal#set(Object)} is captured
+     * via {@link TransmittableThreadLocal#transmitteeValue(Object)}.
+     * <p>
+     * The initial value is checked by the reference, so the initial value modified in place(e.g. a cache map)
+     * is still the initial value and NOT captured.
+     */
+    SKIP_INITIAL,
+
+    /**
+     * Never capture the value, e.g. the large per-request caches.
+     * <p>
+     * The value is cleared in the thread running the task(same as the value not captured),
+     * and restored after the task.
+     */
+    NEVER
+}
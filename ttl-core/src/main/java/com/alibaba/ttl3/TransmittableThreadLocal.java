@@ -1,20 +1,30 @@
 package com.alibaba.ttl3;
 
+import com.alibaba.crr.composite.Capture;
 import com.alibaba.ttl3.executor.TtlExecutors;
+import com.alibaba.ttl3.internal.util.BackupBuffer;
+import com.alibaba.ttl3.internal.util.VirtualThreads;
+import com.alibaba.ttl3.internal.util.WeakIndexAllocator;
+import com.alibaba.ttl3.transmitter.TransmitMetrics;
+import com.alibaba.ttl3.transmitter.TransmitMetricsRecorder;
+import com.alibaba.ttl3.transmitter.TransmitMetricsRecorder.Operation;
 import com.alibaba.ttl3.transmitter.Transmittee;
 import com.alibaba.ttl3.transmitter.TransmitteeRegistry;
+import com.alibaba.ttl3.transmitter.Transmitter;
 import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import org.jetbrains.annotations.ApiStatus;
 
 import javax.annotation.ParametersAreNonnullByDefault;
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.Map;
-import java.util.WeakHashMap;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.concurrent.Callable;
 import java.util.function.Supplier;
 import java.util.function.UnaryOperator;
 
-import static com.alibaba.ttl3.internal.util.Utils.newHashMap;
-
 /**
  * {@link TransmittableThreadLocal}({@code TTL}) can transmit the value from the thread of submitting task
  * to the thread of executing task even using thread pooling components.
@@ -67,6 +77,7 @@ import static com.alibaba.ttl3.internal.util.Utils.newHashMap;
  */
 public class TransmittableThreadLocal<T> extends InheritableThreadLocal<T> {
     private final boolean disableIgnoreNullValueSemantics;
+    private final TransmitPolicy transmitPolicy;
 
     /**
      * Default constructor. Create a {@link TransmittableThreadLocal} instance with "Ignore-Null-Value Semantics".
@@ -108,7 +119,46 @@ public class TransmittableThreadLocal<T> extends InheritableThreadLocal<T> {
      * @see #TransmittableThreadLocal()
      */
     public TransmittableThreadLocal(boolean disableIgnoreNullValueSemantics) {
+        this(disableIgnoreNullValueSemantics, TransmitPolicy.TRANSMITTEE_VALUE);
+    }
+
+    /**
+     * Constructor, create a {@link TransmittableThreadLocal} instance with "Ignore-Null-Value Semantics"
+     * and the transmission policy.
+     *
+     * @param transmitPolicy the transmission policy, see {@link TransmitPolicy}
+     * @throws NullPointerException if the specified transmission policy is null
+     * @see #TransmittableThreadLocal(boolean, TransmitPolicy)
+     */
+    public TransmittableThreadLocal(@NonNull TransmitPolicy transmitPolicy) {
+        this(false, transmitPolicy);
+    }
+
+    /**
+     * Constructor, create a {@link TransmittableThreadLocal} instance
+     * with parameter {@code disableIgnoreNullValueSemantics} to control "Ignore-Null-Value Semantics",
+     * and the transmission policy.
+     *
+     * @param disableIgnoreNullValueSemantics disable "Ignore-Null-Value Semantics"
+     * @param transmitPolicy                  the transmission policy, see {@link TransmitPolicy}
+     * @throws NullPointerException if the specified transmission policy is null
+     * @see #TransmittableThreadLocal(boolean)
+     */
+    @SuppressWarnings("ConstantConditions")
+    public TransmittableThreadLocal(boolean disableIgnoreNullValueSemantics, @NonNull TransmitPolicy transmitPolicy) {
+        if (transmitPolicy == null) throw new NullPointerException("transmit policy is null");
         this.disableIgnoreNullValueSemantics = disableIgnoreNullValueSemantics;
+        this.transmitPolicy = transmitPolicy;
+    }
+
+    /**
+     * the transmission policy of this {@link TransmittableThreadLocal}.
+     *
+     * @see TransmitPolicy
+     */
+    @NonNull
+    public final TransmitPolicy getTransmitPolicy() {
+        return transmitPolicy;
     }
 
     /**
@@ -127,7 +177,28 @@ public class TransmittableThreadLocal<T> extends InheritableThreadLocal<T> {
     public static <S> TransmittableThreadLocal<S> withInitial(@NonNull Supplier<? extends S> supplier) {
         if (supplier == null) throw new NullPointerException("supplier is null");
 
-        return new SuppliedTransmittableThreadLocal<>(supplier, null, null);
+        return new SuppliedTransmittableThreadLocal<>(supplier, null, null, TransmitPolicy.TRANSMITTEE_VALUE);
+    }
+
+    /**
+     * Creates a transmittable thread local variable with the transmission policy.
+     * The initial value({@link #initialValue()}) of the variable is
+     * determined by invoking the {@link #get()} method on the {@code Supplier}.
+     *
+     * @param <S>            the type of the thread local's value
+     * @param supplier       the supplier to be used to determine the initial value
+     * @param transmitPolicy the transmission policy, see {@link TransmitPolicy}
+     * @return a new transmittable thread local variable
+     * @throws NullPointerException if the specified supplier or transmission policy is null
+     * @see #withInitial(Supplier)
+     */
+    @NonNull
+    @ParametersAreNonnullByDefault
+    @SuppressWarnings("ConstantConditions")
+    public static <S> TransmittableThreadLocal<S> withInitial(Supplier<? extends S> supplier, TransmitPolicy transmitPolicy) {
+        if (supplier == null) throw new NullPointerException("supplier is null");
+
+        return new SuppliedTransmittableThreadLocal<>(supplier, null, null, transmitPolicy);
     }
 
     /**
@@ -151,7 +222,7 @@ public class TransmittableThreadLocal<T> extends InheritableThreadLocal<T> {
         if (supplier == null) throw new NullPointerException("supplier is null");
         if (generatorForChildValueAndTransmitteeValue == null) throw new NullPointerException("value generator is null");
 
-        return new SuppliedTransmittableThreadLocal<>(supplier, generatorForChildValueAndTransmitteeValue, generatorForChildValueAndTransmitteeValue);
+        return new SuppliedTransmittableThreadLocal<>(supplier, generatorForChildValueAndTransmitteeValue, generatorForChildValueAndTransmitteeValue, TransmitPolicy.TRANSMITTEE_VALUE);
     }
 
     /**
@@ -183,7 +254,31 @@ public class TransmittableThreadLocal<T> extends InheritableThreadLocal<T> {
         if (generatorForChildValue == null) throw new NullPointerException("value generator for child value is null");
         if (generatorForTransmitteeValue == null) throw new NullPointerException("value generator for transmittee value is null");
 
-        return new SuppliedTransmittableThreadLocal<>(supplier, generatorForChildValue, generatorForTransmitteeValue);
+        return new SuppliedTransmittableThreadLocal<>(supplier, generatorForChildValue, generatorForTransmitteeValue, TransmitPolicy.TRANSMITTEE_VALUE);
+    }
+
+    /**
+     * Creates a transmittable thread local variable with the transmission policy,
+     * same as {@link #withInitialAndGenerator(Supplier, UnaryOperator, UnaryOperator)}.
+     *
+     * @param <S>                          the type of the thread local's value
+     * @param supplier                     the supplier to be used to determine the initial value
+     * @param generatorForChildValue       the value generator to be used to determine the child value
+     * @param generatorForTransmitteeValue the value generator to be used to determine the transmittee value
+     * @param transmitPolicy               the transmission policy, see {@link TransmitPolicy}
+     * @return a new transmittable thread local variable
+     * @throws NullPointerException if the specified supplier, value generator or transmission policy is null
+     * @see #withInitialAndGenerator(Supplier, UnaryOperator, UnaryOperator)
+     */
+    @NonNull
+    @ParametersAreNonnullByDefault
+    @SuppressWarnings("ConstantConditions")
+    public static <S> TransmittableThreadLocal<S> withInitialAndGenerator(Supplier<? extends S> supplier, UnaryOperator<S> generatorForChildValue, UnaryOperator<S> generatorForTransmitteeValue, TransmitPolicy transmitPolicy) {
+        if (supplier == null) throw new NullPointerException("supplier is null");
+        if (generatorForChildValue == null) throw new NullPointerException("value generator for child value is null");
+        if (generatorForTransmitteeValue == null) throw new NullPointerException("value generator for transmittee value is null");
+
+        return new SuppliedTransmittableThreadLocal<>(supplier, generatorForChildValue, generatorForTransmitteeValue, transmitPolicy);
     }
 
     /**
@@ -195,7 +290,9 @@ public class TransmittableThreadLocal<T> extends InheritableThreadLocal<T> {
         private final UnaryOperator<T> generatorForChildValue;
         private final UnaryOperator<T> generatorForTransmitteeValue;
 
-        SuppliedTransmittableThreadLocal(Supplier<? extends T> supplier, UnaryOperator<T> generatorForChildValue, UnaryOperator<T> generatorForTransmitteeValue) {
+        SuppliedTransmittableThreadLocal(Supplier<? extends T> supplier, UnaryOperator<T> generatorForChildValue, UnaryOperator<T> generatorForTransmitteeValue,
+                                         TransmitPolicy transmitPolicy) {
+            super(false, transmitPolicy);
             if (supplier == null) throw new NullPointerException("supplier is null");
             this.supplier = supplier;
             this.generatorForChildValue = generatorForChildValue;
@@ -218,6 +315,11 @@ public class TransmittableThreadLocal<T> extends InheritableThreadLocal<T> {
             if (generatorForTransmitteeValue != null) return generatorForTransmitteeValue.apply(parentValue);
             else return super.transmitteeValue(parentValue);
         }
+
+        @Override
+        boolean isTransmitteeValueOverridden() {
+            return generatorForTransmitteeValue != null;
+        }
     }
 
     /**
@@ -261,24 +363,69 @@ public class TransmittableThreadLocal<T> extends InheritableThreadLocal<T> {
      * {@inheritDoc}
      */
     @Override
+    @SuppressWarnings("unchecked")
     public final T get() {
+        if (overlayUsed) {
+            final Holder h = holder.get();
+            final Object[] overlay = h.overlay;
+            if (overlay != null) {
+                final int i = indexOfPair(overlay, slot.index());
+                if (i >= 0) return (T) overlay[i + 1];
+
+                // the value not registered in the thread is not hidden by the overlay,
+                // read it without materializing, unless the value is to be registered(e.g. the initial value)
+                if (!h.contains(slot)) {
+                    final T value = super.get();
+                    if (!disableIgnoreNullValueSemantics && value == null) return null;
+
+                    TtlTransmittee.materialize(h);
+                    addInitialToHolder(value, h);
+                    return value;
+                }
+                TtlTransmittee.materialize(h);
+            }
+        }
+        if (transmitPolicy == TransmitPolicy.SKIP_INITIAL) return getRecordingInitial();
+
         T value = super.get();
         if (disableIgnoreNullValueSemantics || value != null) addThisToHolder();
         return value;
     }
 
+    /**
+     * get the value, and record the initial value for the {@link TransmitPolicy#SKIP_INITIAL} policy.
+     */
+    private T getRecordingInitial() {
+        final Holder h = holder.get();
+        // the value not registered in the thread is the initial value, see addInitialToHolder
+        final boolean registered = h.contains(slot);
+        final T value = super.get();
+        if (registered) return value;
+
+        if (disableIgnoreNullValueSemantics || value != null) addInitialToHolder(value, h);
+        return value;
+    }
+
+    /**
+     * register the value got by {@link #get()} but not registered in the thread, the initial value.
+     * <p>
+     * a TTL value is registered when set(including the replay/restore/inherit),
+     * so the value got but not registered is the initial value({@link #initialValue()}).
+     */
+    private void addInitialToHolder(T value, Holder h) {
+        h.add(slot);
+        if (transmitPolicy == TransmitPolicy.SKIP_INITIAL) h.setInitial(slot, value);
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public final void set(T value) {
-        if (!disableIgnoreNullValueSemantics && value == null) {
-            // may set null to remove value
-            remove();
-        } else {
-            super.set(value);
-            addThisToHolder();
-        }
+        final Holder h = holder.get();
+        if (h.overlay != null) TtlTransmittee.materialize(h);
+        if (transmitPolicy == TransmitPolicy.SKIP_INITIAL && !h.isInitial(slot, value)) h.clearInitial(slot);
+        setWithHolder(value, h);
     }
 
     /**
@@ -286,114 +433,879 @@ public class TransmittableThreadLocal<T> extends InheritableThreadLocal<T> {
      */
     @Override
     public final void remove() {
-        removeThisFromHolder();
+        final Holder h = holder.get();
+        if (h.overlay != null) TtlTransmittee.materialize(h);
+        if (transmitPolicy == TransmitPolicy.SKIP_INITIAL) h.clearInitial(slot);
+        h.remove(slot);
         super.remove();
     }
 
+    private static volatile boolean persistentContextEnabled = Boolean.getBoolean("ttl.persistent.context");
+
+    /**
+     * Enable/disable the "persistent context" mode, disabled by default.
+     * The initial value can be set by the system property {@code -Dttl.persistent.context=true}.
+     * <p>
+     * The {@link TransmittableThreadLocal} values of a thread are kept as an immutable snapshot
+     * (an array sorted by the TTL instances), which is dropped by {@link #set(Object)}/{@link #remove()}
+     * and rebuilt by the next capture; so capture returns the snapshot in O(1) when no value is changed
+     * since the last capture, e.g. a thread submits many tasks with an unchanged context.
+     * <p>
+     * In "persistent context" mode, replay also installs the replayed capture as the snapshot of the thread
+     * instead of dropping it, so capture in the task(e.g. submits sub-tasks) is also O(1).
+     * <p>
+     * <B><I>NOTE:</I></B><br>
+     * Only the TTL values with the default {@link #transmitteeValue(Object)}(the reference of value)
+     * are kept as snapshot, since an overridden {@link #transmitteeValue(Object)} is expected to run for each capture.
+     * The snapshot is held weakly by the thread, the captures(e.g. the submitted tasks) keep it reachable;
+     * so the snapshot does not keep the TTL instances and values of the thread reachable.
+     *
+     * @see #isPersistentContextEnabled()
+     */
+    public static void setPersistentContextEnabled(boolean enabled) {
+        persistentContextEnabled = enabled;
+    }
+
+    /**
+     * Whether the "persistent context" mode is enabled.
+     *
+     * @see #setPersistentContextEnabled(boolean)
+     */
+    public static boolean isPersistentContextEnabled() {
+        return persistentContextEnabled;
+    }
+
+    private static volatile boolean virtualThreadModeEnabled = Boolean.getBoolean("ttl.virtual.thread.mode");
+
+    /**
+     * Enable/disable the "virtual thread" mode, disabled by default.
+     * The initial value can be set by the system property {@code -Dttl.virtual.thread.mode=true}.
+     * <p>
+     * A virtual thread({@code Java 21+}) usually runs only one short task, so setting the replayed
+     * {@link TransmittableThreadLocal} values to the {@code ThreadLocalMap} of the thread(N entries per thread)
+     * is a waste. In "virtual thread" mode, the replay in a virtual thread installs the captured
+     * as the overlay of the thread(a single field), and {@link #get()} reads the value from the overlay;
+     * the overlay is materialized to the {@code ThreadLocalMap} only when needed,
+     * e.g. {@link #set(Object)}/{@link #remove()} in the task.
+     * <p>
+     * Use {@link TtlExecutors#newTtlVirtualThreadPerTaskExecutor()} to create the virtual threads
+     * without the inheritable copying, the values are captured explicitly when submitting tasks.
+     *
+     * @see #isVirtualThreadModeEnabled()
+     * @see TtlExecutors#newTtlVirtualThreadPerTaskExecutor()
+     */
+    public static void setVirtualThreadModeEnabled(boolean enabled) {
+        virtualThreadModeEnabled = enabled;
+    }
+
+    /**
+     * Whether the "virtual thread" mode is enabled.
+     *
+     * @see #setVirtualThreadModeEnabled(boolean)
+     */
+    public static boolean isVirtualThreadModeEnabled() {
+        return virtualThreadModeEnabled;
+    }
+
+    private static volatile boolean scopedReplayEnabled = Boolean.getBoolean("ttl.scoped.replay");
+
+    /**
+     * Enable/disable the "scoped replay" mode, disabled by default.
+     * The initial value can be set by the system property {@code -Dttl.scoped.replay=true}.
+     * <p>
+     * The biz logic of {@link Transmitter#runSupplierWithCaptured(Capture, Supplier) runSupplierWithCaptured}
+     * /{@link Transmitter#runCallableWithCaptured(Capture, Callable) runCallableWithCaptured}
+     * is a structured scope. In "scoped replay" mode, the whole captured is bound as the overlay of the thread
+     * (a single field, like a {@code ScopedValue} carrier) for the scope, and {@link #get()} reads the value from the overlay;
+     * so the backup/restore walk of the {@link TransmittableThreadLocal} values is saved,
+     * unless the overlay is materialized by {@link #set(Object)}/{@link #remove()} in the scope.
+     * <p>
+     * The replay of {@link Transmitter#replay(Capture)}(e.g. {@link TtlRunnable}) is not affected.
+     *
+     * @see #isScopedReplayEnabled()
+     * @see Transmittee#replayScoped(Object)
+     */
+    public static void setScopedReplayEnabled(boolean enabled) {
+        scopedReplayEnabled = enabled;
+    }
+
+    /**
+     * Whether the "scoped replay" mode is enabled.
+     *
+     * @see #setScopedReplayEnabled(boolean)
+     */
+    public static boolean isScopedReplayEnabled() {
+        return scopedReplayEnabled;
+    }
+
+    private static volatile boolean lazyReplayEnabled = Boolean.getBoolean("ttl.lazy.replay");
+
+    /**
+     * Enable/disable the "lazy replay" mode, disabled by default.
+     * The initial value can be set by the system property {@code -Dttl.lazy.replay=true}.
+     * <p>
+     * A task usually reads only a few of the transmitted {@link TransmittableThreadLocal} values,
+     * but the replay sets all the captured values to the {@code ThreadLocalMap} of the thread
+     * and backups all the values of the thread, O(N) of the {@link TransmittableThreadLocal} count.
+     * In "lazy replay" mode, the replay in any thread installs the captured as the overlay of the thread
+     * (a single field, same as "virtual thread" mode), {@link #get()} reads the value from the overlay,
+     * and the restore just reinstalls the overlay before replay; so the replay/restore is O(1).
+     * <p>
+     * The overlay is materialized to the {@code ThreadLocalMap}(the O(N) replay) only when needed:
+     * {@link #set(Object)}/{@link #remove()} in the task,
+     * or {@link #get()} of a value not captured but present in the thread(e.g. the initial value of {@link #withInitial(Supplier)}).
+     * {@link Transmitter#clear()} is not lazy, the values of the thread are cleared eagerly,
+     * so the thread created in the clear(e.g. {@link TtlExecutors#getDisableInheritableThreadFactory(java.util.concurrent.ThreadFactory)})
+     * does not inherit the values hidden by the overlay.
+     * <p>
+     * Only the {@link TransmittableThreadLocal} values are replayed lazily,
+     * the registered {@link ThreadLocal}s(see {@link com.alibaba.ttl3.transmitter.ThreadLocalTransmitRegistry}) are replayed as usual.
+     *
+     * @see #isLazyReplayEnabled()
+     * @see #setVirtualThreadModeEnabled(boolean)
+     */
+    public static void setLazyReplayEnabled(boolean enabled) {
+        lazyReplayEnabled = enabled;
+    }
+
+    /**
+     * Whether the "lazy replay" mode is enabled.
+     *
+     * @see #setLazyReplayEnabled(boolean)
+     */
+    public static boolean isLazyReplayEnabled() {
+        return lazyReplayEnabled;
+    }
+
+    /**
+     * Whether any overlay is installed, to skip the overlay check of {@link #get()} if never used.
+     * <p>
+     * NOTE: non-volatile, an overlay is installed and read by the same thread
+     * (or the child thread inherited it, which is ordered by {@link Thread#start()}).
+     */
+    private static boolean overlayUsed = false;
+
+    /**
+     * Whether the captured value is the reference of value,
+     * aka. {@link #transmitteeValue(Object)} is not overridden, or not called by the {@link TransmitPolicy#REFERENCE} policy.
+     */
+    final boolean isTransmitteeValueIdentity() {
+        return transmitPolicy == TransmitPolicy.REFERENCE || !isTransmitteeValueOverridden();
+    }
+
+    boolean isTransmitteeValueOverridden() {
+        return transmitteeValueOverridden.get(getClass());
+    }
+
+    private static final ClassValue<Boolean> transmitteeValueOverridden = new ClassValue<Boolean>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            for (Class<?> c = type; c != TransmittableThreadLocal.class && c != null; c = c.getSuperclass()) {
+                try {
+                    c.getDeclaredMethod("transmitteeValue", Object.class);
+                    return true;
+                } catch (NoSuchMethodException e) {
+                    // not declared in this class, check the super class
+                } catch (SecurityException e) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    };
+
     private void superRemove() {
         super.remove();
     }
 
-    private T getTransmitteeValue() {
-        return transmitteeValue(get());
+    private T superGet() {
+        return super.get();
+    }
+
+    /**
+     * same as {@link #set(Object)}, but use the holder of current thread already got.
+     */
+    private void setWithHolder(T value, Holder h) {
+        if (!disableIgnoreNullValueSemantics && value == null) {
+            // may set null to remove value
+            h.remove(slot);
+            super.remove();
+        } else {
+            super.set(value);
+            h.add(slot);
+            h.modified();
+        }
     }
 
     // Note about the holder:
     // 1. holder self is a InheritableThreadLocal(a *ThreadLocal*).
-    // 2. The type of value in the holder is WeakHashMap<TransmittableThreadLocal<Object>, ?>.
-    //    2.1 but the WeakHashMap is used as a *Set*:
-    //        the value of WeakHashMap is *always* null, and never used.
-    //    2.2 WeakHashMap support *null* value.
-    private static final InheritableThreadLocal<WeakHashMap<TransmittableThreadLocal<Object>, ?>> holder =
-            new InheritableThreadLocal<WeakHashMap<TransmittableThreadLocal<Object>, ?>>() {
+    // 2. The type of value in the holder is Holder, a *Set* of the TTL instances registered in the thread.
+    //    2.1 every TTL instance is allocated a dense index(slotAllocator) at construction,
+    //        the Holder is an array of TTL slot(weak reference to the TTL instance) keyed by the index,
+    //        so registration/check is a single array access without hashing.
+    //    2.2 the index of a garbage collected TTL instance is reclaimed and reused,
+    //        so check the *slot identity* rather than the index.
+    //        the stale slot(the TTL instance is garbage collected) is cleared when iterating.
+    // 3. The Holder also keeps the per-thread reusable buffers for replay/restore,
+    //    and the snapshot of the captured TTL values(held weakly, not keep the TTL instances reachable),
+    //    these are not inherited by child thread.
+    // 4. The overlay(the replayed capture not set to ThreadLocalMap yet, see "virtual thread"/"scoped replay"/"lazy replay" mode)
+    //    hides the TTL values in ThreadLocalMap, and is inherited by child thread.
+    private static final WeakIndexAllocator<TransmittableThreadLocal<?>> slotAllocator = new WeakIndexAllocator<>();
+
+    private final WeakIndexAllocator.Slot<TransmittableThreadLocal<?>> slot = slotAllocator.allocate(this);
+
+    private static final InheritableThreadLocal<Holder> holder =
+            new InheritableThreadLocal<Holder>() {
                 @Override
-                protected WeakHashMap<TransmittableThreadLocal<Object>, ?> initialValue() {
-                    return new WeakHashMap<>();
+                protected Holder initialValue() {
+                    return new Holder(Holder.EMPTY_SLOTS, 0);
                 }
 
                 @Override
-                protected WeakHashMap<TransmittableThreadLocal<Object>, ?> childValue(WeakHashMap<TransmittableThreadLocal<Object>, ?> parentValue) {
-                    return new WeakHashMap<>(parentValue);
+                protected Holder childValue(Holder parentValue) {
+                    final Holder child = new Holder(parentValue.slots.clone(), parentValue.size);
+                    // the child value of the initial value is the initial value of the child thread
+                    if (parentValue.initialSlots.length > 0) {
+                        child.initialSlots = parentValue.initialSlots.clone();
+                        child.initials = parentValue.initials.clone();
+                    }
+                    // the values of parent thread is in the overlay, inherit the overlay
+                    if (parentValue.overlay != null) child.overlay = childOverlay(parentValue.overlay);
+                    return child;
                 }
             };
 
-    @SuppressWarnings("unchecked")
     private void addThisToHolder() {
-        if (!holder.get().containsKey(this)) {
-            holder.get().put((TransmittableThreadLocal<Object>) this, null); // WeakHashMap supports null value.
+        holder.get().add(slot);
+    }
+
+    /**
+     * the count of the free backup buffers of the current thread, used by test.
+     */
+    static int backupPoolFreeCount() {
+        return holder.get().backupPool.freeCount();
+    }
+
+    /**
+     * the index of the TTL in the {@code (ttl, value)} pairs sorted by the slot index, or -1.
+     * the pairs may be terminated by a {@code null} ttl.
+     */
+    private static int indexOfPair(Object[] pairs, int slotIndex) {
+        int low = 0;
+        int high = (pairs.length >> 1) - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final Object key = pairs[mid << 1];
+            final int midIndex = key == null ? Integer.MAX_VALUE : ((TransmittableThreadLocal<?>) key).slot.index();
+            if (midIndex < slotIndex) low = mid + 1;
+            else if (midIndex > slotIndex) high = mid - 1;
+            // the TTL instances in pairs are alive, so the slot index is unique
+            else return mid << 1;
         }
+        return -1;
     }
 
-    private void removeThisFromHolder() {
-        holder.get().remove(this);
+    private static final class Holder {
+        @SuppressWarnings("rawtypes")
+        static final WeakIndexAllocator.Slot[] EMPTY_SLOTS = new WeakIndexAllocator.Slot[0];
+        static final int[] EMPTY_MARKS = new int[0];
+        static final Object[] EMPTY_INITIALS = new Object[0];
+        /**
+         * the marker of the {@code null} initial value.
+         */
+        static final Object NULL_INITIAL = new Object();
+
+        static final WeakReference<Object[]> NO_SNAPSHOT = new WeakReference<>(null);
+        /**
+         * the snapshot of no TTL value, the referent is a constant.
+         */
+        static final WeakReference<Object[]> EMPTY_SNAPSHOT = new WeakReference<>(TtlTransmittee.EMPTY_CAPTURE);
+
+        @SuppressWarnings("rawtypes")
+        WeakIndexAllocator.Slot[] slots;
+        /**
+         * the count of the non-null slots, may include the stale slots.
+         */
+        int size;
+
+        /**
+         * the marks keyed by the slot index, for the set membership check of replay/restore without hashing.
+         *
+         * @see #nextMarkEpoch()
+         */
+        int[] marks = EMPTY_MARKS;
+        int markEpoch = 0;
+
+        final BackupBuffer.Pool backupPool = new BackupBuffer.Pool();
+
+        /**
+         * the initial values of the TTLs with the {@link TransmitPolicy#SKIP_INITIAL} policy, keyed by the slot index;
+         * the slot of the initial value is kept, since the registered slot is cleared and set again by replay/restore.
+         */
+        @SuppressWarnings("rawtypes")
+        WeakIndexAllocator.Slot[] initialSlots = EMPTY_SLOTS;
+        Object[] initials = EMPTY_INITIALS;
+
+        /**
+         * the immutable snapshot(the capture data of {@link TtlTransmittee}) of the TTL values in the thread,
+         * referent {@code null} if not built yet, dropped by the modification, or garbage collected.
+         * <p>
+         * the snapshot is the modification stamp of the thread:
+         * a capture data is reusable iff it is still the snapshot.
+         * <p>
+         * the snapshot references the TTL instances and values, so it is held weakly;
+         * a capture data in use(e.g. referenced by a task) is reachable, and so is still the snapshot.
+         *
+         * @see TtlTransmittee#isCaptureReusable(Object[])
+         * @see #setPersistentContextEnabled(boolean)
+         */
+        WeakReference<Object[]> snapshot = NO_SNAPSHOT;
+
+        /**
+         * the replayed capture data installed as the TTL values of the thread,
+         * {@code null} if no overlay or the overlay is materialized.
+         *
+         * @see #setVirtualThreadModeEnabled(boolean)
+         * @see #setScopedReplayEnabled(boolean)
+         * @see #setLazyReplayEnabled(boolean)
+         */
+        Object[] overlay;
+        /**
+         * the backup of materializing the overlay, the TTL values before materializing.
+         * <p>
+         * {@code null} while the overlay is installed, since the overlay is not materialized yet;
+         * a nested replay keeps it in the returned backup and restore reinstalls it, so it is never overwritten.
+         */
+        BackupBuffer overlayBackup;
+
+        @SuppressWarnings("rawtypes")
+        Holder(WeakIndexAllocator.Slot[] slots, int size) {
+            this.slots = slots;
+            this.size = size;
+        }
+
+        boolean contains(WeakIndexAllocator.Slot<?> slot) {
+            final int index = slot.index();
+            return index < slots.length && slots[index] == slot;
+        }
+
+        void add(WeakIndexAllocator.Slot<?> slot) {
+            final int index = slot.index();
+            if (index >= slots.length) {
+                slots = Arrays.copyOf(slots, Math.max(index + 1, slots.length * 2));
+            } else if (slots[index] == slot) {
+                return;
+            }
+            if (slots[index] == null) size++;
+            slots[index] = slot;
+            modified();
+        }
+
+        void remove(WeakIndexAllocator.Slot<?> slot) {
+            if (contains(slot)) clear(slot.index());
+        }
+
+        void clear(int index) {
+            slots[index] = null;
+            size--;
+            modified();
+        }
+
+        void setInitial(WeakIndexAllocator.Slot<?> slot, Object value) {
+            final int index = slot.index();
+            if (index >= initialSlots.length) {
+                final int length = Math.max(index + 1, initialSlots.length * 2);
+                initialSlots = Arrays.copyOf(initialSlots, length);
+                initials = Arrays.copyOf(initials, length);
+            }
+            initialSlots[index] = slot;
+            initials[index] = value == null ? NULL_INITIAL : value;
+        }
+
+        boolean isInitial(WeakIndexAllocator.Slot<?> slot, Object value) {
+            final int index = slot.index();
+            return index < initialSlots.length && initialSlots[index] == slot
+                    && initials[index] == (value == null ? NULL_INITIAL : value);
+        }
+
+        void clearInitial(WeakIndexAllocator.Slot<?> slot) {
+            final int index = slot.index();
+            if (index < initialSlots.length && initialSlots[index] == slot) {
+                initialSlots[index] = null;
+                initials[index] = null;
+            }
+        }
+
+        /**
+         * the TTL values in the thread is modified, drop the snapshot.
+         */
+        void modified() {
+            snapshot = NO_SNAPSHOT;
+        }
+
+        @Nullable
+        Object[] getSnapshot() {
+            return snapshot.get();
+        }
+
+        void setSnapshot(Object[] captured) {
+            snapshot = new WeakReference<>(captured);
+        }
+
+        /**
+         * return the registered TTL instance at the index, or {@code null}.
+         * clear the stale slot if the TTL instance is garbage collected.
+         */
+        @SuppressWarnings("unchecked")
+        TransmittableThreadLocal<Object> get(int index) {
+            final WeakIndexAllocator.Slot<?> slot = slots[index];
+            if (slot == null) return null;
+
+            final Object ttl = slot.get();
+            if (ttl == null) clear(index);
+            return (TransmittableThreadLocal<Object>) ttl;
+        }
+
+        /**
+         * start a new round of marking, the marks of previous rounds are all invalid.
+         */
+        int nextMarkEpoch() {
+            if (marks.length < slots.length) marks = Arrays.copyOf(marks, slots.length);
+            if (++markEpoch == 0) {
+                // overflow, reset marks
+                Arrays.fill(marks, 0);
+                markEpoch = 1;
+            }
+            return markEpoch;
+        }
+
+        void mark(int index, int epoch) {
+            if (index >= marks.length) marks = Arrays.copyOf(marks, Math.max(index + 1, marks.length * 2));
+            marks[index] = epoch;
+        }
+
+        boolean isMarked(int index, int epoch) {
+            return marks[index] == epoch;
+        }
     }
 
 
-    private static class TtlTransmittee implements Transmittee<HashMap<TransmittableThreadLocal<Object>, Object>, HashMap<TransmittableThreadLocal<Object>, Object>> {
+    /**
+     * The capture data of TTL is a flat array of {@code (ttl, value)} pairs,
+     * terminated by a {@code null} ttl or the end of array.
+     * <p>
+     * The backup data of TTL is a {@link BackupBuffer} reused per thread.
+     */
+    private static class TtlTransmittee implements Transmittee<Object[], BackupBuffer> {
+        private static final Object[] EMPTY_CAPTURE = new Object[0];
+
         @NonNull
         @Override
-        public HashMap<TransmittableThreadLocal<Object>, Object> capture() {
-            final HashMap<TransmittableThreadLocal<Object>, Object> ttl2Value = newHashMap(holder.get().size());
-            for (TransmittableThreadLocal<Object> threadLocal : holder.get().keySet()) {
-                ttl2Value.put(threadLocal, threadLocal.getTransmitteeValue());
+        public Object[] capture() {
+            final Holder h = holder.get();
+            final Object[] snapshot = h.getSnapshot();
+            if (snapshot != null) return snapshot;
+            if (h.overlay != null) return captureOverlay(h);
+            if (h.size == 0) {
+                h.snapshot = Holder.EMPTY_SNAPSHOT;
+                return EMPTY_CAPTURE;
             }
+
+            final TransmitMetricsRecorder recorder = TransmitMetrics.getRecorder();
+            Object[] ttl2Value = new Object[h.size << 1];
+            boolean identity = true;
+            int n = 0;
+            for (int i = 0; i < h.slots.length; i++) {
+                final TransmittableThreadLocal<Object> threadLocal = h.get(i);
+                if (threadLocal == null) continue;
+
+                final TransmitPolicy policy = threadLocal.transmitPolicy;
+                if (policy == TransmitPolicy.NEVER) continue;
+                final Object value = threadLocal.superGet();
+                if (policy == TransmitPolicy.SKIP_INITIAL && h.isInitial(threadLocal.slot, value)) continue;
+
+                ttl2Value[n++] = threadLocal;
+                ttl2Value[n++] = policy == TransmitPolicy.REFERENCE ? value : transmitteeValue(threadLocal, value, recorder);
+                identity &= threadLocal.isTransmitteeValueIdentity();
+            }
+            // the TTL values not captured by the policy, trim the capture to cut the retained memory
+            if (n == 0) ttl2Value = EMPTY_CAPTURE;
+            else if (n < ttl2Value.length) ttl2Value = Arrays.copyOf(ttl2Value, n);
+
+            if (identity) h.setSnapshot(ttl2Value);
             return ttl2Value;
         }
 
+        /**
+         * the TTL values of the thread is the overlay, capture from the overlay.
+         */
+        @SuppressWarnings("unchecked")
+        private static Object[] captureOverlay(Holder h) {
+            final Object[] overlay = h.overlay;
+            boolean identity = true;
+            for (int i = 0; i < overlay.length && overlay[i] != null; i += 2) {
+                identity &= ((TransmittableThreadLocal<Object>) overlay[i]).isTransmitteeValueIdentity();
+            }
+            if (identity) {
+                h.setSnapshot(overlay);
+                return overlay;
+            }
+
+            final TransmitMetricsRecorder recorder = TransmitMetrics.getRecorder();
+            final Object[] ttl2Value = new Object[overlay.length];
+            for (int i = 0; i < overlay.length && overlay[i] != null; i += 2) {
+                final TransmittableThreadLocal<Object> threadLocal = (TransmittableThreadLocal<Object>) overlay[i];
+                ttl2Value[i] = threadLocal;
+                ttl2Value[i + 1] = transmitteeValue(threadLocal, overlay[i + 1], recorder);
+            }
+            return ttl2Value;
+        }
+
+        /**
+         * call {@link #transmitteeValue(Object)}, and record the cost if the instrumentation is enabled.
+         */
+        private static Object transmitteeValue(TransmittableThreadLocal<Object> threadLocal, Object value,
+                                               @Nullable TransmitMetricsRecorder recorder) {
+            if (recorder == null) return threadLocal.transmitteeValue(value);
+
+            final long start = System.nanoTime();
+            final Object ret = threadLocal.transmitteeValue(value);
+            TransmitMetrics.record(recorder, threadLocal, Operation.TRANSMITTEE_VALUE, start);
+            return ret;
+        }
+
+        @Override
+        public boolean isCaptureReusable(@NonNull Object[] captured) {
+            return captured == holder.get().getSnapshot();
+        }
+
+        @NonNull
+        @Override
+        public BackupBuffer replay(@NonNull Object[] captured) {
+            final Holder h = holder.get();
+            if (lazyReplayEnabled || isVirtualThreadMode()) return replayOverlay(captured, h);
+
+            if (h.overlay != null) materialize(h);
+            return replayValues(captured, h);
+        }
+
+        private static boolean isVirtualThreadMode() {
+            return virtualThreadModeEnabled && VirtualThreads.isVirtual(Thread.currentThread());
+        }
+
+        @NonNull
+        @Override
+        public BackupBuffer replayScoped(@NonNull Object[] captured) {
+            if (scopedReplayEnabled) return replayOverlay(captured, holder.get());
+            return replay(captured);
+        }
+
+        /**
+         * the thread holds the captured values(the snapshot), backup the values without replaying.
+         */
         @NonNull
         @Override
-        public HashMap<TransmittableThreadLocal<Object>, Object> replay(@NonNull HashMap<TransmittableThreadLocal<Object>, Object> captured) {
-            final HashMap<TransmittableThreadLocal<Object>, Object> backup = newHashMap(holder.get().size());
+        public BackupBuffer replayReused(@NonNull Object[] captured) {
+            final Holder h = holder.get();
+            if (h.overlay == null) return backupValues(h);
 
-            for (final Iterator<TransmittableThreadLocal<Object>> iterator = holder.get().keySet().iterator(); iterator.hasNext(); ) {
-                TransmittableThreadLocal<Object> threadLocal = iterator.next();
+            // the overlay is the captured, keep it installed;
+            // hand over the backup of materializing the overlay, same as replayOverlay
+            final BackupBuffer backup = h.backupPool.borrow();
+            backup.setState(h.snapshot);
+            backup.setOverlay(h.overlay, h.overlayBackup);
+            h.overlayBackup = null;
+            return backup;
+        }
+
+        /**
+         * backup the TTL values in the thread, the values are not changed.
+         */
+        private static BackupBuffer backupValues(Holder h) {
+            final BackupBuffer backup = h.backupPool.borrow();
+            backup.setState(h.snapshot);
+            for (int i = 0; i < h.slots.length; i++) {
+                final TransmittableThreadLocal<Object> threadLocal = h.get(i);
+                if (threadLocal == null) continue;
+
+                backup.add(threadLocal, threadLocal.superGet());
+            }
+            return backup;
+        }
+
+        /**
+         * install the captured as the overlay, the values are not set to ThreadLocalMap.
+         */
+        private static BackupBuffer replayOverlay(Object[] captured, Holder h) {
+            final BackupBuffer backup = h.backupPool.borrow();
+            backup.setState(h.snapshot);
+            backup.setOverlay(h.overlay, h.overlayBackup);
+
+            overlayUsed = true;
+            h.overlay = captured;
+            h.overlayBackup = null;
+            h.snapshot = Holder.NO_SNAPSHOT;
+            return backup;
+        }
+
+        /**
+         * set the overlay values to ThreadLocalMap, and drop the overlay.
+         * the backup of the values before materializing is restored by the restore of overlay replay.
+         */
+        static void materialize(Holder h) {
+            final Object[] overlay = h.overlay;
+            final WeakReference<Object[]> snapshot = h.snapshot;
+
+            h.overlay = null;
+            h.overlayBackup = replayValues(overlay, h);
+            // the TTL values in the thread is the same as the overlay, the snapshot is still valid
+            h.snapshot = snapshot;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static BackupBuffer replayValues(Object[] captured, Holder h) {
+            final int epoch = h.nextMarkEpoch();
+            for (int i = 0; i < captured.length && captured[i] != null; i += 2) {
+                h.mark(((TransmittableThreadLocal<Object>) captured[i]).slot.index(), epoch);
+            }
+
+            final BackupBuffer backup = h.backupPool.borrow();
+            backup.setState(h.snapshot);
+            for (int i = 0; i < h.slots.length; i++) {
+                final TransmittableThreadLocal<Object> threadLocal = h.get(i);
+                if (threadLocal == null) continue;
 
                 // backup
-                backup.put(threadLocal, threadLocal.get());
+                backup.add(threadLocal, threadLocal.superGet());
 
                 // clear the TTL values that is not in captured
                 // avoid the extra TTL values after replay when run task
-                if (!captured.containsKey(threadLocal)) {
-                    iterator.remove();
+                if (!h.isMarked(i, epoch)) {
+                    h.clear(i);
                     threadLocal.superRemove();
                 }
             }
 
             // set TTL values to captured
-            setTtlValuesTo(captured);
+            final boolean persistent = persistentContextEnabled;
+            boolean identity = true;
+            for (int i = 0; i < captured.length && captured[i] != null; i += 2) {
+                final TransmittableThreadLocal<Object> threadLocal = (TransmittableThreadLocal<Object>) captured[i];
+                threadLocal.setWithHolder(captured[i + 1], h);
+                if (persistent) identity &= threadLocal.isTransmitteeValueIdentity();
+            }
+            // the TTL values in the thread is the same as captured now, install captured as the snapshot
+            if (persistent && identity) h.setSnapshot(captured);
 
             return backup;
         }
 
         @NonNull
         @Override
-        public HashMap<TransmittableThreadLocal<Object>, Object> clear() {
-            return replay(newHashMap(0));
+        public BackupBuffer clear() {
+            final Holder h = holder.get();
+            if (isVirtualThreadMode()) return replayOverlay(EMPTY_CAPTURE, h);
+
+            // clear eagerly even in "lazy replay" mode, the values hidden by the overlay are inherited by the child thread
+            if (h.overlay != null) materialize(h);
+            return replayValues(EMPTY_CAPTURE, h);
         }
 
         @Override
-        public void restore(@NonNull HashMap<TransmittableThreadLocal<Object>, Object> backup) {
-            for (final Iterator<TransmittableThreadLocal<Object>> iterator = holder.get().keySet().iterator(); iterator.hasNext(); ) {
-                TransmittableThreadLocal<Object> threadLocal = iterator.next();
+        public void restore(@NonNull BackupBuffer backup) {
+            final Holder h = holder.get();
+            if (backup.isOverlay()) {
+                restoreOverlay(backup, h);
+                return;
+            }
+
+            if (h.overlay != null) materialize(h);
+            // the snapshot before replay is still the snapshot, the TTL values are the same as before replay
+            if (backup.getState() == h.snapshot && h.getSnapshot() != null) {
+                h.backupPool.release(backup);
+                return;
+            }
+            restoreValues(backup, h);
+        }
+
+        @SuppressWarnings("unchecked")
+        private static void restoreOverlay(BackupBuffer backup, Holder h) {
+            // the overlay is materialized, restore the TTL values before materializing
+            if (h.overlay == null) restoreValues(h.overlayBackup, h);
+
+            h.overlay = (Object[]) backup.getOverlayBefore();
+            h.overlayBackup = backup.getOverlayBackupBefore();
+            h.snapshot = (WeakReference<Object[]>) backup.getState();
+            h.backupPool.release(backup);
+        }
+
+        @SuppressWarnings("unchecked")
+        private static void restoreValues(BackupBuffer backup, Holder h) {
+            final int epoch = h.nextMarkEpoch();
+            for (int i = 0; i < backup.size(); i++) {
+                h.mark(((TransmittableThreadLocal<Object>) backup.key(i)).slot.index(), epoch);
+            }
+
+            for (int i = 0; i < h.slots.length; i++) {
+                final TransmittableThreadLocal<Object> threadLocal = h.get(i);
+                if (threadLocal == null) continue;
 
                 // clear the TTL values that is not in backup
                 // avoid the extra TTL values after restore
-                if (!backup.containsKey(threadLocal)) {
-                    iterator.remove();
+                if (!h.isMarked(i, epoch)) {
+                    h.clear(i);
                     threadLocal.superRemove();
                 }
             }
 
             // restore TTL values
-            setTtlValuesTo(backup);
+            for (int i = 0; i < backup.size(); i++) {
+                ((TransmittableThreadLocal<Object>) backup.key(i)).setWithHolder(backup.value(i), h);
+            }
+            // the TTL values in the thread is the same as before replay, restore the snapshot before replay
+            h.snapshot = (WeakReference<Object[]>) backup.getState();
+
+            h.backupPool.release(backup);
         }
+    }
+
+    /**
+     * The {@link Transmittee} of the given TTL instances only, used by {@link com.alibaba.ttl3.transmitter.TransmitProfile}.
+     * <p>
+     * The TTL instances are compiled to their slot indexes, the capture/replay/restore check
+     * the TTL values in the thread by the slot index without hashing,
+     * and do NOT touch the TTL values not in the given TTL instances.
+     *
+     * @param ttls the TTL instances, referenced by the returned transmittee
+     */
+    @NonNull
+    @ApiStatus.Internal
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static Transmittee<?, ?> newSubsetTransmittee(@NonNull Collection<? extends TransmittableThreadLocal<?>> ttls) {
+        final TransmittableThreadLocal<Object>[] sorted = new LinkedHashSet<>(ttls).toArray(new TransmittableThreadLocal[0]);
+        Arrays.sort(sorted, Comparator.comparingInt(ttl -> ttl.slot.index()));
+        return new SubsetTtlTransmittee(sorted);
+    }
+
+    /**
+     * The transmittee of a subset of TTL instances, the capture data is the {@code (ttl, value)} pairs
+     * sorted by the slot index, same as {@link TtlTransmittee}.
+     * <p>
+     * The replay is always eager(the values are set to ThreadLocalMap),
+     * since the overlay hides all TTL values not captured.
+     * The snapshot of the thread is dropped by replay/restore, since the TTL values not in the subset
+     * may be modified in the replayed scope.
+     */
+    private static final class SubsetTtlTransmittee implements Transmittee<Object[], BackupBuffer> {
+        private static final Object[] EMPTY_CAPTURE = new Object[0];
 
-        private static void setTtlValuesTo(@NonNull HashMap<TransmittableThreadLocal<Object>, Object> ttlValues) {
-            for (Map.Entry<TransmittableThreadLocal<Object>, Object> entry : ttlValues.entrySet()) {
-                TransmittableThreadLocal<Object> threadLocal = entry.getKey();
-                threadLocal.set(entry.getValue());
+        /**
+         * sorted by the slot index; the TTL instances are alive, so the slot indexes are fixed.
+         */
+        private final TransmittableThreadLocal<Object>[] ttls;
+
+        SubsetTtlTransmittee(TransmittableThreadLocal<Object>[] ttls) {
+            this.ttls = ttls;
+        }
+
+        @NonNull
+        @Override
+        public Object[] capture() {
+            final Holder h = holder.get();
+            final Object[] overlay = h.overlay;
+            final TransmitMetricsRecorder recorder = TransmitMetrics.getRecorder();
+            final Object[] ttl2Value = new Object[ttls.length << 1];
+            int n = 0;
+            for (TransmittableThreadLocal<Object> threadLocal : ttls) {
+                final TransmitPolicy policy = threadLocal.transmitPolicy;
+                if (policy == TransmitPolicy.NEVER) continue;
+
+                final Object value;
+                if (overlay != null) {
+                    final int i = indexOfPair(overlay, threadLocal.slot.index());
+                    if (i < 0) continue;
+                    value = overlay[i + 1];
+                } else {
+                    if (!h.contains(threadLocal.slot)) continue;
+                    value = threadLocal.superGet();
+                }
+                if (policy == TransmitPolicy.SKIP_INITIAL && h.isInitial(threadLocal.slot, value)) continue;
+
+                ttl2Value[n++] = threadLocal;
+                ttl2Value[n++] = policy == TransmitPolicy.REFERENCE ? value : TtlTransmittee.transmitteeValue(threadLocal, value, recorder);
+            }
+
+            if (n == 0) return EMPTY_CAPTURE;
+            return n < ttl2Value.length ? Arrays.copyOf(ttl2Value, n) : ttl2Value;
+        }
+
+        @Override
+        public boolean isCaptureReusable(@NonNull Object[] captured) {
+            return false;
+        }
+
+        @NonNull
+        @Override
+        @SuppressWarnings("unchecked")
+        public BackupBuffer replay(@NonNull Object[] captured) {
+            final Holder h = holder.get();
+            if (h.overlay != null) TtlTransmittee.materialize(h);
+
+            final BackupBuffer backup = h.backupPool.borrow();
+            for (TransmittableThreadLocal<Object> threadLocal : ttls) {
+                if (!h.contains(threadLocal.slot)) continue;
+
+                backup.add(threadLocal, threadLocal.superGet());
+                // clear the TTL values of the subset that is not in captured
+                h.remove(threadLocal.slot);
+                threadLocal.superRemove();
+            }
+
+            for (int i = 0; i < captured.length && captured[i] != null; i += 2) {
+                ((TransmittableThreadLocal<Object>) captured[i]).setWithHolder(captured[i + 1], h);
+            }
+            return backup;
+        }
+
+        @NonNull
+        @Override
+        public BackupBuffer clear() {
+            return replay(EMPTY_CAPTURE);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void restore(@NonNull BackupBuffer backup) {
+            final Holder h = holder.get();
+            if (h.overlay != null) TtlTransmittee.materialize(h);
+
+            for (TransmittableThreadLocal<Object> threadLocal : ttls) {
+                if (!h.contains(threadLocal.slot)) continue;
+
+                h.remove(threadLocal.slot);
+                threadLocal.superRemove();
             }
+
+            for (int i = 0; i < backup.size(); i++) {
+                ((TransmittableThreadLocal<Object>) backup.key(i)).setWithHolder(backup.value(i), h);
+            }
+            h.backupPool.release(backup);
+        }
+    }
+
+    /**
+     * the overlay of the child thread, the child values of the parent overlay.
+     */
+    @SuppressWarnings("unchecked")
+    private static Object[] childOverlay(Object[] parentOverlay) {
+        final Object[] overlay = new Object[parentOverlay.length];
+        for (int i = 0; i < parentOverlay.length && parentOverlay[i] != null; i += 2) {
+            final TransmittableThreadLocal<Object> threadLocal = (TransmittableThreadLocal<Object>) parentOverlay[i];
+            overlay[i] = threadLocal;
+            overlay[i + 1] = threadLocal.childValue(parentOverlay[i + 1]);
         }
+        return overlay;
     }
 
     private static final TtlTransmittee ttlTransmittee = new TtlTransmittee();
@@ -16,7 +16,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.Callable;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 import static com.alibaba.ttl3.transmitter.Transmitter.*;
 
@@ -40,12 +40,36 @@ import static com.alibaba.ttl3.transmitter.Transmitter.*;
  * @see java.util.concurrent.ExecutorCompletionService
  */
 public final class TtlCallable<V> implements Callable<V>, TtlWrapper<Callable<V>>, TtlEnhanced, TtlAttachments {
-    private final AtomicReference<Capture> capturedRef;
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<TtlCallable, Capture> CAPTURED_UPDATER =
+            AtomicReferenceFieldUpdater.newUpdater(TtlCallable.class, Capture.class, "releasableCaptured");
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<TtlCallable, TtlAttachmentsDelegate> ATTACHMENTS_UPDATER =
+            AtomicReferenceFieldUpdater.newUpdater(TtlCallable.class, TtlAttachmentsDelegate.class, "ttlAttachment");
+
+    /**
+     * the captured, {@code null} if {@link #releaseTtlValueReferenceAfterCall} is {@code true}.
+     */
+    private final Capture captured;
+    /**
+     * the captured released after call by {@link #CAPTURED_UPDATER},
+     * {@code null} if {@link #releaseTtlValueReferenceAfterCall} is {@code false}.
+     */
+    private volatile Capture releasableCaptured;
     private final Callable<V> callable;
     private final boolean releaseTtlValueReferenceAfterCall;
+    /**
+     * the attachment {@link TtlAttachments#KEY_IS_AUTO_WRAPPER}, kept in a field instead of the attachments.
+     */
+    private volatile Object autoWrapper;
+    /**
+     * created lazily, most tasks have no attachments.
+     */
+    private volatile TtlAttachmentsDelegate ttlAttachment;
 
-    private TtlCallable(@NonNull Callable<V> callable, boolean releaseTtlValueReferenceAfterCall) {
-        this.capturedRef = new AtomicReference<>(capture());
+    private TtlCallable(@NonNull Callable<V> callable, @NonNull Capture captured, boolean releaseTtlValueReferenceAfterCall) {
+        this.captured = releaseTtlValueReferenceAfterCall ? null : captured;
+        this.releasableCaptured = releaseTtlValueReferenceAfterCall ? captured : null;
         this.callable = callable;
         this.releaseTtlValueReferenceAfterCall = releaseTtlValueReferenceAfterCall;
     }
@@ -56,10 +80,8 @@ public final class TtlCallable<V> implements Callable<V>, TtlWrapper<Callable<V>
     @Override
     @SuppressFBWarnings("THROWS_METHOD_THROWS_CLAUSE_BASIC_EXCEPTION")
     public V call() throws Exception {
-        final Capture captured = capturedRef.get();
-        if (captured == null || releaseTtlValueReferenceAfterCall && !capturedRef.compareAndSet(captured, null)) {
-            throw new IllegalStateException("TTL value reference is released after call!");
-        }
+        final Capture captured = releaseTtlValueReferenceAfterCall ? CAPTURED_UPDATER.getAndSet(this, null) : this.captured;
+        if (captured == null) throw new IllegalStateException("TTL value reference is released after call!");
 
         final Backup backup = replay(captured);
         try {
@@ -136,6 +158,27 @@ public final class TtlCallable<V> implements Callable<V>, TtlWrapper<Callable<V>
     @Nullable
     @Contract(value = "null, _, _ -> null; !null, _, _ -> !null", pure = true)
     public static <T> TtlCallable<T> get(@Nullable Callable<T> callable, boolean releaseTtlValueReferenceAfterCall, boolean idempotent) {
+        return get(callable, null, releaseTtlValueReferenceAfterCall, idempotent);
+    }
+
+    /**
+     * Factory method, wrap input {@link Callable} to {@link TtlCallable} with the captured,
+     * e.g. the capture of a {@link com.alibaba.ttl3.transmitter.TransmitProfile TransmitProfile}.
+     *
+     * @param callable                          input {@link Callable}. if input is {@code null}, return {@code null}.
+     * @param captured                          the captured from {@link com.alibaba.ttl3.transmitter.Transmitter#capture()}, capture now if {@code null}
+     * @param releaseTtlValueReferenceAfterCall release TTL value reference after run, avoid memory leak even if {@link TtlCallable} is referred.
+     * @param idempotent                        is idempotent mode or not. if {@code true}, just return input {@link Callable} when it's {@link TtlCallable},
+     *                                          otherwise throw {@link IllegalStateException}.
+     *                                          <B><I>Caution</I></B>: {@code true} will cover up bugs! <b>DO NOT</b> set, only when you know why.
+     * @return Wrapped {@link Callable}
+     * @throws IllegalStateException when input is {@link TtlCallable} already and not idempotent.
+     * @see com.alibaba.ttl3.transmitter.Transmitter#capture(com.alibaba.ttl3.transmitter.TransmitProfile)
+     */
+    @Nullable
+    @Contract(value = "null, _, _, _ -> null; !null, _, _, _ -> !null", pure = true)
+    public static <T> TtlCallable<T> get(@Nullable Callable<T> callable, @Nullable Capture captured,
+                                         boolean releaseTtlValueReferenceAfterCall, boolean idempotent) {
         if (callable == null) return null;
 
         if (callable instanceof TtlEnhanced) {
@@ -143,7 +186,7 @@ public final class TtlCallable<V> implements Callable<V>, TtlWrapper<Callable<V>
             if (idempotent) return (TtlCallable<T>) callable;
             else throw new IllegalStateException("Already TtlCallable!");
         }
-        return new TtlCallable<>(callable, releaseTtlValueReferenceAfterCall);
+        return new TtlCallable<>(callable, captured == null ? capture() : captured, releaseTtlValueReferenceAfterCall);
     }
 
     /**
@@ -188,6 +231,37 @@ public final class TtlCallable<V> implements Callable<V>, TtlWrapper<Callable<V>
         return copy;
     }
 
+    /**
+     * wrap input {@link Callable} Collection to {@link TtlCallable} Collection, the wrapped tasks share the captured.
+     * <p>
+     * Capture once for a batch of tasks(e.g. the tasks of {@link java.util.concurrent.ExecutorService#invokeAll(Collection)}),
+     * instead of capture for each task:
+     *
+     * <pre>{@code
+     * List<TtlCallable<T>> ttlTasks = TtlCallable.gets(tasks, Transmitter.capture(), false, false);}</pre>
+     * <p>
+     * <B><I>NOTE:</I></B><br>
+     * the captured values(e.g. the copied value of {@link TransmittableThreadLocal#transmitteeValue(Object)})
+     * are shared by the tasks, not copied for each task.
+     *
+     * @param tasks                             task to be wrapped
+     * @param captured                          the captured shared by the wrapped tasks, from {@link com.alibaba.ttl3.transmitter.Transmitter#capture()}
+     * @param releaseTtlValueReferenceAfterCall release TTL value reference after run, avoid memory leak even if {@link TtlRunnable} is referred.
+     * @param idempotent                        is idempotent or not. {@code true} will cover up bugs! <b>DO NOT</b> set, only when you know why.
+     * @return Wrapped {@link Callable}
+     */
+    @NonNull
+    public static <T> List<TtlCallable<T>> gets(@Nullable Collection<? extends Callable<T>> tasks, @NonNull Capture captured,
+                                                boolean releaseTtlValueReferenceAfterCall, boolean idempotent) {
+        if (tasks == null) return Collections.emptyList();
+
+        List<TtlCallable<T>> copy = new ArrayList<>(tasks.size());
+        for (Callable<T> task : tasks) {
+            copy.add(TtlCallable.get(task, captured, releaseTtlValueReferenceAfterCall, idempotent));
+        }
+        return copy;
+    }
+
     /**
      * Unwrap {@link TtlCallable} to the original/underneath one.
      * <p>
@@ -228,21 +302,35 @@ public final class TtlCallable<V> implements Callable<V>, TtlWrapper<Callable<V>
         return copy;
     }
 
-    private final TtlAttachmentsDelegate ttlAttachment = new TtlAttachmentsDelegate();
-
     /**
      * see {@link TtlAttachments#setTtlAttachment(String, Object)}
      */
     @Override
     public void setTtlAttachment(@NonNull String key, Object value) {
-        ttlAttachment.setTtlAttachment(key, value);
+        if (KEY_IS_AUTO_WRAPPER.equals(key)) {
+            // same as the attachments, the null value is not allowed
+            if (value == null) throw new NullPointerException();
+            autoWrapper = value;
+            return;
+        }
+
+        TtlAttachmentsDelegate attachments = ttlAttachment;
+        if (attachments == null) {
+            ATTACHMENTS_UPDATER.compareAndSet(this, null, new TtlAttachmentsDelegate());
+            attachments = ttlAttachment;
+        }
+        attachments.setTtlAttachment(key, value);
     }
 
     /**
      * see {@link TtlAttachments#getTtlAttachment(String)}
      */
     @Override
+    @SuppressWarnings("unchecked")
     public <T> T getTtlAttachment(@NonNull String key) {
-        return ttlAttachment.getTtlAttachment(key);
+        if (KEY_IS_AUTO_WRAPPER.equals(key)) return (T) autoWrapper;
+
+        final TtlAttachmentsDelegate attachments = ttlAttachment;
+        return attachments == null ? null : attachments.getTtlAttachment(key);
     }
 }
@@ -0,0 +1,605 @@
+package com.alibaba.ttl3;
+
+import com.alibaba.crr.composite.Backup;
+import com.alibaba.crr.composite.Capture;
+import com.alibaba.ttl3.spi.TtlEnhanced;
+import com.alibaba.ttl3.spi.TtlWrapper;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+
+import java.util.concurrent.*;
+import java.util.function.*;
+
+import static com.alibaba.ttl3.transmitter.Transmitter.*;
+
+/**
+ * {@link TtlCompletableFuture} is a {@link CompletionStage} transmitting the {@link TransmittableThreadLocal} values
+ * to all stages of the chain, without wrapping the stage functions by {@link TtlWrappers} manually.
+ * <p>
+ * The values are captured <b>once</b> when the chain is created
+ * (by the factory methods {@link #supplyAsync(Supplier)}/{@link #runAsync(Runnable)}/{@link #of(CompletionStage)},
+ * or the constructor), all the dependent stages share the capture:
+ * <ul>
+ * <li>the async stages are executed by the executor with the captured values replayed,
+ *     the stages completed in the same execution run in the replayed context without replaying again.</li>
+ * <li>the other stages replay the captured values when run, skip the replay if the thread already holds
+ *     the captured values of the chain (e.g. completed by an async stage of the same chain).</li>
+ * </ul>
+ * <p>
+ * <B><I>NOTE:</I></B><br>
+ * The stages completed in the execution of an async stage share the replayed values,
+ * the values are NOT replayed/restored for each stage: the modification of {@link TransmittableThreadLocal}
+ * by a stage is visible to the following stages completed in the same execution, same as the sequential code.
+ * The modification is restored when the execution ends, so it is not visible to the executor thread afterwards,
+ * nor to the stages run out of the execution(e.g. a stage added after the chain completed replays the captured values).
+ * Wrap the stage function by {@link TtlWrappers} if the stage needs its own replay/restore.
+ * <p>
+ * The returned stages of all the {@link CompletionStage} methods are {@link TtlCompletableFuture}s of the same capture.
+ * The {@link CompletableFuture} of {@link #toCompletableFuture()}/{@link #unwrap()} is the underneath future,
+ * the stages created by the underneath future directly do <b>NOT</b> transmit the values.
+ *
+ * @see TtlWrappers
+ * @see CompletableFuture
+ */
+public final class TtlCompletableFuture<T> implements CompletionStage<T>, Future<T>,
+        TtlWrapper<CompletableFuture<T>>, TtlEnhanced {
+    /**
+     * same as the default async executor of {@link CompletableFuture}.
+     */
+    private static final Executor ASYNC_POOL = ForkJoinPool.getCommonPoolParallelism() > 1
+            ? ForkJoinPool.commonPool() : new ThreadPerTaskExecutor();
+
+    /**
+     * the capture held by the current thread, set when the stage of a chain runs with the captured values replayed.
+     */
+    private static final ThreadLocal<Held> held = ThreadLocal.withInitial(Held::new);
+
+    private final CompletableFuture<T> future;
+    private final Chain chain;
+
+    /**
+     * create an incomplete {@link TtlCompletableFuture}, capture the values now.
+     *
+     * @see CompletableFuture#CompletableFuture()
+     */
+    public TtlCompletableFuture() {
+        this(new CompletableFuture<>(), new Chain(capture()));
+    }
+
+    private TtlCompletableFuture(@NonNull CompletableFuture<T> future, @NonNull Chain chain) {
+        this.future = future;
+        this.chain = chain;
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // factory methods
+    ///////////////////////////////////////////////////////////////////////////
+
+    /**
+     * @see CompletableFuture#supplyAsync(Supplier)
+     */
+    @NonNull
+    public static <U> TtlCompletableFuture<U> supplyAsync(@NonNull Supplier<U> supplier) {
+        return supplyAsync(supplier, ASYNC_POOL);
+    }
+
+    /**
+     * @see CompletableFuture#supplyAsync(Supplier, Executor)
+     */
+    @NonNull
+    public static <U> TtlCompletableFuture<U> supplyAsync(@NonNull Supplier<U> supplier, @NonNull Executor executor) {
+        final Chain chain = new Chain(capture());
+        return new TtlCompletableFuture<>(CompletableFuture.supplyAsync(supplier, chain.executor(executor)), chain);
+    }
+
+    /**
+     * @see CompletableFuture#runAsync(Runnable)
+     */
+    @NonNull
+    public static TtlCompletableFuture<Void> runAsync(@NonNull Runnable runnable) {
+        return runAsync(runnable, ASYNC_POOL);
+    }
+
+    /**
+     * @see CompletableFuture#runAsync(Runnable, Executor)
+     */
+    @NonNull
+    public static TtlCompletableFuture<Void> runAsync(@NonNull Runnable runnable, @NonNull Executor executor) {
+        final Chain chain = new Chain(capture());
+        return new TtlCompletableFuture<>(CompletableFuture.runAsync(runnable, chain.executor(executor)), chain);
+    }
+
+    /**
+     * @see CompletableFuture#completedFuture(Object)
+     */
+    @NonNull
+    public static <U> TtlCompletableFuture<U> completedFuture(@Nullable U value) {
+        return new TtlCompletableFuture<>(CompletableFuture.completedFuture(value), new Chain(capture()));
+    }
+
+    /**
+     * wrap the {@link CompletionStage} to {@link TtlCompletableFuture}, capture the values now.
+     * <p>
+     * skip wrapping (return the input stage) if the input stage is already a {@link TtlCompletableFuture}.
+     */
+    @NonNull
+    @SuppressWarnings("unchecked")
+    public static <U> TtlCompletableFuture<U> of(@NonNull CompletionStage<U> stage) {
+        if (stage instanceof TtlCompletableFuture) return (TtlCompletableFuture<U>) stage;
+        return new TtlCompletableFuture<>(stage.toCompletableFuture(), new Chain(capture()));
+    }
+
+    private <U> TtlCompletableFuture<U> next(CompletableFuture<U> future) {
+        return new TtlCompletableFuture<>(future, chain);
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // CompletionStage methods
+    ///////////////////////////////////////////////////////////////////////////
+
+    @Override
+    public <U> TtlCompletableFuture<U> thenApply(Function<? super T, ? extends U> fn) {
+        return next(future.thenApply(new StageFunction<>(fn, chain.captured)));
+    }
+
+    @Override
+    public <U> TtlCompletableFuture<U> thenApplyAsync(Function<? super T, ? extends U> fn) {
+        return thenApplyAsync(fn, ASYNC_POOL);
+    }
+
+    @Override
+    public <U> TtlCompletableFuture<U> thenApplyAsync(Function<? super T, ? extends U> fn, Executor executor) {
+        return next(future.thenApplyAsync(fn, chain.executor(executor)));
+    }
+
+    @Override
+    public TtlCompletableFuture<Void> thenAccept(Consumer<? super T> action) {
+        return next(future.thenAccept(new StageConsumer<>(action, chain.captured)));
+    }
+
+    @Override
+    public TtlCompletableFuture<Void> thenAcceptAsync(Consumer<? super T> action) {
+        return thenAcceptAsync(action, ASYNC_POOL);
+    }
+
+    @Override
+    public TtlCompletableFuture<Void> thenAcceptAsync(Consumer<? super T> action, Executor executor) {
+        return next(future.thenAcceptAsync(action, chain.executor(executor)));
+    }
+
+    @Override
+    public TtlCompletableFuture<Void> thenRun(Runnable action) {
+        return next(future.thenRun(new StageRunnable(action, chain.captured)));
+    }
+
+    @Override
+    public TtlCompletableFuture<Void> thenRunAsync(Runnable action) {
+        return thenRunAsync(action, ASYNC_POOL);
+    }
+
+    @Override
+    public TtlCompletableFuture<Void> thenRunAsync(Runnable action, Executor executor) {
+        return next(future.thenRunAsync(action, chain.executor(executor)));
+    }
+
+    @Override
+    public <U, V> TtlCompletableFuture<V> thenCombine(CompletionStage<? extends U> other,
+                                                      BiFunction<? super T, ? super U, ? extends V> fn) {
+        return next(future.thenCombine(other, new StageBiFunction<>(fn, chain.captured)));
+    }
+
+    @Override
+    public <U, V> TtlCompletableFuture<V> thenCombineAsync(CompletionStage<? extends U> other,
+                                                           BiFunction<? super T, ? super U, ? extends V> fn) {
+        return thenCombineAsync(other, fn, ASYNC_POOL);
+    }
+
+    @Override
+    public <U, V> TtlCompletableFuture<V> thenCombineAsync(CompletionStage<? extends U> other,
+                                                           BiFunction<? super T, ? super U, ? extends V> fn, Executor executor) {
+        return next(future.thenCombineAsync(other, fn, chain.executor(executor)));
+    }
+
+    @Override
+    public <U> TtlCompletableFuture<Void> thenAcceptBoth(CompletionStage<? extends U> other,
+                                                         BiConsumer<? super T, ? super U> action) {
+        return next(future.thenAcceptBoth(other, new StageBiConsumer<>(action, chain.captured)));
+    }
+
+    @Override
+    public <U> TtlCompletableFuture<Void> thenAcceptBothAsync(CompletionStage<? extends U> other,
+                                                              BiConsumer<? super T, ? super U> action) {
+        return thenAcceptBothAsync(other, action, ASYNC_POOL);
+    }
+
+    @Override
+    public <U> TtlCompletableFuture<Void> thenAcceptBothAsync(CompletionStage<? extends U> other,
+                                                              BiConsumer<? super T, ? super U> action, Executor executor) {
+        return next(future.thenAcceptBothAsync(other, action, chain.executor(executor)));
+    }
+
+    @Override
+    public TtlCompletableFuture<Void> runAfterBoth(CompletionStage<?> other, Runnable action) {
+        return next(future.runAfterBoth(other, new StageRunnable(action, chain.captured)));
+    }
+
+    @Override
+    public TtlCompletableFuture<Void> runAfterBothAsync(CompletionStage<?> other, Runnable action) {
+        return runAfterBothAsync(other, action, ASYNC_POOL);
+    }
+
+    @Override
+    public TtlCompletableFuture<Void> runAfterBothAsync(CompletionStage<?> other, Runnable action, Executor executor) {
+        return next(future.runAfterBothAsync(other, action, chain.executor(executor)));
+    }
+
+    @Override
+    public <U> TtlCompletableFuture<U> applyToEither(CompletionStage<? extends T> other, Function<? super T, U> fn) {
+        return next(future.applyToEither(other, new StageFunction<>(fn, chain.captured)));
+    }
+
+    @Override
+    public <U> TtlCompletableFuture<U> applyToEitherAsync(CompletionStage<? extends T> other, Function<? super T, U> fn) {
+        return applyToEitherAsync(other, fn, ASYNC_POOL);
+    }
+
+    @Override
+    public <U> TtlCompletableFuture<U> applyToEitherAsync(CompletionStage<? extends T> other, Function<? super T, U> fn,
+                                                          Executor executor) {
+        return next(future.applyToEitherAsync(other, fn, chain.executor(executor)));
+    }
+
+    @Override
+    public TtlCompletableFuture<Void> acceptEither(CompletionStage<? extends T> other, Consumer<? super T> action) {
+        return next(future.acceptEither(other, new StageConsumer<>(action, chain.captured)));
+    }
+
+    @Override
+    public TtlCompletableFuture<Void> acceptEitherAsync(CompletionStage<? extends T> other, Consumer<? super T> action) {
+        return acceptEitherAsync(other, action, ASYNC_POOL);
+    }
+
+    @Override
+    public TtlCompletableFuture<Void> acceptEitherAsync(CompletionStage<? extends T> other, Consumer<? super T> action,
+                                                        Executor executor) {
+        return next(future.acceptEitherAsync(other, action, chain.executor(executor)));
+    }
+
+    @Override
+    public TtlCompletableFuture<Void> runAfterEither(CompletionStage<?> other, Runnable action) {
+        return next(future.runAfterEither(other, new StageRunnable(action, chain.captured)));
+    }
+
+    @Override
+    public TtlCompletableFuture<Void> runAfterEitherAsync(CompletionStage<?> other, Runnable action) {
+        return runAfterEitherAsync(other, action, ASYNC_POOL);
+    }
+
+    @Override
+    public TtlCompletableFuture<Void> runAfterEitherAsync(CompletionStage<?> other, Runnable action, Executor executor) {
+        return next(future.runAfterEitherAsync(other, action, chain.executor(executor)));
+    }
+
+    @Override
+    public <U> TtlCompletableFuture<U> thenCompose(Function<? super T, ? extends CompletionStage<U>> fn) {
+        return next(future.thenCompose(new StageFunction<>(fn, chain.captured)));
+    }
+
+    @Override
+    public <U> TtlCompletableFuture<U> thenComposeAsync(Function<? super T, ? extends CompletionStage<U>> fn) {
+        return thenComposeAsync(fn, ASYNC_POOL);
+    }
+
+    @Override
+    public <U> TtlCompletableFuture<U> thenComposeAsync(Function<? super T, ? extends CompletionStage<U>> fn,
+                                                        Executor executor) {
+        return next(future.thenComposeAsync(fn, chain.executor(executor)));
+    }
+
+    @Override
+    public TtlCompletableFuture<T> exceptionally(Function<Throwable, ? extends T> fn) {
+        return next(future.exceptionally(new StageFunction<>(fn, chain.captured)));
+    }
+
+    @Override
+    public TtlCompletableFuture<T> whenComplete(BiConsumer<? super T, ? super Throwable> action) {
+        return next(future.whenComplete(new StageBiConsumer<>(action, chain.captured)));
+    }
+
+    @Override
+    public TtlCompletableFuture<T> whenCompleteAsync(BiConsumer<? super T, ? super Throwable> action) {
+        return whenCompleteAsync(action, ASYNC_POOL);
+    }
+
+    @Override
+    public TtlCompletableFuture<T> whenCompleteAsync(BiConsumer<? super T, ? super Throwable> action, Executor executor) {
+        return next(future.whenCompleteAsync(action, chain.executor(executor)));
+    }
+
+    @Override
+    public <U> TtlCompletableFuture<U> handle(BiFunction<? super T, Throwable, ? extends U> fn) {
+        return next(future.handle(new StageBiFunction<>(fn, chain.captured)));
+    }
+
+    @Override
+    public <U> TtlCompletableFuture<U> handleAsync(BiFunction<? super T, Throwable, ? extends U> fn) {
+        return handleAsync(fn, ASYNC_POOL);
+    }
+
+    @Override
+    public <U> TtlCompletableFuture<U> handleAsync(BiFunction<? super T, Throwable, ? extends U> fn, Executor executor) {
+        return next(future.handleAsync(fn, chain.executor(executor)));
+    }
+
+    /**
+     * return the underneath {@link CompletableFuture}, same as {@link #unwrap()}.
+     */
+    @Override
+    public CompletableFuture<T> toCompletableFuture() {
+        return future;
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Future and completion methods
+    ///////////////////////////////////////////////////////////////////////////
+
+    /**
+     * @see CompletableFuture#complete(Object)
+     */
+    public boolean complete(T value) {
+        return future.complete(value);
+    }
+
+    /**
+     * @see CompletableFuture#completeExceptionally(Throwable)
+     */
+    public boolean completeExceptionally(@NonNull Throwable ex) {
+        return future.completeExceptionally(ex);
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        return future.cancel(mayInterruptIfRunning);
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return future.isCancelled();
+    }
+
+    @Override
+    public boolean isDone() {
+        return future.isDone();
+    }
+
+    /**
+     * @see CompletableFuture#isCompletedExceptionally()
+     */
+    public boolean isCompletedExceptionally() {
+        return future.isCompletedExceptionally();
+    }
+
+    @Override
+    public T get() throws InterruptedException, ExecutionException {
+        return future.get();
+    }
+
+    @Override
+    public T get(long timeout, @NonNull TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        return future.get(timeout, unit);
+    }
+
+    /**
+     * @see CompletableFuture#join()
+     */
+    public T join() {
+        return future.join();
+    }
+
+    /**
+     * @see CompletableFuture#getNow(Object)
+     */
+    public T getNow(T valueIfAbsent) {
+        return future.getNow(valueIfAbsent);
+    }
+
+    @NonNull
+    @Override
+    public CompletableFuture<T> unwrap() {
+        return future;
+    }
+
+    @Override
+    public String toString() {
+        return this.getClass().getName() + " - " + future.toString();
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // private inner classes
+    ///////////////////////////////////////////////////////////////////////////
+
+    /**
+     * the capture shared by the stages of a chain.
+     */
+    private static final class Chain {
+        final Capture captured;
+        /**
+         * the last used executor wrapper, most chains use one executor.
+         * <p>
+         * a plain field, the racy update only creates a redundant wrapper; {@link CapturedExecutor} is immutable.
+         */
+        private CapturedExecutor lastExecutor;
+
+        Chain(@NonNull Capture captured) {
+            this.captured = captured;
+        }
+
+        @NonNull
+        Executor executor(@NonNull Executor executor) {
+            final CapturedExecutor last = lastExecutor;
+            if (last != null && last.executor == executor) return last;
+
+            final CapturedExecutor ret = new CapturedExecutor(executor, captured);
+            lastExecutor = ret;
+            return ret;
+        }
+    }
+
+    /**
+     * execute the task (the async stage and its completion) with the captured values replayed.
+     */
+    private static final class CapturedExecutor implements Executor, TtlEnhanced {
+        final Executor executor;
+        final Capture captured;
+
+        CapturedExecutor(@NonNull Executor executor, @NonNull Capture captured) {
+            this.executor = executor;
+            this.captured = captured;
+        }
+
+        @Override
+        public void execute(@NonNull Runnable command) {
+            executor.execute(new StageRunnable(command, captured));
+        }
+    }
+
+    private static final class Held {
+        Capture captured;
+    }
+
+    /**
+     * run the stage function with the captured values replayed, skip the replay if the current thread already holds it.
+     */
+    private abstract static class Stage<F> implements TtlWrapper<F>, TtlEnhanced {
+        final F fn;
+        final Capture captured;
+
+        Stage(@NonNull F fn, @NonNull Capture captured) {
+            this.fn = fn;
+            this.captured = captured;
+        }
+
+        final Object runStage(Object a, Object b) {
+            final Held h = held.get();
+            final Capture last = h.captured;
+            if (last == captured) return call(a, b);
+
+            final Backup backup = replay(captured);
+            h.captured = captured;
+            try {
+                return call(a, b);
+            } finally {
+                h.captured = last;
+                restore(backup);
+            }
+        }
+
+        abstract Object call(Object a, Object b);
+
+        @NonNull
+        @Override
+        public F unwrap() {
+            return fn;
+        }
+
+        @Override
+        public String toString() {
+            return this.getClass().getName() + " - " + fn.toString();
+        }
+    }
+
+    private static final class StageRunnable extends Stage<Runnable> implements Runnable {
+        StageRunnable(@NonNull Runnable fn, @NonNull Capture captured) {
+            super(fn, captured);
+        }
+
+        @Override
+        public void run() {
+            runStage(null, null);
+        }
+
+        @Override
+        Object call(Object a, Object b) {
+            fn.run();
+            return null;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static final class StageFunction<T, R> extends Stage<Function<? super T, ? extends R>> implements Function<T, R> {
+        StageFunction(@NonNull Function<? super T, ? extends R> fn, @NonNull Capture captured) {
+            super(fn, captured);
+        }
+
+        @Override
+        public R apply(T t) {
+            return (R) runStage(t, null);
+        }
+
+        @Override
+        Object call(Object a, Object b) {
+            return fn.apply((T) a);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static final class StageBiFunction<T, U, R> extends Stage<BiFunction<? super T, ? super U, ? extends R>>
+            implements BiFunction<T, U, R> {
+        StageBiFunction(@NonNull BiFunction<? super T, ? super U, ? extends R> fn, @NonNull Capture captured) {
+            super(fn, captured);
+        }
+
+        @Override
+        public R apply(T t, U u) {
+            return (R) runStage(t, u);
+        }
+
+        @Override
+        Object call(Object a, Object b) {
+            return fn.apply((T) a, (U) b);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static final class StageConsumer<T> extends Stage<Consumer<? super T>> implements Consumer<T> {
+        StageConsumer(@NonNull Consumer<? super T> fn, @NonNull Capture captured) {
+            super(fn, captured);
+        }
+
+        @Override
+        public void accept(T t) {
+            runStage(t, null);
+        }
+
+        @Override
+        Object call(Object a, Object b) {
+            fn.accept((T) a);
+            return null;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static final class StageBiConsumer<T, U> extends Stage<BiConsumer<? super T, ? super U>> implements BiConsumer<T, U> {
+        StageBiConsumer(@NonNull BiConsumer<? super T, ? super U> fn, @NonNull Capture captured) {
+            super(fn, captured);
+        }
+
+        @Override
+        public void accept(T t, U u) {
+            runStage(t, u);
+        }
+
+        @Override
+        Object call(Object a, Object b) {
+            fn.accept((T) a, (U) b);
+            return null;
+        }
+    }
+
+    private static final class ThreadPerTaskExecutor implements Executor {
+        @Override
+        public void execute(@NonNull Runnable r) {
+            new Thread(r).start();
+        }
+    }
+}
@@ -14,7 +14,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 import static com.alibaba.ttl3.transmitter.Transmitter.*;
 
@@ -36,12 +36,34 @@ import static com.alibaba.ttl3.transmitter.Transmitter.*;
  * @see java.util.concurrent.Executors
  */
 public final class TtlRunnable implements Runnable, TtlWrapper<Runnable>, TtlEnhanced, TtlAttachments {
-    private final AtomicReference<Capture> capturedRef;
+    private static final AtomicReferenceFieldUpdater<TtlRunnable, Capture> CAPTURED_UPDATER =
+            AtomicReferenceFieldUpdater.newUpdater(TtlRunnable.class, Capture.class, "releasableCaptured");
+    private static final AtomicReferenceFieldUpdater<TtlRunnable, TtlAttachmentsDelegate> ATTACHMENTS_UPDATER =
+            AtomicReferenceFieldUpdater.newUpdater(TtlRunnable.class, TtlAttachmentsDelegate.class, "ttlAttachment");
+
+    /**
+     * the captured, {@code null} if {@link #releaseTtlValueReferenceAfterRun} is {@code true}.
+     */
+    private final Capture captured;
+    /**
+     * the captured released after run by {@link #CAPTURED_UPDATER},
+     * {@code null} if {@link #releaseTtlValueReferenceAfterRun} is {@code false}.
+     */
+    private volatile Capture releasableCaptured;
     private final Runnable runnable;
     private final boolean releaseTtlValueReferenceAfterRun;
+    /**
+     * the attachment {@link TtlAttachments#KEY_IS_AUTO_WRAPPER}, kept in a field instead of the attachments.
+     */
+    private volatile Object autoWrapper;
+    /**
+     * created lazily, most tasks have no attachments.
+     */
+    private volatile TtlAttachmentsDelegate ttlAttachment;
 
-    private TtlRunnable(@NonNull Runnable runnable, boolean releaseTtlValueReferenceAfterRun) {
-        this.capturedRef = new AtomicReference<>(capture());
+    private TtlRunnable(@NonNull Runnable runnable, @NonNull Capture captured, boolean releaseTtlValueReferenceAfterRun) {
+        this.captured = releaseTtlValueReferenceAfterRun ? null : captured;
+        this.releasableCaptured = releaseTtlValueReferenceAfterRun ? captured : null;
         this.runnable = runnable;
         this.releaseTtlValueReferenceAfterRun = releaseTtlValueReferenceAfterRun;
     }
@@ -51,10 +73,8 @@ public final class TtlRunnable implements Runnable, TtlWrapper<Runnable>, TtlEnh
      */
     @Override
     public void run() {
-        final Capture captured = capturedRef.get();
-        if (captured == null || releaseTtlValueReferenceAfterRun && !capturedRef.compareAndSet(captured, null)) {
-            throw new IllegalStateException("TTL value reference is released after run!");
-        }
+        final Capture captured = releaseTtlValueReferenceAfterRun ? CAPTURED_UPDATER.getAndSet(this, null) : this.captured;
+        if (captured == null) throw new IllegalStateException("TTL value reference is released after run!");
 
         final Backup backup = replay(captured);
         try {
@@ -129,6 +149,27 @@ public final class TtlRunnable implements Runnable, TtlWrapper<Runnable>, TtlEnh
     @Nullable
     @Contract(value = "null, _, _ -> null; !null, _, _ -> !null", pure = true)
     public static TtlRunnable get(@Nullable Runnable runnable, boolean releaseTtlValueReferenceAfterRun, boolean idempotent) {
+        return get(runnable, null, releaseTtlValueReferenceAfterRun, idempotent);
+    }
+
+    /**
+     * Factory method, wrap input {@link Runnable} to {@link TtlRunnable} with the captured,
+     * e.g. the capture of a {@link com.alibaba.ttl3.transmitter.TransmitProfile TransmitProfile}.
+     *
+     * @param runnable                         input {@link Runnable}. if input is {@code null}, return {@code null}.
+     * @param captured                         the captured from {@link com.alibaba.ttl3.transmitter.Transmitter#capture()}, capture now if {@code null}
+     * @param releaseTtlValueReferenceAfterRun release TTL value reference after run, avoid memory leak even if {@link TtlRunnable} is referred.
+     * @param idempotent                       is idempotent mode or not. if {@code true}, just return input {@link Runnable} when it's {@link TtlRunnable},
+     *                                         otherwise throw {@link IllegalStateException}.
+     *                                         <B><I>Caution</I></B>: {@code true} will cover up bugs! <b>DO NOT</b> set, only when you know why.
+     * @return Wrapped {@link Runnable}
+     * @throws IllegalStateException when input is {@link TtlRunnable} already and not idempotent.
+     * @see com.alibaba.ttl3.transmitter.Transmitter#capture(com.alibaba.ttl3.transmitter.TransmitProfile)
+     */
+    @Nullable
+    @Contract(value = "null, _, _, _ -> null; !null, _, _, _ -> !null", pure = true)
+    public static TtlRunnable get(@Nullable Runnable runnable, @Nullable Capture captured,
+                                  boolean releaseTtlValueReferenceAfterRun, boolean idempotent) {
         if (runnable == null) return null;
 
         if (runnable instanceof TtlEnhanced) {
@@ -136,7 +177,7 @@ public final class TtlRunnable implements Runnable, TtlWrapper<Runnable>, TtlEnh
             if (idempotent) return (TtlRunnable) runnable;
             else throw new IllegalStateException("Already TtlRunnable!");
         }
-        return new TtlRunnable(runnable, releaseTtlValueReferenceAfterRun);
+        return new TtlRunnable(runnable, captured == null ? capture() : captured, releaseTtlValueReferenceAfterRun);
     }
 
     /**
@@ -186,6 +227,39 @@ public final class TtlRunnable implements Runnable, TtlWrapper<Runnable>, TtlEnh
         return copy;
     }
 
+    /**
+     * wrap input {@link Runnable} Collection to {@link TtlRunnable} Collection, the wrapped tasks share the captured.
+     * <p>
+     * Capture once for a batch of tasks(e.g. the fan-out subtasks of a request), instead of capture for each task:
+     *
+     * <pre>{@code
+     * List<TtlRunnable> ttlTasks = TtlRunnable.gets(tasks, Transmitter.capture(), false, false);}</pre>
+     * <p>
+     * <B><I>NOTE:</I></B><br>
+     * the captured values(e.g. the copied value of {@link TransmittableThreadLocal#transmitteeValue(Object)})
+     * are shared by the tasks, not copied for each task.
+     *
+     * @param tasks                            task to be wrapped. if input is {@code null}, return an empty list.
+     * @param captured                         the captured shared by the wrapped tasks, from {@link com.alibaba.ttl3.transmitter.Transmitter#capture()}
+     * @param releaseTtlValueReferenceAfterRun release TTL value reference after run, avoid memory leak even if {@link TtlRunnable} is referred.
+     * @param idempotent                       is idempotent mode or not. if {@code true}, just return input {@link Runnable} when it's {@link TtlRunnable},
+     *                                         otherwise throw {@link IllegalStateException}.
+     *                                         <B><I>Caution</I></B>: {@code true} will cover up bugs! <b>DO NOT</b> set, only when you know why.
+     * @return wrapped tasks
+     * @throws IllegalStateException when input is {@link TtlRunnable} already and not idempotent.
+     */
+    @NonNull
+    public static List<TtlRunnable> gets(@Nullable Collection<? extends Runnable> tasks, @NonNull Capture captured,
+                                         boolean releaseTtlValueReferenceAfterRun, boolean idempotent) {
+        if (tasks == null) return Collections.emptyList();
+
+        List<TtlRunnable> copy = new ArrayList<>(tasks.size());
+        for (Runnable task : tasks) {
+            copy.add(TtlRunnable.get(task, captured, releaseTtlValueReferenceAfterRun, idempotent));
+        }
+        return copy;
+    }
+
     /**
      * Unwrap {@link TtlRunnable} to the original/underneath one.
      * <p>
@@ -226,21 +300,35 @@ public final class TtlRunnable implements Runnable, TtlWrapper<Runnable>, TtlEnh
         return copy;
     }
 
-    private final TtlAttachmentsDelegate ttlAttachment = new TtlAttachmentsDelegate();
-
     /**
      * see {@link TtlAttachments#setTtlAttachment(String, Object)}
      */
     @Override
     public void setTtlAttachment(@NonNull String key, Object value) {
-        ttlAttachment.setTtlAttachment(key, value);
+        if (KEY_IS_AUTO_WRAPPER.equals(key)) {
+            // same as the attachments, the null value is not allowed
+            if (value == null) throw new NullPointerException();
+            autoWrapper = value;
+            return;
+        }
+
+        TtlAttachmentsDelegate attachments = ttlAttachment;
+        if (attachments == null) {
+            ATTACHMENTS_UPDATER.compareAndSet(this, null, new TtlAttachmentsDelegate());
+            attachments = ttlAttachment;
+        }
+        attachments.setTtlAttachment(key, value);
     }
 
     /**
      * see {@link TtlAttachments#getTtlAttachment(String)}
      */
     @Override
+    @SuppressWarnings("unchecked")
     public <T> T getTtlAttachment(@NonNull String key) {
-        return ttlAttachment.getTtlAttachment(key);
+        if (KEY_IS_AUTO_WRAPPER.equals(key)) return (T) autoWrapper;
+
+        final TtlAttachmentsDelegate attachments = ttlAttachment;
+        return attachments == null ? null : attachments.getTtlAttachment(key);
     }
 }
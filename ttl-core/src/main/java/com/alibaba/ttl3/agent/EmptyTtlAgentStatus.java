@@ -2,6 +2,8 @@ package com.alibaba.ttl3.agent;
 
 import edu.umd.cs.findbugs.annotations.NonNull;
 
+import java.lang.reflect.Constructor;
+
 import static com.alibaba.ttl3.internal.util.Utils.propagateIfFatal;
 
 final class EmptyTtlAgentStatus implements TtlAgentStatus {
@@ -32,7 +34,10 @@ final class EmptyTtlAgentStatus implements TtlAgentStatus {
 
             TtlAgentStatus ret;
             try {
-                ret = (TtlAgentStatus) Class.forName(TTL_AGENT_CLASS).getDeclaredConstructor().newInstance();
+                // the constructor of TTL agent class is private, only instantiated here
+                final Constructor<?> constructor = Class.forName(TTL_AGENT_CLASS).getDeclaredConstructor();
+                constructor.setAccessible(true);
+                ret = (TtlAgentStatus) constructor.newInstance();
             } catch (ClassNotFoundException e) {
                 ret = new EmptyTtlAgentStatus();
             } catch (Exception e) {
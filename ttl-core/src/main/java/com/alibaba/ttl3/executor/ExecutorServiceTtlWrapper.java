@@ -4,9 +4,12 @@ import com.alibaba.ttl3.TransmittableThreadLocal;
 import com.alibaba.ttl3.TtlCallable;
 import com.alibaba.ttl3.TtlRunnable;
 import com.alibaba.ttl3.spi.TtlEnhanced;
+import com.alibaba.ttl3.transmitter.TransmitProfile;
 import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.*;
@@ -15,6 +18,9 @@ import java.util.concurrent.*;
  * {@link TransmittableThreadLocal} Wrapper of {@link ExecutorService},
  * transmit the {@link TransmittableThreadLocal} from the task submit time of {@link Runnable} or {@link Callable}
  * to the execution time of {@link Runnable} or {@link Callable}.
+ * <p>
+ * The tasks of a batch({@code invokeAll}/{@code invokeAny}/{@link TtlExecutors#submitAll(ExecutorService, Collection)})
+ * share one capture.
  *
  * @author Jerry Lee (oldratlee at gmail dot com)
  */
@@ -22,8 +28,8 @@ import java.util.concurrent.*;
 class ExecutorServiceTtlWrapper extends ExecutorTtlWrapper implements ExecutorService, TtlEnhanced {
     private final ExecutorService executorService;
 
-    ExecutorServiceTtlWrapper(@NonNull ExecutorService executorService, boolean idempotent) {
-        super(executorService, idempotent);
+    ExecutorServiceTtlWrapper(@NonNull ExecutorService executorService, boolean idempotent, @Nullable TransmitProfile profile) {
+        super(executorService, idempotent, profile);
         this.executorService = executorService;
     }
 
@@ -56,42 +62,54 @@ class ExecutorServiceTtlWrapper extends ExecutorTtlWrapper implements ExecutorSe
     @NonNull
     @Override
     public <T> Future<T> submit(@NonNull Callable<T> task) {
-        return executorService.submit(TtlCallable.get(task, false, idempotent));
+        return executorService.submit(TtlCallable.get(task, captureOfProfile(), false, idempotent));
     }
 
     @NonNull
     @Override
     public <T> Future<T> submit(@NonNull Runnable task, T result) {
-        return executorService.submit(TtlRunnable.get(task, false, idempotent), result);
+        return executorService.submit(TtlRunnable.get(task, captureOfProfile(), false, idempotent), result);
     }
 
     @NonNull
     @Override
     public Future<?> submit(@NonNull Runnable task) {
-        return executorService.submit(TtlRunnable.get(task, false, idempotent));
+        return executorService.submit(TtlRunnable.get(task, captureOfProfile(), false, idempotent));
     }
 
     @NonNull
     @Override
     public <T> List<Future<T>> invokeAll(@NonNull Collection<? extends Callable<T>> tasks) throws InterruptedException {
-        return executorService.invokeAll(TtlCallable.gets(tasks, false, idempotent));
+        return executorService.invokeAll(TtlCallable.gets(tasks, captureForBatch(), false, idempotent));
     }
 
     @NonNull
     @Override
     public <T> List<Future<T>> invokeAll(@NonNull Collection<? extends Callable<T>> tasks, long timeout, @NonNull TimeUnit unit) throws InterruptedException {
-        return executorService.invokeAll(TtlCallable.gets(tasks, false, idempotent), timeout, unit);
+        return executorService.invokeAll(TtlCallable.gets(tasks, captureForBatch(), false, idempotent), timeout, unit);
     }
 
     @NonNull
     @Override
     public <T> T invokeAny(@NonNull Collection<? extends Callable<T>> tasks) throws InterruptedException, ExecutionException {
-        return executorService.invokeAny(TtlCallable.gets(tasks, false, idempotent));
+        return executorService.invokeAny(TtlCallable.gets(tasks, captureForBatch(), false, idempotent));
     }
 
     @Override
     public <T> T invokeAny(@NonNull Collection<? extends Callable<T>> tasks, long timeout, @NonNull TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
-        return executorService.invokeAny(TtlCallable.gets(tasks, false, idempotent), timeout, unit);
+        return executorService.invokeAny(TtlCallable.gets(tasks, captureForBatch(), false, idempotent), timeout, unit);
+    }
+
+    /**
+     * submit the tasks sharing one capture, see {@link TtlExecutors#submitAll(ExecutorService, Collection)}.
+     */
+    @NonNull
+    List<Future<?>> submitAll(@NonNull Collection<? extends Runnable> tasks) {
+        final List<Future<?>> futures = new ArrayList<>(tasks.size());
+        for (TtlRunnable task : TtlRunnable.gets(tasks, captureForBatch(), false, idempotent)) {
+            futures.add(executorService.submit(task));
+        }
+        return futures;
     }
 
     @NonNull
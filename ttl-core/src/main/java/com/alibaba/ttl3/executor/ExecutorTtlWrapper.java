@@ -1,32 +1,58 @@
 package com.alibaba.ttl3.executor;
 
+import com.alibaba.crr.composite.Capture;
 import com.alibaba.ttl3.TransmittableThreadLocal;
 import com.alibaba.ttl3.TtlRunnable;
 import com.alibaba.ttl3.spi.TtlEnhanced;
 import com.alibaba.ttl3.spi.TtlWrapper;
+import com.alibaba.ttl3.transmitter.TransmitProfile;
+import com.alibaba.ttl3.transmitter.Transmitter;
 import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
 
+import java.util.Objects;
 import java.util.concurrent.Executor;
 
 /**
  * {@link TransmittableThreadLocal} Wrapper of {@link Executor},
  * transmit the {@link TransmittableThreadLocal} from the task submit time of {@link Runnable}
  * to the execution time of {@link Runnable}.
+ * <p>
+ * If the {@link TransmitProfile} is attached, only the values in the profile are transmitted.
  *
  * @author Jerry Lee (oldratlee at gmail dot com)
  */
 class ExecutorTtlWrapper implements Executor, TtlWrapper<Executor>, TtlEnhanced {
     private final Executor executor;
     protected final boolean idempotent;
+    @Nullable
+    protected final TransmitProfile profile;
 
-    ExecutorTtlWrapper(@NonNull Executor executor, boolean idempotent) {
+    ExecutorTtlWrapper(@NonNull Executor executor, boolean idempotent, @Nullable TransmitProfile profile) {
         this.executor = executor;
         this.idempotent = idempotent;
+        this.profile = profile;
     }
 
     @Override
     public void execute(@NonNull Runnable command) {
-        executor.execute(TtlRunnable.get(command, false, idempotent));
+        executor.execute(TtlRunnable.get(command, captureOfProfile(), false, idempotent));
+    }
+
+    /**
+     * the capture of the attached profile, {@code null} if no profile(the task wrapper captures all values).
+     */
+    @Nullable
+    final Capture captureOfProfile() {
+        return profile == null ? null : Transmitter.capture(profile);
+    }
+
+    /**
+     * the capture shared by a batch of tasks, the values in the attached profile or all values.
+     */
+    @NonNull
+    final Capture captureForBatch() {
+        return profile == null ? Transmitter.capture() : Transmitter.capture(profile);
     }
 
     @NonNull
@@ -43,6 +69,7 @@ class ExecutorTtlWrapper implements Executor, TtlWrapper<Executor>, TtlEnhanced
         ExecutorTtlWrapper that = (ExecutorTtlWrapper) o;
 
         if (idempotent != that.idempotent) return false;
+        if (!Objects.equals(profile, that.profile)) return false;
         return executor.equals(that.executor);
     }
 
@@ -50,6 +77,7 @@ class ExecutorTtlWrapper implements Executor, TtlWrapper<Executor>, TtlEnhanced
     public int hashCode() {
         int result = executor.hashCode();
         result = 31 * result + (idempotent ? 1 : 0);
+        result = 31 * result + Objects.hashCode(profile);
         return result;
     }
 
@@ -4,7 +4,9 @@ import com.alibaba.ttl3.TransmittableThreadLocal;
 import com.alibaba.ttl3.TtlCallable;
 import com.alibaba.ttl3.TtlRunnable;
 import com.alibaba.ttl3.spi.TtlEnhanced;
+import com.alibaba.ttl3.transmitter.TransmitProfile;
 import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 
 import java.util.concurrent.Callable;
@@ -16,40 +18,45 @@ import java.util.concurrent.TimeUnit;
  * {@link TransmittableThreadLocal} Wrapper of {@link ScheduledExecutorService},
  * transmit the {@link TransmittableThreadLocal} from the task submit time of {@link Runnable} or {@link Callable}
  * to the execution time of {@link Runnable} or {@link Callable}.
+ * <p>
+ * The periodic tasks replay/restore the captured values for each run;
+ * {@link TtlScheduledThreadPoolExecutor} keeps the values installed between runs, and can replace the captured values.
  *
  * @author Jerry Lee (oldratlee at gmail dot com)
+ * @see TtlScheduledThreadPoolExecutor
  */
 @SuppressFBWarnings({"EQ_DOESNT_OVERRIDE_EQUALS"})
 class ScheduledExecutorServiceTtlWrapper extends ExecutorServiceTtlWrapper implements ScheduledExecutorService, TtlEnhanced {
     final ScheduledExecutorService scheduledExecutorService;
 
-    public ScheduledExecutorServiceTtlWrapper(@NonNull ScheduledExecutorService scheduledExecutorService, boolean idempotent) {
-        super(scheduledExecutorService, idempotent);
+    public ScheduledExecutorServiceTtlWrapper(@NonNull ScheduledExecutorService scheduledExecutorService, boolean idempotent,
+                                              @Nullable TransmitProfile profile) {
+        super(scheduledExecutorService, idempotent, profile);
         this.scheduledExecutorService = scheduledExecutorService;
     }
 
     @NonNull
     @Override
     public ScheduledFuture<?> schedule(@NonNull Runnable command, long delay, @NonNull TimeUnit unit) {
-        return scheduledExecutorService.schedule(TtlRunnable.get(command, false, idempotent), delay, unit);
+        return scheduledExecutorService.schedule(TtlRunnable.get(command, captureOfProfile(), false, idempotent), delay, unit);
     }
 
     @NonNull
     @Override
     public <V> ScheduledFuture<V> schedule(@NonNull Callable<V> callable, long delay, @NonNull TimeUnit unit) {
-        return scheduledExecutorService.schedule(TtlCallable.get(callable, false, idempotent), delay, unit);
+        return scheduledExecutorService.schedule(TtlCallable.get(callable, captureOfProfile(), false, idempotent), delay, unit);
     }
 
     @NonNull
     @Override
     public ScheduledFuture<?> scheduleAtFixedRate(@NonNull Runnable command, long initialDelay, long period, @NonNull TimeUnit unit) {
-        return scheduledExecutorService.scheduleAtFixedRate(TtlRunnable.get(command, false, idempotent), initialDelay, period, unit);
+        return scheduledExecutorService.scheduleAtFixedRate(TtlRunnable.get(command, captureOfProfile(), false, idempotent), initialDelay, period, unit);
     }
 
     @NonNull
     @Override
     public ScheduledFuture<?> scheduleWithFixedDelay(@NonNull Runnable command, long initialDelay, long delay, @NonNull TimeUnit unit) {
-        return scheduledExecutorService.scheduleWithFixedDelay(TtlRunnable.get(command, false, idempotent), initialDelay, delay, unit);
+        return scheduledExecutorService.scheduleWithFixedDelay(TtlRunnable.get(command, captureOfProfile(), false, idempotent), initialDelay, delay, unit);
     }
 
     @NonNull
@@ -1,24 +1,32 @@
 package com.alibaba.ttl3.executor;
 
+import com.alibaba.crr.composite.Capture;
 import com.alibaba.ttl3.TransmittableThreadLocal;
+import com.alibaba.ttl3.TtlRunnable;
 import com.alibaba.ttl3.agent.TtlAgentStatus;
+import com.alibaba.ttl3.internal.util.VirtualThreads;
 import com.alibaba.ttl3.spi.TtlEnhanced;
 import com.alibaba.ttl3.spi.TtlWrapper;
+import com.alibaba.ttl3.transmitter.TransmitProfile;
+import com.alibaba.ttl3.transmitter.Transmitter;
 import edu.umd.cs.findbugs.annotations.NonNull;
 import edu.umd.cs.findbugs.annotations.Nullable;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import org.jetbrains.annotations.Contract;
 
-import java.util.Comparator;
+import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.ForkJoinPool.ForkJoinWorkerThreadFactory;
 
+import static com.alibaba.ttl3.transmitter.Transmitter.capture;
+
 /**
  * Util methods for TTL wrapper of jdk executors.
  *
  * <ol>
  *     <li>wrap/check/unwrap methods for TTL wrapper of
  *         jdk executors({@link Executor}, {@link ExecutorService}, {@link ScheduledExecutorService}).</li>
+ *     <li>batch submit method of {@link ExecutorService} sharing one capture.</li>
  *     <li>wrap/check/unwrap methods for disable Inheritable wrapper of {@link ThreadFactory}.</li>
  *     <li>wrap/check/unwrap methods for disable Inheritable wrapper of {@link ForkJoinWorkerThreadFactory}.</li>
  *     <li>wrap/check/unwrap methods for {@code TtlRunnableUnwrapComparator} wrapper of {@link PriorityBlockingQueue}
@@ -71,7 +79,7 @@ public final class TtlExecutors {
         if (TtlAgentStatus.getInstance().isTtlAgentLoaded() || executor == null || executor instanceof TtlEnhanced) {
             return executor;
         }
-        return new ExecutorTtlWrapper(executor, true);
+        return new ExecutorTtlWrapper(executor, true, null);
     }
 
     /**
@@ -90,7 +98,7 @@ public final class TtlExecutors {
         if (TtlAgentStatus.getInstance().isTtlAgentLoaded() || executorService == null || executorService instanceof TtlEnhanced) {
             return executorService;
         }
-        return new ExecutorServiceTtlWrapper(executorService, true);
+        return new ExecutorServiceTtlWrapper(executorService, true, null);
     }
 
 
@@ -110,7 +118,68 @@ public final class TtlExecutors {
         if (TtlAgentStatus.getInstance().isTtlAgentLoaded() || scheduledExecutorService == null || scheduledExecutorService instanceof TtlEnhanced) {
             return scheduledExecutorService;
         }
-        return new ScheduledExecutorServiceTtlWrapper(scheduledExecutorService, true);
+        return new ScheduledExecutorServiceTtlWrapper(scheduledExecutorService, true, null);
+    }
+
+    /**
+     * {@link TransmittableThreadLocal} Wrapper of {@link Executor} with the {@link TransmitProfile},
+     * transmit only the values in the profile from the task submit time of {@link Runnable}
+     * to the execution time of {@link Runnable}; the other values of the thread running the task are untouched.
+     * <p>
+     * Unlike {@link #getTtlExecutor(Executor)}, the executor is wrapped even if TTL agent is loaded,
+     * the tasks wrapped by the profile are not wrapped again by TTL agent.
+     * If the input executor is a TTL executor wrapper, the original/underneath one is wrapped with the profile.
+     *
+     * @param executor input Executor
+     * @param profile  the values to transmit
+     * @return wrapped Executor
+     * @see Transmitter#capture(TransmitProfile)
+     */
+    @Nullable
+    @Contract(value = "null, _ -> null; !null, _ -> !null", pure = true)
+    public static Executor getTtlExecutor(@Nullable Executor executor, @NonNull TransmitProfile profile) {
+        if (executor == null) return null;
+        return new ExecutorTtlWrapper(unwrapTtlExecutor(executor), true, requireProfile(profile));
+    }
+
+    /**
+     * {@link TransmittableThreadLocal} Wrapper of {@link ExecutorService} with the {@link TransmitProfile},
+     * transmit only the values in the profile from the task submit time of {@link Runnable} or {@link Callable}
+     * to the execution time of {@link Runnable} or {@link Callable}.
+     *
+     * @param executorService input ExecutorService
+     * @param profile         the values to transmit
+     * @return wrapped ExecutorService
+     * @see #getTtlExecutor(Executor, TransmitProfile)
+     */
+    @Nullable
+    @Contract(value = "null, _ -> null; !null, _ -> !null", pure = true)
+    public static ExecutorService getTtlExecutorService(@Nullable ExecutorService executorService, @NonNull TransmitProfile profile) {
+        if (executorService == null) return null;
+        return new ExecutorServiceTtlWrapper(unwrapTtlExecutor(executorService), true, requireProfile(profile));
+    }
+
+    /**
+     * {@link TransmittableThreadLocal} Wrapper of {@link ScheduledExecutorService} with the {@link TransmitProfile},
+     * transmit only the values in the profile from the task submit time of {@link Runnable} or {@link Callable}
+     * to the execution time of {@link Runnable} or {@link Callable}.
+     *
+     * @param scheduledExecutorService input scheduledExecutorService
+     * @param profile                  the values to transmit
+     * @return wrapped scheduledExecutorService
+     * @see #getTtlExecutor(Executor, TransmitProfile)
+     */
+    @Nullable
+    @Contract(value = "null, _ -> null; !null, _ -> !null", pure = true)
+    public static ScheduledExecutorService getTtlScheduledExecutorService(@Nullable ScheduledExecutorService scheduledExecutorService,
+                                                                          @NonNull TransmitProfile profile) {
+        if (scheduledExecutorService == null) return null;
+        return new ScheduledExecutorServiceTtlWrapper(unwrapTtlExecutor(scheduledExecutorService), true, requireProfile(profile));
+    }
+
+    private static TransmitProfile requireProfile(TransmitProfile profile) {
+        if (profile == null) throw new NullPointerException("transmit profile is null");
+        return profile;
     }
 
     /**
@@ -156,6 +225,38 @@ public final class TtlExecutors {
         return (T) ((ExecutorTtlWrapper) executor).unwrap();
     }
 
+    /**
+     * Submit a batch of tasks(e.g. the fan-out subtasks of a request) to the executor service,
+     * the tasks share one capture instead of capture for each task.
+     * <p>
+     * the submitted tasks are {@link TtlRunnable}, the TTL executor wrapper or the TTL agent
+     * does not wrap them again.
+     * <p>
+     * If the executor service is a TTL wrapper({@link #getTtlExecutorService(ExecutorService)}),
+     * the wrapper submits the tasks, and the shared capture is of its {@link TransmitProfile} if attached.
+     *
+     * @param executorService the executor service to submit
+     * @param tasks           the tasks to submit. if input is {@code null}, submit nothing and return an empty list.
+     * @return the futures of the submitted tasks, in the iteration order of the input tasks
+     * @throws RejectedExecutionException if a task cannot be scheduled for execution,
+     *                                    the tasks before it are submitted already
+     * @see TtlRunnable#gets(Collection, Capture, boolean, boolean)
+     * @see ExecutorService#invokeAll(Collection)
+     */
+    @NonNull
+    public static List<Future<?>> submitAll(@NonNull ExecutorService executorService, @Nullable Collection<? extends Runnable> tasks) {
+        if (tasks == null) return Collections.emptyList();
+        if (executorService instanceof ExecutorServiceTtlWrapper) {
+            return ((ExecutorServiceTtlWrapper) executorService).submitAll(tasks);
+        }
+
+        final List<Future<?>> futures = new ArrayList<>(tasks.size());
+        for (TtlRunnable task : TtlRunnable.gets(tasks, capture(), false, true)) {
+            futures.add(executorService.submit(task));
+        }
+        return futures;
+    }
+
     /**
      * Wrapper of {@link ThreadFactory}, disable inheritable.
      *
@@ -208,6 +309,46 @@ public final class TtlExecutors {
         return ((DisableInheritableThreadFactoryWrapper) threadFactory).unwrap();
     }
 
+    ///////////////////////////////////////////////////////////////////////////
+    // Virtual thread utils
+    ///////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Create a TTL {@link ExecutorService} that starts a new virtual thread({@code Java 21+}) for each task,
+     * the TTL version of {@code Executors.newVirtualThreadPerTaskExecutor()}.
+     * <p>
+     * The virtual threads are created without inheritable copying
+     * ({@link #getDefaultDisableInheritableVirtualThreadFactory()}),
+     * the {@link TransmittableThreadLocal} values are captured explicitly when submitting tasks.
+     * Enable the "virtual thread" mode({@link TransmittableThreadLocal#setVirtualThreadModeEnabled(boolean)})
+     * to replay the values to the virtual threads without setting the {@code ThreadLocalMap} entries.
+     * <p>
+     * The returned executor is always wrapped, since {@code TTL Java Agent} does not enhance this executor.
+     *
+     * @throws UnsupportedOperationException if the JVM does not support virtual threads
+     * @see TransmittableThreadLocal#setVirtualThreadModeEnabled(boolean)
+     */
+    @NonNull
+    public static ExecutorService newTtlVirtualThreadPerTaskExecutor() {
+        final ThreadFactory threadFactory = getDefaultDisableInheritableVirtualThreadFactory();
+        return new ExecutorServiceTtlWrapper(VirtualThreads.newThreadPerTaskExecutor(threadFactory), true, null);
+    }
+
+    /**
+     * Create a factory of virtual threads({@code Java 21+}), disable inheritable.
+     * <p>
+     * Unlike {@link #getDisableInheritableThreadFactory(ThreadFactory)} which clears the values when creating a thread,
+     * the virtual threads are created without inheritable copying,
+     * aka. {@code Thread.ofVirtual().inheritInheritableThreadLocals(false).factory()}.
+     *
+     * @throws UnsupportedOperationException if the JVM does not support virtual threads
+     * @see #newTtlVirtualThreadPerTaskExecutor()
+     */
+    @NonNull
+    public static ThreadFactory getDefaultDisableInheritableVirtualThreadFactory() {
+        return VirtualThreads.newVirtualThreadFactory(false);
+    }
+
     ///////////////////////////////////////////////////////////////////////////
     // ForkJoinPool utils
     ///////////////////////////////////////////////////////////////////////////
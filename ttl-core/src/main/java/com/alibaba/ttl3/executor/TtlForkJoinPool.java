@@ -0,0 +1,173 @@
+package com.alibaba.ttl3.executor;
+
+import com.alibaba.crr.composite.Backup;
+import com.alibaba.crr.composite.Capture;
+import com.alibaba.ttl3.TransmittableThreadLocal;
+import com.alibaba.ttl3.TtlRecursiveAction;
+import com.alibaba.ttl3.TtlRecursiveTask;
+import com.alibaba.ttl3.spi.TtlEnhanced;
+import com.alibaba.ttl3.spi.TtlWrapper;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static com.alibaba.ttl3.transmitter.Transmitter.*;
+
+/**
+ * A {@link ForkJoinPool} transmitting the {@link TransmittableThreadLocal} values
+ * from the task submit time of {@link Runnable}/{@link Callable} to the execution time.
+ * <p>
+ * The submitted {@link Runnable}/{@link Callable} is adapted to a {@link ForkJoinTask} carrying the captured values directly,
+ * instead of the {@link com.alibaba.ttl3.TtlRunnable}/{@link com.alibaba.ttl3.TtlCallable} wrapper
+ * plus the {@link ForkJoinTask} adapter of {@link ForkJoinPool}.
+ * The tasks already enhanced(e.g. {@link com.alibaba.ttl3.TtlRunnable}) are adapted without capture.
+ * <p>
+ * The submitted {@link ForkJoinTask}s are executed as is,
+ * use {@link TtlRecursiveTask}/{@link TtlRecursiveAction} to transmit the values to the {@link ForkJoinTask}s.
+ *
+ * @see TtlThreadPoolExecutor
+ * @see TtlRecursiveTask
+ * @see TtlRecursiveAction
+ */
+public class TtlForkJoinPool extends ForkJoinPool implements TtlEnhanced {
+    public TtlForkJoinPool() {
+        super();
+    }
+
+    public TtlForkJoinPool(int parallelism) {
+        super(parallelism);
+    }
+
+    public TtlForkJoinPool(int parallelism, @NonNull ForkJoinWorkerThreadFactory factory,
+                           @Nullable Thread.UncaughtExceptionHandler handler, boolean asyncMode) {
+        super(parallelism, factory, handler, asyncMode);
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // capture when the task is submitted
+    //
+    // the adapted tasks are TtlEnhanced, so not decorated again by the TTL agent.
+    ///////////////////////////////////////////////////////////////////////////
+
+    @Override
+    public void execute(@NonNull Runnable task) {
+        super.execute(new CapturedTask<>(task, null, null));
+    }
+
+    @NonNull
+    @Override
+    public ForkJoinTask<?> submit(@NonNull Runnable task) {
+        return super.submit(new CapturedTask<>(task, null, null));
+    }
+
+    @NonNull
+    @Override
+    public <T> ForkJoinTask<T> submit(@NonNull Runnable task, T result) {
+        return super.submit(new CapturedTask<>(task, null, result));
+    }
+
+    @NonNull
+    @Override
+    public <T> ForkJoinTask<T> submit(@NonNull Callable<T> task) {
+        return super.submit(new CapturedTask<>(null, task, null));
+    }
+
+    /**
+     * capture once for all tasks.
+     */
+    @NonNull
+    @Override
+    public <T> List<Future<T>> invokeAll(@NonNull Collection<? extends Callable<T>> tasks) {
+        final Capture captured = capture();
+        final List<Future<T>> futures = new ArrayList<>(tasks.size());
+        try {
+            for (Callable<T> t : tasks) {
+                final CapturedTask<T> f = new CapturedTask<>(null, t, null, t instanceof TtlEnhanced ? null : captured);
+                futures.add(f);
+                super.execute(f);
+            }
+            for (Future<T> f : futures) {
+                ((ForkJoinTask<?>) f).quietlyJoin();
+            }
+            return futures;
+        } catch (Throwable t) {
+            for (Future<T> f : futures) {
+                f.cancel(false);
+            }
+            throw t;
+        }
+    }
+
+    /**
+     * the adapted {@link ForkJoinTask} of the submitted {@link Runnable}/{@link Callable}, carry the captured values.
+     */
+    private static final class CapturedTask<V> extends ForkJoinTask<V> implements TtlWrapper<Object>, TtlEnhanced {
+        private static final long serialVersionUID = -2384226218396512423L;
+
+        private final Runnable runnable;
+        private final Callable<V> callable;
+        /**
+         * {@code null} if the task is enhanced already.
+         */
+        private final Capture captured;
+        private V result;
+
+        CapturedTask(Runnable runnable, Callable<V> callable, V result) {
+            this(runnable, callable, result, isEnhanced(runnable, callable) ? null : capture());
+        }
+
+        CapturedTask(Runnable runnable, Callable<V> callable, V result, Capture captured) {
+            if (runnable == null && callable == null) throw new NullPointerException("task is null");
+            this.runnable = runnable;
+            this.callable = callable;
+            this.result = result;
+            this.captured = captured;
+        }
+
+        private static boolean isEnhanced(Runnable runnable, Callable<?> callable) {
+            return runnable instanceof TtlEnhanced || callable instanceof TtlEnhanced;
+        }
+
+        @Override
+        public V getRawResult() {
+            return result;
+        }
+
+        @Override
+        protected void setRawResult(V value) {
+            result = value;
+        }
+
+        @Override
+        protected boolean exec() {
+            final Backup backup = captured == null ? null : replay(captured);
+            try {
+                if (callable != null) result = callable.call();
+                else runnable.run();
+                return true;
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Exception e) {
+                // same as the Callable adapter of ForkJoinPool
+                throw new RuntimeException(e);
+            } finally {
+                if (backup != null) restore(backup);
+            }
+        }
+
+        @NonNull
+        @Override
+        public Object unwrap() {
+            return callable != null ? callable : runnable;
+        }
+
+        @Override
+        public String toString() {
+            return getClass().getName() + " - " + unwrap();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.alibaba.ttl3.executor;
+
+import com.alibaba.crr.composite.Capture;
+import com.alibaba.ttl3.TransmittableThreadLocal;
+import com.alibaba.ttl3.spi.TtlEnhanced;
+import com.alibaba.ttl3.transmitter.Transmitter;
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+import java.util.concurrent.RunnableScheduledFuture;
+
+/**
+ * The {@link RunnableScheduledFuture} of {@link TtlScheduledThreadPoolExecutor},
+ * the captured {@link TransmittableThreadLocal} values of the task can be replaced without rescheduling,
+ * e.g. refresh the config/tenant of a periodic task.
+ *
+ * @see TtlScheduledThreadPoolExecutor
+ */
+public interface TtlScheduledFuture<V> extends RunnableScheduledFuture<V>, TtlEnhanced {
+    /**
+     * the captured values replayed by the runs of the task.
+     */
+    @NonNull
+    Capture getCaptured();
+
+    /**
+     * Replace the captured values atomically, the following runs of the task replay the new captured values;
+     * the running run is not affected.
+     *
+     * @param captured the new captured values from {@link Transmitter#capture()}
+     * @return the captured values before replacement
+     */
+    @NonNull
+    Capture replaceCaptured(@NonNull Capture captured);
+
+    /**
+     * Replace the captured values by the values of the current thread.
+     *
+     * @return the captured values before replacement
+     * @see #replaceCaptured(Capture)
+     */
+    @NonNull
+    default Capture recapture() {
+        return replaceCaptured(Transmitter.capture());
+    }
+}
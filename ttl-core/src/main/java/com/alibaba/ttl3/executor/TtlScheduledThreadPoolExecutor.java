@@ -0,0 +1,286 @@
+package com.alibaba.ttl3.executor;
+
+import com.alibaba.crr.composite.Backup;
+import com.alibaba.crr.composite.Capture;
+import com.alibaba.ttl3.TransmittableThreadLocal;
+import com.alibaba.ttl3.spi.TtlEnhanced;
+import com.alibaba.ttl3.spi.TtlWrapper;
+import com.alibaba.ttl3.transmitter.Transmitter;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+import static com.alibaba.ttl3.transmitter.Transmitter.*;
+
+/**
+ * A {@link ScheduledThreadPoolExecutor} transmitting the {@link TransmittableThreadLocal} values
+ * from the task submit time to the execution time, optimized for the periodic tasks.
+ * <p>
+ * The values are captured once when a task is scheduled, and replayed by each run of the task.
+ * The worker threads are dedicated to the tasks of this executor, so the replayed values are <b>kept installed</b>
+ * on the worker thread after a run; the following run of the same captured values
+ * (the same periodic task, or the other tasks scheduled with the same unchanged values,
+ * see {@link Transmitter#capture()}) skips the replay, and the values are reset only if modified by the last run.
+ * The values installed are restored when a task of different captured values runs, or the worker thread exits.
+ * <p>
+ * The replay skip depends on the reusable check of the values,
+ * enable the "persistent context" mode({@link TransmittableThreadLocal#setPersistentContextEnabled(boolean)});
+ * otherwise the runs replay/restore as {@link TtlExecutors#getTtlScheduledExecutorService(ScheduledExecutorService)}.
+ * <p>
+ * The scheduling methods return {@link TtlScheduledFuture}, the captured values of a scheduled task
+ * can be replaced by {@link TtlScheduledFuture#replaceCaptured(Capture)} without rescheduling.
+ * <p>
+ * <b><i>Note:</i></b>
+ * <ul>
+ * <li>{@link #beforeExecute(Thread, Runnable)}/{@link #afterExecute(Runnable, Throwable)} see the values
+ *     kept installed by the last run, not the values of the task.</li>
+ * <li>the cancelled tasks are not removed from the work queue even if {@link #setRemoveOnCancelPolicy(boolean)} is set,
+ *     since the tasks are decorated({@link #decorateTask(Runnable, RunnableScheduledFuture)}),
+ *     they are removed when the delay elapsed or by {@link #purge()}.</li>
+ * </ul>
+ *
+ * @see TtlScheduledFuture
+ * @see TtlExecutors#getTtlScheduledExecutorService(ScheduledExecutorService)
+ * @see TransmittableThreadLocal#setPersistentContextEnabled(boolean)
+ */
+public class TtlScheduledThreadPoolExecutor extends ScheduledThreadPoolExecutor implements TtlEnhanced {
+    public TtlScheduledThreadPoolExecutor(int corePoolSize) {
+        this(corePoolSize, Executors.defaultThreadFactory());
+    }
+
+    public TtlScheduledThreadPoolExecutor(int corePoolSize, @NonNull ThreadFactory threadFactory) {
+        super(corePoolSize, WorkerContext.getWorkerThreadFactory(threadFactory));
+    }
+
+    public TtlScheduledThreadPoolExecutor(int corePoolSize, @NonNull RejectedExecutionHandler handler) {
+        this(corePoolSize, Executors.defaultThreadFactory(), handler);
+    }
+
+    public TtlScheduledThreadPoolExecutor(int corePoolSize, @NonNull ThreadFactory threadFactory,
+                                          @NonNull RejectedExecutionHandler handler) {
+        super(corePoolSize, WorkerContext.getWorkerThreadFactory(threadFactory), handler);
+    }
+
+    @Override
+    public void setThreadFactory(@NonNull ThreadFactory threadFactory) {
+        super.setThreadFactory(WorkerContext.getWorkerThreadFactory(threadFactory));
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // capture when the task is submitted
+    //
+    // the submitted tasks are decorated before calling the methods of ScheduledThreadPoolExecutor,
+    // the decorated tasks are TtlEnhanced, so not decorated again by the TTL agent.
+    ///////////////////////////////////////////////////////////////////////////
+
+    @Override
+    public void execute(@NonNull Runnable command) {
+        schedule(command, 0, TimeUnit.NANOSECONDS);
+    }
+
+    @NonNull
+    @Override
+    public Future<?> submit(@NonNull Runnable task) {
+        return schedule(task, 0, TimeUnit.NANOSECONDS);
+    }
+
+    @NonNull
+    @Override
+    public <T> Future<T> submit(@NonNull Runnable task, T result) {
+        return schedule(Executors.callable(task, result), 0, TimeUnit.NANOSECONDS);
+    }
+
+    @NonNull
+    @Override
+    public <T> Future<T> submit(@NonNull Callable<T> task) {
+        return schedule(task, 0, TimeUnit.NANOSECONDS);
+    }
+
+    @NonNull
+    @Override
+    public TtlScheduledFuture<?> schedule(@NonNull Runnable command, long delay, @NonNull TimeUnit unit) {
+        return (TtlScheduledFuture<?>) super.schedule((Runnable) new CapturedTask<>(command, null, capture()), delay, unit);
+    }
+
+    @NonNull
+    @Override
+    public <V> TtlScheduledFuture<V> schedule(@NonNull Callable<V> callable, long delay, @NonNull TimeUnit unit) {
+        return (TtlScheduledFuture<V>) super.schedule((Callable<V>) new CapturedTask<>(null, callable, capture()), delay, unit);
+    }
+
+    @NonNull
+    @Override
+    public TtlScheduledFuture<?> scheduleAtFixedRate(@NonNull Runnable command, long initialDelay, long period, @NonNull TimeUnit unit) {
+        return (TtlScheduledFuture<?>) super.scheduleAtFixedRate(new CapturedTask<>(command, null, capture()), initialDelay, period, unit);
+    }
+
+    @NonNull
+    @Override
+    public TtlScheduledFuture<?> scheduleWithFixedDelay(@NonNull Runnable command, long initialDelay, long delay, @NonNull TimeUnit unit) {
+        return (TtlScheduledFuture<?>) super.scheduleWithFixedDelay(new CapturedTask<>(command, null, capture()), initialDelay, delay, unit);
+    }
+
+    @NonNull
+    @Override
+    protected <V> RunnableScheduledFuture<V> decorateTask(@NonNull Runnable runnable, @NonNull RunnableScheduledFuture<V> task) {
+        return new CapturedFutureTask<>(task, (CapturedTask<?>) runnable);
+    }
+
+    @NonNull
+    @Override
+    protected <V> RunnableScheduledFuture<V> decorateTask(@NonNull Callable<V> callable, @NonNull RunnableScheduledFuture<V> task) {
+        return new CapturedFutureTask<>(task, (CapturedTask<?>) callable);
+    }
+
+    /**
+     * the task with the captured values, run the task with the captured values replayed.
+     */
+    private static final class CapturedTask<V> implements Runnable, Callable<V>, TtlWrapper<Object>, TtlEnhanced {
+        @SuppressWarnings("rawtypes")
+        private static final AtomicReferenceFieldUpdater<CapturedTask, Capture> CAPTURED_UPDATER =
+                AtomicReferenceFieldUpdater.newUpdater(CapturedTask.class, Capture.class, "captured");
+
+        private final Runnable runnable;
+        private final Callable<V> callable;
+        private volatile Capture captured;
+
+        CapturedTask(Runnable runnable, Callable<V> callable, @NonNull Capture captured) {
+            if (runnable == null && callable == null) throw new NullPointerException("task is null");
+            this.runnable = runnable;
+            this.callable = callable;
+            this.captured = captured;
+        }
+
+        @Override
+        public void run() {
+            try {
+                call();
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Exception e) {
+                // unreachable, the runnable throws no checked exception
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public V call() throws Exception {
+            final WorkerContext context = WorkerContext.current();
+            final Backup backup = WorkerContext.replayRun(context, captured, true);
+            try {
+                return doCall();
+            } finally {
+                WorkerContext.restoreRun(context, backup);
+            }
+        }
+
+        private V doCall() throws Exception {
+            if (callable != null) return callable.call();
+            runnable.run();
+            return null;
+        }
+
+        Capture getCaptured() {
+            return captured;
+        }
+
+        @SuppressWarnings("unchecked")
+        Capture replaceCaptured(@NonNull Capture captured) {
+            if (captured == null) throw new NullPointerException("captured is null");
+            return CAPTURED_UPDATER.getAndSet(this, captured);
+        }
+
+        @NonNull
+        @Override
+        public Object unwrap() {
+            return callable != null ? callable : runnable;
+        }
+
+        @Override
+        public String toString() {
+            return getClass().getName() + " - " + unwrap();
+        }
+    }
+
+    /**
+     * the decorated {@link RunnableScheduledFuture} of {@link ScheduledThreadPoolExecutor},
+     * expose the captured values of the task.
+     */
+    @SuppressFBWarnings({"EQ_COMPARETO_USE_OBJECT_EQUALS"})
+    private static final class CapturedFutureTask<V> implements TtlScheduledFuture<V> {
+        private final RunnableScheduledFuture<V> task;
+        private final CapturedTask<?> capturedTask;
+
+        CapturedFutureTask(@NonNull RunnableScheduledFuture<V> task, @NonNull CapturedTask<?> capturedTask) {
+            this.task = task;
+            this.capturedTask = capturedTask;
+        }
+
+        @NonNull
+        @Override
+        public Capture getCaptured() {
+            return capturedTask.getCaptured();
+        }
+
+        @NonNull
+        @Override
+        public Capture replaceCaptured(@NonNull Capture captured) {
+            return capturedTask.replaceCaptured(captured);
+        }
+
+        @Override
+        public boolean isPeriodic() {
+            return task.isPeriodic();
+        }
+
+        @Override
+        public long getDelay(@NonNull TimeUnit unit) {
+            return task.getDelay(unit);
+        }
+
+        /**
+         * compare the underneath tasks, keep the FIFO order of the tasks with the same trigger time.
+         */
+        @Override
+        public int compareTo(@NonNull Delayed o) {
+            return task.compareTo(o instanceof CapturedFutureTask ? ((CapturedFutureTask<?>) o).task : o);
+        }
+
+        @Override
+        public void run() {
+            task.run();
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            return task.cancel(mayInterruptIfRunning);
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return task.isCancelled();
+        }
+
+        @Override
+        public boolean isDone() {
+            return task.isDone();
+        }
+
+        @Override
+        public V get() throws InterruptedException, ExecutionException {
+            return task.get();
+        }
+
+        @Override
+        public V get(long timeout, @NonNull TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+            return task.get(timeout, unit);
+        }
+
+        @Override
+        public String toString() {
+            return getClass().getName() + " - " + capturedTask.unwrap();
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.alibaba.ttl3.executor;
+
+import com.alibaba.crr.composite.Backup;
+import com.alibaba.crr.composite.Capture;
+import com.alibaba.ttl3.TransmittableThreadLocal;
+import com.alibaba.ttl3.spi.TtlEnhanced;
+import com.alibaba.ttl3.spi.TtlWrapper;
+import com.alibaba.ttl3.transmitter.Transmitter;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+
+import java.util.concurrent.*;
+
+import static com.alibaba.ttl3.transmitter.Transmitter.capture;
+
+/**
+ * A {@link ThreadPoolExecutor} transmitting the {@link TransmittableThreadLocal} values
+ * from the task submit time to the execution time.
+ * <p>
+ * Compared with the executor wrapped by {@link TtlExecutors#getTtlExecutorService(ExecutorService)},
+ * the captured values are carried by the task node of the executor directly:
+ * the {@link FutureTask} created by {@code submit}/{@code invokeAll}/{@code invokeAny}
+ * (see {@link #newTaskFor(Callable)}), or the single decorated task of {@link #execute(Runnable)};
+ * no {@link com.alibaba.ttl3.TtlRunnable}/{@link com.alibaba.ttl3.TtlCallable} wrapper is created for a task.
+ * The tasks already enhanced(e.g. {@link com.alibaba.ttl3.TtlRunnable}) are executed as is.
+ * <p>
+ * By default, the values are replayed before the task runs, and restored after the task runs.
+ * If {@link #setKeepContextInstalled(boolean)} is set, the replayed values are <b>kept installed</b>
+ * on the worker thread after a run, and reset only when the next task of different captured values runs;
+ * the tasks of the same unchanged captured values(see {@link Transmitter#capture()}) run in succession
+ * skip the replay, which requires the "persistent context" mode
+ * ({@link TransmittableThreadLocal#setPersistentContextEnabled(boolean)}).
+ * <p>
+ * <b><i>Note:</i></b>
+ * {@link #beforeExecute(Thread, Runnable)}/{@link #afterExecute(Runnable, Throwable)} run without the values of the task;
+ * they see the values kept installed by the last run if {@link #setKeepContextInstalled(boolean)} is set.
+ *
+ * @see TtlForkJoinPool
+ * @see TtlScheduledThreadPoolExecutor
+ * @see TtlExecutors#getTtlExecutorService(ExecutorService)
+ */
+public class TtlThreadPoolExecutor extends ThreadPoolExecutor implements TtlEnhanced {
+    private volatile boolean keepContextInstalled;
+
+    public TtlThreadPoolExecutor(int corePoolSize, int maximumPoolSize, long keepAliveTime, @NonNull TimeUnit unit,
+                                 @NonNull BlockingQueue<Runnable> workQueue) {
+        this(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue, Executors.defaultThreadFactory());
+    }
+
+    public TtlThreadPoolExecutor(int corePoolSize, int maximumPoolSize, long keepAliveTime, @NonNull TimeUnit unit,
+                                 @NonNull BlockingQueue<Runnable> workQueue, @NonNull ThreadFactory threadFactory) {
+        super(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue, WorkerContext.getWorkerThreadFactory(threadFactory));
+    }
+
+    public TtlThreadPoolExecutor(int corePoolSize, int maximumPoolSize, long keepAliveTime, @NonNull TimeUnit unit,
+                                 @NonNull BlockingQueue<Runnable> workQueue, @NonNull RejectedExecutionHandler handler) {
+        this(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue, Executors.defaultThreadFactory(), handler);
+    }
+
+    public TtlThreadPoolExecutor(int corePoolSize, int maximumPoolSize, long keepAliveTime, @NonNull TimeUnit unit,
+                                 @NonNull BlockingQueue<Runnable> workQueue, @NonNull ThreadFactory threadFactory,
+                                 @NonNull RejectedExecutionHandler handler) {
+        super(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue, WorkerContext.getWorkerThreadFactory(threadFactory), handler);
+    }
+
+    @Override
+    public void setThreadFactory(@NonNull ThreadFactory threadFactory) {
+        super.setThreadFactory(WorkerContext.getWorkerThreadFactory(threadFactory));
+    }
+
+    /**
+     * Keep the replayed values installed on the worker thread after a task runs or not, default {@code false}.
+     * <p>
+     * If {@code true}, the values installed are reset only when a task of different captured values runs,
+     * or the worker thread exits; the modification of the values by a task is still reset after the task runs.
+     * The idle worker threads hold the values of their last task.
+     */
+    public void setKeepContextInstalled(boolean keepContextInstalled) {
+        this.keepContextInstalled = keepContextInstalled;
+    }
+
+    /**
+     * @see #setKeepContextInstalled(boolean)
+     */
+    public boolean isKeepContextInstalled() {
+        return keepContextInstalled;
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // capture when the task is submitted
+    //
+    // the task nodes are TtlEnhanced, so not decorated again by the TTL agent.
+    ///////////////////////////////////////////////////////////////////////////
+
+    @Override
+    public void execute(@NonNull Runnable command) {
+        if (command == null) throw new NullPointerException("command is null");
+        super.execute(command instanceof TtlEnhanced ? command : new CapturedRunnable(command, capture()));
+    }
+
+    @NonNull
+    @Override
+    protected <T> RunnableFuture<T> newTaskFor(@NonNull Runnable runnable, T value) {
+        return new CapturedFutureTask<>(runnable, value, runnable instanceof TtlEnhanced ? null : capture());
+    }
+
+    @NonNull
+    @Override
+    protected <T> RunnableFuture<T> newTaskFor(@NonNull Callable<T> callable) {
+        return new CapturedFutureTask<>(callable, callable instanceof TtlEnhanced ? null : capture());
+    }
+
+    /**
+     * the task node of {@code submit}, carry the captured values.
+     */
+    private final class CapturedFutureTask<V> extends FutureTask<V> implements TtlEnhanced {
+        private final Object task;
+        /**
+         * {@code null} if the task is enhanced already.
+         */
+        private final Capture captured;
+
+        CapturedFutureTask(@NonNull Runnable runnable, V result, @Nullable Capture captured) {
+            super(runnable, result);
+            this.task = runnable;
+            this.captured = captured;
+        }
+
+        CapturedFutureTask(@NonNull Callable<V> callable, @Nullable Capture captured) {
+            super(callable);
+            this.task = callable;
+            this.captured = captured;
+        }
+
+        @Override
+        public void run() {
+            if (captured == null) {
+                super.run();
+                return;
+            }
+
+            final WorkerContext context = WorkerContext.current();
+            final Backup backup = WorkerContext.replayRun(context, captured, keepContextInstalled);
+            try {
+                super.run();
+            } finally {
+                WorkerContext.restoreRun(context, backup);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return getClass().getName() + " - " + task;
+        }
+    }
+
+    /**
+     * the task node of {@link #execute(Runnable)}, carry the captured values.
+     */
+    private final class CapturedRunnable implements Runnable, TtlWrapper<Runnable>, TtlEnhanced {
+        private final Runnable runnable;
+        private final Capture captured;
+
+        CapturedRunnable(@NonNull Runnable runnable, @NonNull Capture captured) {
+            this.runnable = runnable;
+            this.captured = captured;
+        }
+
+        @Override
+        public void run() {
+            final WorkerContext context = WorkerContext.current();
+            final Backup backup = WorkerContext.replayRun(context, captured, keepContextInstalled);
+            try {
+                runnable.run();
+            } finally {
+                WorkerContext.restoreRun(context, backup);
+            }
+        }
+
+        @NonNull
+        @Override
+        public Runnable unwrap() {
+            return runnable;
+        }
+
+        @Override
+        public String toString() {
+            return getClass().getName() + " - " + runnable;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.alibaba.ttl3.executor;
+
+import com.alibaba.crr.composite.Backup;
+import com.alibaba.crr.composite.Capture;
+import com.alibaba.ttl3.spi.TtlWrapper;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+
+import java.util.concurrent.ThreadFactory;
+
+import static com.alibaba.ttl3.transmitter.Transmitter.replay;
+import static com.alibaba.ttl3.transmitter.Transmitter.restore;
+
+/**
+ * The captured values kept installed on a worker thread of the executors owning their worker threads,
+ * e.g. {@link TtlThreadPoolExecutor} and {@link TtlScheduledThreadPoolExecutor}.
+ * <p>
+ * The installed values are restored when a task of different captured values runs, or the worker thread exits.
+ */
+final class WorkerContext {
+    private static final ThreadLocal<WorkerContext> current = new ThreadLocal<>();
+
+    private Capture captured;
+    private Backup backup;
+    /**
+     * the depth of the running tasks, the nested runs(e.g. run a future in the task) do not change the installed.
+     */
+    private int running;
+
+    private WorkerContext() {
+    }
+
+    /**
+     * the context of the current thread, {@code null} if the current thread is not a worker thread.
+     */
+    @Nullable
+    static WorkerContext current() {
+        return current.get();
+    }
+
+    /**
+     * replay the captured values for a run of the task on the current thread.
+     *
+     * @param context       the context of the current thread, see {@link #current()}
+     * @param keepInstalled keep the captured values installed after the run or not;
+     *                      if not, the values installed by the last run are restored before the replay
+     * @return the backup for {@link #restoreRun(WorkerContext, Backup)}
+     */
+    @NonNull
+    static Backup replayRun(@Nullable WorkerContext context, @NonNull Capture captured, boolean keepInstalled) {
+        if (context == null) return replay(captured);
+
+        if (context.running == 0) {
+            if (keepInstalled) context.install(captured);
+            else context.uninstall();
+        }
+        // skipped if the thread holds the installed values unmodified
+        final Backup backup = replay(captured);
+        context.running++;
+        return backup;
+    }
+
+    static void restoreRun(@Nullable WorkerContext context, @NonNull Backup backup) {
+        if (context != null) context.running--;
+        restore(backup);
+    }
+
+    private void install(Capture captured) {
+        if (this.captured == captured) return;
+
+        uninstall();
+        this.backup = replay(captured);
+        this.captured = captured;
+    }
+
+    private void uninstall() {
+        if (backup == null) return;
+
+        final Backup b = backup;
+        backup = null;
+        captured = null;
+        restore(b);
+    }
+
+    /**
+     * mark the threads as the worker threads, and restore the installed values when the thread exits.
+     */
+    @NonNull
+    static ThreadFactory getWorkerThreadFactory(@NonNull ThreadFactory threadFactory) {
+        if (threadFactory == null) throw new NullPointerException("threadFactory is null");
+        if (threadFactory instanceof WorkerThreadFactory) return threadFactory;
+        return new WorkerThreadFactory(threadFactory);
+    }
+
+    private static final class WorkerThreadFactory implements ThreadFactory, TtlWrapper<ThreadFactory> {
+        private final ThreadFactory threadFactory;
+
+        WorkerThreadFactory(@NonNull ThreadFactory threadFactory) {
+            this.threadFactory = threadFactory;
+        }
+
+        @Override
+        public Thread newThread(@NonNull Runnable r) {
+            return threadFactory.newThread(new Worker(r));
+        }
+
+        @NonNull
+        @Override
+        public ThreadFactory unwrap() {
+            return threadFactory;
+        }
+
+        @Override
+        public String toString() {
+            return this.getClass().getName() + " - " + threadFactory;
+        }
+    }
+
+    private static final class Worker implements Runnable {
+        private final Runnable runnable;
+
+        Worker(Runnable runnable) {
+            this.runnable = runnable;
+        }
+
+        @Override
+        public void run() {
+            final WorkerContext context = new WorkerContext();
+            current.set(context);
+            try {
+                runnable.run();
+            } finally {
+                context.uninstall();
+                current.remove();
+            }
+        }
+    }
+}
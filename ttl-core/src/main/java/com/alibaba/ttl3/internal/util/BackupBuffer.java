@@ -0,0 +1,152 @@
+package com.alibaba.ttl3.internal.util;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import org.jetbrains.annotations.ApiStatus;
+
+import java.util.Arrays;
+
+/**
+ * A reusable buffer of {@code (key, value)} pairs, used as the backup data of {@code replay}.
+ * <p>
+ * The buffers are borrowed from and released to a per-thread {@link Pool},
+ * so the steady-state {@code replay}/{@code restore} does not allocate.
+ * <p>
+ * A buffer is borrowed by {@code replay}, and released by {@code restore} exactly once;
+ * after released, the buffer may be reused by the following {@code replay}.
+ * A buffer restored in a thread other than the replay thread is dropped instead of pooled.
+ */
+@ApiStatus.Internal
+public final class BackupBuffer {
+    private static final Object[] EMPTY_PAIRS = new Object[0];
+
+    private Object[] pairs = EMPTY_PAIRS;
+    private int size = 0;
+    private Object state;
+
+    private boolean overlay;
+    private Object overlayBefore;
+    private BackupBuffer overlayBackupBefore;
+
+    private boolean inUse = false;
+    /**
+     * the pool borrowed this buffer, aka. the pool of the replay thread.
+     */
+    private Pool owner;
+    private BackupBuffer next;
+
+    public void add(Object key, Object value) {
+        if (size + 2 > pairs.length) pairs = Arrays.copyOf(pairs, Math.max(8, pairs.length * 2));
+        pairs[size++] = key;
+        pairs[size++] = value;
+    }
+
+    /**
+     * the count of {@code (key, value)} pairs.
+     */
+    public int size() {
+        return size >> 1;
+    }
+
+    public Object key(int i) {
+        return pairs[i << 1];
+    }
+
+    public Object value(int i) {
+        return pairs[(i << 1) + 1];
+    }
+
+    /**
+     * the extra state of the backup besides the pairs, e.g. the state to restore directly.
+     */
+    public Object getState() {
+        return state;
+    }
+
+    public void setState(Object state) {
+        this.state = state;
+    }
+
+    /**
+     * Whether this is the backup of an overlay replay, which installs the captured as the overlay
+     * instead of setting the values.
+     */
+    public boolean isOverlay() {
+        return overlay;
+    }
+
+    /**
+     * mark this as the backup of an overlay replay, and keep the overlay state before replay.
+     *
+     * @param overlayBefore       the overlay before replay
+     * @param overlayBackupBefore the backup of materializing the overlay before replay
+     */
+    public void setOverlay(Object overlayBefore, BackupBuffer overlayBackupBefore) {
+        this.overlay = true;
+        this.overlayBefore = overlayBefore;
+        this.overlayBackupBefore = overlayBackupBefore;
+    }
+
+    public Object getOverlayBefore() {
+        return overlayBefore;
+    }
+
+    public BackupBuffer getOverlayBackupBefore() {
+        return overlayBackupBefore;
+    }
+
+    /**
+     * The per-thread free list of {@link BackupBuffer}.
+     * <p>
+     * NOTE: NOT thread-safe, should be used as the value of a {@link ThreadLocal}.
+     */
+    public static final class Pool {
+        private BackupBuffer free;
+
+        @NonNull
+        public BackupBuffer borrow() {
+            BackupBuffer buffer = free;
+            if (buffer == null) buffer = new BackupBuffer();
+            else free = buffer.next;
+
+            buffer.next = null;
+            buffer.owner = this;
+            buffer.inUse = true;
+            return buffer;
+        }
+
+        /**
+         * release the buffer to this pool, the references to the keys/values are cleared.
+         * <p>
+         * the buffer borrowed from other pool(restored in a thread other than the replay thread) is dropped
+         * instead of joining the free list of this pool, so the free list is bounded by the max nesting depth of replay.
+         *
+         * @throws IllegalStateException if the buffer is already released
+         */
+        public void release(@NonNull BackupBuffer buffer) {
+            if (!buffer.inUse) throw new IllegalStateException("backup is already restored");
+
+            Arrays.fill(buffer.pairs, 0, buffer.size, null);
+            buffer.size = 0;
+            buffer.state = null;
+            buffer.overlay = false;
+            buffer.overlayBefore = null;
+            buffer.overlayBackupBefore = null;
+            buffer.inUse = false;
+            if (buffer.owner != this) {
+                buffer.owner = null;
+                return;
+            }
+            buffer.next = free;
+            free = buffer;
+        }
+
+        /**
+         * the count of the buffers in the free list.
+         */
+        public int freeCount() {
+            int count = 0;
+            for (BackupBuffer buffer = free; buffer != null; buffer = buffer.next) count++;
+            return count;
+        }
+    }
+}
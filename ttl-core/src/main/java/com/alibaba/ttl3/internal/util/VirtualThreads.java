@@ -0,0 +1,103 @@
+package com.alibaba.ttl3.internal.util;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import org.jetbrains.annotations.ApiStatus;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * The virtual thread({@code JDK 21+}) utils.
+ * <p>
+ * TTL is compiled for {@code Java 8}, so the virtual thread APIs are looked up by reflection;
+ * on the JVMs without virtual threads, {@link #isVirtual(Thread)} always returns {@code false}.
+ */
+@ApiStatus.Internal
+public final class VirtualThreads {
+    /**
+     * {@code Thread#isVirtual()}, {@code null} if not supported.
+     */
+    private static final MethodHandle IS_VIRTUAL = findIsVirtual();
+
+    private static MethodHandle findIsVirtual() {
+        try {
+            return MethodHandles.publicLookup().findVirtual(Thread.class, "isVirtual", MethodType.methodType(boolean.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Whether the JVM supports virtual threads.
+     */
+    public static boolean isSupported() {
+        return IS_VIRTUAL != null;
+    }
+
+    /**
+     * Whether the thread is a virtual thread.
+     */
+    @SuppressWarnings("ConstantConditions")
+    public static boolean isVirtual(@NonNull Thread thread) {
+        if (IS_VIRTUAL == null) return false;
+        try {
+            return (boolean) IS_VIRTUAL.invokeExact(thread);
+        } catch (Throwable t) {
+            return false;
+        }
+    }
+
+    /**
+     * Create a factory of virtual threads,
+     * aka. {@code Thread.ofVirtual().inheritInheritableThreadLocals(inherit).factory()}.
+     *
+     * @throws UnsupportedOperationException if the JVM does not support virtual threads
+     */
+    @NonNull
+    public static ThreadFactory newVirtualThreadFactory(boolean inheritInheritableThreadLocals) {
+        checkSupported();
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            final Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builder = builderClass.getMethod("inheritInheritableThreadLocals", boolean.class)
+                    .invoke(builder, inheritInheritableThreadLocals);
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            throw new UnsupportedOperationException("fail to create the virtual thread factory: " + e, e);
+        }
+    }
+
+    /**
+     * Create an executor that starts a new thread for each task,
+     * aka. {@code Executors.newThreadPerTaskExecutor(threadFactory)}.
+     *
+     * @throws UnsupportedOperationException if the JVM does not support virtual threads
+     */
+    @NonNull
+    public static ExecutorService newThreadPerTaskExecutor(@NonNull ThreadFactory threadFactory) {
+        checkSupported();
+        try {
+            return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                    .invoke(null, threadFactory);
+        } catch (ReflectiveOperationException e) {
+            throw new UnsupportedOperationException("fail to create the thread-per-task executor: " + e, e);
+        }
+    }
+
+    private static void checkSupported() {
+        if (!isSupported()) {
+            throw new UnsupportedOperationException("virtual threads are not supported by the JVM(Java 21+), current java version: "
+                    + System.getProperty("java.version"));
+        }
+    }
+
+    @SuppressFBWarnings("CT_CONSTRUCTOR_THROW")
+    private VirtualThreads() {
+        throw new InstantiationError("Must not instantiate this class");
+    }
+}
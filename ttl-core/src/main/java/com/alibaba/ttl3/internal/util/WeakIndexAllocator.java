@@ -0,0 +1,82 @@
+package com.alibaba.ttl3.internal.util;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import org.jetbrains.annotations.ApiStatus;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+
+/**
+ * Allocate a dense integer index for each referent object.
+ * <p>
+ * The allocated {@link Slot} is a {@link WeakReference} to the referent;
+ * after the referent is garbage collected, the index of the slot is reclaimed to a free list
+ * (drained from the {@link ReferenceQueue} when allocating, like {@link java.util.WeakHashMap} expunges its stale entries),
+ * and reused by the following allocations. So the indexes keep dense and bounded by the count of the live referents.
+ * <p>
+ * Since an index may be reused, the owner of index-keyed storage should compare the {@link Slot} instance(identity)
+ * rather than the index to check whether a stored entry is still the one of its referent.
+ *
+ * @param <T> the referent type
+ */
+@ApiStatus.Internal
+public final class WeakIndexAllocator<T> {
+    private final ReferenceQueue<T> queue = new ReferenceQueue<>();
+
+    private int[] freeIndexes = new int[16];
+    private int freeCount = 0;
+    private int nextIndex = 0;
+
+    /**
+     * Allocate a slot(with a dense index) for the referent.
+     */
+    @NonNull
+    public synchronized Slot<T> allocate(@NonNull T referent) {
+        expungeStaleSlots();
+
+        final int index = freeCount > 0 ? freeIndexes[--freeCount] : nextIndex++;
+        return new Slot<>(referent, queue, index);
+    }
+
+    /**
+     * The upper bound(exclusive) of the allocated indexes.
+     */
+    public synchronized int indexBound() {
+        return nextIndex;
+    }
+
+    /**
+     * The count of the allocated indexes that are not reclaimed yet.
+     */
+    public synchronized int liveCount() {
+        expungeStaleSlots();
+        return nextIndex - freeCount;
+    }
+
+    private void expungeStaleSlots() {
+        for (Reference<? extends T> ref; (ref = queue.poll()) != null; ) {
+            if (freeCount == freeIndexes.length) freeIndexes = Arrays.copyOf(freeIndexes, freeCount * 2);
+            freeIndexes[freeCount++] = ((Slot<?>) ref).index;
+        }
+    }
+
+    /**
+     * The weak reference to the referent, with the allocated index.
+     *
+     * @param <T> the referent type
+     */
+    public static final class Slot<T> extends WeakReference<T> {
+        private final int index;
+
+        Slot(T referent, ReferenceQueue<? super T> queue, int index) {
+            super(referent, queue);
+            this.index = index;
+        }
+
+        public int index() {
+            return index;
+        }
+    }
+}
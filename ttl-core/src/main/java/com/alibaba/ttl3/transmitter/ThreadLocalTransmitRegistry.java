@@ -1,17 +1,19 @@
 package com.alibaba.ttl3.transmitter;
 
 import com.alibaba.ttl3.TransmittableThreadLocal;
+import com.alibaba.ttl3.internal.util.BackupBuffer;
 import edu.umd.cs.findbugs.annotations.NonNull;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.WeakHashMap;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
 import java.util.function.UnaryOperator;
 import java.util.logging.Logger;
 
-import static com.alibaba.ttl3.internal.util.Utils.newHashMap;
-
 /**
  * {@code ThreadLocalTransmitRegistry}, {@code ThreadLocal} transmit integration.
  * <p>
@@ -53,7 +55,21 @@ import static com.alibaba.ttl3.internal.util.Utils.newHashMap;
 public final class ThreadLocalTransmitRegistry {
     private static final Logger logger = Logger.getLogger(ThreadLocalTransmitRegistry.class.getName());
 
-    private static volatile WeakHashMap<ThreadLocal<Object>, UnaryOperator<Object>> threadLocalHolder = new WeakHashMap<>();
+    private static final Entry[] EMPTY_ENTRIES = new Entry[0];
+
+    /**
+     * The registered {@link ThreadLocal} instances.
+     * <p>
+     * copy-on-write, the published array is never modified,
+     * so capture is a plain array walk without locking or hashing;
+     * and the array instance is the stamp of registry changes.
+     * <p>
+     * the entry of a garbage collected {@link ThreadLocal} instance is stale,
+     * skipped by capture and expunged by the following update.
+     */
+    private static volatile Entry[] threadLocalHolder = EMPTY_ENTRIES;
+
+    private static final ReferenceQueue<ThreadLocal<Object>> staleEntryQueue = new ReferenceQueue<>();
 
     private static final Object threadLocalHolderUpdateLock = new Object();
 
@@ -105,11 +121,20 @@ public final class ThreadLocalTransmitRegistry {
         }
 
         synchronized (threadLocalHolderUpdateLock) {
-            if (!force && threadLocalHolder.containsKey(threadLocal)) return false;
+            final Entry[] entries = getEntries();
+            final int index = indexOf(entries, threadLocal);
+            if (!force && index >= 0) return false;
 
-            WeakHashMap<ThreadLocal<Object>, UnaryOperator<Object>> newHolder = new WeakHashMap<>(threadLocalHolder);
-            newHolder.put((ThreadLocal<Object>) threadLocal, (UnaryOperator<Object>) generator);
-            threadLocalHolder = newHolder;
+            final Entry entry = new Entry((ThreadLocal<Object>) threadLocal, (UnaryOperator<Object>) generator, staleEntryQueue);
+            final Entry[] newEntries;
+            if (index >= 0) {
+                newEntries = entries.clone();
+                newEntries[index] = entry;
+            } else {
+                newEntries = Arrays.copyOf(entries, entries.length + 1);
+                newEntries[entries.length] = entry;
+            }
+            threadLocalHolder = newEntries;
             return true;
         }
     }
@@ -129,42 +154,154 @@ public final class ThreadLocalTransmitRegistry {
         }
 
         synchronized (threadLocalHolderUpdateLock) {
-            if (!threadLocalHolder.containsKey(threadLocal)) return false;
+            final Entry[] entries = getEntries();
+            final int index = indexOf(entries, threadLocal);
+            if (index < 0) return false;
 
-            WeakHashMap<ThreadLocal<Object>, UnaryOperator<Object>> newHolder = new WeakHashMap<>(threadLocalHolder);
-            newHolder.remove(threadLocal);
-            threadLocalHolder = newHolder;
+            final Entry[] newEntries = new Entry[entries.length - 1];
+            System.arraycopy(entries, 0, newEntries, 0, index);
+            System.arraycopy(entries, index + 1, newEntries, index, newEntries.length - index);
+            threadLocalHolder = newEntries;
             return true;
         }
     }
 
+    private static int indexOf(Entry[] entries, ThreadLocal<?> threadLocal) {
+        for (int i = 0; i < entries.length; i++) {
+            if (entries[i].get() == threadLocal) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Return the registered entries, the stale entries are expunged first
+     * if any {@link ThreadLocal} instance is garbage collected.
+     * <p>
+     * {@link ReferenceQueue#poll()} returns without locking if the queue is empty,
+     * so no locking on the hot path(capture).
+     */
+    private static Entry[] getEntries() {
+        if (staleEntryQueue.poll() == null) return threadLocalHolder;
+        return expungeStaleEntries();
+    }
+
+    private static Entry[] expungeStaleEntries() {
+        synchronized (threadLocalHolderUpdateLock) {
+            while (staleEntryQueue.poll() != null) {
+                // drain the queue, the stale entries are found by the array walk below
+            }
 
-    private static class ThreadLocalTransmittee implements Transmittee<HashMap<ThreadLocal<Object>, Object>, HashMap<ThreadLocal<Object>, Object>> {
-        private static final Object threadLocalClearMark = new Object();
+            final Entry[] entries = threadLocalHolder;
+            int n = 0;
+            final Entry[] newEntries = new Entry[entries.length];
+            for (Entry entry : entries) {
+                if (entry.get() != null) newEntries[n++] = entry;
+            }
+            return threadLocalHolder = Arrays.copyOf(newEntries, n);
+        }
+    }
+
+    /**
+     * The registered {@link ThreadLocal} instance(weak reference) with its value generator.
+     */
+    private static final class Entry extends WeakReference<ThreadLocal<Object>> {
+        final UnaryOperator<Object> generator;
+
+        Entry(ThreadLocal<Object> threadLocal, UnaryOperator<Object> generator, ReferenceQueue<ThreadLocal<Object>> queue) {
+            super(threadLocal, queue);
+            this.generator = generator;
+        }
+    }
+
+
+    /**
+     * The capture data is a flat array of {@code (threadLocal, value)} pairs,
+     * terminated by a {@code null} threadLocal or the end of array.
+     * <p>
+     * The backup data is a {@link BackupBuffer} reused per thread.
+     */
+    private static class ThreadLocalTransmittee implements Transmittee<Object[], BackupBuffer> {
+        static final Object threadLocalClearMark = new Object();
+
+        private static final Object[] EMPTY_CAPTURE = new Object[0];
+        /**
+         * the backup of replaying empty capture, need not restore.
+         */
+        private static final BackupBuffer EMPTY_BACKUP = new BackupBuffer();
+
+        private static final ThreadLocal<ThreadState> threadState = new ThreadLocal<ThreadState>() {
+            @Override
+            protected ThreadState initialValue() {
+                return new ThreadState();
+            }
+        };
 
         @NonNull
         @Override
-        public HashMap<ThreadLocal<Object>, Object> capture() {
-            final HashMap<ThreadLocal<Object>, Object> threadLocal2Value = newHashMap(threadLocalHolder.size());
-            for (Map.Entry<ThreadLocal<Object>, UnaryOperator<Object>> entry : threadLocalHolder.entrySet()) {
-                final ThreadLocal<Object> threadLocal = entry.getKey();
-                final UnaryOperator<Object> generator = entry.getValue();
+        public Object[] capture() {
+            final Entry[] holder = getEntries();
+            if (holder.length == 0) return EMPTY_CAPTURE;
+
+            final TransmitMetricsRecorder recorder = TransmitMetrics.getRecorder();
+            final Object[] threadLocal2Value = new Object[holder.length << 1];
+            boolean identity = true;
+            int n = 0;
+            for (Entry entry : holder) {
+                final ThreadLocal<Object> threadLocal = entry.get();
+                // the stale entry, expunged by the following update
+                if (threadLocal == null) continue;
+                final UnaryOperator<Object> generator = entry.generator;
 
-                threadLocal2Value.put(threadLocal, generator.apply(threadLocal.get()));
+                threadLocal2Value[n++] = threadLocal;
+                if (recorder == null) {
+                    threadLocal2Value[n++] = generator.apply(threadLocal.get());
+                } else {
+                    final long start = System.nanoTime();
+                    threadLocal2Value[n++] = generator.apply(threadLocal.get());
+                    TransmitMetrics.record(recorder, threadLocal, TransmitMetricsRecorder.Operation.TRANSMITTEE_VALUE, start);
+                }
+                identity &= generator == IDENTITY_GENERATOR;
             }
+
+            if (identity) threadState.get().setLastCapture(threadLocal2Value, holder);
             return threadLocal2Value;
         }
 
+
+        /**
+         * The plain {@link ThreadLocal} values can be modified without notification,
+         * so the reusable check compares the current values with the captured values by identity,
+         * and only the capture with the identity generators({@link UnaryOperator#identity()}) is reusable.
+         * <p>
+         * The registry is copy-on-write, so the registry array instance is the stamp of registry changes.
+         */
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean isCaptureReusable(@NonNull Object[] captured) {
+            final Entry[] holder = threadLocalHolder;
+            if (captured == EMPTY_CAPTURE) return holder.length == 0;
+
+            final ThreadState state = threadState.get();
+            if (captured != state.lastCaptured.get() || holder != state.lastCapturedHolder) return false;
+
+            for (int i = 0; i < captured.length && captured[i] != null; i += 2) {
+                if (((ThreadLocal<Object>) captured[i]).get() != captured[i + 1]) return false;
+            }
+            return true;
+        }
+
         @NonNull
         @Override
-        public HashMap<ThreadLocal<Object>, Object> replay(@NonNull HashMap<ThreadLocal<Object>, Object> captured) {
-            final HashMap<ThreadLocal<Object>, Object> backup = newHashMap(captured.size());
+        @SuppressWarnings("unchecked")
+        public BackupBuffer replay(@NonNull Object[] captured) {
+            if (captured.length == 0) return EMPTY_BACKUP;
 
-            for (Map.Entry<ThreadLocal<Object>, Object> entry : captured.entrySet()) {
-                final ThreadLocal<Object> threadLocal = entry.getKey();
-                backup.put(threadLocal, threadLocal.get());
+            final BackupBuffer backup = threadState.get().backupPool.borrow();
+            for (int i = 0; i < captured.length && captured[i] != null; i += 2) {
+                final ThreadLocal<Object> threadLocal = (ThreadLocal<Object>) captured[i];
+                backup.add(threadLocal, threadLocal.get());
 
-                final Object value = entry.getValue();
+                final Object value = captured[i + 1];
                 if (value == threadLocalClearMark) threadLocal.remove();
                 else threadLocal.set(value);
             }
@@ -172,30 +309,161 @@ public final class ThreadLocalTransmitRegistry {
             return backup;
         }
 
+        /**
+         * the thread holds the captured values, backup the values without setting.
+         */
+        @NonNull
+        @Override
+        @SuppressWarnings("unchecked")
+        public BackupBuffer replayReused(@NonNull Object[] captured) {
+            if (captured.length == 0) return EMPTY_BACKUP;
+
+            final BackupBuffer backup = threadState.get().backupPool.borrow();
+            for (int i = 0; i < captured.length && captured[i] != null; i += 2) {
+                final ThreadLocal<Object> threadLocal = (ThreadLocal<Object>) captured[i];
+                backup.add(threadLocal, threadLocal.get());
+            }
+            return backup;
+        }
+
         @NonNull
         @Override
-        public HashMap<ThreadLocal<Object>, Object> clear() {
-            final HashMap<ThreadLocal<Object>, Object> threadLocal2Value = newHashMap(threadLocalHolder.size());
+        public BackupBuffer clear() {
+            final Entry[] holder = getEntries();
+            if (holder.length == 0) return EMPTY_BACKUP;
+
+            final Object[] threadLocal2Value = new Object[holder.length << 1];
+            int n = 0;
+            for (Entry entry : holder) {
+                final ThreadLocal<Object> threadLocal = entry.get();
+                if (threadLocal == null) continue;
 
-            for (Map.Entry<ThreadLocal<Object>, UnaryOperator<Object>> entry : threadLocalHolder.entrySet()) {
-                final ThreadLocal<Object> threadLocal = entry.getKey();
-                threadLocal2Value.put(threadLocal, threadLocalClearMark);
+                threadLocal2Value[n++] = threadLocal;
+                threadLocal2Value[n++] = threadLocalClearMark;
             }
 
             return replay(threadLocal2Value);
         }
 
         @Override
-        public void restore(@NonNull HashMap<ThreadLocal<Object>, Object> backup) {
-            for (Map.Entry<ThreadLocal<Object>, Object> entry : backup.entrySet()) {
-                final ThreadLocal<Object> threadLocal = entry.getKey();
-                threadLocal.set(entry.getValue());
+        @SuppressWarnings("unchecked")
+        public void restore(@NonNull BackupBuffer backup) {
+            if (backup == EMPTY_BACKUP) return;
+
+            for (int i = 0; i < backup.size(); i++) {
+                final ThreadLocal<Object> threadLocal = (ThreadLocal<Object>) backup.key(i);
+                threadLocal.set(backup.value(i));
             }
+
+            threadState.get().backupPool.release(backup);
         }
     }
 
+    /**
+     * The {@link Transmittee} of the given registered {@link ThreadLocal}s only, used by {@link TransmitProfile}.
+     * <p>
+     * The generators of the {@link ThreadLocal}s are resolved from the registry when creating,
+     * the following registration changes do not affect the returned transmittee.
+     *
+     * @throws IllegalArgumentException if a {@link ThreadLocal} is not registered
+     */
+    @NonNull
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static Transmittee<Object[], BackupBuffer> newSubsetTransmittee(@NonNull Collection<? extends ThreadLocal<?>> threadLocals) {
+        final Entry[] entries = getEntries();
+        final Set<ThreadLocal<?>> distinct = new LinkedHashSet<>(threadLocals);
+        final ThreadLocal<Object>[] subset = new ThreadLocal[distinct.size()];
+        final UnaryOperator<Object>[] generators = new UnaryOperator[distinct.size()];
+        int n = 0;
+        for (ThreadLocal<?> threadLocal : distinct) {
+            final int index = indexOf(entries, threadLocal);
+            if (index < 0) throw new IllegalArgumentException("ThreadLocal " + threadLocal + " is not registered");
+
+            subset[n] = (ThreadLocal<Object>) threadLocal;
+            generators[n++] = entries[index].generator;
+        }
+        return new SubsetThreadLocalTransmittee(subset, generators);
+    }
+
+    /**
+     * The transmittee of a subset of the registered {@link ThreadLocal}s,
+     * the replay/restore of {@link ThreadLocalTransmittee} touch the captured {@link ThreadLocal}s only already.
+     */
+    private static final class SubsetThreadLocalTransmittee extends ThreadLocalTransmittee {
+        private final ThreadLocal<Object>[] threadLocals;
+        private final UnaryOperator<Object>[] generators;
+
+        SubsetThreadLocalTransmittee(ThreadLocal<Object>[] threadLocals, UnaryOperator<Object>[] generators) {
+            this.threadLocals = threadLocals;
+            this.generators = generators;
+        }
+
+        @NonNull
+        @Override
+        public Object[] capture() {
+            final Object[] threadLocal2Value = new Object[threadLocals.length << 1];
+            for (int i = 0; i < threadLocals.length; i++) {
+                threadLocal2Value[i << 1] = threadLocals[i];
+                threadLocal2Value[(i << 1) + 1] = generators[i].apply(threadLocals[i].get());
+            }
+            return threadLocal2Value;
+        }
+
+        @Override
+        public boolean isCaptureReusable(@NonNull Object[] captured) {
+            return false;
+        }
+
+        @NonNull
+        @Override
+        public BackupBuffer clear() {
+            final Object[] threadLocal2Value = new Object[threadLocals.length << 1];
+            for (int i = 0; i < threadLocals.length; i++) {
+                threadLocal2Value[i << 1] = threadLocals[i];
+                threadLocal2Value[(i << 1) + 1] = threadLocalClearMark;
+            }
+            return replay(threadLocal2Value);
+        }
+    }
+
+    /**
+     * The per-thread state of {@link ThreadLocalTransmittee}:
+     * the reusable backup buffers, and the last reusable capture with the registry when captured.
+     * <p>
+     * The last capture references the {@link ThreadLocal} instances and values, so it is held weakly.
+     */
+    private static final class ThreadState {
+        private static final WeakReference<Object[]> NO_CAPTURE = new WeakReference<>(null);
+
+        final BackupBuffer.Pool backupPool = new BackupBuffer.Pool();
+
+        WeakReference<Object[]> lastCaptured = NO_CAPTURE;
+        Object lastCapturedHolder;
+
+        void setLastCapture(Object[] captured, Object holder) {
+            lastCaptured = new WeakReference<>(captured);
+            lastCapturedHolder = holder;
+        }
+    }
+
+    private static final UnaryOperator<Object> IDENTITY_GENERATOR = UnaryOperator.identity();
+
     private static final ThreadLocalTransmittee threadLocalTransmittee = new ThreadLocalTransmittee();
 
+    /**
+     * the count of the registered {@link ThreadLocal} instances, the stale entries are expunged first; used by test.
+     */
+    static int registeredCount() {
+        return getEntries().length;
+    }
+
+    /**
+     * the count of the free backup buffers of the current thread, used by test.
+     */
+    static int backupPoolFreeCount() {
+        return ThreadLocalTransmittee.threadState.get().backupPool.freeCount();
+    }
+
     static {
         TransmitteeRegistry.registerTransmittee(threadLocalTransmittee);
     }
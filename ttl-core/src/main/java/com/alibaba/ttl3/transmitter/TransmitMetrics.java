@@ -0,0 +1,78 @@
+package com.alibaba.ttl3.transmitter;
+
+import com.alibaba.ttl3.transmitter.TransmitMetricsRecorder.Operation;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import org.jetbrains.annotations.ApiStatus;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static com.alibaba.ttl3.internal.util.Utils.propagateIfFatal;
+
+/**
+ * The opt-in instrumentation of transmittance, disabled by default.
+ * <p>
+ * Set a {@link TransmitMetricsRecorder} to enable the instrumentation, for example the builtin {@link TransmitStatistics}:
+ *
+ * <pre>{@code
+ * TransmitStatistics statistics = new TransmitStatistics();
+ * TransmitMetrics.setRecorder(statistics);
+ * // expose the statistics by JMX
+ * statistics.registerMBean();}</pre>
+ * <p>
+ * When disabled(no recorder), the cost is a volatile read per transmit operation.
+ *
+ * @see TransmitMetricsRecorder
+ * @see TransmitStatistics
+ */
+public final class TransmitMetrics {
+    private static final Logger logger = Logger.getLogger(TransmitMetrics.class.getName());
+
+    @Nullable
+    private static volatile TransmitMetricsRecorder recorder;
+
+    /**
+     * Set the recorder to enable the instrumentation, or {@code null} to disable.
+     *
+     * @see #getRecorder()
+     */
+    public static void setRecorder(@Nullable TransmitMetricsRecorder recorder) {
+        TransmitMetrics.recorder = recorder;
+    }
+
+    /**
+     * The recorder of the instrumentation, {@code null} if disabled.
+     *
+     * @see #setRecorder(TransmitMetricsRecorder)
+     */
+    @Nullable
+    public static TransmitMetricsRecorder getRecorder() {
+        return recorder;
+    }
+
+    /**
+     * Record the operation started at {@code startNanos}({@link System#nanoTime()}),
+     * the exception thrown by the recorder is just ignored.
+     */
+    @ApiStatus.Internal
+    public static void record(@NonNull TransmitMetricsRecorder recorder, @NonNull Object target,
+                              @NonNull Operation operation, long startNanos) {
+        final long nanos = System.nanoTime() - startNanos;
+        try {
+            recorder.record(target, operation, nanos);
+        } catch (Throwable t) {
+            propagateIfFatal(t);
+            if (logger.isLoggable(Level.WARNING)) {
+                logger.log(Level.WARNING, "exception when record " + operation + " of " + target +
+                        " by recorder " + recorder + ", just ignored; cause: " + t, t);
+            }
+        }
+    }
+
+    @SuppressFBWarnings("CT_CONSTRUCTOR_THROW")
+    private TransmitMetrics() {
+        throw new InstantiationError("Must not instantiate this class");
+    }
+}
@@ -0,0 +1,53 @@
+package com.alibaba.ttl3.transmitter;
+
+import com.alibaba.ttl3.TransmittableThreadLocal;
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+/**
+ * The metrics SPI of transmittance, records the cost of the transmit operations.
+ * <p>
+ * The recorder is set by {@link TransmitMetrics#setRecorder(TransmitMetricsRecorder)}, the operations recorded:
+ * <ul>
+ * <li>{@link Operation#CAPTURE}/{@link Operation#REPLAY}/{@link Operation#RESTORE} of each registered
+ *     {@link Transmittee}(including the builtin transmittees of {@link TransmittableThreadLocal}
+ *     and {@link ThreadLocalTransmitRegistry}), the target is the {@link Transmittee} instance.</li>
+ * <li>{@link Operation#TRANSMITTEE_VALUE} of each {@link TransmittableThreadLocal} instance
+ *     ({@code TransmittableThreadLocal#transmitteeValue}) and registered {@link ThreadLocal} instance
+ *     (the generator of {@link ThreadLocalTransmitRegistry#registerThreadLocal(ThreadLocal, java.util.function.UnaryOperator)}),
+ *     the per-value cost of capture, the target is the {@link ThreadLocal} instance.</li>
+ * </ul>
+ * <p>
+ * <B><I>NOTE:</I></B>
+ * <ul>
+ * <li>the recorder is called in the transmit hot path, keep it cheap and thread-safe.</li>
+ * <li>do NOT throw any exceptions, just ignored.</li>
+ * <li>do NOT hold the strong reference of the target, or the {@link ThreadLocal} instances may leak.</li>
+ * </ul>
+ *
+ * @see TransmitMetrics
+ * @see TransmitStatistics
+ */
+@FunctionalInterface
+public interface TransmitMetricsRecorder {
+    /**
+     * Record a transmit operation.
+     *
+     * @param target    the {@link Transmittee} or the {@link ThreadLocal} instance of the operation
+     * @param operation the transmit operation
+     * @param nanos     the elapsed time of the operation in nanoseconds
+     */
+    void record(@NonNull Object target, @NonNull Operation operation, long nanos);
+
+    /**
+     * The transmit operations.
+     */
+    enum Operation {
+        CAPTURE,
+        /**
+         * include the replay of {@link Transmitter#clear()}.
+         */
+        REPLAY,
+        RESTORE,
+        TRANSMITTEE_VALUE
+    }
+}
@@ -0,0 +1,182 @@
+package com.alibaba.ttl3.transmitter;
+
+import com.alibaba.crr.composite.Backup;
+import com.alibaba.crr.composite.Capture;
+import com.alibaba.ttl3.TransmittableThreadLocal;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The transmission profile, a declared subset of the values to transmit:
+ * the {@link TransmittableThreadLocal}s, the registered {@link ThreadLocal}s({@link ThreadLocalTransmitRegistry})
+ * and the {@link Transmittee}s.
+ * e.g. the IO thread pools need only the trace context, while the biz thread pools need all values.
+ * <p>
+ * The profile is compiled when built: the {@link TransmittableThreadLocal}s to their slot indexes,
+ * the registered {@link ThreadLocal}s to their generators;
+ * so the capture/replay of a profile checks the values by the index without hashing,
+ * and the cost is proportional to the size of the profile instead of all values of the thread.
+ * <p>
+ * Capture by {@link Transmitter#capture(TransmitProfile)}, the capture is replayed/restored
+ * by {@link Transmitter#replay(Capture)}/{@link Transmitter#restore(Backup)} as usual.
+ * Only the values in the profile are replayed and restored,
+ * the other values of the thread running the task are untouched(NOT cleared as the capture of all values).
+ * <p>
+ * Attach a profile to an executor by {@link com.alibaba.ttl3.executor.TtlExecutors#getTtlExecutorService(java.util.concurrent.ExecutorService, TransmitProfile)}
+ * etc., or to the executors enhanced by TTL agent by the executor class name via the agent option
+ * {@code ttl.agent.transmit.profiles} with the profile registered by {@link #register(String, TransmitProfile)}:
+ *
+ * <pre>{@code
+ * TransmitProfile traceOnly = TransmitProfile.builder().add(traceContext).build();
+ * ExecutorService ioPool = TtlExecutors.getTtlExecutorService(Executors.newFixedThreadPool(8), traceOnly);}</pre>
+ * <p>
+ * <B><I>NOTE:</I></B><br>
+ * the profile references the {@link TransmittableThreadLocal}s and {@link ThreadLocal}s in it.
+ *
+ * @see Transmitter#capture(TransmitProfile)
+ * @see com.alibaba.ttl3.executor.TtlExecutors#getTtlExecutor(java.util.concurrent.Executor, TransmitProfile)
+ */
+public final class TransmitProfile {
+    private static final ConcurrentMap<String, TransmitProfile> registeredProfiles = new ConcurrentHashMap<>();
+
+    /**
+     * the compiled transmittees, referenced by the captures as the parallel key array.
+     */
+    private final Transmittee<?, ?>[] transmittees;
+
+    private TransmitProfile(Transmittee<?, ?>[] transmittees) {
+        this.transmittees = transmittees;
+    }
+
+    /**
+     * capture the values in this profile.
+     */
+    @NonNull
+    Capture capture() {
+        return Transmitter.compositeTransmittable.capture(transmittees);
+    }
+
+    /**
+     * Create a profile of the given {@link TransmittableThreadLocal}s,
+     * same as {@code builder().add(ttls).build()}.
+     */
+    @NonNull
+    public static TransmitProfile of(@NonNull TransmittableThreadLocal<?>... ttls) {
+        return builder().add(ttls).build();
+    }
+
+    @NonNull
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Register the profile by the name, replace the registered one of the same name.
+     * <p>
+     * The executors enhanced by TTL agent find the profile by the name configured in the agent option
+     * {@code ttl.agent.transmit.profiles}; the tasks submitted before the registration capture all values.
+     *
+     * @return the previous registered profile of the name, or {@code null}
+     * @see #getRegistered(String)
+     */
+    @Nullable
+    public static TransmitProfile register(@NonNull String name, @NonNull TransmitProfile profile) {
+        return registeredProfiles.put(name, profile);
+    }
+
+    /**
+     * Unregister the profile of the name.
+     *
+     * @return the registered profile of the name, or {@code null}
+     * @see #register(String, TransmitProfile)
+     */
+    @Nullable
+    public static TransmitProfile unregister(@NonNull String name) {
+        return registeredProfiles.remove(name);
+    }
+
+    /**
+     * The registered profile of the name, or {@code null}.
+     *
+     * @see #register(String, TransmitProfile)
+     */
+    @Nullable
+    public static TransmitProfile getRegistered(@NonNull String name) {
+        return registeredProfiles.get(name);
+    }
+
+    @Override
+    public String toString() {
+        return "TransmitProfile" + Arrays.toString(transmittees);
+    }
+
+    /**
+     * The builder of {@link TransmitProfile}.
+     */
+    public static final class Builder {
+        private final List<TransmittableThreadLocal<?>> ttls = new ArrayList<>();
+        private final List<ThreadLocal<?>> threadLocals = new ArrayList<>();
+        private final List<Transmittee<?, ?>> transmittees = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        /**
+         * add the {@link TransmittableThreadLocal}s.
+         */
+        @NonNull
+        public Builder add(@NonNull TransmittableThreadLocal<?>... ttls) {
+            for (TransmittableThreadLocal<?> ttl : ttls) {
+                if (ttl == null) throw new NullPointerException("ttl is null");
+                this.ttls.add(ttl);
+            }
+            return this;
+        }
+
+        /**
+         * add the {@link ThreadLocal}s registered by {@link ThreadLocalTransmitRegistry},
+         * the generators are resolved when building the profile.
+         */
+        @NonNull
+        public Builder addThreadLocal(@NonNull ThreadLocal<?>... threadLocals) {
+            for (ThreadLocal<?> threadLocal : threadLocals) {
+                if (threadLocal == null) throw new NullPointerException("threadLocal is null");
+                if (threadLocal instanceof TransmittableThreadLocal) ttls.add((TransmittableThreadLocal<?>) threadLocal);
+                else this.threadLocals.add(threadLocal);
+            }
+            return this;
+        }
+
+        /**
+         * add the {@link Transmittee}(e.g. the {@code ThreadLocal} integration of other libraries) as a whole.
+         * <p>
+         * the transmittee needs not be registered by {@link TransmitteeRegistry}.
+         */
+        @NonNull
+        public Builder addTransmittee(@NonNull Transmittee<?, ?> transmittee) {
+            if (transmittee == null) throw new NullPointerException("transmittee is null");
+            if (!transmittees.contains(transmittee)) transmittees.add(transmittee);
+            return this;
+        }
+
+        /**
+         * compile the profile.
+         *
+         * @throws IllegalArgumentException if a {@link ThreadLocal} added is not registered by {@link ThreadLocalTransmitRegistry}
+         */
+        @NonNull
+        public TransmitProfile build() {
+            final List<Transmittee<?, ?>> compiled = new ArrayList<>();
+            if (!ttls.isEmpty()) compiled.add(TransmittableThreadLocal.newSubsetTransmittee(ttls));
+            if (!threadLocals.isEmpty()) compiled.add(ThreadLocalTransmitRegistry.newSubsetTransmittee(threadLocals));
+            compiled.addAll(transmittees);
+            return new TransmitProfile(compiled.toArray(new Transmittee<?, ?>[0]));
+        }
+    }
+}
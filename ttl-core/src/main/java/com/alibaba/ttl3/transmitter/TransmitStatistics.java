@@ -0,0 +1,239 @@
+package com.alibaba.ttl3.transmitter;
+
+import com.alibaba.ttl3.transmitter.TransmitMetricsRecorder.Operation;
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The builtin {@link TransmitMetricsRecorder}, keeps the count and the latency histogram
+ * of the transmit operations per target({@link Transmittee} or {@link ThreadLocal} instance) and operation.
+ * <p>
+ * The histogram buckets are the powers of 2 in nanoseconds: the bucket {@code i} counts the operations
+ * took {@code [2^(i-1), 2^i)} nanoseconds, the bucket {@code 0} counts the operations took {@code 0} nanoseconds.
+ * <p>
+ * The targets are held by weak references, the statistics of a garbage collected target are dropped.
+ * The target is named by its {@link Object#toString()} at the first record,
+ * override {@code toString()} of the {@link ThreadLocal} for a readable name.
+ *
+ * @see TransmitMetrics#setRecorder(TransmitMetricsRecorder)
+ * @see #registerMBean()
+ */
+public final class TransmitStatistics implements TransmitMetricsRecorder, TransmitStatisticsMXBean {
+    /**
+     * The object name of {@link #registerMBean()}.
+     */
+    public static final String OBJECT_NAME = "com.alibaba.ttl3:type=TransmitStatistics";
+
+    private static final int BUCKET_COUNT = Long.SIZE + 1;
+
+    private static final Operation[] OPERATIONS = Operation.values();
+
+    private final ConcurrentHashMap<Object, TargetStats> stats = new ConcurrentHashMap<>();
+
+    private final ReferenceQueue<Object> staleTargetQueue = new ReferenceQueue<>();
+
+    @Override
+    public void record(@NonNull Object target, @NonNull Operation operation, long nanos) {
+        expungeStaleTargets();
+
+        TargetStats targetStats = stats.get(new LookupKey(target));
+        if (targetStats == null) {
+            final TargetStats newTargetStats = new TargetStats(target, staleTargetQueue);
+            targetStats = stats.putIfAbsent(newTargetStats, newTargetStats);
+            if (targetStats == null) targetStats = newTargetStats;
+        }
+        targetStats.operationStats[operation.ordinal()].record(nanos);
+    }
+
+    private void expungeStaleTargets() {
+        for (Object ref; (ref = staleTargetQueue.poll()) != null; ) {
+            stats.remove(ref);
+        }
+    }
+
+    @Override
+    public List<OperationStat> getOperationStats() {
+        expungeStaleTargets();
+
+        final List<OperationStat> ret = new ArrayList<>();
+        for (TargetStats targetStats : stats.values()) {
+            for (Operation operation : OPERATIONS) {
+                final Stat stat = targetStats.operationStats[operation.ordinal()];
+                final long count = stat.count.sum();
+                if (count == 0) continue;
+
+                final long[] histogram = new long[BUCKET_COUNT];
+                for (int i = 0; i < BUCKET_COUNT; i++) {
+                    histogram[i] = stat.histogram.get(i);
+                }
+                ret.add(new OperationStat(targetStats.name, operation.name(),
+                        count, stat.totalNanos.sum(), stat.maxNanos.get(), histogram));
+            }
+        }
+        return ret;
+    }
+
+    @Override
+    public void reset() {
+        stats.clear();
+    }
+
+    /**
+     * Register this statistics to the platform MBean server with the object name {@link #OBJECT_NAME}.
+     *
+     * @throws IllegalStateException if fail to register, e.g. the object name is already registered
+     */
+    @NonNull
+    public ObjectName registerMBean() {
+        try {
+            final ObjectName objectName = new ObjectName(OBJECT_NAME);
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+            return objectName;
+        } catch (JMException e) {
+            throw new IllegalStateException("fail to register the MBean " + OBJECT_NAME + ": " + e, e);
+        }
+    }
+
+    /**
+     * The statistics of a target and an operation.
+     */
+    public static final class OperationStat {
+        private final String target;
+        private final String operation;
+        private final long count;
+        private final long totalNanos;
+        private final long maxNanos;
+        private final long[] histogram;
+
+        OperationStat(String target, String operation, long count, long totalNanos, long maxNanos, long[] histogram) {
+            this.target = target;
+            this.operation = operation;
+            this.count = count;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+            this.histogram = histogram;
+        }
+
+        /**
+         * the name of the target({@link Object#toString()}).
+         */
+        public String getTarget() {
+            return target;
+        }
+
+        /**
+         * the name of {@link Operation}.
+         */
+        public String getOperation() {
+            return operation;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+
+        /**
+         * the latency histogram, the bucket {@code i} counts the operations took {@code [2^(i-1), 2^i)} nanoseconds.
+         */
+        public long[] getHistogram() {
+            return histogram.clone();
+        }
+
+        @Override
+        public String toString() {
+            return "OperationStat{target=" + target + ", operation=" + operation + ", count=" + count +
+                    ", totalNanos=" + totalNanos + ", maxNanos=" + maxNanos + "}";
+        }
+    }
+
+    private static final class Stat {
+        final LongAdder count = new LongAdder();
+        final LongAdder totalNanos = new LongAdder();
+        final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        final AtomicLongArray histogram = new AtomicLongArray(BUCKET_COUNT);
+
+        void record(long nanos) {
+            if (nanos < 0) nanos = 0;
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+            histogram.incrementAndGet(Long.SIZE - Long.numberOfLeadingZeros(nanos));
+        }
+    }
+
+    /**
+     * The statistics of a target, also the map key: the weak reference to the target, compared by the target identity.
+     */
+    private static final class TargetStats extends WeakReference<Object> {
+        final int hash;
+        final String name;
+        final Stat[] operationStats = new Stat[OPERATIONS.length];
+
+        TargetStats(Object target, ReferenceQueue<Object> queue) {
+            super(target, queue);
+            this.hash = System.identityHashCode(target);
+            this.name = String.valueOf(target);
+            for (int i = 0; i < operationStats.length; i++) {
+                operationStats[i] = new Stat();
+            }
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (obj instanceof LookupKey) return ((LookupKey) obj).target == get();
+            if (obj instanceof TargetStats) {
+                final Object target = get();
+                return target != null && target == ((TargetStats) obj).get();
+            }
+            return false;
+        }
+    }
+
+    /**
+     * The key to look up the {@link TargetStats} of a target without creating the weak reference.
+     */
+    private static final class LookupKey {
+        final Object target;
+
+        LookupKey(Object target) {
+            this.target = target;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(target);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (obj instanceof TargetStats) return ((TargetStats) obj).get() == target;
+            return false;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.alibaba.ttl3.transmitter;
+
+import java.util.List;
+
+/**
+ * The JMX management interface of {@link TransmitStatistics}.
+ *
+ * @see TransmitStatistics#registerMBean()
+ */
+public interface TransmitStatisticsMXBean {
+    /**
+     * The statistics of the recorded operations, per target and operation.
+     */
+    List<TransmitStatistics.OperationStat> getOperationStats();
+
+    /**
+     * Clear all the statistics.
+     */
+    void reset();
+}
@@ -82,4 +82,26 @@ public interface Transmittee<C, B> extends Transmittable<C, B> {
      * @see #clear()
      */
     void restore(@NonNull B backup);
+
+    /**
+     * Whether the capture data is still the same as the current state of the current thread,
+     * so the capture data can be reused instead of {@link #capture()} again.
+     * <p>
+     * Implement this method when the transmittee can tell cheaply that nothing is modified since the capture
+     * (e.g. by a modification stamp of the current thread), so {@link Transmitter#capture()} can return
+     * the last capture of the current thread for an unchanged context.
+     * <p>
+     * <B><I>NOTE:</I></B>
+     * <ul>
+     * <li>return {@code false} if not sure, the default implementation always returns {@code false}.</li>
+     * <li>do NOT throw any exceptions, just treated as {@code false}.</li>
+     * </ul>
+     *
+     * @param captured the capture data of transmittee, the return value of method {@link #capture()} in the current thread
+     * @return {@code true} if the capture data can be reused
+     */
+    @Override
+    default boolean isCaptureReusable(@NonNull C captured) {
+        return false;
+    }
 }
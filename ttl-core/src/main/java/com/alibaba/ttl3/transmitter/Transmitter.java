@@ -115,14 +115,34 @@ public final class Transmitter {
 
     /**
      * Capture all {@link TransmittableThreadLocal} and registered {@link ThreadLocal} values in the current thread.
+     * <p>
+     * If no value is modified since the last capture in the current thread,
+     * the last capture instance is returned, the capture is immutable and safe to be replayed by many tasks.
      *
      * @return the captured {@link TransmittableThreadLocal} values
+     * @see Transmittee#isCaptureReusable(Object)
      */
     @NonNull
     public static Capture capture() {
         return compositeTransmittable.capture();
     }
 
+    /**
+     * Capture the values in the {@link TransmitProfile} only in the current thread.
+     * <p>
+     * The capture is replayed by {@link #replay(Capture)} as usual, only the values in the profile are replayed,
+     * the other values of the thread running the task are NOT cleared.
+     * The capture of a profile is not reused, every call captures again.
+     *
+     * @param profile the values to capture
+     * @return the captured values in the profile
+     * @see TransmitProfile
+     */
+    @NonNull
+    public static Capture capture(@NonNull TransmitProfile profile) {
+        return profile.capture();
+    }
+
     /**
      * Replay the captured {@link TransmittableThreadLocal} and registered {@link ThreadLocal} values from {@link #capture()},
      * and return the backup {@link TransmittableThreadLocal} values in the current thread before replay.
@@ -160,8 +180,16 @@ public final class Transmitter {
     /**
      * Restore the backup {@link TransmittableThreadLocal} and
      * registered {@link ThreadLocal} values from {@link #replay(Capture)}/{@link #clear()}.
+     * <p>
+     * <B><I>NOTE:</I></B><br>
+     * the backup is reused by the following replay of the thread after restored, so restore a backup exactly once;
+     * this is a behavior change from the previous versions, which allow restoring a backup many times.
+     * <p>
+     * The backup may be restored in a thread other than the thread called {@link #replay(Capture)},
+     * the values of the restoring thread are restored to the backup values.
      *
      * @param backup the backup {@link TransmittableThreadLocal} values from {@link #replay(Capture)}/{@link #clear()}
+     * @throws IllegalStateException if the backup is already restored(and not reused yet)
      * @see #replay(Capture)
      * @see #clear()
      */
@@ -171,6 +199,9 @@ public final class Transmitter {
 
     /**
      * Util method for simplifying {@link #replay(Capture)} and {@link #restore(Backup)} operations.
+     * <p>
+     * The biz logic is a structured scope, the captured values are replayed by {@link Transmittee#replayScoped(Object)}
+     * (e.g. bound as a whole in "scoped replay" mode, see {@link TransmittableThreadLocal#setScopedReplayEnabled(boolean)}).
      *
      * @param captured captured {@link TransmittableThreadLocal} values from other thread from {@link #capture()}
      * @param bizLogic biz logic
@@ -181,7 +212,7 @@ public final class Transmitter {
      * @see #restore(Backup)
      */
     public static <R> R runSupplierWithCaptured(@NonNull Capture captured, @NonNull Supplier<R> bizLogic) {
-        final Backup backup = replay(captured);
+        final Backup backup = compositeTransmittable.replayScoped(captured);
         try {
             return bizLogic.get();
         } finally {
@@ -209,6 +240,9 @@ public final class Transmitter {
 
     /**
      * Util method for simplifying {@link #replay(Capture)} and {@link #restore(Backup)} operations.
+     * <p>
+     * The biz logic is a structured scope, the captured values are replayed by {@link Transmittee#replayScoped(Object)}
+     * (e.g. bound as a whole in "scoped replay" mode, see {@link TransmittableThreadLocal#setScopedReplayEnabled(boolean)}).
      *
      * @param captured captured {@link TransmittableThreadLocal} values from other thread from {@link #capture()}
      * @param bizLogic biz logic
@@ -221,7 +255,7 @@ public final class Transmitter {
      */
     @SuppressFBWarnings("THROWS_METHOD_THROWS_CLAUSE_BASIC_EXCEPTION")
     public static <R> R runCallableWithCaptured(@NonNull Capture captured, @NonNull Callable<R> bizLogic) throws Exception {
-        final Backup backup = replay(captured);
+        final Backup backup = compositeTransmittable.replayScoped(captured);
         try {
             return bizLogic.call();
         } finally {
@@ -269,6 +303,19 @@ public final class Transmitter {
         return compositeCallback.unregisterCallback(callback);
     }
 
+    /**
+     * The count of the replays skipped since the thread running the task already holds the captured values,
+     * e.g. the task runs in the submitter thread(the caller-runs rejection, or the work-stealing of {@code ForkJoinPool}).
+     * <p>
+     * The skipped replay/restore is a no-op besides the {@link TransmitCallback}s,
+     * unless the values are modified by the task.
+     *
+     * @see #replay(Capture)
+     */
+    public static long getSkippedReplayCount() {
+        return compositeTransmittable.getSkippedReplayCount();
+    }
+
     @SuppressFBWarnings("CT_CONSTRUCTOR_THROW")
     private Transmitter() {
         throw new InstantiationError("Must not instantiate this class");
@@ -0,0 +1,47 @@
+package com.alibaba.ttl3
+
+import com.alibaba.getForTest
+import com.alibaba.shutdownForTest
+import com.alibaba.ttl3.transmitter.Transmitter
+import io.kotest.core.spec.style.AnnotationSpec
+import io.kotest.matchers.ints.shouldBeLessThanOrEqual
+import io.kotest.matchers.shouldBe
+import java.util.concurrent.Callable
+import java.util.concurrent.Executors
+
+/**
+ * the backup buffers of the TTL values are pooled per thread, the free list is bounded
+ * even if the backups replayed in a thread are restored in another thread.
+ */
+class TransmittableThreadLocalBackupPoolTest : AnnotationSpec() {
+    @Test
+    fun test_restore_in_other_thread() {
+        val ttl = TransmittableThreadLocal<String>()
+        ttl.set("parent")
+        val capture = Transmitter.capture()
+
+        val replayExecutor = Executors.newSingleThreadExecutor()
+        val restoreExecutor = Executors.newSingleThreadExecutor()
+        repeat(1000) {
+            val backup = replayExecutor.submit(Callable {
+                ttl.set("replay thread")
+                Transmitter.replay(capture)
+            }).getForTest()
+
+            restoreExecutor.submit {
+                Transmitter.restore(backup)
+                ttl.get() shouldBe "replay thread"
+                // the restoring thread replays/restores its own backups as usual
+                Transmitter.runSupplierWithClear { ttl.get() } shouldBe null
+            }.getForTest()
+        }
+
+        replayExecutor.submit(Callable { TransmittableThreadLocal.backupPoolFreeCount() }).getForTest() shouldBe 0
+        restoreExecutor.submit(Callable {
+            TransmittableThreadLocal.backupPoolFreeCount()
+        }).getForTest() shouldBeLessThanOrEqual 1
+
+        replayExecutor.shutdownForTest()
+        restoreExecutor.shutdownForTest()
+    }
+}
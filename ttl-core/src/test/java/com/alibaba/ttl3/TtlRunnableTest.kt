@@ -82,6 +82,12 @@ class TtlRunnableTest : FunSpec({
         exception.message shouldContain "TTL value reference is released after run!"
     }
 
+    test("not release ttl value reference after run") {
+        val ttlRunnable = TtlRunnable.get({ }, false)!!
+
+        repeat(2) { executorService.submit(ttlRunnable).getForTest().shouldBeNull() }
+    }
+
     test("get same") {
         val task = Runnable {}
         val ttlRunnable = TtlRunnable.get(task)!!
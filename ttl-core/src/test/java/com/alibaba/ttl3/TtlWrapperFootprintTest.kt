@@ -0,0 +1,72 @@
+package com.alibaba.ttl3
+
+import com.alibaba.ttl3.spi.TtlAttachments
+import com.alibaba.ttl3.spi.TtlAttachmentsDelegate
+import com.alibaba.ttl3.transmitter.Transmitter
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.longs.shouldBeGreaterThan
+import io.kotest.matchers.nulls.shouldBeNull
+import io.kotest.matchers.shouldBe
+import org.openjdk.jol.info.ClassLayout
+import org.openjdk.jol.info.GraphLayout
+import java.util.concurrent.Callable
+
+/**
+ * The memory footprint of [TtlRunnable]/[TtlCallable], measured by JOL.
+ *
+ * The wrapper should add only the wrapper object itself to the wrapped task and the captured.
+ */
+class TtlWrapperFootprintTest : FunSpec({
+    val ttl = TransmittableThreadLocal<String>()
+
+    beforeTest { ttl.set("parent") }
+    afterTest { ttl.remove() }
+
+    test("TtlRunnable adds only the wrapper object") {
+        val task = Runnable {}
+        val captured = Transmitter.capture()
+        val ttlRunnable = TtlRunnable.gets(listOf(task), captured, false, false)[0]
+        val wrapperSize = ClassLayout.parseClass(TtlRunnable::class.java).instanceSize()
+
+        footprint(ttlRunnable, task, captured) shouldBe wrapperSize
+
+        // the auto wrapper mark is a field, does not create the attachments
+        TtlAttachmentsDelegate.setAutoWrapperAttachment(ttlRunnable)
+        TtlAttachmentsDelegate.isAutoWrapper(ttlRunnable) shouldBe true
+        footprint(ttlRunnable, task, captured) shouldBe wrapperSize
+
+        // the attachments are created lazily
+        ttlRunnable.setTtlAttachment("key", "value")
+        ttlRunnable.getTtlAttachment<String>("key") shouldBe "value"
+        footprint(ttlRunnable, task, captured) shouldBeGreaterThan wrapperSize
+    }
+
+    test("the auto wrapper mark field keeps the attachment semantics") {
+        for (wrapper in listOf<TtlAttachments>(TtlRunnable.get {}!!, TtlCallable.get { "result" }!!)) {
+            wrapper.getTtlAttachment<Boolean>(TtlAttachments.KEY_IS_AUTO_WRAPPER).shouldBeNull()
+            TtlAttachmentsDelegate.isAutoWrapper(wrapper) shouldBe false
+
+            wrapper.setTtlAttachment(TtlAttachments.KEY_IS_AUTO_WRAPPER, false)
+            wrapper.getTtlAttachment<Boolean>(TtlAttachments.KEY_IS_AUTO_WRAPPER) shouldBe false
+            TtlAttachmentsDelegate.isAutoWrapper(wrapper) shouldBe false
+
+            wrapper.setTtlAttachment(TtlAttachments.KEY_IS_AUTO_WRAPPER, true)
+            wrapper.getTtlAttachment<Boolean>(TtlAttachments.KEY_IS_AUTO_WRAPPER) shouldBe true
+            TtlAttachmentsDelegate.isAutoWrapper(wrapper) shouldBe true
+        }
+    }
+
+    test("TtlCallable adds only the wrapper object") {
+        val task = Callable { "result" }
+        val captured = Transmitter.capture()
+        val ttlCallable = TtlCallable.gets(listOf(task), captured, true, false)[0]
+
+        footprint(ttlCallable, task, captured) shouldBe ClassLayout.parseClass(TtlCallable::class.java).instanceSize()
+    }
+})
+
+/**
+ * the total size of the objects reachable from the wrapper, excluding the objects reachable from the task and the captured.
+ */
+private fun footprint(wrapper: Any, task: Any, captured: Any): Long =
+    GraphLayout.parseInstance(wrapper).subtract(GraphLayout.parseInstance(task, captured)).totalSize()
@@ -0,0 +1,70 @@
+package com.alibaba.ttl3.internal.util
+
+import io.kotest.assertions.throwables.shouldThrow
+import io.kotest.core.spec.style.AnnotationSpec
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.types.shouldBeSameInstanceAs
+import io.kotest.matchers.types.shouldNotBeSameInstanceAs
+
+class BackupBufferTest : AnnotationSpec() {
+    @Test
+    fun reuse_released_buffer() {
+        val pool = BackupBuffer.Pool()
+        val buffer = pool.borrow()
+        buffer.add("key", "value")
+        buffer.state = "state"
+
+        pool.release(buffer)
+        pool.freeCount() shouldBe 1
+
+        val reused = pool.borrow()
+        reused shouldBeSameInstanceAs buffer
+        reused.size() shouldBe 0
+        reused.state shouldBe null
+        pool.freeCount() shouldBe 0
+    }
+
+    @Test
+    fun free_list_bounded_by_nesting_depth() {
+        val pool = BackupBuffer.Pool()
+        repeat(1000) {
+            val outer = pool.borrow()
+            val inner = pool.borrow()
+            pool.release(inner)
+            pool.release(outer)
+        }
+        pool.freeCount() shouldBe 2
+    }
+
+    @Test
+    fun drop_buffer_released_to_other_pool() {
+        val replayPool = BackupBuffer.Pool()
+        val restorePool = BackupBuffer.Pool()
+
+        repeat(1000) {
+            val buffer = replayPool.borrow()
+            buffer.add("key", "value")
+            restorePool.release(buffer)
+            buffer.size() shouldBe 0
+        }
+        replayPool.freeCount() shouldBe 0
+        restorePool.freeCount() shouldBe 0
+
+        val own = restorePool.borrow()
+        restorePool.release(own)
+        restorePool.borrow() shouldBeSameInstanceAs own
+        restorePool.borrow() shouldNotBeSameInstanceAs own
+    }
+
+    @Test
+    fun release_twice() {
+        val pool = BackupBuffer.Pool()
+        val buffer = pool.borrow()
+        pool.release(buffer)
+        shouldThrow<IllegalStateException> { pool.release(buffer) }
+
+        val foreign = BackupBuffer.Pool().borrow()
+        pool.release(foreign)
+        shouldThrow<IllegalStateException> { pool.release(foreign) }
+    }
+}
@@ -0,0 +1,43 @@
+package com.alibaba.ttl3.internal.util
+
+import io.kotest.core.spec.style.AnnotationSpec
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.shouldNotBe
+
+class WeakIndexAllocatorTest : AnnotationSpec() {
+    @Test
+    fun allocate_dense_indexes() {
+        val allocator = WeakIndexAllocator<Any>()
+        val referents = List(10) { Any() }
+
+        val slots = referents.map { allocator.allocate(it) }
+
+        slots.map { it.index() } shouldBe (0 until 10).toList()
+        slots.map { it.get() } shouldBe referents
+        allocator.indexBound() shouldBe 10
+        allocator.liveCount() shouldBe 10
+    }
+
+    @Test
+    fun reuse_index_of_collected_referent() {
+        val allocator = WeakIndexAllocator<Any>()
+        val live = Any()
+        allocator.allocate(live)
+        val garbage = allocator.allocate(Any())
+
+        for (i in 0 until 100) {
+            if (allocator.liveCount() == 1) break
+            System.gc()
+            Thread.sleep(10)
+        }
+        allocator.liveCount() shouldBe 1
+
+        val reused = allocator.allocate(Any())
+        reused.index() shouldBe garbage.index()
+        // the reused index is allocated to a new slot
+        reused shouldNotBe garbage
+
+        allocator.indexBound() shouldBe 2
+        allocator.liveCount() shouldBe 2
+    }
+}
@@ -0,0 +1,235 @@
+package com.alibaba.ttl3.transmitter
+
+import com.alibaba.getForTest
+import com.alibaba.shutdownForTest
+import io.kotest.core.spec.style.AnnotationSpec
+import io.kotest.matchers.booleans.shouldBeFalse
+import io.kotest.matchers.booleans.shouldBeTrue
+import io.kotest.matchers.ints.shouldBeLessThanOrEqual
+import io.kotest.matchers.nulls.shouldBeNull
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.types.shouldBeSameInstanceAs
+import io.kotest.matchers.types.shouldNotBeSameInstanceAs
+import java.lang.ref.WeakReference
+import java.util.concurrent.Callable
+import java.util.concurrent.Executors
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.function.UnaryOperator
+
+class ThreadLocalTransmitRegistryTest : AnnotationSpec() {
+    private val threadLocal = ThreadLocal<String>()
+
+    @BeforeEach
+    fun setUp() {
+        ThreadLocalTransmitRegistry.registerThreadLocal(threadLocal) { it }
+    }
+
+    @AfterEach
+    fun tearDown() {
+        ThreadLocalTransmitRegistry.unregisterThreadLocal(threadLocal)
+        threadLocal.remove()
+    }
+
+    @Test
+    fun test_register_unregister() {
+        val tl = ThreadLocal<String>()
+        val count = ThreadLocalTransmitRegistry.registeredCount()
+
+        ThreadLocalTransmitRegistry.registerThreadLocal(tl) { it }.shouldBeTrue()
+        ThreadLocalTransmitRegistry.registerThreadLocal(tl) { it }.shouldBeFalse()
+        ThreadLocalTransmitRegistry.registeredCount() shouldBe count + 1
+
+        tl.set("parent")
+        val capture = Transmitter.capture()
+        Transmitter.runSupplierWithClear { Transmitter.runSupplierWithCaptured(capture) { tl.get() } } shouldBe "parent"
+
+        ThreadLocalTransmitRegistry.unregisterThreadLocal(tl).shouldBeTrue()
+        ThreadLocalTransmitRegistry.unregisterThreadLocal(tl).shouldBeFalse()
+        ThreadLocalTransmitRegistry.registeredCount() shouldBe count
+
+        val captureAfterUnregister = Transmitter.capture()
+        Transmitter.runSupplierWithClear {
+            Transmitter.runSupplierWithCaptured(captureAfterUnregister) { tl.get() }
+        }.shouldBeNull()
+        // the capture before unregister still replays the unregistered ThreadLocal
+        Transmitter.runSupplierWithClear { Transmitter.runSupplierWithCaptured(capture) { tl.get() } } shouldBe "parent"
+        tl.remove()
+    }
+
+    @Test
+    fun test_force_register_replace_copier() {
+        threadLocal.set("parent")
+
+        ThreadLocalTransmitRegistry.registerThreadLocal(threadLocal, { "$it copied" }, false).shouldBeFalse()
+        replayCaptured() shouldBe "parent"
+
+        ThreadLocalTransmitRegistry.registerThreadLocal(threadLocal, { "$it copied" }, true).shouldBeTrue()
+        replayCaptured() shouldBe "parent copied"
+    }
+
+    @Test
+    fun test_expunge_collected_thread_local() {
+        val count = ThreadLocalTransmitRegistry.registeredCount()
+        val tlRef = registerAndDrop()
+        ThreadLocalTransmitRegistry.registeredCount() shouldBe count + 1
+
+        for (i in 0 until 100) {
+            if (tlRef.get() == null && ThreadLocalTransmitRegistry.registeredCount() == count) break
+            System.gc()
+            Thread.sleep(10)
+        }
+        tlRef.get().shouldBeNull()
+        ThreadLocalTransmitRegistry.registeredCount() shouldBe count
+
+        // the other registered ThreadLocal is still transmitted
+        threadLocal.set("parent")
+        replayCaptured() shouldBe "parent"
+    }
+
+    /**
+     * the ThreadLocal is not referenced after return, only the value set in the current thread is left.
+     */
+    private fun registerAndDrop(): WeakReference<ThreadLocal<String>> {
+        val tl = ThreadLocal<String>()
+        ThreadLocalTransmitRegistry.registerThreadLocal(tl) { it }.shouldBeTrue()
+        tl.set("value")
+        return WeakReference(tl)
+    }
+
+    @Test
+    fun test_register_unregister_during_capture_replay() {
+        val stop = AtomicBoolean()
+        val executor = Executors.newSingleThreadExecutor()
+        val registering = executor.submit {
+            while (!stop.get()) {
+                val tl = ThreadLocal<String>()
+                ThreadLocalTransmitRegistry.registerThreadLocal(tl) { it }.shouldBeTrue()
+                ThreadLocalTransmitRegistry.unregisterThreadLocal(tl).shouldBeTrue()
+            }
+        }
+
+        try {
+            repeat(10_000) {
+                threadLocal.set("parent $it")
+                val capture = Transmitter.capture()
+                threadLocal.set("child $it")
+
+                val backup = Transmitter.replay(capture)
+                threadLocal.get() shouldBe "parent $it"
+                Transmitter.restore(backup)
+                threadLocal.get() shouldBe "child $it"
+            }
+        } finally {
+            stop.set(true)
+        }
+        registering.getForTest()
+        executor.shutdownForTest()
+    }
+
+    /**
+     * the generator runs in the capture, register/unregister in the generator
+     * does not affect the capture running.
+     */
+    @Test
+    fun test_register_unregister_in_generator() {
+        val registered = ThreadLocal<String>()
+        ThreadLocalTransmitRegistry.registerThreadLocal(threadLocal, {
+            ThreadLocalTransmitRegistry.registerThreadLocal(registered) { v -> v }
+            ThreadLocalTransmitRegistry.unregisterThreadLocal(registered)
+            ThreadLocalTransmitRegistry.registerThreadLocal(registered) { v -> v }
+            it
+        }, true).shouldBeTrue()
+
+        threadLocal.set("parent")
+        registered.set("registered")
+        try {
+            val capture = Transmitter.capture()
+            ThreadLocalTransmitRegistry.unregisterThreadLocal(registered).shouldBeTrue()
+
+            Transmitter.runSupplierWithClear {
+                Transmitter.runSupplierWithCaptured(capture) { threadLocal.get() }
+            } shouldBe "parent"
+        } finally {
+            ThreadLocalTransmitRegistry.unregisterThreadLocal(registered)
+            registered.remove()
+        }
+    }
+
+    /**
+     * the capture of the identity copied ThreadLocals is reused until the values or the registry changed.
+     */
+    @Test
+    fun test_capture_reuse_after_registry_changed() = Transmitter.runSupplierWithClear {
+        ThreadLocalTransmitRegistry.registerThreadLocal(threadLocal, UnaryOperator.identity(), true).shouldBeTrue()
+        threadLocal.set("parent")
+
+        val capture = Transmitter.capture()
+        Transmitter.capture() shouldBeSameInstanceAs capture
+
+        val tl = ThreadLocal<String>()
+        ThreadLocalTransmitRegistry.registerThreadLocal(tl, UnaryOperator.identity()).shouldBeTrue()
+        tl.set("registered")
+        try {
+            val captureAfterRegister = Transmitter.capture()
+            captureAfterRegister shouldNotBeSameInstanceAs capture
+            Transmitter.capture() shouldBeSameInstanceAs captureAfterRegister
+            Transmitter.runSupplierWithClear {
+                Transmitter.runSupplierWithCaptured(captureAfterRegister) { tl.get() }
+            } shouldBe "registered"
+
+            ThreadLocalTransmitRegistry.unregisterThreadLocal(tl).shouldBeTrue()
+            val captureAfterUnregister = Transmitter.capture()
+            captureAfterUnregister shouldNotBeSameInstanceAs captureAfterRegister
+            Transmitter.capture() shouldBeSameInstanceAs captureAfterUnregister
+            Transmitter.runSupplierWithClear {
+                Transmitter.runSupplierWithCaptured(captureAfterUnregister) { tl.get() }
+            }.shouldBeNull()
+
+            // a copier not identity, the capture is not reused
+            ThreadLocalTransmitRegistry.registerThreadLocal(threadLocal, { it }, true).shouldBeTrue()
+            Transmitter.capture() shouldNotBeSameInstanceAs Transmitter.capture()
+        } finally {
+            ThreadLocalTransmitRegistry.unregisterThreadLocal(tl)
+            tl.remove()
+        }
+    }
+
+    private fun replayCaptured(): String? {
+        val capture = Transmitter.capture()
+        return Transmitter.runSupplierWithClear { Transmitter.runSupplierWithCaptured(capture) { threadLocal.get() } }
+    }
+
+    /**
+     * the backup buffers are pooled per thread, the free list is bounded
+     * even if the backups replayed in a thread are restored in another thread.
+     */
+    @Test
+    fun test_restore_in_other_thread() {
+        threadLocal.set("parent")
+        val capture = Transmitter.capture()
+
+        val replayExecutor = Executors.newSingleThreadExecutor()
+        val restoreExecutor = Executors.newSingleThreadExecutor()
+        repeat(1000) {
+            val backup = replayExecutor.submit(Callable {
+                threadLocal.set("replay thread")
+                Transmitter.replay(capture)
+            }).getForTest()
+
+            restoreExecutor.submit {
+                Transmitter.restore(backup)
+                threadLocal.get() shouldBe "replay thread"
+                // the restoring thread replays/restores its own backups as usual
+                Transmitter.runSupplierWithClear { threadLocal.get() } shouldBe null
+            }.getForTest()
+        }
+
+        replayExecutor.submit(Callable { ThreadLocalTransmitRegistry.backupPoolFreeCount() }).getForTest() shouldBe 0
+        restoreExecutor.submit(Callable {
+            ThreadLocalTransmitRegistry.backupPoolFreeCount()
+        }).getForTest() shouldBeLessThanOrEqual 1
+
+        replayExecutor.shutdownForTest()
+        restoreExecutor.shutdownForTest()
+    }
+}
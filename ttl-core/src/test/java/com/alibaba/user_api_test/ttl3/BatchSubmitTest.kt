@@ -0,0 +1,115 @@
+package com.alibaba.user_api_test.ttl3
+
+import com.alibaba.expandThreadPool
+import com.alibaba.getForTest
+import com.alibaba.shutdownForTest
+import com.alibaba.ttl3.TransmittableThreadLocal
+import com.alibaba.ttl3.TtlCallable
+import com.alibaba.ttl3.TtlRunnable
+import com.alibaba.ttl3.executor.TtlExecutors
+import com.alibaba.ttl3.transmitter.TransmitProfile
+import com.alibaba.ttl3.transmitter.Transmitter
+import io.kotest.core.spec.style.AnnotationSpec
+import io.kotest.matchers.collections.shouldContainExactly
+import io.kotest.matchers.shouldBe
+import java.util.concurrent.Callable
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Test the batch wrapping/submission sharing one capture from user code(different package)
+ */
+class BatchSubmitTest : AnnotationSpec() {
+
+    @Test
+    fun test_gets_share_captured() {
+        val copyCount = AtomicInteger()
+        val ttl = object : TransmittableThreadLocal<String>() {
+            override fun transmitteeValue(parentValue: String): String {
+                copyCount.incrementAndGet()
+                return "$parentValue-copied"
+            }
+        }
+        ttl.set(parentValue)
+
+        val callables = List(5) { Callable { ttl.get() } }
+        val ttlCallables = TtlCallable.gets(callables, Transmitter.capture(), false, false)
+        copyCount.get() shouldBe 1
+
+        ttl.set(childValue)
+        executorService.invokeAll(ttlCallables).map { it.getForTest() } shouldBe List(5) { "$parentValue-copied" }
+
+        val values = ConcurrentLinkedQueue<String>()
+        val ttlRunnables = TtlRunnable.gets(List(3) { Runnable { values.add(ttl.get()) } }, Transmitter.capture(), false, false)
+        copyCount.get() shouldBe 2
+        ttlRunnables.map { executorService.submit(it) }.forEach { it.getForTest() }
+        values shouldContainExactly List(3) { "$childValue-copied" }
+
+        ttl.remove()
+    }
+
+    @Test
+    fun test_ttl_executor_invokeAll() {
+        val ttl = TransmittableThreadLocal<String>()
+        ttl.set(parentValue)
+
+        val ttlExecutorService = TtlExecutors.getTtlExecutorService(executorService)!!
+        ttlExecutorService.invokeAll(List(5) { Callable { ttl.get() } })
+            .map { it.getForTest() } shouldBe List(5) { parentValue }
+
+        ttl.remove()
+    }
+
+    @Test
+    fun test_submitAll() {
+        val ttl = TransmittableThreadLocal<String>()
+        ttl.set(parentValue)
+
+        val values = ConcurrentLinkedQueue<String>()
+        val tasks = List(5) { Runnable { values.add(ttl.get()) } }
+
+        for (executor in listOf(executorService, TtlExecutors.getTtlExecutorService(executorService)!!)) {
+            values.clear()
+            TtlExecutors.submitAll(executor, tasks).forEach { it.getForTest() }
+            values shouldContainExactly List(5) { parentValue }
+        }
+
+        TtlExecutors.submitAll(executorService, null) shouldBe emptyList()
+        ttl.remove()
+    }
+
+    @Test
+    fun test_submitAll_ttl_executor_with_profile() {
+        val ttl = TransmittableThreadLocal<String>()
+        val notInProfile = TransmittableThreadLocal<String>()
+        ttl.set(parentValue)
+        notInProfile.set(parentValue)
+
+        val values = ConcurrentLinkedQueue<Pair<String?, String?>>()
+        val tasks = List(5) { Runnable { values.add(ttl.get() to notInProfile.get()) } }
+
+        val ttlExecutorService = TtlExecutors.getTtlExecutorService(executorService, TransmitProfile.of(ttl))!!
+        TtlExecutors.submitAll(ttlExecutorService, tasks).forEach { it.getForTest() }
+        // the shared capture is of the profile of the TTL executor wrapper
+        values shouldContainExactly List(5) { parentValue to null }
+
+        ttl.remove()
+        notInProfile.remove()
+    }
+
+    private val parentValue = "parent"
+    private val childValue = "child"
+    private lateinit var executorService: ExecutorService
+
+    @BeforeAll
+    fun beforeAll() {
+        executorService = Executors.newFixedThreadPool(3).also { expandThreadPool(it) }
+    }
+
+    @AfterAll
+    fun afterAll() {
+        executorService.shutdownForTest()
+    }
+}
@@ -0,0 +1,195 @@
+package com.alibaba.user_api_test.ttl3
+
+import com.alibaba.expandThreadPool
+import com.alibaba.getForTest
+import com.alibaba.shutdownForTest
+import com.alibaba.ttl3.TransmittableThreadLocal
+import com.alibaba.ttl3.TtlRunnable
+import com.alibaba.ttl3.transmitter.Transmitter
+import io.kotest.core.spec.style.AnnotationSpec
+import io.kotest.matchers.nulls.shouldBeNull
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.types.shouldBeSameInstanceAs
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+
+/**
+ * Test the "lazy replay" mode of [TransmittableThreadLocal] from user code(different package)
+ */
+class LazyReplayTest : AnnotationSpec() {
+
+    @Test
+    fun test_read_replayed_values() {
+        val ttl = TransmittableThreadLocal<String>()
+        val other = TransmittableThreadLocal<String>()
+        val notSet = TransmittableThreadLocal.withInitial { "initial" }
+        ttl.set(parentValue)
+
+        val task = TtlRunnable.get {
+            ttl.get() shouldBe parentValue
+            // the thread value not captured is hidden
+            other.get().shouldBeNull()
+            notSet.get() shouldBe "initial"
+
+            // capture in the task
+            Transmitter.runSupplierWithCaptured(Transmitter.capture()) { ttl.get() } shouldBe parentValue
+        }!!
+
+        executorService.submit {
+            other.set(childValue)
+            task.run()
+
+            // the thread values are restored after the task
+            ttl.get().shouldBeNull()
+            other.get() shouldBe childValue
+        }.getForTest()
+
+        ttl.remove()
+    }
+
+    @Test
+    fun test_modify_in_task() {
+        val ttl = TransmittableThreadLocal<String>()
+        val other = TransmittableThreadLocal<String>()
+        ttl.set(parentValue)
+
+        val task = TtlRunnable.get {
+            ttl.set("modified in task")
+            ttl.get() shouldBe "modified in task"
+            other.get().shouldBeNull()
+
+            TtlRunnable.get { ttl.get() shouldBe "modified in task" }!!.run()
+            Transmitter.runSupplierWithClear { ttl.get() }.shouldBeNull()
+            ttl.get() shouldBe "modified in task"
+        }!!
+
+        executorService.submit {
+            other.set(childValue)
+            task.run()
+
+            ttl.get().shouldBeNull()
+            other.get() shouldBe childValue
+        }.getForTest()
+
+        ttl.get() shouldBe parentValue
+        ttl.remove()
+    }
+
+    @Test
+    fun test_skip_nested_replay_modified_in_task() {
+        val ttl = TransmittableThreadLocal<String>()
+        ttl.set(parentValue)
+        val captured = Transmitter.capture()
+
+        executorService.submit {
+            ttl.set("worker own")
+
+            val backup = Transmitter.replay(captured)
+            // the thread holds the captured values(the overlay), the nested replay is skipped
+            val skippedCount = Transmitter.getSkippedReplayCount()
+            val nestedBackup = Transmitter.replay(Transmitter.capture())
+            Transmitter.getSkippedReplayCount() shouldBe skippedCount + 1
+
+            ttl.set("modified by subtask")
+            Transmitter.restore(nestedBackup)
+            ttl.get() shouldBe parentValue
+
+            Transmitter.restore(backup)
+            ttl.get() shouldBe "worker own"
+            ttl.remove()
+        }.getForTest()
+
+        ttl.remove()
+    }
+
+    @Test
+    fun test_nested_replay_keep_materialized_backup() {
+        nestedReplayModifiedInTask()
+    }
+
+    @Test
+    fun test_nested_replay_keep_materialized_backup_with_persistent_context() {
+        TransmittableThreadLocal.setPersistentContextEnabled(true)
+        try {
+            nestedReplayModifiedInTask()
+        } finally {
+            TransmittableThreadLocal.setPersistentContextEnabled(false)
+        }
+    }
+
+    /**
+     * the task materializes the overlay, then the nested replays(the skipped replay of the reused capture,
+     * and the overlay replay) keep the backup of materializing.
+     */
+    private fun nestedReplayModifiedInTask() {
+        val ttl = TransmittableThreadLocal<String>()
+        ttl.set(parentValue)
+        val captured = Transmitter.capture()
+
+        executorService.submit {
+            ttl.set("worker own")
+
+            Transmitter.runSupplierWithCaptured(captured) {
+                ttl.set("modified in task")
+                val capturedInTask = Transmitter.capture()
+                Transmitter.capture() shouldBeSameInstanceAs capturedInTask
+
+                val skippedCount = Transmitter.getSkippedReplayCount()
+                Transmitter.runSupplierWithCaptured(capturedInTask) {
+                    ttl.set("modified in nested task")
+                    Transmitter.runSupplierWithCaptured(captured) {
+                        ttl.get() shouldBe parentValue
+                        ttl.set("modified in nested overlay")
+                    }
+                    ttl.get() shouldBe "modified in nested task"
+                }
+                Transmitter.getSkippedReplayCount() shouldBe skippedCount + 1
+
+                ttl.get() shouldBe "modified in task"
+                Transmitter.capture() shouldBeSameInstanceAs capturedInTask
+            }
+
+            ttl.get() shouldBe "worker own"
+            ttl.remove()
+        }.getForTest()
+
+        ttl.remove()
+    }
+
+    @Test
+    fun test_clear_is_eager() {
+        val ttl = TransmittableThreadLocal<String>()
+        ttl.set(parentValue)
+
+        executorService.submit(TtlRunnable.get {
+            // the thread created in the clear does not inherit the replayed values
+            var inherited: String? = "not run"
+            Transmitter.runSupplierWithClear {
+                val thread = Thread { inherited = ttl.get() }
+                thread.start()
+                thread.join()
+            }
+            inherited.shouldBeNull()
+            ttl.get() shouldBe parentValue
+        }).getForTest()
+
+        ttl.remove()
+    }
+
+    private val parentValue = "parent"
+    private val childValue = "child"
+    private lateinit var executorService: ExecutorService
+
+    @BeforeAll
+    fun beforeAll() {
+        TransmittableThreadLocal.setLazyReplayEnabled(true)
+        // single thread, the tasks run in the same thread
+        executorService = Executors.newFixedThreadPool(1).also { expandThreadPool(it) }
+    }
+
+    @AfterAll
+    fun afterAll() {
+        executorService.shutdownForTest()
+        TransmittableThreadLocal.setLazyReplayEnabled(false)
+    }
+}
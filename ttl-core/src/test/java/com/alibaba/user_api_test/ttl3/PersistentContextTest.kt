@@ -0,0 +1,136 @@
+package com.alibaba.user_api_test.ttl3
+
+import com.alibaba.expandThreadPool
+import com.alibaba.getForTest
+import com.alibaba.shutdownForTest
+import com.alibaba.ttl3.TransmittableThreadLocal
+import com.alibaba.ttl3.transmitter.Transmitter
+import io.kotest.core.spec.style.AnnotationSpec
+import io.kotest.matchers.nulls.shouldBeNull
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.types.shouldBeSameInstanceAs
+import io.kotest.matchers.types.shouldNotBeSameInstanceAs
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+
+/**
+ * Test the "persistent context" mode of [TransmittableThreadLocal] from user code(different package)
+ */
+class PersistentContextTest : AnnotationSpec() {
+
+    @Test
+    fun test_capture_after_modification() {
+        val ttl = TransmittableThreadLocal<String>()
+        val other = TransmittableThreadLocal<String>()
+        ttl.set("v1")
+
+        val capture1 = Transmitter.capture()
+        val capture2 = Transmitter.capture()
+        ttl.set("v2")
+        val capture3 = Transmitter.capture()
+        other.set("other")
+        val capture4 = Transmitter.capture()
+        ttl.remove()
+        val capture5 = Transmitter.capture()
+
+        executorService.submit {
+            Transmitter.runSupplierWithCaptured(capture1) { ttl.get() } shouldBe "v1"
+            Transmitter.runSupplierWithCaptured(capture2) { ttl.get() } shouldBe "v1"
+            Transmitter.runSupplierWithCaptured(capture3) { ttl.get() to other.get() } shouldBe ("v2" to null)
+            Transmitter.runSupplierWithCaptured(capture4) { ttl.get() to other.get() } shouldBe ("v2" to "other")
+            Transmitter.runSupplierWithCaptured(capture5) { ttl.get() to other.get() } shouldBe (null to "other")
+        }.getForTest()
+
+        other.remove()
+    }
+
+    @Test
+    fun test_capture_in_replayed_task() {
+        val ttl = TransmittableThreadLocal<String>()
+        ttl.set(parentValue)
+        val capture = Transmitter.capture()
+
+        executorService.submit {
+            ttl.set(childValue)
+
+            Transmitter.runSupplierWithCaptured(capture) {
+                // capture in the task, the snapshot is the replayed captured
+                val captureInTask = Transmitter.capture()
+                ttl.set("modified in task")
+
+                Transmitter.runSupplierWithCaptured(captureInTask) { ttl.get() } shouldBe parentValue
+                ttl.get() shouldBe "modified in task"
+            }
+
+            // the snapshot before replay is restored
+            ttl.get() shouldBe childValue
+            Transmitter.runSupplierWithClear {
+                Transmitter.capture()
+            }.let { captureOfChild ->
+                Transmitter.runSupplierWithCaptured(captureOfChild) { ttl.get() }.shouldBeNull()
+            }
+            Transmitter.runSupplierWithCaptured(Transmitter.capture()) { ttl.get() } shouldBe childValue
+        }.getForTest()
+
+        ttl.get() shouldBe parentValue
+    }
+
+    @Test
+    fun test_capture_in_replayed_task_reuses_the_replayed_capture() {
+        val ttl = TransmittableThreadLocal<String>()
+        ttl.set(parentValue)
+        val capture = Transmitter.capture()
+
+        executorService.submit {
+            val captureBefore = Transmitter.capture()
+
+            Transmitter.runSupplierWithCaptured(capture) {
+                Transmitter.capture() shouldBeSameInstanceAs capture
+
+                ttl.set("modified in task")
+                Transmitter.capture() shouldNotBeSameInstanceAs capture
+            }
+
+            // the last capture before replay is reinstalled
+            Transmitter.capture() shouldBeSameInstanceAs captureBefore
+        }.getForTest()
+
+        ttl.remove()
+    }
+
+    @Test
+    fun test_overridden_transmitteeValue_for_each_capture() {
+        val ttl = object : TransmittableThreadLocal<MutableList<String>>() {
+            override fun transmitteeValue(parentValue: MutableList<String>): MutableList<String> = ArrayList(parentValue)
+        }
+        val list = mutableListOf("a")
+        ttl.set(list)
+
+        val capture1 = Transmitter.capture()
+        val capture2 = Transmitter.capture()
+
+        val value1 = Transmitter.runSupplierWithCaptured(capture1) { ttl.get() }
+        val value2 = Transmitter.runSupplierWithCaptured(capture2) { ttl.get() }
+        value1 shouldBe list
+        value1 shouldNotBeSameInstanceAs list
+        value1 shouldNotBeSameInstanceAs value2
+
+        ttl.remove()
+    }
+
+    private val parentValue = "parent"
+    private val childValue = "child"
+    private lateinit var executorService: ExecutorService
+
+    @BeforeAll
+    fun beforeAll() {
+        TransmittableThreadLocal.setPersistentContextEnabled(true)
+        executorService = Executors.newFixedThreadPool(3).also { expandThreadPool(it) }
+    }
+
+    @AfterAll
+    fun afterAll() {
+        executorService.shutdownForTest()
+        TransmittableThreadLocal.setPersistentContextEnabled(false)
+    }
+}
@@ -0,0 +1,116 @@
+package com.alibaba.user_api_test.ttl3
+
+import com.alibaba.expandThreadPool
+import com.alibaba.getForTest
+import com.alibaba.shutdownForTest
+import com.alibaba.ttl3.TransmittableThreadLocal
+import com.alibaba.ttl3.transmitter.Transmitter
+import io.kotest.core.spec.style.AnnotationSpec
+import io.kotest.matchers.nulls.shouldBeNull
+import io.kotest.matchers.shouldBe
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+
+/**
+ * Test the "scoped replay" mode of [TransmittableThreadLocal] from user code(different package)
+ */
+class ScopedReplayTest : AnnotationSpec() {
+
+    @Test
+    fun test_bind_captured_in_scope() {
+        val ttl = TransmittableThreadLocal<String>()
+        val other = TransmittableThreadLocal<String>()
+        ttl.set(parentValue)
+        val capture = Transmitter.capture()
+
+        executorService.submit {
+            other.set(childValue)
+
+            Transmitter.runSupplierWithCaptured(capture) {
+                ttl.get() shouldBe parentValue
+                other.get().shouldBeNull()
+
+                // capture in the scope, the bound captured
+                Transmitter.runSupplierWithCaptured(Transmitter.capture()) { ttl.get() } shouldBe parentValue
+            }
+
+            ttl.get().shouldBeNull()
+            other.get() shouldBe childValue
+        }.getForTest()
+
+        ttl.get() shouldBe parentValue
+        ttl.remove()
+    }
+
+    @Test
+    fun test_modify_in_scope() {
+        val ttl = TransmittableThreadLocal<String>()
+        val other = TransmittableThreadLocal<String>()
+        ttl.set(parentValue)
+        val capture = Transmitter.capture()
+
+        executorService.submit {
+            other.set(childValue)
+
+            Transmitter.runCallableWithCaptured(capture) {
+                ttl.set("modified in scope")
+                ttl.get() shouldBe "modified in scope"
+                other.get().shouldBeNull()
+
+                Transmitter.runSupplierWithCaptured(capture) { ttl.get() } shouldBe parentValue
+                ttl.get() shouldBe "modified in scope"
+
+                other.set("modified in scope")
+            }
+
+            ttl.get().shouldBeNull()
+            other.get() shouldBe childValue
+        }.getForTest()
+
+        ttl.get() shouldBe parentValue
+        ttl.remove()
+    }
+
+    @Test
+    fun test_skip_nested_scope_modified_in_scope() {
+        val ttl = TransmittableThreadLocal<String>()
+        ttl.set(parentValue)
+        val capture = Transmitter.capture()
+
+        executorService.submit {
+            ttl.set(childValue)
+
+            Transmitter.runSupplierWithCaptured(capture) {
+                // the thread holds the captured values(the bound captured), the nested replay is skipped
+                val skippedCount = Transmitter.getSkippedReplayCount()
+                Transmitter.runSupplierWithCaptured(Transmitter.capture()) {
+                    ttl.set("modified in nested scope")
+                }
+                Transmitter.getSkippedReplayCount() shouldBe skippedCount + 1
+                ttl.get() shouldBe parentValue
+            }
+
+            ttl.get() shouldBe childValue
+            ttl.remove()
+        }.getForTest()
+
+        ttl.get() shouldBe parentValue
+        ttl.remove()
+    }
+
+    private val parentValue = "parent"
+    private val childValue = "child"
+    private lateinit var executorService: ExecutorService
+
+    @BeforeAll
+    fun beforeAll() {
+        TransmittableThreadLocal.setScopedReplayEnabled(true)
+        executorService = Executors.newFixedThreadPool(3).also { expandThreadPool(it) }
+    }
+
+    @AfterAll
+    fun afterAll() {
+        executorService.shutdownForTest()
+        TransmittableThreadLocal.setScopedReplayEnabled(false)
+    }
+}
@@ -0,0 +1,102 @@
+package com.alibaba.user_api_test.ttl3
+
+import com.alibaba.ttl3.TransmittableThreadLocal
+import com.alibaba.ttl3.transmitter.ThreadLocalTransmitRegistry
+import com.alibaba.ttl3.transmitter.TransmitMetrics
+import com.alibaba.ttl3.transmitter.TransmitMetricsRecorder
+import com.alibaba.ttl3.transmitter.TransmitMetricsRecorder.Operation
+import com.alibaba.ttl3.transmitter.TransmitStatistics
+import com.alibaba.ttl3.transmitter.Transmitter
+import io.kotest.core.spec.style.AnnotationSpec
+import io.kotest.matchers.collections.shouldContain
+import io.kotest.matchers.collections.shouldContainAll
+import io.kotest.matchers.collections.shouldNotContain
+import io.kotest.matchers.longs.shouldBeGreaterThanOrEqual
+import io.kotest.matchers.shouldBe
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.function.UnaryOperator
+
+/**
+ * Test the transmit instrumentation [TransmitMetrics] from user code(different package)
+ */
+class TransmitMetricsTest : AnnotationSpec() {
+
+    @Test
+    fun test_record_operations() {
+        val records = ConcurrentLinkedQueue<Pair<Any, Operation>>()
+        TransmitMetrics.setRecorder { target, operation, _ -> records.add(target to operation) }
+
+        val ttl = object : TransmittableThreadLocal<String>() {
+            override fun transmitteeValue(parentValue: String): String = "$parentValue-copied"
+        }
+        val threadLocal = ThreadLocal<String>()
+        ThreadLocalTransmitRegistry.registerThreadLocal(threadLocal, UnaryOperator.identity())
+        ttl.set(PARENT)
+        threadLocal.set(PARENT)
+
+        try {
+            Transmitter.runSupplierWithCaptured(Transmitter.capture()) { ttl.get() } shouldBe "$PARENT-copied"
+
+            records shouldContainAll listOf(ttl to Operation.TRANSMITTEE_VALUE, threadLocal to Operation.TRANSMITTEE_VALUE)
+            records.map { it.second } shouldContainAll listOf(Operation.CAPTURE, Operation.REPLAY, Operation.RESTORE)
+        } finally {
+            TransmitMetrics.setRecorder(null)
+            ThreadLocalTransmitRegistry.unregisterThreadLocal(threadLocal)
+            ttl.remove()
+            threadLocal.remove()
+        }
+
+        // disabled
+        records.clear()
+        Transmitter.capture()
+        records.isEmpty() shouldBe true
+    }
+
+    @Test
+    fun test_statistics() {
+        val statistics = TransmitStatistics()
+        TransmitMetrics.setRecorder(statistics)
+
+        val ttl = object : TransmittableThreadLocal<String>() {
+            override fun transmitteeValue(parentValue: String): String = parentValue
+
+            override fun toString(): String = "ttl-of-statistics"
+        }
+        ttl.set(PARENT)
+
+        try {
+            repeat(3) { Transmitter.capture() }
+        } finally {
+            TransmitMetrics.setRecorder(null)
+            ttl.remove()
+        }
+
+        val stat = statistics.operationStats.first { it.target == "ttl-of-statistics" }
+        stat.operation shouldBe Operation.TRANSMITTEE_VALUE.name
+        stat.count shouldBe 3
+        stat.histogram.sum() shouldBe 3
+        stat.totalNanos shouldBeGreaterThanOrEqual stat.maxNanos
+
+        statistics.operationStats.map { it.operation } shouldContain Operation.CAPTURE.name
+        statistics.reset()
+        statistics.operationStats.map { it.target } shouldNotContain "ttl-of-statistics"
+    }
+
+    @Test
+    fun test_exception_of_recorder_is_ignored() {
+        TransmitMetrics.setRecorder(TransmitMetricsRecorder { _, _, _ -> throw IllegalStateException("recorder") })
+
+        val ttl = TransmittableThreadLocal<String>()
+        ttl.set(PARENT)
+        try {
+            Transmitter.runSupplierWithCaptured(Transmitter.capture()) { ttl.get() } shouldBe PARENT
+        } finally {
+            TransmitMetrics.setRecorder(null)
+            ttl.remove()
+        }
+    }
+
+    private companion object {
+        const val PARENT = "parent"
+    }
+}
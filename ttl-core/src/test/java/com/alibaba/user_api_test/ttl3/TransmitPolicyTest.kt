@@ -0,0 +1,133 @@
+package com.alibaba.user_api_test.ttl3
+
+import com.alibaba.getForTest
+import com.alibaba.shutdownForTest
+import com.alibaba.ttl3.TransmitPolicy
+import com.alibaba.ttl3.TransmittableThreadLocal
+import com.alibaba.ttl3.executor.TtlExecutors
+import com.alibaba.ttl3.transmitter.Transmitter
+import io.kotest.core.spec.style.AnnotationSpec
+import io.kotest.matchers.nulls.shouldBeNull
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.types.shouldBeSameInstanceAs
+import io.kotest.matchers.types.shouldNotBeSameInstanceAs
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+
+/**
+ * Test the [TransmitPolicy] of [TransmittableThreadLocal] from user code(different package)
+ */
+class TransmitPolicyTest : AnnotationSpec() {
+
+    @Test
+    fun test_default_policy() {
+        TransmittableThreadLocal<String>().transmitPolicy shouldBe TransmitPolicy.TRANSMITTEE_VALUE
+        TransmittableThreadLocal.withInitial { "initial" }.transmitPolicy shouldBe TransmitPolicy.TRANSMITTEE_VALUE
+
+        TransmittableThreadLocal<String>(TransmitPolicy.NEVER).transmitPolicy shouldBe TransmitPolicy.NEVER
+        TransmittableThreadLocal<String>(true, TransmitPolicy.REFERENCE).transmitPolicy shouldBe TransmitPolicy.REFERENCE
+    }
+
+    @Test
+    fun test_never() {
+        val ttl = TransmittableThreadLocal<String>(TransmitPolicy.NEVER)
+        val cache = TransmittableThreadLocal.withInitial({ HashMap<String, String>() }, TransmitPolicy.NEVER)
+        ttl.set(parentValue)
+        cache.get()["key"] = parentValue
+        val captured = Transmitter.capture()
+
+        executorService.submit {
+            ttl.set(childValue)
+
+            Transmitter.runSupplierWithCaptured(captured) {
+                // the values of the thread are cleared, same as the values not captured
+                ttl.get().shouldBeNull()
+                cache.get()["key"].shouldBeNull()
+            }
+            ttl.get() shouldBe childValue
+            ttl.remove()
+        }.getForTest()
+
+        ttl.remove()
+        cache.remove()
+    }
+
+    @Test
+    fun test_skip_initial() {
+        val ttl = TransmittableThreadLocal.withInitial({ mutableListOf<String>() }, TransmitPolicy.SKIP_INITIAL)
+        val initial = ttl.get()
+        initial.add(parentValue)
+
+        // the initial value is not captured, even modified in place
+        val capturedInitial = Transmitter.capture()
+        executorService.submit {
+            Transmitter.runSupplierWithCaptured(capturedInitial) {
+                ttl.get() shouldNotBeSameInstanceAs initial
+                ttl.get() shouldBe emptyList()
+            }
+        }.getForTest()
+
+        // the value set is captured
+        val value = mutableListOf(childValue)
+        ttl.set(value)
+        val captured = Transmitter.capture()
+        executorService.submit {
+            Transmitter.runSupplierWithCaptured(captured) {
+                ttl.get() shouldBeSameInstanceAs value
+            }
+        }.getForTest()
+
+        // removed, the new initial value is not captured
+        ttl.remove()
+        val newInitial = ttl.get()
+        val capturedNewInitial = Transmitter.capture()
+        executorService.submit {
+            Transmitter.runSupplierWithCaptured(capturedNewInitial) {
+                ttl.get() shouldNotBeSameInstanceAs newInitial
+            }
+        }.getForTest()
+
+        ttl.remove()
+    }
+
+    @Test
+    fun test_reference() {
+        val ttl = TransmittableThreadLocal.withInitialAndGenerator(
+            { mutableListOf<String>() }, { ArrayList(it) }, { ArrayList(it) }, TransmitPolicy.REFERENCE
+        )
+        val value = mutableListOf(parentValue)
+        ttl.set(value)
+        val captured = Transmitter.capture()
+
+        executorService.submit {
+            Transmitter.runSupplierWithCaptured(captured) {
+                // the transmittee value generator is not called
+                ttl.get() shouldBeSameInstanceAs value
+            }
+        }.getForTest()
+
+        // the inheritance is not affected by the policy
+        var inherited: List<String>? = null
+        val thread = Thread { inherited = ttl.get() }
+        thread.start()
+        thread.join()
+        inherited shouldBe value
+        inherited shouldNotBeSameInstanceAs value
+
+        ttl.remove()
+    }
+
+    private val parentValue = "parent"
+    private val childValue = "child"
+    private lateinit var executorService: ExecutorService
+
+    @BeforeAll
+    fun beforeAll() {
+        executorService = Executors.newFixedThreadPool(1, TtlExecutors.getDefaultDisableInheritableThreadFactory())
+    }
+
+    @AfterAll
+    fun afterAll() {
+        executorService.shutdownForTest()
+    }
+}
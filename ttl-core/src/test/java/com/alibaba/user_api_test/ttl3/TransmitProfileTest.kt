@@ -0,0 +1,134 @@
+package com.alibaba.user_api_test.ttl3
+
+import com.alibaba.getForTest
+import com.alibaba.shutdownForTest
+import com.alibaba.ttl3.TransmitPolicy
+import com.alibaba.ttl3.TransmittableThreadLocal
+import com.alibaba.ttl3.executor.TtlExecutors
+import com.alibaba.ttl3.transmitter.ThreadLocalTransmitRegistry
+import com.alibaba.ttl3.transmitter.TransmitProfile
+import com.alibaba.ttl3.transmitter.Transmitter
+import io.kotest.assertions.throwables.shouldThrow
+import io.kotest.core.spec.style.AnnotationSpec
+import io.kotest.matchers.booleans.shouldBeTrue
+import io.kotest.matchers.nulls.shouldBeNull
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.types.shouldBeSameInstanceAs
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.function.UnaryOperator
+
+/**
+ * Test the [TransmitProfile] from user code(different package)
+ */
+class TransmitProfileTest : AnnotationSpec() {
+
+    @Test
+    fun test_transmit_only_profile() {
+        val trace = TransmittableThreadLocal<String>()
+        val biz = TransmittableThreadLocal<String>()
+        val never = TransmittableThreadLocal<String>(TransmitPolicy.NEVER)
+        val threadLocal = ThreadLocal<String>()
+        val otherThreadLocal = ThreadLocal<String>()
+        ThreadLocalTransmitRegistry.registerThreadLocal(threadLocal, UnaryOperator.identity()).shouldBeTrue()
+        ThreadLocalTransmitRegistry.registerThreadLocal(otherThreadLocal, UnaryOperator.identity()).shouldBeTrue()
+
+        try {
+            val profile = TransmitProfile.builder().add(trace, never).addThreadLocal(threadLocal).build()
+            val ttlExecutorService = TtlExecutors.getTtlExecutorService(executorService, profile)
+
+            executorService.submit {
+                biz.set(childValue)
+                otherThreadLocal.set(childValue)
+            }.getForTest()
+
+            trace.set(parentValue)
+            biz.set(parentValue)
+            never.set(parentValue)
+            threadLocal.set(parentValue)
+            otherThreadLocal.set(parentValue)
+
+            ttlExecutorService.submit {
+                trace.get() shouldBe parentValue
+                never.get().shouldBeNull()
+                threadLocal.get() shouldBe parentValue
+                // the values not in the profile are untouched
+                biz.get() shouldBe childValue
+                otherThreadLocal.get() shouldBe childValue
+
+                trace.set(childValue)
+            }.getForTest()
+
+            ttlExecutorService.invokeAll(listOf(Callable { trace.get() })).single().getForTest() shouldBe parentValue
+
+            // the values in the profile are restored after the task
+            executorService.submit {
+                trace.get().shouldBeNull()
+                threadLocal.get().shouldBeNull()
+                biz.get() shouldBe childValue
+
+                biz.remove()
+                otherThreadLocal.remove()
+            }.getForTest()
+
+            TtlExecutors.unwrapTtlExecutor(ttlExecutorService) shouldBeSameInstanceAs executorService
+        } finally {
+            trace.remove()
+            biz.remove()
+            never.remove()
+            threadLocal.remove()
+            otherThreadLocal.remove()
+            ThreadLocalTransmitRegistry.unregisterThreadLocal(threadLocal).shouldBeTrue()
+            ThreadLocalTransmitRegistry.unregisterThreadLocal(otherThreadLocal).shouldBeTrue()
+        }
+    }
+
+    @Test
+    fun test_capture_of_profile() {
+        val trace = TransmittableThreadLocal<String>()
+        val profile = TransmitProfile.of(trace)
+        trace.set(parentValue)
+        val captured = Transmitter.capture(profile)
+
+        executorService.submit {
+            Transmitter.runSupplierWithCaptured(captured) {
+                trace.get() shouldBe parentValue
+            }
+            trace.get().shouldBeNull()
+        }.getForTest()
+
+        trace.remove()
+    }
+
+    @Test
+    fun test_unregistered_thread_local() {
+        shouldThrow<IllegalArgumentException> {
+            TransmitProfile.builder().addThreadLocal(ThreadLocal<String>()).build()
+        }
+    }
+
+    @Test
+    fun test_registered_profile() {
+        val profile = TransmitProfile.of(TransmittableThreadLocal<String>())
+        TransmitProfile.register(profileName, profile).shouldBeNull()
+        TransmitProfile.getRegistered(profileName) shouldBeSameInstanceAs profile
+        TransmitProfile.unregister(profileName) shouldBeSameInstanceAs profile
+        TransmitProfile.getRegistered(profileName).shouldBeNull()
+    }
+
+    private val parentValue = "parent"
+    private val childValue = "child"
+    private val profileName = "TransmitProfileTest"
+    private lateinit var executorService: ExecutorService
+
+    @BeforeAll
+    fun beforeAll() {
+        executorService = Executors.newFixedThreadPool(1, TtlExecutors.getDefaultDisableInheritableThreadFactory())
+    }
+
+    @AfterAll
+    fun afterAll() {
+        executorService.shutdownForTest()
+    }
+}
@@ -5,10 +5,12 @@ import com.alibaba.getForTest
 import com.alibaba.shutdownForTest
 import com.alibaba.ttl3.TransmittableThreadLocal
 import com.alibaba.ttl3.transmitter.Transmitter
+import io.kotest.assertions.throwables.shouldThrow
 import io.kotest.core.spec.style.AnnotationSpec
 import io.kotest.matchers.nulls.shouldBeNull
 import io.kotest.matchers.shouldBe
 import java.util.*
+import java.util.concurrent.Callable
 import java.util.concurrent.ExecutorService
 import java.util.concurrent.Executors
 
@@ -68,6 +70,100 @@ class TransmittableThreadLocal_Transmitter_UserTest : AnnotationSpec() {
         ttl.get() shouldBe parentValue
     }
 
+    @Test
+    fun test_nested_replay_restore() {
+        val ttl = TransmittableThreadLocal<String>()
+        val other = TransmittableThreadLocal<String>()
+        ttl.set(parentValue)
+        val capture = Transmitter.capture()
+
+        val future = executorService.submit {
+            ttl.set(childValue)
+            other.set(childValue)
+
+            val backup = Transmitter.replay(capture)
+            ttl.get() shouldBe parentValue
+            other.get().shouldBeNull()
+
+            val nestedBackup = Transmitter.clear()
+            ttl.get().shouldBeNull()
+            Transmitter.restore(nestedBackup)
+            ttl.get() shouldBe parentValue
+
+            Transmitter.restore(backup)
+            ttl.get() shouldBe childValue
+            other.get() shouldBe childValue
+
+            // the backups are reused after restored
+            val backup2 = Transmitter.replay(capture)
+            ttl.get() shouldBe parentValue
+            other.get().shouldBeNull()
+            Transmitter.restore(backup2)
+            ttl.get() shouldBe childValue
+            other.get() shouldBe childValue
+        }
+
+        future.getForTest()
+    }
+
+    @Test
+    fun test_restore_twice() {
+        val backup = Transmitter.clear()
+        Transmitter.restore(backup)
+
+        shouldThrow<IllegalStateException> {
+            Transmitter.restore(backup)
+        }
+    }
+
+    @Test
+    fun test_restore_in_other_thread() {
+        val ttl = TransmittableThreadLocal<String>()
+        ttl.set(parentValue)
+        val capture = Transmitter.capture()
+
+        val replayExecutor = Executors.newSingleThreadExecutor()
+        val restoreExecutor = Executors.newSingleThreadExecutor()
+        try {
+            val backup = replayExecutor.submit(Callable {
+                ttl.set(childValue)
+                Transmitter.replay(capture)
+            }).getForTest()
+
+            restoreExecutor.submit {
+                ttl.set("restore thread")
+                Transmitter.restore(backup)
+                // the values of the restoring thread are restored to the backup values
+                ttl.get() shouldBe childValue
+
+                // the capture of the restoring thread is not the one of the replay thread
+                ttl.set("restore thread modified")
+                val captured = Transmitter.capture()
+                Transmitter.runSupplierWithClear {
+                    Transmitter.runSupplierWithCaptured(captured) { ttl.get() } shouldBe "restore thread modified"
+                }
+
+                shouldThrow<IllegalStateException> {
+                    Transmitter.restore(backup)
+                }
+                ttl.remove()
+            }.getForTest()
+
+            replayExecutor.submit {
+                // the replay thread still holds the replayed values, and replays/restores as usual
+                ttl.get() shouldBe parentValue
+                val nestedBackup = Transmitter.clear()
+                ttl.get().shouldBeNull()
+                Transmitter.restore(nestedBackup)
+                ttl.get() shouldBe parentValue
+                ttl.remove()
+            }.getForTest()
+        } finally {
+            replayExecutor.shutdownForTest()
+            restoreExecutor.shutdownForTest()
+        }
+    }
+
     @Test
     fun test_runSupplierWithCaptured() {
         val ttl = TransmittableThreadLocal<String>()
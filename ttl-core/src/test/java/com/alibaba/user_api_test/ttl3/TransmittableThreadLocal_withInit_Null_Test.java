@@ -1,5 +1,6 @@
 package com.alibaba.user_api_test.ttl3;
 
+import com.alibaba.ttl3.TransmitPolicy;
 import com.alibaba.ttl3.TransmittableThreadLocal;
 import org.junit.Test;
 
@@ -60,4 +61,35 @@ public class TransmittableThreadLocal_withInit_Null_Test {
             assertEquals("value generator for transmittee value is null", e.getMessage());
         }
     }
+
+    @Test
+    public void test_null__transmitPolicy() {
+        try {
+            new TransmittableThreadLocal<String>(null);
+            fail();
+        } catch (NullPointerException e) {
+            assertEquals("transmit policy is null", e.getMessage());
+        }
+
+        try {
+            TransmittableThreadLocal.<String>withInitial(null, TransmitPolicy.NEVER);
+            fail();
+        } catch (NullPointerException e) {
+            assertEquals("supplier is null", e.getMessage());
+        }
+
+        try {
+            TransmittableThreadLocal.withInitial((Supplier<String>) () -> null, null);
+            fail();
+        } catch (NullPointerException e) {
+            assertEquals("transmit policy is null", e.getMessage());
+        }
+
+        try {
+            TransmittableThreadLocal.withInitialAndGenerator((Supplier<String>) () -> null, parentValue -> null, parentValue -> null, null);
+            fail();
+        } catch (NullPointerException e) {
+            assertEquals("transmit policy is null", e.getMessage());
+        }
+    }
 }
@@ -0,0 +1,239 @@
+package com.alibaba.user_api_test.ttl3
+
+import com.alibaba.ttl3.TransmittableThreadLocal
+import com.alibaba.ttl3.transmitter.ThreadLocalTransmitRegistry
+import com.alibaba.ttl3.transmitter.Transmittee
+import com.alibaba.ttl3.transmitter.TransmitteeRegistry
+import com.alibaba.ttl3.transmitter.Transmitter
+import io.kotest.core.spec.style.AnnotationSpec
+import io.kotest.matchers.booleans.shouldBeTrue
+import io.kotest.matchers.nulls.shouldBeNull
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.types.shouldBeSameInstanceAs
+import io.kotest.matchers.types.shouldNotBeSameInstanceAs
+import java.lang.ref.WeakReference
+import java.util.function.UnaryOperator
+
+/**
+ * Test the reuse of the last capture of [Transmitter.capture] from user code(different package)
+ */
+class Transmitter_captureReuse_UserTest : AnnotationSpec() {
+    @Test
+    fun test_reuse_until_ttl_modified() = withClearedContext {
+        val ttl = TransmittableThreadLocal<String>()
+        ttl.set("v1")
+
+        val capture1 = Transmitter.capture()
+        Transmitter.capture() shouldBeSameInstanceAs capture1
+
+        ttl.set("v2")
+        val capture2 = Transmitter.capture()
+        capture2 shouldNotBeSameInstanceAs capture1
+        Transmitter.capture() shouldBeSameInstanceAs capture2
+
+        ttl.remove()
+        val capture3 = Transmitter.capture()
+        capture3 shouldNotBeSameInstanceAs capture2
+
+        Transmitter.runSupplierWithCaptured(capture1) { ttl.get() } shouldBe "v1"
+        Transmitter.runSupplierWithCaptured(capture2) { ttl.get() } shouldBe "v2"
+        Transmitter.runSupplierWithCaptured(capture3) { ttl.get() } shouldBe null
+
+        // restore the values and the snapshot before replay
+        Transmitter.capture() shouldBeSameInstanceAs capture3
+    }
+
+    @Test
+    fun test_reuse_until_registered_threadLocal_modified() = withClearedContext {
+        val threadLocal = ThreadLocal<String>()
+        threadLocal.set("v1")
+
+        val capture1 = Transmitter.capture()
+        ThreadLocalTransmitRegistry.registerThreadLocal(threadLocal, UnaryOperator.identity()).shouldBeTrue()
+        try {
+            val capture2 = Transmitter.capture()
+            capture2 shouldNotBeSameInstanceAs capture1
+            Transmitter.capture() shouldBeSameInstanceAs capture2
+
+            threadLocal.set("v2")
+            val capture3 = Transmitter.capture()
+            capture3 shouldNotBeSameInstanceAs capture2
+            Transmitter.capture() shouldBeSameInstanceAs capture3
+
+            Transmitter.runSupplierWithClear {
+                Transmitter.runSupplierWithCaptured(capture2) { threadLocal.get() }
+            } shouldBe "v1"
+        } finally {
+            ThreadLocalTransmitRegistry.unregisterThreadLocal(threadLocal).shouldBeTrue()
+            threadLocal.remove()
+        }
+
+        // copy by the generator for each capture
+        ThreadLocalTransmitRegistry.registerThreadLocal(threadLocal) { "copy" }.shouldBeTrue()
+        try {
+            Transmitter.capture() shouldNotBeSameInstanceAs Transmitter.capture()
+        } finally {
+            ThreadLocalTransmitRegistry.unregisterThreadLocal(threadLocal).shouldBeTrue()
+        }
+    }
+
+    @Test
+    fun test_transmittee_reusable_hook() = withClearedContext {
+        var stamp = 0
+        val transmittee = object : Transmittee<Int, Int> {
+            override fun capture(): Int = stamp
+            override fun replay(captured: Int): Int = stamp
+            override fun clear(): Int = stamp
+            override fun restore(backup: Int) {}
+            override fun isCaptureReusable(captured: Int): Boolean = captured == stamp
+        }
+        val notReusable = object : Transmittee<Int, Int> {
+            override fun capture(): Int = 0
+            override fun replay(captured: Int): Int = 0
+            override fun clear(): Int = 0
+            override fun restore(backup: Int) {}
+        }
+
+        TransmitteeRegistry.registerTransmittee(transmittee).shouldBeTrue()
+        try {
+            val capture1 = Transmitter.capture()
+            Transmitter.capture() shouldBeSameInstanceAs capture1
+
+            stamp++
+            val capture2 = Transmitter.capture()
+            capture2 shouldNotBeSameInstanceAs capture1
+            Transmitter.capture() shouldBeSameInstanceAs capture2
+
+            TransmitteeRegistry.registerTransmittee(notReusable).shouldBeTrue()
+            try {
+                Transmitter.capture() shouldNotBeSameInstanceAs Transmitter.capture()
+            } finally {
+                TransmitteeRegistry.unregisterTransmittee(notReusable).shouldBeTrue()
+            }
+        } finally {
+            TransmitteeRegistry.unregisterTransmittee(transmittee).shouldBeTrue()
+        }
+    }
+
+    @Test
+    fun test_skip_replay_in_capture_thread() = withClearedContext {
+        val ttl = TransmittableThreadLocal<String>()
+        ttl.set("v1")
+        val captured = Transmitter.capture()
+
+        val skippedCount = Transmitter.getSkippedReplayCount()
+        Transmitter.runSupplierWithCaptured(captured) {
+            ttl.get() shouldBe "v1"
+        }
+        Transmitter.getSkippedReplayCount() shouldBe skippedCount + 1
+        ttl.get() shouldBe "v1"
+        Transmitter.capture() shouldBeSameInstanceAs captured
+
+        // modified in the task, restore to the captured values
+        Transmitter.runSupplierWithCaptured(captured) {
+            ttl.set("modified in task")
+            TransmittableThreadLocal<String>().set("new ttl in task")
+            ttl.get() shouldBe "modified in task"
+        }
+        Transmitter.getSkippedReplayCount() shouldBe skippedCount + 2
+        ttl.get() shouldBe "v1"
+        Transmitter.runSupplierWithCaptured(Transmitter.capture()) { ttl.get() } shouldBe "v1"
+
+        // not the last capture of the thread, replay
+        ttl.set("v2")
+        Transmitter.capture()
+        Transmitter.runSupplierWithCaptured(captured) { ttl.get() } shouldBe "v1"
+        Transmitter.getSkippedReplayCount() shouldBe skippedCount + 3
+        ttl.get() shouldBe "v2"
+    }
+
+    @Test
+    fun test_skip_nested_replay_restore_thread_values() = withClearedContext {
+        val ttl = TransmittableThreadLocal<String>()
+        ttl.set("parent")
+        val captured = Transmitter.capture()
+
+        ttl.set("worker own")
+        val backup = Transmitter.replay(captured)
+        // the thread holds the captured values, the nested replay of the same capture is skipped
+        val skippedCount = Transmitter.getSkippedReplayCount()
+        val nestedBackup = Transmitter.replay(Transmitter.capture())
+        Transmitter.getSkippedReplayCount() shouldBe skippedCount + 1
+
+        ttl.set("modified by subtask")
+        Transmitter.restore(nestedBackup)
+        ttl.get() shouldBe "parent"
+
+        Transmitter.restore(backup)
+        ttl.get() shouldBe "worker own"
+    }
+
+    @Test
+    fun test_skip_replay_pairs_transmittee_replay_restore() = withClearedContext {
+        var value = "worker own"
+        // the depth of the replays not restored yet
+        var depth = 0
+        val transmittee = object : Transmittee<String, String> {
+            override fun capture(): String = value
+            override fun replay(captured: String): String = value.also { value = captured; depth++ }
+            override fun clear(): String = replay("")
+            override fun restore(backup: String) {
+                value = backup
+                depth--
+            }
+
+            override fun isCaptureReusable(captured: String): Boolean = captured === value
+        }
+
+        TransmitteeRegistry.registerTransmittee(transmittee).shouldBeTrue()
+        try {
+            value = "parent"
+            val captured = Transmitter.capture()
+            value = "worker own"
+
+            Transmitter.runSupplierWithCaptured(captured) {
+                val skippedCount = Transmitter.getSkippedReplayCount()
+                Transmitter.runSupplierWithCaptured(Transmitter.capture()) {
+                    value = "modified by subtask"
+                }
+                Transmitter.getSkippedReplayCount() shouldBe skippedCount + 1
+                value shouldBe "parent"
+                depth shouldBe 1
+            }
+            value shouldBe "worker own"
+            depth shouldBe 0
+        } finally {
+            TransmitteeRegistry.unregisterTransmittee(transmittee).shouldBeTrue()
+        }
+    }
+
+    /**
+     * run with the cleared TTL values, the test thread may be left values by other tests.
+     */
+    @Test
+    fun test_last_capture_not_keep_dropped_ttl_reachable() = withClearedContext {
+        val ttlRef = setAndCaptureThenDrop()
+
+        for (i in 0 until 100) {
+            if (ttlRef.get() == null) break
+            System.gc()
+            Thread.sleep(10)
+        }
+        ttlRef.get().shouldBeNull()
+    }
+
+    /**
+     * the TTL and the capture are not referenced after return,
+     * only the last capture/snapshot kept by the current thread reference them.
+     */
+    private fun setAndCaptureThenDrop(): WeakReference<TransmittableThreadLocal<String>> {
+        val ttl = TransmittableThreadLocal<String>()
+        ttl.set("value")
+        Transmitter.capture() shouldBeSameInstanceAs Transmitter.capture()
+        return WeakReference(ttl)
+    }
+
+    private fun withClearedContext(block: () -> Unit) {
+        Transmitter.runSupplierWithClear(block)
+    }
+}
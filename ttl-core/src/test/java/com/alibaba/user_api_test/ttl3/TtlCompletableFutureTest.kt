@@ -0,0 +1,123 @@
+package com.alibaba.user_api_test.ttl3
+
+import com.alibaba.expandThreadPool
+import com.alibaba.getForTest
+import com.alibaba.shutdownForTest
+import com.alibaba.ttl3.TransmittableThreadLocal
+import com.alibaba.ttl3.TtlCompletableFuture
+import com.alibaba.ttl3.TtlWrappers
+import io.kotest.core.spec.style.AnnotationSpec
+import io.kotest.matchers.nulls.shouldBeNull
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.types.shouldBeSameInstanceAs
+import java.util.concurrent.Callable
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+
+/**
+ * Test [TtlCompletableFuture] from user code(different package)
+ */
+class TtlCompletableFutureTest : AnnotationSpec() {
+
+    @Test
+    fun test_async_stages() {
+        val ttl = TransmittableThreadLocal<String>()
+        ttl.set(parentValue)
+
+        val future = TtlCompletableFuture.supplyAsync({ ttl.get() }, executorService)
+            .thenApplyAsync({ it + "|" + ttl.get() }, executorService)
+            .thenApply { it + "|" + ttl.get() }
+            .thenCombineAsync(CompletableFuture.completedFuture("other"), { s, o -> s + "|" + o + "|" + ttl.get() }, executorService)
+            .thenComposeAsync({ s -> TtlCompletableFuture.supplyAsync({ s + "|" + ttl.get() }, executorService) }, executorService)
+
+        // modification after the chain is created is not transmitted
+        ttl.set(childValue)
+
+        future.getForTest() shouldBe listOf(parentValue, parentValue, parentValue, "other", parentValue, parentValue).joinToString("|")
+        ttl.get() shouldBe childValue
+        ttl.remove()
+    }
+
+    @Test
+    fun test_completed_by_other_thread() {
+        val ttl = TransmittableThreadLocal<String>()
+        ttl.set(parentValue)
+
+        val future = TtlCompletableFuture<String>()
+        val stage = future.thenApply { it + "|" + ttl.get() }
+            .handle { s, _ -> s + "|" + ttl.get() }
+        ttl.set(childValue)
+
+        executorService.submit {
+            future.complete("completed")
+            ttl.get().shouldBeNull()
+        }.getForTest()
+
+        stage.getForTest() shouldBe "completed|$parentValue|$parentValue"
+        ttl.get() shouldBe childValue
+        ttl.remove()
+    }
+
+    @Test
+    fun test_modification_shared_by_stages_in_same_execution() {
+        val ttl = TransmittableThreadLocal<String>()
+        ttl.set(parentValue)
+
+        val latch = CountDownLatch(1)
+        val future = TtlCompletableFuture.supplyAsync({
+            latch.await()
+            ttl.set("modified by stage")
+            "async"
+        }, executorService)
+        val stage = future.thenApply { it + "|" + ttl.get() }
+        latch.countDown()
+
+        // the dependent stage completed in the execution of the async stage is not replayed, sees the modification
+        stage.getForTest() shouldBe "async|modified by stage"
+        // the stage added after the chain completed replays the captured values
+        stage.thenApply { ttl.get() }.getForTest() shouldBe parentValue
+        // the modification is restored after the execution, not visible to the executor threads
+        List(3) { executorService.submit(Callable { ttl.get() }) }.forEach { it.getForTest().shouldBeNull() }
+
+        ttl.remove()
+    }
+
+    @Test
+    fun test_exceptionally() {
+        val ttl = TransmittableThreadLocal<String>()
+        ttl.set(parentValue)
+
+        val future = TtlCompletableFuture.supplyAsync<String>({ throw IllegalStateException("error") }, executorService)
+            .exceptionally { it.javaClass.simpleName + "|" + ttl.get() }
+        ttl.remove()
+
+        future.getForTest() shouldBe "CompletionException|$parentValue"
+    }
+
+    @Test
+    fun test_of_and_unwrap() {
+        val completableFuture = CompletableFuture<String>()
+        val future = TtlCompletableFuture.of(completableFuture)
+
+        TtlCompletableFuture.of(future) shouldBeSameInstanceAs future
+        future.toCompletableFuture() shouldBeSameInstanceAs completableFuture
+        TtlWrappers.unwrap(future) shouldBeSameInstanceAs completableFuture
+        TtlWrappers.isWrapper(future) shouldBe true
+    }
+
+    private val parentValue = "parent"
+    private val childValue = "child"
+    private lateinit var executorService: ExecutorService
+
+    @BeforeAll
+    fun beforeAll() {
+        executorService = Executors.newFixedThreadPool(3).also { expandThreadPool(it) }
+    }
+
+    @AfterAll
+    fun afterAll() {
+        executorService.shutdownForTest()
+    }
+}
@@ -0,0 +1,97 @@
+package com.alibaba.user_api_test.ttl3
+
+import com.alibaba.getForTest
+import com.alibaba.shutdownForTest
+import com.alibaba.ttl3.TransmittableThreadLocal
+import com.alibaba.ttl3.executor.TtlExecutors
+import com.alibaba.ttl3.executor.TtlScheduledThreadPoolExecutor
+import com.alibaba.ttl3.transmitter.Transmitter
+import io.kotest.core.spec.style.AnnotationSpec
+import io.kotest.matchers.collections.shouldContainExactly
+import io.kotest.matchers.longs.shouldBeGreaterThan
+import io.kotest.matchers.nulls.shouldBeNull
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.types.shouldBeSameInstanceAs
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+/**
+ * Test [TtlScheduledThreadPoolExecutor] from user code(different package)
+ */
+class TtlScheduledThreadPoolExecutorTest : AnnotationSpec() {
+
+    @Test
+    fun test_periodic_task_keeps_the_values_and_resets_the_modification() {
+        ttl.set(parentValue)
+
+        val values = ConcurrentLinkedQueue<String?>()
+        val latch = CountDownLatch(10)
+        val skippedCount = Transmitter.getSkippedReplayCount()
+        val future = executor.scheduleAtFixedRate({
+            values.add(ttl.get())
+            ttl.set(childValue)
+            latch.countDown()
+        }, 0, 1, TimeUnit.MILLISECONDS)
+
+        latch.await(3, TimeUnit.SECONDS) shouldBe true
+        future.cancel(false)
+
+        values.take(10) shouldContainExactly List(10) { parentValue }
+        // the values are kept installed between the runs, the replays are skipped
+        Transmitter.getSkippedReplayCount() shouldBeGreaterThan skippedCount
+
+        // the values installed are restored when the task of different captured values runs
+        ttl.remove()
+        executor.submit<String?> { ttl.get() }.getForTest().shouldBeNull()
+    }
+
+    @Test
+    fun test_replace_captured() {
+        ttl.set(parentValue)
+
+        val values = ConcurrentLinkedQueue<String?>()
+        val future = executor.scheduleWithFixedDelay({ values.add(ttl.get()) }, 0, 1, TimeUnit.MILLISECONDS)
+        val capturedBefore = future.captured
+
+        ttl.set(childValue)
+        future.recapture() shouldBeSameInstanceAs capturedBefore
+        Thread.sleep(20)
+        future.cancel(false)
+
+        // the following runs replay the new captured values, without rescheduling
+        values.last() shouldBe childValue
+    }
+
+    @Test
+    fun test_submit() {
+        ttl.set(parentValue)
+        executor.submit<String?> { ttl.get() }.getForTest() shouldBe parentValue
+        executor.schedule<String?>({ ttl.get() }, 1, TimeUnit.MILLISECONDS).getForTest() shouldBe parentValue
+
+        ttl.set(childValue)
+        executor.submit({ ttl.get() shouldBe childValue }, "done").getForTest() shouldBe "done"
+    }
+
+    @AfterEach
+    fun afterEach() {
+        ttl.remove()
+    }
+
+    private val parentValue = "parent"
+    private val childValue = "child"
+    private val ttl = TransmittableThreadLocal<String>()
+    private lateinit var executor: TtlScheduledThreadPoolExecutor
+
+    @BeforeAll
+    fun beforeAll() {
+        TransmittableThreadLocal.setPersistentContextEnabled(true)
+        executor = TtlScheduledThreadPoolExecutor(1, TtlExecutors.getDefaultDisableInheritableThreadFactory())
+    }
+
+    @AfterAll
+    fun afterAll() {
+        executor.shutdownForTest()
+        TransmittableThreadLocal.setPersistentContextEnabled(false)
+    }
+}
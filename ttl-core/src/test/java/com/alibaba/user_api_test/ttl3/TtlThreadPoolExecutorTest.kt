@@ -0,0 +1,161 @@
+package com.alibaba.user_api_test.ttl3
+
+import com.alibaba.getForTest
+import com.alibaba.shutdownForTest
+import com.alibaba.ttl3.TransmittableThreadLocal
+import com.alibaba.ttl3.TtlCallable
+import com.alibaba.ttl3.TtlRunnable
+import com.alibaba.ttl3.executor.TtlExecutors
+import com.alibaba.ttl3.executor.TtlForkJoinPool
+import com.alibaba.ttl3.executor.TtlThreadPoolExecutor
+import com.alibaba.ttl3.spi.TtlEnhanced
+import com.alibaba.ttl3.transmitter.Transmittee
+import com.alibaba.ttl3.transmitter.TransmitteeRegistry
+import com.alibaba.ttl3.transmitter.Transmitter
+import io.kotest.core.spec.style.AnnotationSpec
+import io.kotest.matchers.booleans.shouldBeTrue
+import io.kotest.matchers.collections.shouldContainExactly
+import io.kotest.matchers.longs.shouldBeGreaterThanOrEqual
+import io.kotest.matchers.nulls.shouldBeNull
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.types.shouldBeInstanceOf
+import java.util.concurrent.Callable
+import java.util.concurrent.LinkedBlockingQueue
+import java.util.concurrent.TimeUnit
+
+/**
+ * Test [TtlThreadPoolExecutor] and [TtlForkJoinPool] from user code(different package)
+ */
+class TtlThreadPoolExecutorTest : AnnotationSpec() {
+
+    @Test
+    fun test_execute_submit() {
+        ttl.set(parentValue)
+
+        val future = executor.submit<String?> { ttl.get() }
+        // the FutureTask carries the captured values, no TtlCallable wrapper
+        future.shouldBeInstanceOf<TtlEnhanced>()
+        future.getForTest() shouldBe parentValue
+
+        val queue = LinkedBlockingQueue<String?>()
+        executor.execute { queue.add(ttl.get()) }
+        queue.poll(3, TimeUnit.SECONDS) shouldBe parentValue
+
+        // the enhanced task is executed as is
+        executor.execute(TtlRunnable.get { queue.add(ttl.get()) })
+        queue.poll(3, TimeUnit.SECONDS) shouldBe parentValue
+
+        ttl.set(childValue)
+        executor.invokeAll(List(3) { Callable { ttl.get() } }).map { it.getForTest() } shouldContainExactly
+                List(3) { childValue }
+        executor.invokeAny(listOf(Callable { ttl.get() })) shouldBe childValue
+    }
+
+    @Test
+    fun test_submit_enhanced_task() {
+        var captureCount = 0
+        val transmittee = object : Transmittee<Any, Any> {
+            override fun capture(): Any = Any().also { captureCount++ }
+            override fun replay(captured: Any): Any = captured
+            override fun clear(): Any = Any()
+            override fun restore(backup: Any) {}
+        }
+        TransmitteeRegistry.registerTransmittee(transmittee).shouldBeTrue()
+        try {
+            ttl.set(parentValue)
+            val callable = TtlCallable.get { ttl.get() }!!
+            val runnable = TtlRunnable.get { ttl.get() shouldBe parentValue }!!
+            ttl.set(childValue)
+
+            // the enhanced task is not captured again
+            val count = captureCount
+            executor.submit(callable).getForTest() shouldBe parentValue
+            executor.submit(runnable).getForTest()
+            executor.submit(runnable, "done").getForTest() shouldBe "done"
+            captureCount shouldBe count
+        } finally {
+            TransmitteeRegistry.unregisterTransmittee(transmittee).shouldBeTrue()
+        }
+    }
+
+    @Test
+    fun test_modification_is_restored() {
+        ttl.set(parentValue)
+        executor.submit { ttl.set(childValue) }.getForTest()
+
+        ttl.remove()
+        executor.submit<String?> { ttl.get() }.getForTest().shouldBeNull()
+    }
+
+    @Test
+    fun test_keep_context_installed() {
+        executor.isKeepContextInstalled shouldBe false
+        executor.setKeepContextInstalled(true)
+        try {
+            ttl.set(parentValue)
+
+            executor.submit { }.getForTest()
+            val skippedCount = Transmitter.getSkippedReplayCount()
+            val values = List(10) {
+                executor.submit<String?> {
+                    ttl.get().also { ttl.set(childValue) }
+                }.getForTest()
+            }
+            values shouldContainExactly List(10) { parentValue }
+            // the values are kept installed between the tasks of the same captured values, the replays are skipped
+            Transmitter.getSkippedReplayCount() - skippedCount shouldBeGreaterThanOrEqual 10
+
+            // the values installed are reset when the task of different captured values runs
+            ttl.remove()
+            executor.submit<String?> { ttl.get() }.getForTest().shouldBeNull()
+        } finally {
+            executor.setKeepContextInstalled(false)
+        }
+    }
+
+    @Test
+    fun test_fork_join_pool() {
+        ttl.set(parentValue)
+
+        forkJoinPool.submit<String?> { ttl.get() }.getForTest() shouldBe parentValue
+        forkJoinPool.submit({ ttl.get() shouldBe parentValue }, "done").getForTest() shouldBe "done"
+
+        ttl.set(childValue)
+        forkJoinPool.invokeAll(List(3) { Callable { ttl.get() } }).map { it.getForTest() } shouldContainExactly
+                List(3) { childValue }
+
+        ttl.remove()
+        forkJoinPool.submit<String?> { ttl.get() }.getForTest().shouldBeNull()
+    }
+
+    @AfterEach
+    fun afterEach() {
+        ttl.remove()
+    }
+
+    private val parentValue = "parent"
+    private val childValue = "child"
+    private val ttl = TransmittableThreadLocal<String>()
+    private lateinit var executor: TtlThreadPoolExecutor
+    private lateinit var forkJoinPool: TtlForkJoinPool
+
+    @BeforeAll
+    fun beforeAll() {
+        TransmittableThreadLocal.setPersistentContextEnabled(true)
+        // single worker thread, the tasks run in succession on the same thread
+        executor = TtlThreadPoolExecutor(
+            1, 1, 0, TimeUnit.MILLISECONDS, LinkedBlockingQueue(),
+            TtlExecutors.getDefaultDisableInheritableThreadFactory()
+        )
+        forkJoinPool = TtlForkJoinPool(
+            2, TtlExecutors.getDefaultDisableInheritableForkJoinWorkerThreadFactory(), null, false
+        )
+    }
+
+    @AfterAll
+    fun afterAll() {
+        executor.shutdownForTest()
+        forkJoinPool.shutdownForTest()
+        TransmittableThreadLocal.setPersistentContextEnabled(false)
+    }
+}
@@ -0,0 +1,131 @@
+package com.alibaba.user_api_test.ttl3
+
+import com.alibaba.getForTest
+import com.alibaba.ttl3.TransmittableThreadLocal
+import com.alibaba.ttl3.executor.TtlExecutors
+import com.alibaba.ttl3.transmitter.Transmitter
+import io.kotest.assertions.throwables.shouldThrow
+import io.kotest.core.spec.style.AnnotationSpec
+import io.kotest.matchers.shouldBe
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.TimeUnit
+
+/**
+ * Test the "virtual thread" mode of [TransmittableThreadLocal] from user code(different package),
+ * the virtual threads need Java 21+, just check the unsupported exception on the old JVMs.
+ */
+class VirtualThreadModeTest : AnnotationSpec() {
+
+    @Test
+    fun test_transmit_to_virtual_thread() {
+        val executor = newExecutorOrNull() ?: return
+
+        val ttl = TransmittableThreadLocal<String>()
+        val ttl2 = object : TransmittableThreadLocal<MutableList<String>?>() {
+            override fun transmitteeValue(parentValue: MutableList<String>?): MutableList<String>? =
+                parentValue?.let { ArrayList(it) }
+        }
+        val ttlNotSet = TransmittableThreadLocal.withInitial { "initial" }
+        ttl.set(PARENT)
+        ttl2.set(mutableListOf(PARENT))
+
+        try {
+            executor.submit(Callable {
+                ttl.get() shouldBe PARENT
+                ttl2.get() shouldBe listOf(PARENT)
+                ttlNotSet.get() shouldBe "initial"
+
+                // capture and submit in the virtual thread
+                executor.submit(Callable { ttl.get() to ttlNotSet.get() }).getForTest() shouldBe (PARENT to "initial")
+
+                ttl.set(CHILD)
+                ttl2.get()!!.add(CHILD)
+                executor.submit(Callable { ttl.get() to ttl2.get() }).getForTest() shouldBe (CHILD to listOf(PARENT, CHILD))
+            }).getForTest()
+
+            executor.submit(Callable {
+                // nested replay in the virtual thread
+                val captured = Transmitter.runSupplierWithClear { ttl.set(CHILD); Transmitter.capture() }
+                ttl.get() shouldBe PARENT
+                Transmitter.runSupplierWithCaptured(captured) {
+                    ttl.get() shouldBe CHILD
+                    ttl2.get() shouldBe null
+                }
+                ttl.get() shouldBe PARENT
+                ttl2.get() shouldBe listOf(PARENT)
+
+                // inherited by the child thread created in the virtual thread
+                var inherited: String? = null
+                val thread = Thread { inherited = ttl.get() }
+                thread.start()
+                thread.join()
+                inherited shouldBe PARENT
+            }).getForTest()
+
+            ttl.get() shouldBe PARENT
+            ttl2.get() shouldBe listOf(PARENT)
+        } finally {
+            executor.shutdown()
+            executor.awaitTermination(1, TimeUnit.SECONDS)
+            ttl.remove()
+            ttl2.remove()
+        }
+    }
+
+    @Test
+    fun test_skip_nested_replay_modified_in_virtual_thread() {
+        val executor = newExecutorOrNull() ?: return
+
+        val ttl = TransmittableThreadLocal<String>()
+        ttl.set(PARENT)
+        val captured = Transmitter.capture()
+        try {
+            executor.submit(Callable {
+                ttl.set(CHILD)
+
+                Transmitter.runSupplierWithCaptured(captured) {
+                    // the thread holds the captured values(the overlay), the nested replay is skipped
+                    val skippedCount = Transmitter.getSkippedReplayCount()
+                    Transmitter.runSupplierWithCaptured(Transmitter.capture()) {
+                        ttl.set("modified by subtask")
+                    }
+                    Transmitter.getSkippedReplayCount() shouldBe skippedCount + 1
+                    ttl.get() shouldBe PARENT
+                }
+                ttl.get() shouldBe CHILD
+            }).getForTest()
+        } finally {
+            executor.shutdown()
+            executor.awaitTermination(1, TimeUnit.SECONDS)
+            ttl.remove()
+        }
+    }
+
+    /**
+     * create the TTL virtual thread executor, or `null` if the JVM does not support virtual threads.
+     */
+    private fun newExecutorOrNull(): ExecutorService? {
+        val javaVersion = System.getProperty("java.specification.version").substringAfter("1.").toInt()
+        if (javaVersion < 21) {
+            shouldThrow<UnsupportedOperationException> { TtlExecutors.newTtlVirtualThreadPerTaskExecutor() }
+            return null
+        }
+        return TtlExecutors.newTtlVirtualThreadPerTaskExecutor()
+    }
+
+    @BeforeAll
+    fun beforeAll() {
+        TransmittableThreadLocal.setVirtualThreadModeEnabled(true)
+    }
+
+    @AfterAll
+    fun afterAll() {
+        TransmittableThreadLocal.setVirtualThreadModeEnabled(false)
+    }
+
+    private companion object {
+        const val PARENT = "parent"
+        const val CHILD = "child"
+    }
+}
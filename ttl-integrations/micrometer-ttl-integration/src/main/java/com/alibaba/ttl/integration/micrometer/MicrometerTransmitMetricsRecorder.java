@@ -0,0 +1,137 @@
+package com.alibaba.ttl.integration.micrometer;
+
+import com.alibaba.ttl3.transmitter.TransmitMetrics;
+import com.alibaba.ttl3.transmitter.TransmitMetricsRecorder;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@link TransmitMetricsRecorder} records the transmit operations to the Micrometer {@link Timer}s
+ * named {@value #METER_NAME}, tagged by {@code target}(the {@link Object#toString()} of the target)
+ * and {@code operation}(the name of {@link Operation}).
+ * <p>
+ * Below is the example code:
+ *
+ * <pre>{@code
+ * TransmitMetrics.setRecorder(new MicrometerTransmitMetricsRecorder(meterRegistry));}</pre>
+ * <p>
+ * The targets are held by weak references, the timers of a garbage collected target are removed from the registry.
+ * Override {@code toString()} of the {@code ThreadLocal} for a readable tag.
+ *
+ * @see TransmitMetrics#setRecorder(TransmitMetricsRecorder)
+ */
+public final class MicrometerTransmitMetricsRecorder implements TransmitMetricsRecorder {
+    public static final String METER_NAME = "ttl.transmit";
+
+    private static final Operation[] OPERATIONS = Operation.values();
+
+    private final MeterRegistry registry;
+
+    private final ConcurrentHashMap<Object, TargetTimers> timers = new ConcurrentHashMap<>();
+
+    private final ReferenceQueue<Object> staleTargetQueue = new ReferenceQueue<>();
+
+    public MicrometerTransmitMetricsRecorder(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public void record(Object target, Operation operation, long nanos) {
+        expungeStaleTargets();
+
+        TargetTimers targetTimers = timers.get(new LookupKey(target));
+        if (targetTimers == null) {
+            final TargetTimers newTargetTimers = new TargetTimers(target, staleTargetQueue);
+            targetTimers = timers.putIfAbsent(newTargetTimers, newTargetTimers);
+            if (targetTimers == null) targetTimers = newTargetTimers;
+        }
+        targetTimers.timer(operation).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void expungeStaleTargets() {
+        for (Object ref; (ref = staleTargetQueue.poll()) != null; ) {
+            final TargetTimers targetTimers = timers.remove(ref);
+            if (targetTimers == null) continue;
+
+            for (Timer timer : targetTimers.timers) {
+                if (timer != null) registry.remove(timer);
+            }
+        }
+    }
+
+    /**
+     * The timers of a target, also the map key: the weak reference to the target, compared by the target identity.
+     */
+    private final class TargetTimers extends WeakReference<Object> {
+        final int hash;
+        final String name;
+        /**
+         * the timers by the operation ordinal, registered lazily.
+         */
+        final Timer[] timers = new Timer[OPERATIONS.length];
+
+        TargetTimers(Object target, ReferenceQueue<Object> queue) {
+            super(target, queue);
+            this.hash = System.identityHashCode(target);
+            this.name = String.valueOf(target);
+        }
+
+        Timer timer(Operation operation) {
+            Timer timer = timers[operation.ordinal()];
+            if (timer == null) {
+                // the registry returns the same timer for the same name and tags, so the race is harmless
+                timer = Timer.builder(METER_NAME)
+                        .description("the cost of the TTL transmit operations")
+                        .tag("target", name)
+                        .tag("operation", operation.name())
+                        .register(registry);
+                timers[operation.ordinal()] = timer;
+            }
+            return timer;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (obj instanceof LookupKey) return ((LookupKey) obj).target == get();
+            if (obj instanceof TargetTimers) {
+                final Object target = get();
+                return target != null && target == ((TargetTimers) obj).get();
+            }
+            return false;
+        }
+    }
+
+    /**
+     * The key to look up the {@link TargetTimers} of a target without creating the weak reference.
+     */
+    private static final class LookupKey {
+        final Object target;
+
+        LookupKey(Object target) {
+            this.target = target;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(target);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (obj instanceof TargetTimers) return ((TargetTimers) obj).get() == target;
+            return false;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.alibaba.ttl.integration.reactor;
+
+import com.alibaba.ttl3.TtlRunnable;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.function.Function;
+
+/**
+ * Transmit the TTL values across the thread boundaries of Reactor,
+ * by the schedule hook of Reactor {@link Schedulers}({@link Schedulers#onScheduleHook(String, Function)}).
+ * <p>
+ * Below is the example code:
+ *
+ * <pre>{@code
+ * TtlReactorHooks.install();
+ *
+ * ttl.set("value-set-in-parent");
+ * Flux.range(0, 1000)
+ *     .subscribeOn(Schedulers.boundedElastic())
+ *     .publishOn(Schedulers.parallel())
+ *     .map(i -> ttl.get()) // "value-set-in-parent"
+ *     .subscribe();}</pre>
+ * <p>
+ * The values are captured when the task is scheduled, and replayed when the task runs on the scheduler thread:
+ * <ul>
+ * <li>{@code subscribeOn} schedules the subscription once, so the values are captured once per subscription.</li>
+ * <li>{@code publishOn} schedules the drain loop when the queue becomes non-empty,
+ *     the signals drained in a run share one replay; no capture/replay per signal.</li>
+ * </ul>
+ * The operators running in the same thread are not decorated, they see the values of the thread as is.
+ *
+ * @see TtlRunnable
+ * @see Schedulers#onScheduleHook(String, Function)
+ */
+public final class TtlReactorHooks {
+    /**
+     * the key of the schedule hook, see {@link Schedulers#onScheduleHook(String, Function)}.
+     */
+    public static final String HOOK_KEY = "com.alibaba.ttl";
+
+    private static volatile boolean installed = false;
+
+    /**
+     * install the schedule hook, do nothing if installed.
+     */
+    public static synchronized void install() {
+        if (installed) return;
+
+        Schedulers.onScheduleHook(HOOK_KEY, TtlScheduleDecorator.INSTANCE);
+        installed = true;
+    }
+
+    /**
+     * uninstall the schedule hook, do nothing if not installed.
+     */
+    public static synchronized void uninstall() {
+        if (!installed) return;
+
+        Schedulers.resetOnScheduleHook(HOOK_KEY);
+        installed = false;
+    }
+
+    public static boolean isInstalled() {
+        return installed;
+    }
+
+    private static final class TtlScheduleDecorator implements Function<Runnable, Runnable> {
+        static final TtlScheduleDecorator INSTANCE = new TtlScheduleDecorator();
+
+        /**
+         * the periodic tasks run repeatedly, so do not release the captured values after run.
+         */
+        @Override
+        public Runnable apply(Runnable runnable) {
+            return TtlRunnable.get(runnable, false, true);
+        }
+    }
+
+    private TtlReactorHooks() {
+        throw new InstantiationError("Must not instantiate this class");
+    }
+}
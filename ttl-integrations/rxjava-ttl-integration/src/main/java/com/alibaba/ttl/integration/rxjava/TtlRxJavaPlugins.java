@@ -0,0 +1,88 @@
+package com.alibaba.ttl.integration.rxjava;
+
+import com.alibaba.ttl3.TtlRunnable;
+import io.reactivex.functions.Function;
+import io.reactivex.plugins.RxJavaPlugins;
+
+/**
+ * Transmit the TTL values across the thread boundaries of RxJava,
+ * by the schedule handler of {@link RxJavaPlugins}({@link RxJavaPlugins#setScheduleHandler(Function)}).
+ * <p>
+ * Below is the example code:
+ *
+ * <pre>{@code
+ * TtlRxJavaPlugins.install();
+ *
+ * ttl.set("value-set-in-parent");
+ * Flowable.range(0, 1000)
+ *     .subscribeOn(Schedulers.io())
+ *     .observeOn(Schedulers.computation())
+ *     .map(i -> ttl.get()) // "value-set-in-parent"
+ *     .subscribe();}</pre>
+ * <p>
+ * The values are captured when the task is scheduled, and replayed when the task runs on the scheduler thread:
+ * {@code subscribeOn} schedules the subscription once per subscription,
+ * {@code observeOn} schedules the drain loop when the queue becomes non-empty, the signals drained in a run share one replay;
+ * no capture/replay per signal.
+ * <p>
+ * The schedule handler installed before is kept, and called before the TTL decoration.
+ *
+ * @see TtlRunnable
+ * @see RxJavaPlugins#setScheduleHandler(Function)
+ */
+public final class TtlRxJavaPlugins {
+    private static Function<? super Runnable, ? extends Runnable> previousHandler;
+    private static volatile boolean installed = false;
+
+    /**
+     * install the schedule handler, do nothing if installed.
+     *
+     * @throws IllegalStateException if the {@link RxJavaPlugins} is locked down
+     */
+    public static synchronized void install() {
+        if (installed) return;
+
+        final Function<? super Runnable, ? extends Runnable> previous = RxJavaPlugins.getScheduleHandler();
+        RxJavaPlugins.setScheduleHandler(new TtlScheduleHandler(previous));
+        previousHandler = previous;
+        installed = true;
+    }
+
+    /**
+     * uninstall the schedule handler and restore the schedule handler installed before, do nothing if not installed.
+     *
+     * @throws IllegalStateException if the {@link RxJavaPlugins} is locked down
+     */
+    public static synchronized void uninstall() {
+        if (!installed) return;
+
+        RxJavaPlugins.setScheduleHandler(previousHandler);
+        previousHandler = null;
+        installed = false;
+    }
+
+    public static boolean isInstalled() {
+        return installed;
+    }
+
+    private static final class TtlScheduleHandler implements Function<Runnable, Runnable> {
+        private final Function<? super Runnable, ? extends Runnable> previous;
+
+        TtlScheduleHandler(Function<? super Runnable, ? extends Runnable> previous) {
+            this.previous = previous;
+        }
+
+        /**
+         * the periodic tasks run repeatedly, so do not release the captured values after run.
+         */
+        @Override
+        public Runnable apply(Runnable runnable) throws Exception {
+            final Runnable decorated = previous == null ? runnable : previous.apply(runnable);
+            return TtlRunnable.get(decorated, false, true);
+        }
+    }
+
+    private TtlRxJavaPlugins() {
+        throw new InstantiationError("Must not instantiate this class");
+    }
+}
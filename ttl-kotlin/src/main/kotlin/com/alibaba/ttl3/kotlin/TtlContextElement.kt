@@ -0,0 +1,115 @@
+package com.alibaba.ttl3.kotlin
+
+import com.alibaba.crr.composite.Backup
+import com.alibaba.crr.composite.Capture
+import com.alibaba.ttl3.transmitter.Transmitter
+import kotlinx.coroutines.CopyableThreadContextElement
+import kotlinx.coroutines.DelicateCoroutinesApi
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.ThreadContextElement
+import kotlin.coroutines.CoroutineContext
+
+/**
+ * Create a [TtlContextElement], transmit the `TransmittableThreadLocal` values to the coroutines.
+ *
+ * ```
+ * ttl.set("value-set-in-parent")
+ * launch(Dispatchers.Default + ttlContext()) {
+ *     ttl.get() // "value-set-in-parent"
+ *     delay(10)
+ *     ttl.get() // "value-set-in-parent", resumed on any thread
+ * }
+ * ```
+ *
+ * @see TtlContextElement
+ * @see kotlinx.coroutines.asContextElement
+ */
+fun ttlContext(): TtlContextElement = TtlContextElement(Transmitter.capture())
+
+/**
+ * [ThreadContextElement] that transmits the `TransmittableThreadLocal` values to the coroutines:
+ *
+ * - capture the values of the current thread when a coroutine is started(`launch`/`async`/`withContext`)
+ *   with this element in the context, see [copyForChild]/[mergeForChild]
+ * - replay the captured values when the coroutine is resumed on a thread, see [updateThreadContext]
+ * - restore the values of the thread when the coroutine is suspended, see [restoreThreadContext]
+ *
+ * Same as [kotlinx.coroutines.asContextElement], the values modified in a coroutine are NOT kept
+ * after the coroutine is suspended; to change the values for a block, set the values then use `withContext(ttlContext())`.
+ *
+ * If the current thread already holds the captured values of the coroutine when resumed,
+ * e.g. the nested `withContext` on the same dispatcher, or the coroutines started undispatched,
+ * the replay is skipped, and the thread values are seen as is.
+ * The capture is reused while the values are not modified(see [Transmitter.capture]),
+ * so the children of a coroutine share the capture of the coroutine if the values are not modified in the coroutine.
+ *
+ * @see ttlContext
+ */
+@OptIn(ExperimentalCoroutinesApi::class, DelicateCoroutinesApi::class)
+class TtlContextElement internal constructor(
+    private val captured: Capture
+) : CopyableThreadContextElement<Backup> {
+    companion object Key : CoroutineContext.Key<TtlContextElement> {
+        /**
+         * the captures replayed by the coroutines running in the current thread, the top is the current one.
+         */
+        private val held: ThreadLocal<Held> = ThreadLocal.withInitial { Held() }
+
+        /**
+         * the marker backup of the skipped replay.
+         */
+        private val SKIPPED: Backup = object : Backup {}
+    }
+
+    override val key: CoroutineContext.Key<TtlContextElement> get() = Key
+
+    override fun updateThreadContext(context: CoroutineContext): Backup {
+        val h = held.get()
+        if (h.top() === captured) return SKIPPED
+
+        val backup = Transmitter.replay(captured)
+        h.push(captured)
+        return backup
+    }
+
+    override fun restoreThreadContext(context: CoroutineContext, oldState: Backup) {
+        if (oldState === SKIPPED) return
+
+        held.get().pop()
+        Transmitter.restore(oldState)
+    }
+
+    /**
+     * capture the values of the current thread for the started coroutine,
+     * share this element if the values are not modified since captured.
+     */
+    override fun copyForChild(): CopyableThreadContextElement<Backup> {
+        val capture = Transmitter.capture()
+        return if (capture === captured) this else TtlContextElement(capture)
+    }
+
+    /**
+     * the element is overwritten explicitly by `withContext(ttlContext())`/`launch(ttlContext())`,
+     * capture the values of the current thread.
+     */
+    override fun mergeForChild(overwritingElement: CoroutineContext.Element): CoroutineContext =
+        (overwritingElement as TtlContextElement).copyForChild()
+
+    override fun toString(): String = "TtlContextElement(captured=$captured)"
+
+    private class Held {
+        private var captures = arrayOfNulls<Capture>(4)
+        private var size = 0
+
+        fun top(): Capture? = if (size == 0) null else captures[size - 1]
+
+        fun push(captured: Capture) {
+            if (size == captures.size) captures = captures.copyOf(size * 2)
+            captures[size++] = captured
+        }
+
+        fun pop() {
+            captures[--size] = null
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.alibaba.ttl3.kotlin
+
+import com.alibaba.ttl3.TransmittableThreadLocal
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.nulls.shouldBeNull
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.types.shouldBeSameInstanceAs
+import io.kotest.matchers.types.shouldNotBeSameInstanceAs
+import kotlinx.coroutines.*
+import java.util.concurrent.Executors
+
+class TtlContextElementTests : FunSpec({
+    val ttl = TransmittableThreadLocal<String>()
+
+    // disable inheritable, the pool threads have no TTL values of their own
+    val dispatcher = Executors.newFixedThreadPool(2, getDefaultDisableInheritableThreadFactory()).asCoroutineDispatcher()
+
+    afterSpec {
+        dispatcher.close()
+    }
+
+    afterTest {
+        ttl.remove()
+    }
+
+    test("transmit to the coroutine, and kept after resumed") {
+        ttl.set(PARENT)
+
+        runBlocking {
+            launch(dispatcher + ttlContext()) {
+                ttl.get() shouldBe PARENT
+                delay(5)
+                ttl.get() shouldBe PARENT
+                yield()
+                ttl.get() shouldBe PARENT
+            }.join()
+        }
+        ttl.get() shouldBe PARENT
+    }
+
+    test("the values of the thread are restored after the coroutine suspended") {
+        ttl.set(PARENT)
+
+        runBlocking {
+            launch(dispatcher + ttlContext()) {
+                ttl.set(CHILD)
+            }.join()
+
+            withContext(dispatcher) {
+                ttl.get().shouldBeNull()
+            }
+            async(dispatcher) { ttl.get() }.await().shouldBeNull()
+        }
+    }
+
+    test("the modification in the coroutine is not kept after suspended, same as asContextElement") {
+        ttl.set(PARENT)
+
+        runBlocking(dispatcher + ttlContext()) {
+            ttl.set(CHILD)
+            delay(5)
+            ttl.get() shouldBe PARENT
+
+            ttl.set(CHILD)
+            withContext(ttlContext()) {
+                delay(5)
+                ttl.get() shouldBe CHILD
+            }
+        }
+    }
+
+    test("capture the values of the parent coroutine when launch the child") {
+        ttl.set(PARENT)
+
+        runBlocking(dispatcher + ttlContext()) {
+            ttl.set(CHILD)
+            launch {
+                delay(5)
+                ttl.get() shouldBe CHILD
+            }.join()
+
+            async(Dispatchers.Default) {
+                ttl.get()
+            }.await() shouldBe PARENT
+        }
+    }
+
+    test("nested withContext on the same dispatcher sees the values as is") {
+        ttl.set(PARENT)
+
+        runBlocking(dispatcher + ttlContext()) {
+            ttl.set(CHILD)
+            withContext(CoroutineName("nested")) {
+                ttl.get() shouldBe CHILD
+            }
+            ttl.get() shouldBe CHILD
+        }
+    }
+
+    test("share the capture if not modified") {
+        ttl.set(PARENT)
+
+        val element = ttlContext()
+        element.copyForChild() shouldBeSameInstanceAs element
+
+        ttl.set(CHILD)
+        element.copyForChild() shouldNotBeSameInstanceAs element
+    }
+})
+
+private const val PARENT = "parent"
+private const val CHILD = "child"